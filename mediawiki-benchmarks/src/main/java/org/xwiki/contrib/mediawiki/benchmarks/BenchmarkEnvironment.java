@@ -0,0 +1,174 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.FileUtils;
+import org.xwiki.component.embed.EmbeddableComponentManager;
+import org.xwiki.component.manager.ComponentManager;
+
+/**
+ * Give the benchmarks access to the components and to the test resources of the MediaWiki XML module (packaged in
+ * the benchmarks jar so that they can run offline).
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public final class BenchmarkEnvironment
+{
+    /**
+     * The dump used by most of the tests of the MediaWiki XML module.
+     */
+    public static final String DUMP = "1.26.3.xml";
+
+    /**
+     * The media files of {@link #DUMP} (stored in an {@code images/} root folder).
+     */
+    public static final String FILES = "1.26.3-files.zip";
+
+    private static final String RESOURCES = "mediawikixml/";
+
+    private static final String FILES_ROOT = "images/";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    private static ComponentManager componentManager;
+
+    private BenchmarkEnvironment()
+    {
+        // Utility class
+    }
+
+    /**
+     * @return the component manager initialized with all the components found in the classpath
+     */
+    public static synchronized ComponentManager getComponentManager()
+    {
+        if (componentManager == null) {
+            EmbeddableComponentManager embeddableComponentManager = new EmbeddableComponentManager();
+            embeddableComponentManager.initialize(BenchmarkEnvironment.class.getClassLoader());
+
+            componentManager = embeddableComponentManager;
+        }
+
+        return componentManager;
+    }
+
+    /**
+     * @return a new temporary folder, deleted when the JVM exits
+     * @throws IOException when failing to create the folder
+     */
+    public static File createTemporaryFolder() throws IOException
+    {
+        File folder = Files.createTempDirectory("mediawiki-benchmarks").toFile();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> FileUtils.deleteQuietly(folder)));
+
+        return folder;
+    }
+
+    /**
+     * @param resource the name of the test resource
+     * @param folder the folder where to copy the resource
+     * @return the copied file
+     * @throws IOException when failing to copy the resource
+     */
+    public static File copy(String resource, File folder) throws IOException
+    {
+        File file = new File(folder, resource);
+
+        try (InputStream stream = openStream(resource)) {
+            Files.copy(stream, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        return file;
+    }
+
+    /**
+     * Extract the media files of {@link #DUMP} in a folder organized like the MediaWiki {@code images/} folder.
+     *
+     * @param folder the folder where to extract the media files
+     * @return the media files folder
+     * @throws IOException when failing to extract the media files
+     */
+    public static File extractFiles(File folder) throws IOException
+    {
+        Path filesFolder = new File(folder, FILES_ROOT).toPath();
+
+        try (ZipInputStream stream = new ZipInputStream(openStream(FILES))) {
+            for (ZipEntry entry = stream.getNextEntry(); entry != null; entry = stream.getNextEntry()) {
+                if (!entry.isDirectory()) {
+                    Path file = filesFolder.resolve(entry.getName().substring(FILES_ROOT.length()));
+                    Files.createDirectories(file.getParent());
+                    Files.copy(stream, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+
+        return filesFolder.toFile();
+    }
+
+    /**
+     * @param resource the name of the dump test resource
+     * @return the content of all the revisions of the dump
+     * @throws Exception when failing to parse the dump
+     */
+    public static List<String> readRevisionContents(String resource) throws Exception
+    {
+        List<String> contents = new ArrayList<>();
+
+        try (InputStream stream = openStream(resource)) {
+            XMLStreamReader xmlReader = XML_INPUT_FACTORY.createXMLStreamReader(stream);
+
+            while (xmlReader.hasNext()) {
+                if (xmlReader.next() == XMLStreamReader.START_ELEMENT && xmlReader.getLocalName().equals("text")) {
+                    contents.add(xmlReader.getElementText());
+                }
+            }
+
+            xmlReader.close();
+        }
+
+        return contents;
+    }
+
+    private static InputStream openStream(String resource) throws IOException
+    {
+        InputStream stream = BenchmarkEnvironment.class.getClassLoader().getResourceAsStream(RESOURCES + resource);
+
+        if (stream == null) {
+            throw new IOException("Cannot find the test resource [" + resource + "]");
+        }
+
+        return stream;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.benchmarks;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.contrib.mediawiki.syntax.bliki.internal.parser.BlikiMediaWikiStreamParser;
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.listener.WrappingListener;
+import org.xwiki.rendering.parser.StreamParser;
+
+/**
+ * Measure the parsing of the content of the pages of the test dumps with {@link BlikiMediaWikiStreamParser}, the
+ * events being ignored. Run with {@code -prof gc} to get the allocation per dump ({@code gc.alloc.rate.norm}).
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlikiParserBenchmark
+{
+    @Param({BenchmarkEnvironment.DUMP, "internallinks.xml", "externallinks.xml", "imagesize.xml"})
+    private String dump;
+
+    private List<String> contents;
+
+    private StreamParser parser;
+
+    /**
+     * Ignore all the events.
+     */
+    private final Listener listener = new WrappingListener();
+
+    /**
+     * Load the content of the pages and the parser.
+     *
+     * @throws Exception when failing to setup the benchmark
+     */
+    @Setup
+    public void setup() throws Exception
+    {
+        this.contents = BenchmarkEnvironment.readRevisionContents(this.dump);
+
+        this.parser = BenchmarkEnvironment.getComponentManager().getInstance(StreamParser.class,
+            BlikiMediaWikiStreamParser.SYNTAX_STRING);
+    }
+
+    /**
+     * Parse the content of all the pages of the dump.
+     *
+     * @throws Exception when failing to parse a page
+     */
+    @Benchmark
+    public void parse() throws Exception
+    {
+        for (String content : this.contents) {
+            this.parser.parse(new StringReader(content), this.listener);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.contrib.mediawiki.xml.input.MediaWikiInputProperties;
+import org.xwiki.filter.input.BeanInputFilterStream;
+import org.xwiki.filter.input.BeanInputFilterStreamFactory;
+import org.xwiki.filter.input.DefaultFileInputSource;
+import org.xwiki.filter.input.InputFilterStreamFactory;
+
+/**
+ * Measure the import of a whole dump (including the conversion of the pages to XWiki syntax and the attachments) by
+ * the {@code mediawiki+xml} input filter stream, the produced events being ignored. Run with {@code -prof gc} to get
+ * the allocation per import ({@code gc.alloc.rate.norm}).
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DumpImportBenchmark
+{
+    /**
+     * A filter which does not implement any filter interface, so that all the events are ignored.
+     */
+    private static final Object NULL_FILTER = new Object();
+
+    @Param({"1", "4"})
+    private int workers;
+
+    @Param({"folder", "archive"})
+    private String files;
+
+    private File dumpFile;
+
+    private File filesFile;
+
+    private BeanInputFilterStreamFactory<MediaWikiInputProperties> factory;
+
+    /**
+     * Copy the dump and its media files on the file system and get the input filter stream factory.
+     *
+     * @throws Exception when failing to setup the benchmark
+     */
+    @Setup
+    public void setup() throws Exception
+    {
+        File folder = BenchmarkEnvironment.createTemporaryFolder();
+
+        this.dumpFile = BenchmarkEnvironment.copy(BenchmarkEnvironment.DUMP, folder);
+        this.filesFile = this.files.equals("archive") ? BenchmarkEnvironment.copy(BenchmarkEnvironment.FILES, folder)
+            : BenchmarkEnvironment.extractFiles(folder);
+
+        this.factory = BenchmarkEnvironment.getComponentManager().getInstance(InputFilterStreamFactory.class,
+            MediaWikiInputProperties.FILTER_STREAM_TYPE_STRING);
+    }
+
+    /**
+     * Import the dump.
+     *
+     * @throws Exception when failing to import the dump
+     */
+    @Benchmark
+    public void read() throws Exception
+    {
+        MediaWikiInputProperties properties = new MediaWikiInputProperties();
+        properties.setSource(new DefaultFileInputSource(this.dumpFile));
+        properties.setFiles(new DefaultFileInputSource(this.filesFile));
+        properties.setFileAttached(true);
+        properties.setSpaceSeparator("/");
+        properties.setWorkers(this.workers);
+
+        try (BeanInputFilterStream<MediaWikiInputProperties> stream =
+            this.factory.createInputFilterStream(properties)) {
+            stream.read(NULL_FILTER);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xwiki.contrib.mediawiki.xml.input.MediaWikiInputProperties;
+import org.xwiki.contrib.mediawiki.xml.internal.input.PageNameNormalizer;
+
+/**
+ * Compare the normalization, cleaning and splitting of page names as done before and with
+ * {@link PageNameNormalizer}.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageNameNormalizationBenchmark
+{
+    private static final String MAIN_PAGE = "Main_Page";
+
+    private static final String DEFAULT_PAGE = "WebHome";
+
+    private static final String[] PAGE_NAMES = {"Main_Page", "Main Page", "Some page", "Already_normalized_page",
+        "lower case  with   spaces", "Space/Sub space/Page", "Name with #forbidden? characters", "Template:Infobox",
+        "Help_and__underscores", "Category/Some category"};
+
+    private MediaWikiInputProperties properties;
+
+    private PageNameNormalizer normalizer;
+
+    /**
+     * Prepare the configuration.
+     */
+    @Setup
+    public void setup()
+    {
+        this.properties = new MediaWikiInputProperties();
+        this.properties.setForbiddenCharacters("#?");
+        this.properties.setSpaceSeparator("/");
+
+        this.normalizer = new PageNameNormalizer(this.properties, MAIN_PAGE, DEFAULT_PAGE);
+    }
+
+    /**
+     * The page name normalization before {@link PageNameNormalizer}.
+     *
+     * @param blackhole used to consume the normalized names
+     */
+    @Benchmark
+    @OperationsPerInvocation(10)
+    public void legacy(Blackhole blackhole)
+    {
+        for (String pageName : PAGE_NAMES) {
+            String cleanReference = pageName.replace(' ', '_');
+            cleanReference = cleanReference.replaceAll("_{2,}", "_");
+            cleanReference = StringUtils.capitalize(cleanReference);
+
+            if (cleanReference.equals(MAIN_PAGE)) {
+                cleanReference = DEFAULT_PAGE;
+            }
+
+            for (int i = 0; i < this.properties.getForbiddenCharacters().length(); ++i) {
+                cleanReference = StringUtils.remove(cleanReference, this.properties.getForbiddenCharacters().charAt(i));
+            }
+
+            blackhole.consume(cleanReference.split(this.properties.getSpaceSeparator()));
+        }
+    }
+
+    /**
+     * The page name normalization with {@link PageNameNormalizer}.
+     *
+     * @param blackhole used to consume the normalized names
+     */
+    @Benchmark
+    @OperationsPerInvocation(10)
+    public void normalizer(Blackhole blackhole)
+    {
+        for (String pageName : PAGE_NAMES) {
+            String cleanReference = this.normalizer.normalize(pageName, true, true);
+
+            blackhole.consume(this.normalizer.split(cleanReference));
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.benchmarks;
+
+import java.io.StringReader;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xwiki.contrib.mediawiki.xml.internal.input.RevisionMetadataDecoder;
+import org.xwiki.filter.FilterEventParameters;
+import org.xwiki.xml.stax.StAXUtils;
+
+/**
+ * Compare the decoding of the metadata of the revisions ({@code <timestamp>}, {@code <contributor>} and
+ * {@code <comment>}) as done before and with {@link RevisionMetadataDecoder}. Run with {@code -prof gc} to get the
+ * allocation per revision ({@code gc.alloc.rate.norm}).
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RevisionMetadataBenchmark
+{
+    private static final int REVISIONS = 1000;
+
+    private static final int CONTRIBUTORS = 50;
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    private String xml;
+
+    private RevisionMetadataDecoder decoder;
+
+    /**
+     * Generate the revisions.
+     */
+    @Setup
+    public void setup()
+    {
+        StringBuilder builder = new StringBuilder("<revisions>");
+        for (int i = 0; i < REVISIONS; ++i) {
+            builder.append("<revision><timestamp>2016-06-");
+            builder.append(10 + i % 20);
+            builder.append("T09:");
+            builder.append(10 + i % 50);
+            builder.append(":15Z</timestamp><contributor><username>User ");
+            builder.append(i % CONTRIBUTORS);
+            builder.append("</username></contributor><comment>Fix typo</comment></revision>");
+        }
+        builder.append("</revisions>");
+
+        this.xml = builder.toString();
+
+        this.decoder = new RevisionMetadataDecoder();
+    }
+
+    /**
+     * The decoding of the revision metadata before {@link RevisionMetadataDecoder}.
+     *
+     * @param blackhole used to consume the decoded values
+     * @throws Exception when failing to parse the revisions
+     */
+    @Benchmark
+    @OperationsPerInvocation(REVISIONS)
+    public void legacy(Blackhole blackhole) throws Exception
+    {
+        XMLStreamReader xmlReader = XML_INPUT_FACTORY.createXMLStreamReader(new StringReader(this.xml));
+
+        xmlReader.nextTag();
+        for (xmlReader.nextTag(); xmlReader.isStartElement(); xmlReader.nextTag()) {
+            FilterEventParameters parameters = new FilterEventParameters();
+
+            for (xmlReader.nextTag(); xmlReader.isStartElement(); xmlReader.nextTag()) {
+                String elementName = xmlReader.getLocalName();
+
+                if (elementName.equals("timestamp")) {
+                    Date date = DatatypeFactory.newInstance().newXMLGregorianCalendar(xmlReader.getElementText())
+                        .toGregorianCalendar().getTime();
+                    parameters.put("revision_date", date);
+                } else if (elementName.equals("contributor")) {
+                    for (xmlReader.nextTag(); xmlReader.isStartElement(); xmlReader.nextTag()) {
+                        parameters.put("revision_author", xmlReader.getElementText());
+                    }
+                } else if (elementName.equals("comment")) {
+                    parameters.put("revision_comment", xmlReader.getElementText());
+                } else {
+                    StAXUtils.skipElement(xmlReader);
+                }
+            }
+
+            blackhole.consume(parameters);
+        }
+    }
+
+    /**
+     * The decoding of the revision metadata with {@link RevisionMetadataDecoder}.
+     *
+     * @param blackhole used to consume the decoded values
+     * @throws Exception when failing to parse the revisions
+     */
+    @Benchmark
+    @OperationsPerInvocation(REVISIONS)
+    public void decoder(Blackhole blackhole) throws Exception
+    {
+        XMLStreamReader xmlReader = XML_INPUT_FACTORY.createXMLStreamReader(new StringReader(this.xml));
+
+        xmlReader.nextTag();
+        for (xmlReader.nextTag(); xmlReader.isStartElement(); xmlReader.nextTag()) {
+            FilterEventParameters parameters = new FilterEventParameters();
+
+            for (xmlReader.nextTag(); xmlReader.isStartElement(); xmlReader.nextTag()) {
+                String elementName = xmlReader.getLocalName();
+
+                if (elementName.equals("timestamp")) {
+                    parameters.put("revision_date", this.decoder.readTimestamp(xmlReader));
+                } else if (elementName.equals("contributor")) {
+                    for (xmlReader.nextTag(); xmlReader.isStartElement(); xmlReader.nextTag()) {
+                        parameters.put("revision_author", this.decoder.readInterned(xmlReader));
+                    }
+                } else if (elementName.equals("comment")) {
+                    parameters.put("revision_comment", this.decoder.readInterned(xmlReader));
+                } else {
+                    StAXUtils.skipElement(xmlReader);
+                }
+            }
+
+            blackhole.consume(parameters);
+        }
+    }
+}
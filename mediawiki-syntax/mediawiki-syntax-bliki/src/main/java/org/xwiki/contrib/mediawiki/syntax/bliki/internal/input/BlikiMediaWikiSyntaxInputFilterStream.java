@@ -33,6 +33,7 @@ import org.xwiki.contrib.mediawiki.syntax.MediaWikiSyntaxInputProperties;
 import org.xwiki.contrib.mediawiki.syntax.bliki.internal.parser.BlikiMediaWikiStreamParser;
 import org.xwiki.contrib.mediawiki.syntax.bliki.internal.parser.converter.EventConverter;
 import org.xwiki.contrib.mediawiki.syntax.bliki.internal.parser.model.EventWikiModel;
+import org.xwiki.contrib.mediawiki.syntax.internal.input.CharArrayInputSource;
 import org.xwiki.contrib.mediawiki.syntax.internal.input.MediaWikiContentFilter;
 import org.xwiki.filter.FilterEventParameters;
 import org.xwiki.filter.FilterException;
@@ -58,6 +59,10 @@ public class BlikiMediaWikiSyntaxInputFilterStream
     @Inject
     private Provider<EventWikiModel> modelProvider;
 
+    private EventConverter converter;
+
+    private EventWikiModel wikiModel;
+
     @Override
     public void close() throws IOException
     {
@@ -68,6 +73,9 @@ public class BlikiMediaWikiSyntaxInputFilterStream
     {
         if (this.properties.getSource() instanceof StringInputSource) {
             return this.properties.getSource().toString();
+        } else if (this.properties.getSource() instanceof CharArrayInputSource) {
+            // Bliki needs a String, create it directly from the array instead of going through the reader
+            return this.properties.getSource().toString();
         } else if (this.properties.getSource() instanceof ReaderInputSource) {
             return IOUtils.toString(((ReaderInputSource) this.properties.getSource()).getReader());
         } else {
@@ -89,11 +97,19 @@ public class BlikiMediaWikiSyntaxInputFilterStream
 
         SectionGeneratorListener wrappingListener = new SectionGeneratorListener(listener);
 
-        // Create custom converter
-        EventConverter converter = this.converterProvider.get();
+        // The converter and the model are kept when the stream is reused to parse another content (with new
+        // properties)
+        if (this.converter == null) {
+            this.converter = this.converterProvider.get();
+            this.wikiModel = this.modelProvider.get();
+        } else {
+            this.wikiModel.reset();
+        }
+
+        EventConverter converter = this.converter;
         converter.init(wrappingListener, this.properties);
 
-        EventWikiModel wikiModel = this.modelProvider.get();
+        EventWikiModel wikiModel = this.wikiModel;
         wikiModel.init(this.properties);
 
         MetaData metaData = new MetaData();
@@ -106,6 +122,9 @@ public class BlikiMediaWikiSyntaxInputFilterStream
             wikiModel.render(converter, source, null, false, true);
         } catch (IOException e) {
             throw new FilterException("Failed to parse source", e);
+        } finally {
+            // Don't keep the listener of the content until the next parsing
+            converter.reset();
         }
 
         for (String category : wikiModel.getCategories().keySet()) {
@@ -24,69 +24,54 @@ import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.xwiki.contrib.mediawiki.syntax.MediaWikiSyntaxInputProperties;
+import org.xwiki.filter.FilterException;
 import org.xwiki.rendering.listener.reference.ResourceReference;
 import org.xwiki.rendering.listener.reference.ResourceType;
 
-import info.bliki.htmlcleaner.BaseToken;
-import info.bliki.htmlcleaner.TagNode;
+import info.bliki.wiki.model.IWikiModel;
 import info.bliki.wiki.tags.ATag;
 
 public class AEventGenerator extends AbstractEventGenerator<ATag>
 {
     private static final Pattern URL_SCHEME_PATTERN = Pattern.compile("[a-zA-Z0-9+.-]*://");
 
-    private ResourceReference reference;
-
-    private Map<String, String> parameters;
-
-    public AEventGenerator()
-    {
-    }
-
-    @Override
-    public void init(BaseToken token, EventConverter converter)
-    {
-        super.init(token, converter);
-
-        if (token instanceof TagNode) {
-            this.parameters = new HashMap<>(((TagNode) token).getAttributes());
-
-            String hrefName = getAttributeKey(this.parameters, "href");
-            if (hrefName != null) {
-                String href = this.parameters.remove(hrefName);
-                if (href != null) {
-                    computeResourceReference(href);
-                }
-            }
-        }
-    }
-
-    private void computeResourceReference(String rawReference)
+    private ResourceReference computeResourceReference(String rawReference)
     {
         // Do we have a valid URL?
         Matcher matcher = URL_SCHEME_PATTERN.matcher(rawReference);
         if (matcher.lookingAt()) {
             // We have UC1
-            this.reference = new ResourceReference(rawReference, ResourceType.URL);
+            return new ResourceReference(rawReference, ResourceType.URL);
         } else {
             // We have UC2
-            this.reference = new ResourceReference(rawReference, ResourceType.PATH);
+            return new ResourceReference(rawReference, ResourceType.PATH);
         }
     }
 
     @Override
-    public void begin()
+    public void traverse(ATag token, EventConverter converter, IWikiModel model,
+        MediaWikiSyntaxInputProperties properties) throws FilterException
     {
-        if (this.reference != null) {
-            getListener().beginLink(this.reference, false, this.parameters);
+        Map<String, String> parameters = new HashMap<>(token.getAttributes());
+
+        ResourceReference reference = null;
+        String hrefName = getAttributeKey(parameters, "href");
+        if (hrefName != null) {
+            String href = parameters.remove(hrefName);
+            if (href != null) {
+                reference = computeResourceReference(href);
+            }
         }
-    }
 
-    @Override
-    public void end()
-    {
-        if (this.reference != null) {
-            getListener().endLink(this.reference, false, this.parameters);
+        if (reference != null) {
+            getListener(converter).beginLink(reference, false, parameters);
+        }
+
+        converter.traverse(token.getChildren(), model);
+
+        if (reference != null) {
+            getListener(converter).endLink(reference, false, parameters);
         }
     }
 }
@@ -28,32 +28,30 @@ import info.bliki.htmlcleaner.TagNode;
 
 public abstract class AbstractBlockEventGenerator<T extends BaseToken> extends AbstractEventGenerator<T>
 {
-    protected AbstractBlock block;
+    private final AbstractBlock block;
 
     public AbstractBlockEventGenerator(AbstractBlock block)
     {
         this.block = block;
     }
 
-    @Override
-    public void init(BaseToken token, EventConverter converter)
+    /**
+     * @param token the token
+     * @return the shared block when the token has no attribute, a copy of the block with the attributes of the token
+     *         as parameters otherwise
+     */
+    protected AbstractBlock getBlock(T token)
     {
-        super.init(token, converter);
+        if (token instanceof TagNode && !((TagNode) token).getAttributes().isEmpty()) {
+            AbstractBlock tokenBlock = (AbstractBlock) this.block.clone();
 
-        if (token instanceof TagNode) {
             for (Map.Entry<String, String> entry : ((TagNode) token).getAttributes().entrySet()) {
-                this.block.setParameter(entry.getKey(), entry.getValue());
+                tokenBlock.setParameter(entry.getKey(), entry.getValue());
             }
-        }
-    }
 
-    @Override
-    public AbstractBlockEventGenerator<T> clone() throws CloneNotSupportedException
-    {
-        AbstractBlockEventGenerator<T> blockEvent = (AbstractBlockEventGenerator<T>) super.clone();
-
-        blockEvent.block = (AbstractBlock) this.block.clone();
+            return tokenBlock;
+        }
 
-        return blockEvent;
+        return this.block;
     }
 }
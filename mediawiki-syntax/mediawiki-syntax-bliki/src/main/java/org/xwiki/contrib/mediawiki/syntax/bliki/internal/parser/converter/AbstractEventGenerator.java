@@ -29,69 +29,43 @@ import info.bliki.htmlcleaner.BaseToken;
 import info.bliki.htmlcleaner.TagNode;
 import info.bliki.wiki.model.IWikiModel;
 
-public abstract class AbstractEventGenerator<T extends BaseToken> implements EventGenerator
+public abstract class AbstractEventGenerator<T extends BaseToken> implements EventGenerator<T>
 {
-    protected T token;
-
-    protected EventConverter converter;
-
-    public AbstractEventGenerator()
-    {
-    }
-
-    @Override
-    public void init(BaseToken token, EventConverter converter)
-    {
-        this.token = (T) token;
-        this.converter = converter;
-    }
-
-    @Override
-    public T getToken()
-    {
-        return this.token;
-    }
-
-    @Override
-    public AbstractEventGenerator clone() throws CloneNotSupportedException
-    {
-        return (AbstractEventGenerator) super.clone();
-    }
-
-    protected Listener getListener()
+    protected Listener getListener(EventConverter converter)
     {
-        return this.converter.getListener();
+        return converter.getListener();
     }
 
-    public Map<String, String> getParameters()
+    public Map<String, String> getParameters(T token)
     {
-        if (this.token instanceof TagNode) {
-            return ((TagNode) this.token).getAttributes();
+        if (token instanceof TagNode) {
+            return ((TagNode) token).getAttributes();
         }
 
         return Listener.EMPTY_PARAMETERS;
     }
 
-    protected void begin() throws FilterException
+    protected void begin(T token, EventConverter converter) throws FilterException
     {
         // To overwrite
     }
 
-    protected void end() throws FilterException
+    protected void end(T token, EventConverter converter) throws FilterException
     {
         // To overwrite
     }
 
     @Override
-    public void traverse(IWikiModel model, MediaWikiSyntaxInputProperties properties) throws FilterException
+    public void traverse(T token, EventConverter converter, IWikiModel model,
+        MediaWikiSyntaxInputProperties properties) throws FilterException
     {
-        begin();
+        begin(token, converter);
 
-        if (this.token instanceof TagNode) {
-            this.converter.traverse(((TagNode) this.token).getChildren(), model);
+        if (token instanceof TagNode) {
+            converter.traverse(((TagNode) token).getChildren(), model);
         }
 
-        end();
+        end(token, converter);
     }
 
     public String getAttributeKey(Map<String, String> attributes, String targetKey)
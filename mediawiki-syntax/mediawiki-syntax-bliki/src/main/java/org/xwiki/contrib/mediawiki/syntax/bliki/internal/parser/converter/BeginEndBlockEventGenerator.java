@@ -19,9 +19,13 @@
  */
 package org.xwiki.contrib.mediawiki.syntax.bliki.internal.parser.converter;
 
+import org.xwiki.contrib.mediawiki.syntax.MediaWikiSyntaxInputProperties;
+import org.xwiki.filter.FilterException;
 import org.xwiki.rendering.block.AbstractBlock;
 
 import info.bliki.htmlcleaner.BaseToken;
+import info.bliki.htmlcleaner.TagNode;
+import info.bliki.wiki.model.IWikiModel;
 
 public class BeginEndBlockEventGenerator<T extends BaseToken> extends AbstractBlockEventGenerator<T>
 {
@@ -31,14 +35,17 @@ public class BeginEndBlockEventGenerator<T extends BaseToken> extends AbstractBl
     }
 
     @Override
-    public void begin()
+    public void traverse(T token, EventConverter converter, IWikiModel model,
+        MediaWikiSyntaxInputProperties properties) throws FilterException
     {
-        this.block.before(getListener());
-    }
+        AbstractBlock block = getBlock(token);
 
-    @Override
-    public void end()
-    {
-        this.block.after(getListener());
+        block.before(getListener(converter));
+
+        if (token instanceof TagNode) {
+            converter.traverse(((TagNode) token).getChildren(), model);
+        }
+
+        block.after(getListener(converter));
     }
 }
@@ -22,32 +22,21 @@ package org.xwiki.contrib.mediawiki.syntax.bliki.internal.parser.converter;
 import org.xwiki.rendering.listener.Format;
 import org.xwiki.rendering.listener.Listener;
 
-import info.bliki.htmlcleaner.BaseToken;
 import info.bliki.wiki.tags.WPBoldItalicTag;
 
 public class BoldItalicEventGenerator extends AbstractEventGenerator<WPBoldItalicTag>
 {
-    public BoldItalicEventGenerator()
-    {
-    }
-
-    @Override
-    public void init(BaseToken token, EventConverter converter)
-    {
-        super.init(token, converter);
-    }
-
     @Override
-    public void begin()
+    public void begin(WPBoldItalicTag token, EventConverter converter)
     {
-        getListener().beginFormat(Format.BOLD, this.token.getAttributes());
-        getListener().beginFormat(Format.ITALIC, Listener.EMPTY_PARAMETERS);
+        getListener(converter).beginFormat(Format.BOLD, token.getAttributes());
+        getListener(converter).beginFormat(Format.ITALIC, Listener.EMPTY_PARAMETERS);
     }
 
     @Override
-    public void end()
+    public void end(WPBoldItalicTag token, EventConverter converter)
     {
-        getListener().endFormat(Format.ITALIC, Listener.EMPTY_PARAMETERS);
-        getListener().endFormat(Format.BOLD, this.token.getAttributes());
+        getListener(converter).endFormat(Format.ITALIC, Listener.EMPTY_PARAMETERS);
+        getListener(converter).endFormat(Format.BOLD, token.getAttributes());
     }
 }
@@ -25,13 +25,15 @@ import org.xwiki.filter.FilterException;
 import info.bliki.htmlcleaner.BaseToken;
 import info.bliki.wiki.model.IWikiModel;
 
-public interface EventGenerator extends Cloneable
+/**
+ * Produce the events corresponding to a token. The generators are shared by all the converters (see
+ * {@link EventGeneratorRegistry}) so they must not keep any state.
+ *
+ * @param <T> the type of token
+ * @version $Id$
+ */
+public interface EventGenerator<T extends BaseToken>
 {
-    void init(BaseToken token, EventConverter converter);
-
-    EventGenerator clone() throws CloneNotSupportedException;
-
-    void traverse(IWikiModel model, MediaWikiSyntaxInputProperties properties) throws FilterException;
-
-    BaseToken getToken();
+    void traverse(T token, EventConverter converter, IWikiModel model, MediaWikiSyntaxInputProperties properties)
+        throws FilterException;
 }
@@ -0,0 +1,217 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.syntax.bliki.internal.parser.converter;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.xwiki.contrib.mediawiki.syntax.bliki.internal.parser.model.GalleryXMacroTag;
+import org.xwiki.contrib.mediawiki.syntax.bliki.internal.parser.model.ImageTag;
+import org.xwiki.contrib.mediawiki.syntax.bliki.internal.parser.model.LinkTag;
+import org.xwiki.contrib.mediawiki.syntax.bliki.internal.parser.model.XMacroTag;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.BulletedListBlock;
+import org.xwiki.rendering.block.FigureBlock;
+import org.xwiki.rendering.block.FigureCaptionBlock;
+import org.xwiki.rendering.block.FormatBlock;
+import org.xwiki.rendering.block.GroupBlock;
+import org.xwiki.rendering.block.HorizontalLineBlock;
+import org.xwiki.rendering.block.ListItemBlock;
+import org.xwiki.rendering.block.NewLineBlock;
+import org.xwiki.rendering.block.NumberedListBlock;
+import org.xwiki.rendering.block.TableBlock;
+import org.xwiki.rendering.block.TableCellBlock;
+import org.xwiki.rendering.block.TableHeadCellBlock;
+import org.xwiki.rendering.block.TableRowBlock;
+import org.xwiki.rendering.listener.Format;
+import org.xwiki.rendering.listener.HeaderLevel;
+
+import info.bliki.htmlcleaner.TagToken;
+import info.bliki.wiki.filter.WPList;
+import info.bliki.wiki.filter.WPTable;
+import info.bliki.wiki.model.Configuration;
+import info.bliki.wiki.tags.ATag;
+import info.bliki.wiki.tags.BrTag;
+import info.bliki.wiki.tags.HTMLTag;
+import info.bliki.wiki.tags.HrTag;
+import info.bliki.wiki.tags.MathTag;
+import info.bliki.wiki.tags.NowikiTag;
+import info.bliki.wiki.tags.PreTag;
+import info.bliki.wiki.tags.RefTag;
+import info.bliki.wiki.tags.ReferencesTag;
+import info.bliki.wiki.tags.SourceTag;
+import info.bliki.wiki.tags.TableOfContentTag;
+import info.bliki.wiki.tags.TemplateTag;
+import info.bliki.wiki.tags.WPBoldItalicTag;
+import info.bliki.wiki.tags.util.INoBodyParsingTag;
+
+/**
+ * The generators associated to each tag, shared by all the converters.
+ * <p>
+ * The tag names are only exposed by the Bliki tags themselves so the registry is computed once, when the class is
+ * loaded, and never modified after that. The generators don't keep any state so the same instance is used for all the
+ * tokens, from any thread.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public final class EventGeneratorRegistry
+{
+    private static final EventGenerator<?> TABLE_OF_CONTENT = new TableOfContentEventGenerator();
+
+    private static final EventGenerator<?> TEMPLATE = new TemplateTagEventGenerator();
+
+    private static final EventGenerator<?> MACRO = new MacroEventGenerator();
+
+    private static final EventGenerator<?> UNKNOWN = new UnknownEventGenerator();
+
+    private static final Map<String, EventGenerator<?>> GENERATORS = Collections.unmodifiableMap(createGenerators());
+
+    private EventGeneratorRegistry()
+    {
+        // Utility class
+    }
+
+    private static Map<String, EventGenerator<?>> createGenerators()
+    {
+        Map<String, EventGenerator<?>> generators = new HashMap<>();
+
+        generators.put(new BrTag().getName(), new OnBlockEventGenerator<BrTag>(new NewLineBlock()));
+        generators.put(new HrTag().getName(), new OnBlockEventGenerator<HrTag>(new HorizontalLineBlock()));
+
+        generators.put(new NowikiTag().getName(), new VerbatimEventGenerator(true));
+        generators.put(new PreTag().getName(), new VerbatimEventGenerator(false));
+        generators.put(new MathTag().getName(), new FormulaMacroEventGenerator());
+
+        generators.put(new GalleryXMacroTag().getName(), new GalleryEventGenerator());
+
+        generators.put(new RefTag().getName(), new MacroEventGenerator("footnote", true));
+        generators.put(new ReferencesTag().getName(), new MacroEventGenerator("putFootnotes", false));
+
+        // see https://www.mediawiki.org/wiki/Extension:SyntaxHighlight
+        SourceEventGenerator source = new SourceEventGenerator();
+        generators.put("syntaxhighlight", source);
+        generators.put(new SourceTag().getName(), source);
+        generators.put(Configuration.HTML_CODE_OPEN.getName(), source);
+
+        generators.put(new ATag().getName(), new AEventGenerator());
+
+        generators.put(Configuration.HTML_H1_OPEN.getName(), new HeaderEventGenerator(HeaderLevel.LEVEL1));
+        generators.put(Configuration.HTML_H2_OPEN.getName(), new HeaderEventGenerator(HeaderLevel.LEVEL2));
+        generators.put(Configuration.HTML_H3_OPEN.getName(), new HeaderEventGenerator(HeaderLevel.LEVEL3));
+        generators.put(Configuration.HTML_H4_OPEN.getName(), new HeaderEventGenerator(HeaderLevel.LEVEL4));
+        generators.put(Configuration.HTML_H5_OPEN.getName(), new HeaderEventGenerator(HeaderLevel.LEVEL5));
+        generators.put(Configuration.HTML_H6_OPEN.getName(), new HeaderEventGenerator(HeaderLevel.LEVEL6));
+
+        EventGenerator<?> bold = format(Format.BOLD);
+        EventGenerator<?> italic = format(Format.ITALIC);
+        EventGenerator<?> striked = format(Format.STRIKEDOUT);
+        EventGenerator<?> small = new BeginEndBlockEventGenerator<HTMLTag>(new FormatBlock(
+            Collections.<Block>emptyList(), Format.NONE, Collections.singletonMap("style", "font-size:small")));
+
+        generators.put(Configuration.HTML_EM_OPEN.getName(), bold);
+        generators.put(Configuration.HTML_ITALIC_OPEN.getName(), italic);
+        generators.put(Configuration.HTML_BOLD_OPEN.getName(), bold);
+        generators.put(new WPBoldItalicTag().getName(), new BoldItalicEventGenerator());
+        generators.put(Configuration.HTML_STRONG_OPEN.getName(), bold);
+        generators.put(Configuration.HTML_UNDERLINE_OPEN.getName(), format(Format.UNDERLINED));
+        generators.put(Configuration.HTML_TT_OPEN.getName(), format(Format.MONOSPACE));
+        generators.put(Configuration.HTML_VAR_OPEN.getName(), italic);
+        generators.put(Configuration.HTML_SMALL_OPEN.getName(), small);
+        generators.put(Configuration.HTML_BIG_OPEN.getName(), small);
+        generators.put(Configuration.HTML_CITE_OPEN.getName(), italic);
+        generators.put(Configuration.HTML_ABBR_OPEN.getName(), italic);
+        generators.put(Configuration.HTML_FONT_OPEN.getName(), new FontEventGenerator());
+        generators.put(Configuration.HTML_SPAN_OPEN.getName(), format(Format.NONE));
+
+        generators.put(Configuration.HTML_PARAGRAPH_OPEN.getName(), new ParagraphEventGenerator());
+
+        generators.put(Configuration.HTML_SUB_OPEN.getName(), format(Format.SUBSCRIPT));
+        generators.put(Configuration.HTML_SUP_OPEN.getName(), format(Format.SUPERSCRIPT));
+        generators.put(Configuration.HTML_STRIKE_OPEN.getName(), striked);
+        generators.put(Configuration.HTML_S_OPEN.getName(), striked);
+        generators.put(Configuration.HTML_DEL_OPEN.getName(), striked);
+
+        generators.put(new WPTable(null).getName(), new WPTableBlockEventGenerator());
+
+        generators.put(Configuration.HTML_TABLE_OPEN.getName(),
+            new BeginEndBlockEventGenerator<HTMLTag>(new TableBlock(Collections.<Block>emptyList())));
+        generators.put(Configuration.HTML_TH_OPEN.getName(),
+            new BeginEndBlockEventGenerator<HTMLTag>(new TableHeadCellBlock(Collections.<Block>emptyList())));
+        generators.put(Configuration.HTML_TR_OPEN.getName(),
+            new BeginEndBlockEventGenerator<HTMLTag>(new TableRowBlock(Collections.<Block>emptyList())));
+        generators.put(Configuration.HTML_TD_OPEN.getName(),
+            new BeginEndBlockEventGenerator<HTMLTag>(new TableCellBlock(Collections.<Block>emptyList())));
+        // TODO: BLOCK_MAP.put("caption", HTML_CAPTION_OPEN);
+
+        generators.put(Configuration.HTML_UL_OPEN.getName(),
+            new BeginEndBlockEventGenerator<HTMLTag>(new BulletedListBlock(Collections.<Block>emptyList())));
+        generators.put(Configuration.HTML_OL_OPEN.getName(),
+            new BeginEndBlockEventGenerator<HTMLTag>(new NumberedListBlock(Collections.<Block>emptyList())));
+        generators.put(Configuration.HTML_LI_OPEN.getName(),
+            new BeginEndBlockEventGenerator<HTMLTag>(new ListItemBlock(Collections.<Block>emptyList())));
+        generators.put(new WPList().getName(), new WPListBlockEventGenerator());
+
+        generators.put(Configuration.HTML_CENTER_OPEN.getName(),
+            new BeginEndBlockEventGenerator<HTMLTag>(new GroupBlock(Collections.<Block>emptyList(),
+                Collections.singletonMap("style", "margin-right: auto; margin-left: auto;text-align: center"))));
+        generators.put(Configuration.HTML_DIV_OPEN.getName(),
+            new BeginEndBlockEventGenerator<HTMLTag>(new GroupBlock()));
+
+        generators.put(new LinkTag(null, false).getName(), new LinkEventGenerator());
+
+        generators.put(XMacroTag.TAG_NAME, MACRO);
+
+        generators.put(ImageTag.NAME, new ImageEventGenerator());
+        generators.put("figure",
+            new BeginEndBlockEventGenerator<HTMLTag>(new FigureBlock(Collections.<Block>emptyList())));
+        generators.put("figurecaption",
+            new BeginEndBlockEventGenerator<HTMLTag>(new FigureCaptionBlock(Collections.<Block>emptyList())));
+
+        return generators;
+    }
+
+    private static EventGenerator<?> format(Format format)
+    {
+        return new BeginEndBlockEventGenerator<HTMLTag>(new FormatBlock(Collections.<Block>emptyList(), format));
+    }
+
+    /**
+     * @param token the token
+     * @return the generator in charge of the token
+     */
+    public static EventGenerator<?> get(TagToken token)
+    {
+        if (token instanceof TableOfContentTag) {
+            return TABLE_OF_CONTENT;
+        } else if (token instanceof TemplateTag) {
+            return TEMPLATE;
+        }
+
+        EventGenerator<?> generator = GENERATORS.get(token.getName());
+
+        if (generator == null) {
+            generator = token instanceof INoBodyParsingTag ? MACRO : UNKNOWN;
+        }
+
+        return generator;
+    }
+}
@@ -22,9 +22,11 @@ package org.xwiki.contrib.mediawiki.syntax.bliki.internal.parser.converter;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.xwiki.contrib.mediawiki.syntax.MediaWikiSyntaxInputProperties;
+import org.xwiki.filter.FilterException;
 import org.xwiki.rendering.listener.Format;
 
-import info.bliki.htmlcleaner.BaseToken;
+import info.bliki.wiki.model.IWikiModel;
 import info.bliki.wiki.tags.HTMLTag;
 
 public class FontEventGenerator extends AbstractEventGenerator<HTMLTag>
@@ -42,31 +44,15 @@ public class FontEventGenerator extends AbstractEventGenerator<HTMLTag>
         FONT_SIZE_MAP.put("7", "3em");
     }
 
-    private Map<String, String> parameters = new HashMap<>();
-
-    public FontEventGenerator()
-    {
-    }
-
-    @Override
-    public void init(BaseToken token, EventConverter converter)
-    {
-        super.init(token, converter);
-    }
-
     @Override
-    public Map<String, String> getParameters()
+    public Map<String, String> getParameters(HTMLTag token)
     {
-        return this.parameters;
-    }
+        Map<String, String> parameters = new HashMap<>();
 
-    @Override
-    public void begin()
-    {
         StringBuilder builder = new StringBuilder();
 
         // Font size
-        String fontSize = FONT_SIZE_MAP.get(this.token.getAttributes().get("size"));
+        String fontSize = FONT_SIZE_MAP.get(token.getAttributes().get("size"));
         if (fontSize != null) {
             builder.append("font-size: ");
             builder.append(fontSize);
@@ -74,7 +60,7 @@ public class FontEventGenerator extends AbstractEventGenerator<HTMLTag>
         }
 
         // Font color
-        String fontColor = this.token.getAttributes().get("color");
+        String fontColor = token.getAttributes().get("color");
         if (fontSize != null) {
             builder.append("font-color: ");
             builder.append(fontColor);
@@ -82,7 +68,7 @@ public class FontEventGenerator extends AbstractEventGenerator<HTMLTag>
         }
 
         // Font color
-        String fontFace = this.token.getAttributes().get("face");
+        String fontFace = token.getAttributes().get("face");
         if (fontSize != null) {
             builder.append("font-face: ");
             builder.append(fontFace);
@@ -90,15 +76,22 @@ public class FontEventGenerator extends AbstractEventGenerator<HTMLTag>
         }
 
         if (builder.length() > 0) {
-            this.parameters.put("style", builder.toString());
+            parameters.put("style", builder.toString());
         }
 
-        getListener().beginFormat(Format.NONE, getParameters());
+        return parameters;
     }
 
     @Override
-    public void end()
+    public void traverse(HTMLTag token, EventConverter converter, IWikiModel model,
+        MediaWikiSyntaxInputProperties properties) throws FilterException
     {
-        getListener().endFormat(Format.NONE, getParameters());
+        Map<String, String> parameters = getParameters(token);
+
+        getListener(converter).beginFormat(Format.NONE, parameters);
+
+        converter.traverse(token.getChildren(), model);
+
+        getListener(converter).endFormat(Format.NONE, parameters);
     }
 }
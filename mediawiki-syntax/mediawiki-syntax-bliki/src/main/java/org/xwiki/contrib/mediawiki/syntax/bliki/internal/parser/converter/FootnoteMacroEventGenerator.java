@@ -23,6 +23,8 @@ import java.util.Map;
 
 import org.xwiki.rendering.listener.Listener;
 
+import info.bliki.htmlcleaner.TagNode;
+
 public class FootnoteMacroEventGenerator extends MacroEventGenerator
 {
     public FootnoteMacroEventGenerator()
@@ -31,7 +33,7 @@ public class FootnoteMacroEventGenerator extends MacroEventGenerator
     }
 
     @Override
-    public Map<String, String> getParameters()
+    public Map<String, String> getParameters(TagNode token)
     {
         return Listener.EMPTY_PARAMETERS;
     }
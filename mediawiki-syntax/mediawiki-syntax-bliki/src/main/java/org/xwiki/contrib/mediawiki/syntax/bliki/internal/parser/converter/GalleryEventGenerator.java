@@ -25,14 +25,15 @@ import java.io.StringReader;
 
 import org.apache.commons.lang3.StringUtils;
 
+import info.bliki.htmlcleaner.TagNode;
 import info.bliki.wiki.model.IWikiModel;
 
 public class GalleryEventGenerator extends MacroEventGenerator
 {
     @Override
-    protected String createContent(IWikiModel model)
+    protected String createContent(TagNode token, IWikiModel model)
     {
-        String source = super.createContent(model);
+        String source = super.createContent(token, model);
 
         if (StringUtils.isEmpty(source)) {
             return source;
@@ -33,22 +33,24 @@ import info.bliki.wiki.tags.HTMLBlockTag;
 
 public class HeaderEventGenerator extends AbstractEventGenerator<HTMLBlockTag>
 {
-    private HeaderLevel level;
+    private final HeaderLevel level;
 
     public HeaderEventGenerator(HeaderLevel level)
     {
         this.level = level;
     }
 
-    public Map<String, String> getParameters()
+    @Override
+    public Map<String, String> getParameters(HTMLBlockTag token)
     {
-        return this.token.getAttributes();
+        return token.getAttributes();
     }
 
     @Override
-    public void traverse(IWikiModel model, MediaWikiSyntaxInputProperties properties) throws FilterException
+    public void traverse(HTMLBlockTag token, EventConverter converter, IWikiModel model,
+        MediaWikiSyntaxInputProperties properties) throws FilterException
     {
-        List<Object> children = this.token.getChildren();
+        List<Object> children = token.getChildren();
 
         if (!children.isEmpty()) {
             Object child = children.get(0);
@@ -62,11 +64,11 @@ public class HeaderEventGenerator extends AbstractEventGenerator<HTMLBlockTag>
                 }
             }
 
-            getListener().beginHeader(this.level, id, this.token.getAttributes());
+            getListener(converter).beginHeader(this.level, id, token.getAttributes());
 
-            this.converter.traverse(children, model);
+            converter.traverse(children, model);
 
-            getListener().endHeader(this.level, id, this.token.getAttributes());
+            getListener(converter).endHeader(this.level, id, token.getAttributes());
         }
     }
 }
@@ -28,8 +28,9 @@ import info.bliki.wiki.model.IWikiModel;
 public class ImageEventGenerator extends AbstractEventGenerator<ImageTag>
 {
     @Override
-    public void traverse(IWikiModel model, MediaWikiSyntaxInputProperties properties) throws FilterException
+    public void traverse(ImageTag token, EventConverter converter, IWikiModel model,
+        MediaWikiSyntaxInputProperties properties) throws FilterException
     {
-        getListener().onImage(this.token.getReference(), this.token.isFreestanding(), this.token.getAttributes());
+        getListener(converter).onImage(token.getReference(), token.isFreestanding(), token.getAttributes());
     }
 }
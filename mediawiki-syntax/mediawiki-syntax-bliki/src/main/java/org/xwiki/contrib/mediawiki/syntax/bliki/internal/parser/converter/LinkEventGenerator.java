@@ -24,14 +24,14 @@ import org.xwiki.contrib.mediawiki.syntax.bliki.internal.parser.model.LinkTag;
 public class LinkEventGenerator extends AbstractEventGenerator<LinkTag>
 {
     @Override
-    public void begin()
+    public void begin(LinkTag token, EventConverter converter)
     {
-        getListener().beginLink(this.token.getReference(), this.token.isFreestanding(), this.token.getAttributes());
+        getListener(converter).beginLink(token.getReference(), token.isFreestanding(), token.getAttributes());
     }
 
     @Override
-    public void end()
+    public void end(LinkTag token, EventConverter converter)
     {
-        getListener().endLink(this.token.getReference(), this.token.isFreestanding(), this.token.getAttributes());
+        getListener(converter).endLink(token.getReference(), token.isFreestanding(), token.getAttributes());
     }
 }
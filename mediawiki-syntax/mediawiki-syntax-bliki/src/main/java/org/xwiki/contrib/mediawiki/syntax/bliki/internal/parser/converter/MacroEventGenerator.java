@@ -30,14 +30,11 @@ import info.bliki.wiki.model.IWikiModel;
 
 public class MacroEventGenerator extends AbstractEventGenerator<TagNode>
 {
-    private String id;
-
-    private String content;
-
-    private Boolean inline;
+    private final String id;
 
     public MacroEventGenerator()
     {
+        this.id = null;
     }
 
     public MacroEventGenerator(String id)
@@ -50,27 +47,27 @@ public class MacroEventGenerator extends AbstractEventGenerator<TagNode>
         this.id = id;
     }
 
-    protected String getId()
+    protected String getId(TagNode token)
     {
         if (this.id == null) {
-            if (this.token instanceof XMacroTag) {
-                return ((XMacroTag) this.token).getMacroId();
+            if (token instanceof XMacroTag) {
+                return ((XMacroTag) token).getMacroId();
             } else {
-                this.id = this.token.getName();
+                return token.getName();
             }
         }
 
         return this.id;
     }
 
-    protected String createContent(IWikiModel model)
+    protected String createContent(TagNode token, IWikiModel model)
     {
-        if (this.token instanceof XMacroTag) {
-            return ((XMacroTag) this.token).getMacroContent();
+        if (token instanceof XMacroTag) {
+            return ((XMacroTag) token).getMacroContent();
         } else {
-            String content = this.token.getBodyString();
+            String content = token.getBodyString();
 
-            if (!isInline()) {
+            if (!isInline(token)) {
                 // Remove leading and trailing newline
                 content = StringUtils.removeStart(content, "\r");
                 content = StringUtils.removeStart(content, "\n");
@@ -82,31 +79,25 @@ public class MacroEventGenerator extends AbstractEventGenerator<TagNode>
         }
     }
 
-    public String getContent(IWikiModel model)
+    public String getContent(TagNode token, IWikiModel model)
     {
-        if (this.content == null) {
-            this.content = createContent(model);
-        }
-
-        return this.content;
+        return createContent(token, model);
     }
 
-    public boolean isInline()
+    public boolean isInline(TagNode token)
     {
-        if (this.inline == null) {
-            if (this.token instanceof XMacroTag) {
-                this.inline = ((XMacroTag) this.token).isInline();
-            } else {
-                this.inline = this.token.getParents() != Configuration.SPECIAL_BLOCK_TAGS;
-            }
+        if (token instanceof XMacroTag) {
+            return ((XMacroTag) token).isInline();
+        } else {
+            return token.getParents() != Configuration.SPECIAL_BLOCK_TAGS;
         }
-
-        return this.inline == Boolean.TRUE;
     }
 
     @Override
-    public void traverse(IWikiModel model, MediaWikiSyntaxInputProperties properties) throws FilterException
+    public void traverse(TagNode token, EventConverter converter, IWikiModel model,
+        MediaWikiSyntaxInputProperties properties) throws FilterException
     {
-        getListener().onMacro(getId(), getParameters(), getContent(model), isInline());
+        getListener(converter).onMacro(getId(token), getParameters(token), getContent(token, model),
+            isInline(token));
     }
 }
@@ -34,8 +34,9 @@ public class OnBlockEventGenerator<T extends BaseToken> extends AbstractBlockEve
     }
 
     @Override
-    public void traverse(IWikiModel model, MediaWikiSyntaxInputProperties properties) throws FilterException
+    public void traverse(T token, EventConverter converter, IWikiModel model,
+        MediaWikiSyntaxInputProperties properties) throws FilterException
     {
-        this.block.traverse(getListener());
+        getBlock(token).traverse(getListener(converter));
     }
 }
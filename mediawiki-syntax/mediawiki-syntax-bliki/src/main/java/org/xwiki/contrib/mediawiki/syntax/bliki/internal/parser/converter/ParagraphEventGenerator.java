@@ -28,24 +28,25 @@ import info.bliki.wiki.model.IWikiModel;
 public class ParagraphEventGenerator extends AbstractEventGenerator<TagNode>
 {
     @Override
-    public void begin()
+    public void begin(TagNode token, EventConverter converter)
     {
-        getListener().beginParagraph(this.token.getAttributes());
+        getListener(converter).beginParagraph(token.getAttributes());
     }
 
     @Override
-    public void end()
+    public void end(TagNode token, EventConverter converter)
     {
-        getListener().endParagraph(this.token.getAttributes());
+        getListener(converter).endParagraph(token.getAttributes());
     }
 
     @Override
-    public void traverse(IWikiModel model, MediaWikiSyntaxInputProperties properties) throws FilterException
+    public void traverse(TagNode token, EventConverter converter, IWikiModel model,
+        MediaWikiSyntaxInputProperties properties) throws FilterException
     {
         // FIXME: hack to workaround
         // https://bitbucket.org/axelclk/info.bliki.wiki/issues/32/standalone-generate-an-empty-ptag-followed
-        if (!this.token.getChildren().isEmpty()) {
-            super.traverse(model, properties);
+        if (!token.getChildren().isEmpty()) {
+            super.traverse(token, converter, model, properties);
         }
     }
 }
@@ -23,6 +23,7 @@ import java.util.Map;
 
 import org.xwiki.rendering.listener.Listener;
 
+import info.bliki.htmlcleaner.TagNode;
 import info.bliki.wiki.model.IWikiModel;
 
 public class PutFootnotesMacroEventGenerator extends MacroEventGenerator
@@ -33,13 +34,13 @@ public class PutFootnotesMacroEventGenerator extends MacroEventGenerator
     }
 
     @Override
-    public Map<String, String> getParameters()
+    public Map<String, String> getParameters(TagNode token)
     {
         return Listener.EMPTY_PARAMETERS;
     }
 
     @Override
-    public String getContent(IWikiModel model)
+    public String getContent(TagNode token, IWikiModel model)
     {
         return null;
     }
@@ -25,49 +25,23 @@ import java.util.Map;
 import org.xwiki.contrib.mediawiki.syntax.MediaWikiSyntaxInputProperties;
 import org.xwiki.filter.FilterException;
 
-import info.bliki.htmlcleaner.BaseToken;
 import info.bliki.wiki.model.IWikiModel;
 import info.bliki.wiki.tags.SourceTag;
 
 public class SourceEventGenerator extends AbstractEventGenerator<SourceTag>
 {
-    private boolean inline;
-
-    private String content;
-
-    private Map<String, String> parameters;
-
-    public SourceEventGenerator()
-    {
-    }
-
     @Override
-    public void init(BaseToken token, EventConverter converter)
+    public void traverse(SourceTag token, EventConverter converter, IWikiModel model,
+        MediaWikiSyntaxInputProperties properties) throws FilterException
     {
-        super.init(token, converter);
-
-        this.content = this.token.getBodyString();
-
-        Map<String, String> attributes = this.token.getAttributes();
+        Map<String, String> attributes = token.getAttributes();
 
-        this.parameters = new LinkedHashMap<>();
+        Map<String, String> parameters = new LinkedHashMap<>();
         String language = attributes.get("lang");
         if (language != null) {
-            this.parameters.put("language", language);
+            parameters.put("language", language);
         }
 
-        this.inline = attributes.containsKey("inline");
-    }
-
-    @Override
-    public void traverse(IWikiModel model, MediaWikiSyntaxInputProperties properties) throws FilterException
-    {
-        getListener().onMacro("code", this.parameters, this.content, this.inline);
-    }
-
-    @Override
-    public SourceEventGenerator clone() throws CloneNotSupportedException
-    {
-        return (SourceEventGenerator) super.clone();
+        getListener(converter).onMacro("code", parameters, token.getBodyString(), attributes.containsKey("inline"));
     }
 }
@@ -23,27 +23,17 @@ import org.xwiki.contrib.mediawiki.syntax.MediaWikiSyntaxInputProperties;
 import org.xwiki.filter.FilterException;
 import org.xwiki.rendering.listener.Listener;
 
-import info.bliki.htmlcleaner.BaseToken;
 import info.bliki.wiki.model.IWikiModel;
 import info.bliki.wiki.tags.TableOfContentTag;
 
 public class TableOfContentEventGenerator extends AbstractEventGenerator<TableOfContentTag>
 {
-    public TableOfContentEventGenerator()
-    {
-    }
-
-    @Override
-    public void init(BaseToken token, EventConverter converter)
-    {
-        super.init(token, converter);
-    }
-
     @Override
-    public void traverse(IWikiModel model, MediaWikiSyntaxInputProperties properties) throws FilterException
+    public void traverse(TableOfContentTag token, EventConverter converter, IWikiModel model,
+        MediaWikiSyntaxInputProperties properties) throws FilterException
     {
-        if (this.token.isShowToC() && (this.token.isTOCIdentifier() || !properties.isNoToc())) {
-            getListener().onMacro("toc", Listener.EMPTY_PARAMETERS, null, false);
+        if (token.isShowToC() && (token.isTOCIdentifier() || !properties.isNoToc())) {
+            getListener(converter).onMacro("toc", Listener.EMPTY_PARAMETERS, null, false);
         }
     }
 }
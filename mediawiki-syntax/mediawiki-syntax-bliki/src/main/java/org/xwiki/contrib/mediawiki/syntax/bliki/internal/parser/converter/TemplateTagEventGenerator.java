@@ -25,7 +25,6 @@ import java.util.Map;
 import org.xwiki.contrib.mediawiki.syntax.MediaWikiSyntaxInputProperties;
 import org.xwiki.filter.FilterException;
 
-import info.bliki.htmlcleaner.BaseToken;
 import info.bliki.wiki.model.IWikiModel;
 import info.bliki.wiki.tags.TemplateTag;
 
@@ -43,30 +42,25 @@ public class TemplateTagEventGenerator extends AbstractEventGenerator<TemplateTa
     }
 
     @Override
-    public void init(BaseToken token, EventConverter converter)
-    {
-        super.init(token, converter);
-    }
-
-    @Override
-    public void traverse(IWikiModel model, MediaWikiSyntaxInputProperties properties) throws FilterException
+    public void traverse(TemplateTag token, EventConverter converter, IWikiModel model,
+        MediaWikiSyntaxInputProperties properties) throws FilterException
     {
         String prefix = properties.getTemplateMacroPrefix();
 
-        String macroName = prefix + this.token.getName();
+        String macroName = prefix + token.getName();
 
         Map<String, String> macroParameters = new LinkedHashMap<>();
 
         // Use first parameter as macro content
-        String content = this.token.getAttributes().get("1");
+        String content = token.getAttributes().get("1");
 
-        for (Map.Entry<String, String> entry : this.token.getAttributes().entrySet()) {
+        for (Map.Entry<String, String> entry : token.getAttributes().entrySet()) {
             // Skip parameter "1" since it's used as macro content
             if (!entry.getKey().equals("1")) {
                 macroParameters.put(entry.getKey(), entry.getValue());
             }
         }
 
-        getListener().onMacro(macroName, macroParameters, content, false);
+        getListener(converter).onMacro(macroName, macroParameters, content, false);
     }
 }
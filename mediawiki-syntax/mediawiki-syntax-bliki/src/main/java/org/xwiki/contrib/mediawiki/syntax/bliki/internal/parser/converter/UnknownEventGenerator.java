@@ -19,59 +19,48 @@
  */
 package org.xwiki.contrib.mediawiki.syntax.bliki.internal.parser.converter;
 
+import org.xwiki.contrib.mediawiki.syntax.MediaWikiSyntaxInputProperties;
 import org.xwiki.filter.FilterEventParameters;
 import org.xwiki.filter.FilterException;
 import org.xwiki.filter.UnknownFilter;
+import org.xwiki.rendering.listener.Listener;
 
-import info.bliki.htmlcleaner.BaseToken;
 import info.bliki.htmlcleaner.TagNode;
 import info.bliki.htmlcleaner.TagToken;
+import info.bliki.wiki.model.IWikiModel;
 
 public class UnknownEventGenerator extends AbstractEventGenerator<TagToken>
 {
-    private String id;
-
-    private FilterEventParameters parameters;
-
-    private boolean on = true;
-
-    public UnknownEventGenerator()
-    {
-    }
-
     @Override
-    public void init(BaseToken token, EventConverter converter)
+    public void traverse(TagToken token, EventConverter converter, IWikiModel model,
+        MediaWikiSyntaxInputProperties properties) throws FilterException
     {
-        super.init(token, converter);
-
-        this.id = this.token.getName();
+        String id = token.getName();
 
+        FilterEventParameters parameters = null;
+        boolean on = true;
         if (token instanceof TagNode) {
-            this.parameters = new FilterEventParameters();
-            this.parameters.putAll(((TagNode) token).getAttributes());
+            parameters = new FilterEventParameters();
+            parameters.putAll(((TagNode) token).getAttributes());
 
-            this.on = !((TagNode) token).getChildren().isEmpty();
+            on = !((TagNode) token).getChildren().isEmpty();
         }
-    }
 
-    @Override
-    protected void begin() throws FilterException
-    {
-        if (getListener() instanceof UnknownFilter) {
-            if (!this.on) {
-                ((UnknownFilter) getListener()).beginUnknwon(this.id, this.parameters);
-            }
+        Listener listener = getListener(converter);
+
+        if (listener instanceof UnknownFilter && !on) {
+            ((UnknownFilter) listener).beginUnknwon(id, parameters);
         }
-    }
 
-    @Override
-    protected void end() throws FilterException
-    {
-        if (getListener() instanceof UnknownFilter) {
-            if (!this.on) {
-                ((UnknownFilter) getListener()).endUnknwon(this.id, this.parameters);
+        if (token instanceof TagNode) {
+            converter.traverse(((TagNode) token).getChildren(), model);
+        }
+
+        if (listener instanceof UnknownFilter) {
+            if (!on) {
+                ((UnknownFilter) listener).endUnknwon(id, parameters);
             } else {
-                ((UnknownFilter) getListener()).onUnknwon(this.id, this.parameters);
+                ((UnknownFilter) listener).onUnknwon(id, parameters);
             }
         }
     }
@@ -22,15 +22,12 @@ package org.xwiki.contrib.mediawiki.syntax.bliki.internal.parser.converter;
 import org.xwiki.contrib.mediawiki.syntax.MediaWikiSyntaxInputProperties;
 import org.xwiki.filter.FilterException;
 
-import info.bliki.htmlcleaner.BaseToken;
 import info.bliki.htmlcleaner.TagNode;
 import info.bliki.wiki.model.IWikiModel;
 
 public class VerbatimEventGenerator extends AbstractEventGenerator<TagNode>
 {
-    private boolean inline;
-
-    private String content;
+    private final boolean inline;
 
     public VerbatimEventGenerator(boolean inline)
     {
@@ -38,16 +35,9 @@ public class VerbatimEventGenerator extends AbstractEventGenerator<TagNode>
     }
 
     @Override
-    public void init(BaseToken token, EventConverter converter)
-    {
-        super.init(token, converter);
-
-        this.content = this.token.getBodyString();
-    }
-
-    @Override
-    public void traverse(IWikiModel model, MediaWikiSyntaxInputProperties properties) throws FilterException
+    public void traverse(TagNode token, EventConverter converter, IWikiModel model,
+        MediaWikiSyntaxInputProperties properties) throws FilterException
     {
-        getListener().onVerbatim(this.content, this.inline, this.token.getAttributes());
+        getListener(converter).onVerbatim(token.getBodyString(), this.inline, token.getAttributes());
     }
 }
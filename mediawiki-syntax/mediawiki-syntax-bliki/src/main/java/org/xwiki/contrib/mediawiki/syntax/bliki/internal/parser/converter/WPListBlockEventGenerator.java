@@ -29,121 +29,127 @@ import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.block.BulletedListBlock;
 import org.xwiki.rendering.block.DefinitionListBlock;
 import org.xwiki.rendering.block.NumberedListBlock;
+import org.xwiki.rendering.listener.Listener;
 
 import info.bliki.wiki.filter.WPList;
 import info.bliki.wiki.filter.WPList.InternalList;
 import info.bliki.wiki.filter.WPListElement;
 import info.bliki.wiki.model.IWikiModel;
 
-public class WPListBlockEventGenerator extends BeginEndBlockEventGenerator<WPList>
+public class WPListBlockEventGenerator extends AbstractEventGenerator<WPList>
 {
-    public WPListBlockEventGenerator(AbstractBlock block)
-    {
-        super(block);
-    }
+    private static final AbstractBlockEventGenerator<WPList> BULLETED_LIST =
+        new BeginEndBlockEventGenerator<>(new BulletedListBlock(Collections.<Block>emptyList()));
+
+    private static final AbstractBlockEventGenerator<WPList> NUMBERED_LIST =
+        new BeginEndBlockEventGenerator<>(new NumberedListBlock(Collections.<Block>emptyList()));
+
+    private static final AbstractBlockEventGenerator<WPList> DEFINITION_LIST =
+        new BeginEndBlockEventGenerator<>(new DefinitionListBlock(Collections.<Block>emptyList()));
 
     @Override
-    public void traverse(IWikiModel model, MediaWikiSyntaxInputProperties properties) throws FilterException
+    public void traverse(WPList token, EventConverter converter, IWikiModel model,
+        MediaWikiSyntaxInputProperties properties) throws FilterException
     {
-        for (Object element : this.token.getNestedElements()) {
+        Listener listener = getListener(converter);
+
+        for (Object element : token.getNestedElements()) {
             if (element instanceof InternalList) {
-                traverse((InternalList) element, model);
+                traverse(token, (InternalList) element, listener, converter, model);
             }
         }
     }
 
-    private BeginEndBlockEventGenerator createListBlockEvent(InternalList list)
+    private AbstractBlock getListBlock(WPList token, InternalList list)
     {
-        BeginEndBlockEventGenerator generator;
+        return getListGenerator(list).getBlock(token);
+    }
 
+    private AbstractBlockEventGenerator<WPList> getListGenerator(InternalList list)
+    {
         switch (list.getChar()) {
             case WPList.UL_CHAR:
-                generator = new BeginEndBlockEventGenerator(new BulletedListBlock(Collections.<Block>emptyList()));
-                break;
+                return BULLETED_LIST;
             case WPList.OL_CHAR:
-                generator = new BeginEndBlockEventGenerator(new NumberedListBlock(Collections.<Block>emptyList()));
-                break;
+                return NUMBERED_LIST;
             default:
-                generator = new BeginEndBlockEventGenerator(new DefinitionListBlock(Collections.<Block>emptyList()));
-                break;
+                return DEFINITION_LIST;
         }
-
-        generator.init(this.token, this.converter);
-
-        return generator;
     }
 
-    private void traverse(InternalList list, IWikiModel model) throws FilterException
+    private void traverse(WPList token, InternalList list, Listener listener, EventConverter converter,
+        IWikiModel model) throws FilterException
     {
-        BeginEndBlockEventGenerator blockEvent = createListBlockEvent(list);
+        AbstractBlock block = getListBlock(token, list);
 
-        blockEvent.begin();
+        block.before(listener);
 
-        traverseElements(list, model);
+        traverseElements(token, list, listener, converter, model);
 
-        blockEvent.end();
+        block.after(listener);
     }
 
-    private void begingListElement(char c)
+    private void begingListElement(char c, Listener listener)
     {
         switch (c) {
             case WPList.DL_DD_CHAR:
-                getListener().beginDefinitionDescription();
+                listener.beginDefinitionDescription();
                 break;
 
             case WPList.DL_DT_CHAR:
-                getListener().beginDefinitionTerm();
+                listener.beginDefinitionTerm();
                 break;
 
             default:
-                getListener().beginListItem();
+                listener.beginListItem();
                 break;
         }
     }
 
-    private void endListElement(char c)
+    private void endListElement(char c, Listener listener)
     {
         switch (c) {
             case WPList.DL_DD_CHAR:
-                getListener().endDefinitionDescription();
+                listener.endDefinitionDescription();
                 break;
 
             case WPList.DL_DT_CHAR:
-                getListener().endDefinitionTerm();
+                listener.endDefinitionTerm();
                 break;
 
             default:
-                getListener().endListItem();
+                listener.endListItem();
                 break;
         }
     }
 
-    private void traverseElements(InternalList list, IWikiModel model) throws FilterException
+    private void traverseElements(WPList token, InternalList list, Listener listener, EventConverter converter,
+        IWikiModel model) throws FilterException
     {
         boolean itemOpen = false;
 
         char currentChar = list.getChar();
 
-        begingListElement(currentChar);
+        begingListElement(currentChar, listener);
 
         for (Object element : list) {
             if (element instanceof InternalList) {
-                traverse((InternalList) element, model);
+                traverse(token, (InternalList) element, listener, converter, model);
             } else if (element instanceof WPListElement) {
                 if (itemOpen) {
-                    endListElement(currentChar);
+                    endListElement(currentChar, listener);
 
                     char[] temp = getSequence((WPListElement) element);
                     currentChar = temp[temp.length - 1];
 
-                    begingListElement(currentChar);
+                    begingListElement(currentChar, listener);
                 }
                 itemOpen = true;
-                this.converter.traverse(((WPListElement) element).getTagStack(), model);
+                converter.traverse(((WPListElement) element).getTagStack(), model);
             }
         }
 
-        endListElement(currentChar);
+        endListElement(currentChar, listener);
     }
 
     // FIXME: getrid of this hack when
@@ -33,71 +33,76 @@ import info.bliki.wiki.model.IWikiModel;
 public class WPTableBlockEventGenerator extends AbstractEventGenerator<WPTable>
 {
     @Override
-    public void traverse(IWikiModel model, MediaWikiSyntaxInputProperties properties) throws FilterException
+    public void traverse(WPTable token, EventConverter converter, IWikiModel model,
+        MediaWikiSyntaxInputProperties properties) throws FilterException
     {
+        Listener listener = getListener(converter);
+
         // Caption
         // Since there is no support for table caption in XWiki Rendering we have to hack it some other way
         // TODO: modify when https://jira.xwiki.org/browse/XRENDERING-269 is implemented
         boolean caption = false;
-        if (this.token.getRowsSize() > 0) {
-            WPRow firstRow = this.token.get(0);
+        if (token.getRowsSize() > 0) {
+            WPRow firstRow = token.get(0);
             if (firstRow.getNumColumns() > 0 && firstRow.getType() == WPCell.CAPTION) {
                 caption = true;
 
-                getListener().beginGroup(Listener.EMPTY_PARAMETERS);
+                listener.beginGroup(Listener.EMPTY_PARAMETERS);
 
-                getListener().beginGroup(Listener.EMPTY_PARAMETERS);
-                this.converter.traverse(firstRow.get(0).getTagStack(), model);
-                getListener().endGroup(Listener.EMPTY_PARAMETERS);
+                listener.beginGroup(Listener.EMPTY_PARAMETERS);
+                converter.traverse(firstRow.get(0).getTagStack(), model);
+                listener.endGroup(Listener.EMPTY_PARAMETERS);
             }
         }
 
         // Table
-        getListener().beginTable(this.token.getAttributes());
+        listener.beginTable(token.getAttributes());
 
-        for (int i = 0; i < this.token.getRowsSize(); ++i) {
-            traverse(this.token.get(i), model);
+        for (int i = 0; i < token.getRowsSize(); ++i) {
+            traverse(token.get(i), listener, converter, model);
         }
 
-        getListener().endTable(this.token.getAttributes());
+        listener.endTable(token.getAttributes());
 
         if (caption) {
-            getListener().endGroup(Listener.EMPTY_PARAMETERS);
+            listener.endGroup(Listener.EMPTY_PARAMETERS);
         }
     }
 
-    private void traverse(WPRow row, IWikiModel model) throws FilterException
+    private void traverse(WPRow row, Listener listener, EventConverter converter, IWikiModel model)
+        throws FilterException
     {
         Map<String, String> attributes = row.getAttributes();
 
-        getListener().beginTableRow(attributes);
+        listener.beginTableRow(attributes);
 
         for (int i = 0; i < row.getNumColumns(); ++i) {
             if (row.getType() != WPCell.CAPTION) {
                 // Ignored because it's handled before the table
-                traverse(row.get(i), model);
+                traverse(row.get(i), listener, converter, model);
             }
         }
 
-        getListener().endTableRow(attributes);
+        listener.endTableRow(attributes);
     }
 
-    private void traverse(WPCell cell, IWikiModel model) throws FilterException
+    private void traverse(WPCell cell, Listener listener, EventConverter converter, IWikiModel model)
+        throws FilterException
     {
         Map<String, String> attributes =
             cell.getNodeAttributes() != null ? cell.getNodeAttributes() : Listener.EMPTY_PARAMETERS;
 
         switch (cell.getType()) {
             case WPCell.TH:
-                getListener().beginTableHeadCell(attributes);
-                this.converter.traverse(cell.getTagStack(), model);
-                getListener().endTableHeadCell(attributes);
+                listener.beginTableHeadCell(attributes);
+                converter.traverse(cell.getTagStack(), model);
+                listener.endTableHeadCell(attributes);
                 break;
 
             default:
-                getListener().beginTableCell(attributes);
-                this.converter.traverse(cell.getTagStack(), model);
-                getListener().endTableCell(attributes);
+                listener.beginTableCell(attributes);
+                converter.traverse(cell.getTagStack(), model);
+                listener.endTableCell(attributes);
                 break;
         }
     }
@@ -37,6 +37,9 @@ import org.apache.tika.mime.MediaType;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.contrib.mediawiki.MediaWikiNamespace;
+import org.xwiki.contrib.mediawiki.MediaWikiNamespaces;
+import org.xwiki.contrib.mediawiki.MediaWikiTitle;
 import org.xwiki.contrib.mediawiki.syntax.MediaWikiSyntaxInputProperties;
 import org.xwiki.contrib.mediawiki.syntax.MediaWikiSyntaxInputProperties.FigureSupport;
 import org.xwiki.contrib.mediawiki.syntax.MediaWikiSyntaxInputProperties.ReferenceType;
@@ -180,6 +183,8 @@ public class EventWikiModel extends WikiModel
 
     private MediaWikiSyntaxInputProperties properties;
 
+    private MediaWikiNamespaces appliedNamespaces;
+
     /**
      * Default constructor.
      */
@@ -253,8 +258,11 @@ public class EventWikiModel extends WikiModel
     {
         this.properties = properties;
 
-        // Set custom namespaces
-        if (this.properties.getCustomNamespaces() != null) {
+        // Set custom namespaces (only once when the model is reused with the same namespaces)
+        if (this.properties.getMediaWikiNamespaces() != this.appliedNamespaces
+            && this.properties.getCustomNamespaces() != null) {
+            this.appliedNamespaces = this.properties.getMediaWikiNamespaces();
+
             Namespace namespaces = (Namespace) this.fNamespace;
 
             for (Map.Entry<Integer, Collection<String>> entry : this.properties.getCustomNamespaces().entrySet()) {
@@ -270,6 +278,18 @@ public class EventWikiModel extends WikiModel
         setForceFramedImage(this.properties.isForceFramedCaption());
     }
 
+    /**
+     * Forget the state of the last rendering so that the model can be reused for another content.
+     *
+     * @since 2.1.2
+     */
+    public void reset()
+    {
+        setUp();
+
+        this.nopipe = false;
+    }
+
     @Override
     public boolean appendRawNamespaceLinks(String rawNamespaceTopic, String viewableLinkDescription,
         boolean containsNoPipe)
@@ -288,6 +308,15 @@ public class EventWikiModel extends WikiModel
         return reference;
     }
 
+    private String cleanReference(MediaWikiNamespace namespace, String reference)
+    {
+        if (this.properties.getReferenceType() == ReferenceType.MEDIAWIKI) {
+            return MediaWikiNamespace.normalizeMediaWikiPageName(namespace, reference);
+        }
+
+        return reference;
+    }
+
     private ResourceReference toResourceReference(String topic, String hashSection)
     {
         ResourceReference reference = null;
@@ -307,13 +336,11 @@ public class EventWikiModel extends WikiModel
                 reference = new ResourceReference(topic, ResourceType.PATH);
             }
         } else {
-            int index = topic.indexOf(':', 1);
-            if (index > 0) {
-                String namespace = topic.substring(0, index);
-                if (this.fNamespace.isNamespace(namespace, NamespaceCode.MEDIA_NAMESPACE_KEY)) {
-                    reference = new AttachmentResourceReference(
-                        cleanReference(namespace, topic.substring(namespace.length() + 1)));
-                }
+            MediaWikiTitle title = this.properties.getMediaWikiNamespaces().splitTitle(topic);
+            if (title.hasPrefix()
+                && this.fNamespace.isNamespace(title.getPrefix(), NamespaceCode.MEDIA_NAMESPACE_KEY)) {
+                reference =
+                    new AttachmentResourceReference(cleanReference(title.getNamespace(), title.getLocalName()));
             }
         }
 
@@ -0,0 +1,208 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.syntax.bliki.internal.parser.converter;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.contrib.mediawiki.syntax.MediaWikiSyntaxInputProperties;
+import org.xwiki.contrib.mediawiki.syntax.bliki.internal.parser.model.EventWikiModel;
+import org.xwiki.rendering.block.AbstractBlock;
+import org.xwiki.rendering.renderer.PrintRenderer;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import info.bliki.htmlcleaner.TagToken;
+import info.bliki.wiki.tags.HTMLTag;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link EventConverter} and the generators of {@link EventGeneratorRegistry}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+@AllComponents
+class EventConverterTest
+{
+    /**
+     * Format, list and table blocks with attributes.
+     */
+    private static final String ATTRIBUTES = "<b class=\"bold\">bold</b> <span style=\"color:red\">span</span>\n\n"
+        + "<ul class=\"list\"><li class=\"item\">item</li></ul>\n\n"
+        + "<table class=\"table\"><tr class=\"row\"><td class=\"cell\">cell</td></tr></table>\n\n"
+        + "{| class=\"wikitable\"\n|-\n| style=\"color:red\" | cell\n|}\n\n* list item";
+
+    /**
+     * The same blocks without any attribute.
+     */
+    private static final String NO_ATTRIBUTES = "<b>bold</b> <span>span</span>\n\n<ul><li>item</li></ul>\n\n"
+        + "<table><tr><td>cell</td></tr></table>\n\n{|\n|-\n| cell\n|}\n\n* list item";
+
+    private static final List<String> TAG_NAMES = Arrays.asList("b", "i", "span", "small", "ul", "ol", "li", "table",
+        "tr", "th", "td", "div", "center");
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    private PrintRendererFactory rendererFactory;
+
+    private EventConverter converter;
+
+    private EventWikiModel model;
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        this.rendererFactory = this.componentManager.getInstance(PrintRendererFactory.class, "event/1.0");
+
+        this.converter = this.componentManager.getInstance(EventConverter.class);
+        this.model = this.componentManager.getInstance(EventWikiModel.class);
+    }
+
+    private String parse(EventConverter converter, EventWikiModel model, String content) throws Exception
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        PrintRenderer renderer = this.rendererFactory.createRenderer(printer);
+
+        MediaWikiSyntaxInputProperties properties = new MediaWikiSyntaxInputProperties();
+
+        model.reset();
+        model.init(properties);
+        converter.init(renderer, properties);
+
+        try {
+            model.render(converter, content, null, false, true);
+        } finally {
+            converter.reset();
+        }
+
+        return printer.toString();
+    }
+
+    private String parse(String content) throws Exception
+    {
+        return parse(this.converter, this.model, content);
+    }
+
+    private String parseWithNewConverter(String content) throws Exception
+    {
+        return parse(this.componentManager.getInstance(EventConverter.class),
+            this.componentManager.getInstance(EventWikiModel.class), content);
+    }
+
+    private HTMLTag createTag(String name, String attribute, String value)
+    {
+        HTMLTag tag = new HTMLTag(name);
+        tag.addAttribute(attribute, value, false);
+
+        return tag;
+    }
+
+    @SuppressWarnings("unchecked")
+    private AbstractBlockEventGenerator<TagToken> getBlockGenerator(String name)
+    {
+        EventGenerator<?> generator = EventGeneratorRegistry.get(new HTMLTag(name));
+
+        assertTrue(generator instanceof AbstractBlockEventGenerator, name);
+
+        return (AbstractBlockEventGenerator<TagToken>) generator;
+    }
+
+    @Test
+    void getBlock()
+    {
+        for (String name : TAG_NAMES) {
+            AbstractBlockEventGenerator<TagToken> generator = getBlockGenerator(name);
+
+            AbstractBlock sharedBlock = generator.getBlock(new HTMLTag(name));
+            Map<String, String> sharedParameters = new HashMap<>(sharedBlock.getParameters());
+
+            // The same shared block is used for all the tokens without attribute
+            assertSame(sharedBlock, generator.getBlock(new HTMLTag(name)), name);
+
+            AbstractBlock block = generator.getBlock(createTag(name, "class", name));
+
+            assertNotSame(sharedBlock, block, name);
+            assertEquals(name, block.getParameter("class"), name);
+
+            // The attributes of the token never end up in the shared block
+            assertSame(sharedBlock, generator.getBlock(new HTMLTag(name)), name);
+            assertEquals(sharedParameters, sharedBlock.getParameters(), name);
+            assertFalse(sharedBlock.getParameters().containsKey("class"), name);
+        }
+    }
+
+    @Test
+    void parseAttributes() throws Exception
+    {
+        String events = parse(ATTRIBUTES);
+
+        assertTrue(events.contains("beginFormat [BOLD] [[class]=[bold]]"), events);
+        assertTrue(events.contains("beginFormat [NONE] [[style]=[color:red]]"), events);
+        assertTrue(events.contains("beginList [BULLETED] [[class]=[list]]"), events);
+        assertTrue(events.contains("beginListItem [[class]=[item]]"), events);
+        assertTrue(events.contains("beginTable [[class]=[table]]"), events);
+        assertTrue(events.contains("beginTableRow [[class]=[row]]"), events);
+        assertTrue(events.contains("beginTableCell [[class]=[cell]]"), events);
+        assertTrue(events.contains("beginTable [[class]=[wikitable]]"), events);
+        assertTrue(events.contains("beginTableCell [[style]=[color:red]]"), events);
+
+        // The same content gives the same events with a new converter
+        assertEquals(parseWithNewConverter(ATTRIBUTES), events);
+    }
+
+    @Test
+    void reuseConverter() throws Exception
+    {
+        String attributesEvents = parseWithNewConverter(ATTRIBUTES);
+        String noAttributesEvents = parseWithNewConverter(NO_ATTRIBUTES);
+
+        EventGenerator<TagToken> generator = this.converter.getEventGenerator(new HTMLTag("b"));
+
+        // Parse the contents several times with the same converter and model
+        assertEquals(attributesEvents, parse(ATTRIBUTES));
+        assertEquals(noAttributesEvents, parse(NO_ATTRIBUTES));
+        assertEquals(attributesEvents, parse(ATTRIBUTES));
+        assertEquals(noAttributesEvents, parse(NO_ATTRIBUTES));
+
+        // The attributes of the first parsing did not leak to the shared blocks used by the second one
+        assertFalse(noAttributesEvents.contains("class"), noAttributesEvents);
+        assertFalse(noAttributesEvents.contains("color:red"), noAttributesEvents);
+
+        // The registry is shared by all the converters and never modified
+        assertSame(generator, this.converter.getEventGenerator(new HTMLTag("b")));
+        assertSame(generator, this.componentManager.<EventConverter>getInstance(EventConverter.class)
+            .getEventGenerator(new HTMLTag("b")));
+    }
+}
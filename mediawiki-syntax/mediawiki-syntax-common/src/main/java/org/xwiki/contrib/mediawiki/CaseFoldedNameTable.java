@@ -0,0 +1,137 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki;
+
+/**
+ * An open addressing hash table associating case folded names to namespaces. A name can be looked up directly in a
+ * region of a {@link CharSequence} without creating any {@link String}.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+final class CaseFoldedNameTable
+{
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private String[] names = new String[DEFAULT_CAPACITY];
+
+    private MediaWikiNamespace[] namespaces = new MediaWikiNamespace[DEFAULT_CAPACITY];
+
+    private int size;
+
+    /**
+     * @param name the name (case insensitive)
+     * @param namespace the associated namespace
+     */
+    void put(String name, MediaWikiNamespace namespace)
+    {
+        String foldedName = fold(name);
+
+        int index = indexOf(foldedName, 0, foldedName.length(), hash(foldedName, 0, foldedName.length()));
+        if (this.names[index] == null) {
+            this.names[index] = foldedName;
+            ++this.size;
+        }
+        this.namespaces[index] = namespace;
+
+        // Keep the table at most half full
+        if (this.size * 2 > this.names.length) {
+            resize();
+        }
+    }
+
+    /**
+     * @param text the text containing the name
+     * @param start the index of the first character of the name
+     * @param end the index after the last character of the name
+     * @return the namespace associated to the name or null
+     */
+    MediaWikiNamespace get(CharSequence text, int start, int end)
+    {
+        return this.namespaces[indexOf(text, start, end, hash(text, start, end))];
+    }
+
+    private int indexOf(CharSequence text, int start, int end, int hash)
+    {
+        int mask = this.names.length - 1;
+
+        for (int index = hash & mask;; index = (index + 1) & mask) {
+            String name = this.names[index];
+
+            if (name == null || matches(name, text, start, end)) {
+                return index;
+            }
+        }
+    }
+
+    private void resize()
+    {
+        String[] previousNames = this.names;
+        MediaWikiNamespace[] previousNamespaces = this.namespaces;
+
+        this.names = new String[previousNames.length * 2];
+        this.namespaces = new MediaWikiNamespace[previousNames.length * 2];
+
+        for (int i = 0; i < previousNames.length; ++i) {
+            String name = previousNames[i];
+
+            if (name != null) {
+                int index = indexOf(name, 0, name.length(), hash(name, 0, name.length()));
+                this.names[index] = name;
+                this.namespaces[index] = previousNamespaces[i];
+            }
+        }
+    }
+
+    private static boolean matches(String foldedName, CharSequence text, int start, int end)
+    {
+        if (foldedName.length() != end - start) {
+            return false;
+        }
+
+        for (int i = 0; i < foldedName.length(); ++i) {
+            if (foldedName.charAt(i) != Character.toLowerCase(text.charAt(start + i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int hash(CharSequence text, int start, int end)
+    {
+        int hash = 0;
+        for (int i = start; i < end; ++i) {
+            hash = 31 * hash + Character.toLowerCase(text.charAt(i));
+        }
+
+        return hash ^ (hash >>> 16);
+    }
+
+    private static String fold(String name)
+    {
+        char[] chars = new char[name.length()];
+        for (int i = 0; i < chars.length; ++i) {
+            chars[i] = Character.toLowerCase(name.charAt(i));
+        }
+
+        return new String(chars);
+    }
+}
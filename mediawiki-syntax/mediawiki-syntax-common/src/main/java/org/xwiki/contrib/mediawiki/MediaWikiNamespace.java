@@ -124,10 +124,22 @@ public class MediaWikiNamespace
 
     private static String normalizeMediaWikiPageName(boolean capitalize, String pageName)
     {
-        // MediaWiki automatically replace white space with underscore in pages or files
-        String cleanReference = pageName.replace(' ', '_');
-        // ... and also reduces several underscores into a single one
-        cleanReference = cleanReference.replaceAll("_{2,}", "_");
+        // MediaWiki automatically replace white space with underscore in pages or files and also reduces several
+        // underscores into a single one
+        String cleanReference = pageName;
+        if (pageName.indexOf(' ') >= 0 || pageName.contains("__")) {
+            StringBuilder builder = new StringBuilder(pageName.length());
+            for (int i = 0; i < pageName.length(); ++i) {
+                char c = pageName.charAt(i);
+                if (c == ' ') {
+                    c = '_';
+                }
+                if (c != '_' || builder.length() == 0 || builder.charAt(builder.length() - 1) != '_') {
+                    builder.append(c);
+                }
+            }
+            cleanReference = builder.toString();
+        }
 
         if (capitalize) {
             // MediaWiki automatically capitalize references to pages or files by default
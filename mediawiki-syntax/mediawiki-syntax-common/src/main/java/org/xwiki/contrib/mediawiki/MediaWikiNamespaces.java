@@ -22,8 +22,6 @@ package org.xwiki.contrib.mediawiki;
 import java.util.HashMap;
 import java.util.Map;
 
-import org.apache.commons.lang3.StringUtils;
-
 /**
  * Helper to manipulate MediaWiki namespaces.
  * <p>
@@ -64,9 +62,16 @@ public class MediaWikiNamespaces
      */
     public static final int NAMESPACE_SPECIAL_IDX = -1;
 
+    /**
+     * The index of the category namespace.
+     *
+     * @since 2.1.2
+     */
+    public static final int NAMESPACE_CATEGORY_IDX = 14;
+
     private final Map<Integer, MediaWikiNamespace> keyToNamespace = new HashMap<>();
 
-    private final Map<String, MediaWikiNamespace> nameToNamespace = new HashMap<>();
+    private final CaseFoldedNameTable nameToNamespace = new CaseFoldedNameTable();
 
     /**
      * Default constructor.
@@ -83,7 +88,7 @@ public class MediaWikiNamespaces
         addNamespace(8, "MediaWiki", MediaWikiNamespace.CASE_FIRST_LETTER);
         addNamespace(10, "Template", MediaWikiNamespace.CASE_FIRST_LETTER);
         addNamespace(12, "Help", MediaWikiNamespace.CASE_FIRST_LETTER);
-        addNamespace(14, "Category", MediaWikiNamespace.CASE_FIRST_LETTER);
+        addNamespace(NAMESPACE_CATEGORY_IDX, "Category", MediaWikiNamespace.CASE_FIRST_LETTER);
 
         addNamespace(NAMESPACE_SPECIAL_IDX, NAMESPACE_SPECIAL_DEFAULT, MediaWikiNamespace.CASE_FIRST_LETTER);
         addNamespace(-2, "Media", MediaWikiNamespace.CASE_FIRST_LETTER);
@@ -114,7 +119,7 @@ public class MediaWikiNamespaces
         namespace.update(name, caseValue);
 
         // Add the new name to the mapping
-        this.nameToNamespace.put(name.toLowerCase(), namespace);
+        this.nameToNamespace.put(name, namespace);
     }
 
     /**
@@ -123,7 +128,7 @@ public class MediaWikiNamespaces
      */
     public boolean isNamespace(String name)
     {
-        return this.nameToNamespace.containsKey(name.toLowerCase());
+        return getNamespace(name) != null;
     }
 
     /**
@@ -133,12 +138,11 @@ public class MediaWikiNamespaces
      */
     public boolean isNamespace(int key, String name)
     {
-        if (name == null) {
-            return false;
-        }
-
-        MediaWikiNamespace namespace = this.nameToNamespace.get(name.toLowerCase());
+        return isNamespace(key, getNamespace(name));
+    }
 
+    private static boolean isNamespace(int key, MediaWikiNamespace namespace)
+    {
         return namespace != null && namespace.getKey() != null && namespace.getKey().intValue() == key;
     }
 
@@ -157,7 +161,37 @@ public class MediaWikiNamespaces
      */
     public MediaWikiNamespace getNamespace(String name)
     {
-        return name != null ? this.nameToNamespace.get(name.toLowerCase()) : null;
+        return name != null ? this.nameToNamespace.get(name, 0, name.length()) : null;
+    }
+
+    /**
+     * @param text the text containing the name of the namespace
+     * @param start the index of the first character of the name
+     * @param end the index after the last character of the name
+     * @return the namespace corresponding to the passed name
+     * @since 2.1.2
+     */
+    public MediaWikiNamespace getNamespace(CharSequence text, int start, int end)
+    {
+        return this.nameToNamespace.get(text, start, end);
+    }
+
+    /**
+     * Split the passed title into its namespace prefix and local name.
+     *
+     * @param title the title of a page or the target of a link
+     * @return the split title
+     * @since 2.1.2
+     */
+    public MediaWikiTitle splitTitle(String title)
+    {
+        int index = title.indexOf(':');
+
+        if (index > 0) {
+            return new MediaWikiTitle(title, index, getNamespace(title, 0, index));
+        }
+
+        return new MediaWikiTitle(title, -1, null);
     }
 
     /**
@@ -201,10 +235,10 @@ public class MediaWikiNamespaces
      */
     public String getFileName(String title)
     {
-        for (String name : this.keyToNamespace.get(NAMESPACE_FILE_IDX).getNames()) {
-            if (StringUtils.startsWithIgnoreCase(title, name + ':')) {
-                return title.substring(name.length() + 1).replace(' ', '_');
-            }
+        int index = title.indexOf(':');
+
+        if (index > 0 && isNamespace(NAMESPACE_FILE_IDX, getNamespace(title, 0, index))) {
+            return title.substring(index + 1).replace(' ', '_');
         }
 
         return null;
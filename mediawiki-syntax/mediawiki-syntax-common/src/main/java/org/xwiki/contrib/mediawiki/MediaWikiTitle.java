@@ -0,0 +1,95 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki;
+
+/**
+ * A MediaWiki title (of a page or a link target) split into an optional namespace prefix and a local name.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public class MediaWikiTitle
+{
+    private final String title;
+
+    private final int separatorIndex;
+
+    private final MediaWikiNamespace namespace;
+
+    /**
+     * @param title the full title
+     * @param separatorIndex the index of the colon separating the prefix from the local name, -1 if there is no
+     *            prefix
+     * @param namespace the registered namespace corresponding to the prefix, null if none
+     */
+    public MediaWikiTitle(String title, int separatorIndex, MediaWikiNamespace namespace)
+    {
+        this.title = title;
+        this.separatorIndex = separatorIndex;
+        this.namespace = namespace;
+    }
+
+    /**
+     * @return the full title
+     */
+    public String getTitle()
+    {
+        return this.title;
+    }
+
+    /**
+     * @return the registered namespace corresponding to the prefix, null if the title has no prefix or if the prefix
+     *         is not a registered namespace
+     */
+    public MediaWikiNamespace getNamespace()
+    {
+        return this.namespace;
+    }
+
+    /**
+     * @return true if the title contains a prefix (which might not be a registered namespace)
+     */
+    public boolean hasPrefix()
+    {
+        return this.separatorIndex > 0;
+    }
+
+    /**
+     * @return the prefix as written in the title, null if there is none
+     */
+    public String getPrefix()
+    {
+        return hasPrefix() ? this.title.substring(0, this.separatorIndex) : null;
+    }
+
+    /**
+     * @return the part of the title after the prefix, the full title if there is no prefix
+     */
+    public String getLocalName()
+    {
+        return hasPrefix() ? this.title.substring(this.separatorIndex + 1) : this.title;
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.title;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.syntax.internal.input;
+
+import java.io.CharArrayReader;
+import java.io.Reader;
+
+import org.xwiki.filter.input.ReaderInputSource;
+
+/**
+ * A {@link ReaderInputSource} reading a region of a (possibly reused) char array without copying it.
+ * <p>
+ * The array is not owned by the input source: its content must not be modified as long as the input source is being
+ * read.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public class CharArrayInputSource implements ReaderInputSource
+{
+    private final char[] chars;
+
+    private final int offset;
+
+    private final int length;
+
+    private Reader reader;
+
+    /**
+     * @param chars the characters to read
+     * @param offset the index of the first character to read
+     * @param length the number of characters to read
+     */
+    public CharArrayInputSource(char[] chars, int offset, int length)
+    {
+        this.chars = chars;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * @return the characters to read
+     */
+    public char[] getChars()
+    {
+        return this.chars;
+    }
+
+    /**
+     * @return the index of the first character to read
+     */
+    public int getOffset()
+    {
+        return this.offset;
+    }
+
+    /**
+     * @return the number of characters to read
+     */
+    public int getLength()
+    {
+        return this.length;
+    }
+
+    @Override
+    public Reader getReader()
+    {
+        if (this.reader == null) {
+            this.reader = new CharArrayReader(this.chars, this.offset, this.length);
+        }
+
+        return this.reader;
+    }
+
+    @Override
+    public boolean restartSupported()
+    {
+        return true;
+    }
+
+    @Override
+    public void close()
+    {
+        this.reader = null;
+    }
+
+    @Override
+    public String toString()
+    {
+        return new String(this.chars, this.offset, this.length);
+    }
+}
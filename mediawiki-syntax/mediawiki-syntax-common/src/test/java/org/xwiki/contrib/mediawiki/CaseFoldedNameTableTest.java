@@ -0,0 +1,126 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Validate {@link CaseFoldedNameTable}.
+ *
+ * @version $Id$
+ */
+class CaseFoldedNameTableTest
+{
+    private static MediaWikiNamespace namespace(int key)
+    {
+        return new MediaWikiNamespace("Namespace" + key, key, MediaWikiNamespace.CASE_FIRST_LETTER);
+    }
+
+    private static MediaWikiNamespace get(CaseFoldedNameTable table, String name)
+    {
+        return table.get(name, 0, name.length());
+    }
+
+    @Test
+    void getIgnoringCase()
+    {
+        CaseFoldedNameTable table = new CaseFoldedNameTable();
+        MediaWikiNamespace file = namespace(6);
+        MediaWikiNamespace main = namespace(0);
+        table.put("File", file);
+        table.put("", main);
+
+        assertSame(file, get(table, "File"));
+        assertSame(file, get(table, "file"));
+        assertSame(file, get(table, "FILE"));
+        assertSame(main, get(table, ""));
+        assertNull(get(table, "Fil"));
+        assertNull(get(table, "Files"));
+        assertNull(get(table, "Image"));
+
+        // In a region of a text
+        assertSame(file, table.get("[[fIlE:Image.png]]", 2, 6));
+        assertSame(main, table.get("[[:Page]]", 2, 2));
+        assertNull(table.get("[[fIlE:Image.png]]", 2, 5));
+        assertNull(table.get("[[fIlE:Image.png]]", 1, 6));
+        assertSame(file, table.get(new StringBuilder("file"), 0, 4));
+
+        // Non ASCII names
+        MediaWikiNamespace category = namespace(14);
+        table.put("Cat\u00e9gorie", category);
+        assertSame(category, get(table, "CAT\u00c9GORIE"));
+    }
+
+    @Test
+    void replace()
+    {
+        CaseFoldedNameTable table = new CaseFoldedNameTable();
+        MediaWikiNamespace image = namespace(6);
+        MediaWikiNamespace file = namespace(6);
+
+        table.put("Image", image);
+        table.put("IMAGE", file);
+
+        assertSame(file, get(table, "image"));
+    }
+
+    @Test
+    void collisions()
+    {
+        CaseFoldedNameTable table = new CaseFoldedNameTable();
+
+        // Same hash code
+        assertEquals("a0".hashCode(), "b\u0011".hashCode());
+        MediaWikiNamespace first = namespace(1);
+        MediaWikiNamespace second = namespace(2);
+        table.put("A0", first);
+        table.put("b\u0011", second);
+
+        assertSame(first, get(table, "a0"));
+        assertSame(second, get(table, "B\u0011"));
+        // Not in the table
+        assertNull(get(table, "`O"));
+    }
+
+    @Test
+    void resize()
+    {
+        CaseFoldedNameTable table = new CaseFoldedNameTable();
+
+        // Much more than the initial capacity
+        for (int i = 0; i < 1000; ++i) {
+            table.put("Namespace" + i, namespace(i));
+
+            // Still finding the names added before the resizes
+            for (int j = 0; j <= i; j += 97) {
+                assertEquals(j, get(table, "namespace" + j).getKey().intValue());
+            }
+        }
+
+        for (int i = 0; i < 1000; ++i) {
+            assertEquals(i, get(table, "NAMESPACE" + i).getKey().intValue());
+        }
+        assertNull(get(table, "Namespace1000"));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link MediaWikiNamespaces}.
+ *
+ * @version $Id$
+ */
+class MediaWikiNamespacesTest
+{
+    private final MediaWikiNamespaces namespaces = new MediaWikiNamespaces();
+
+    private void assertTitle(String title, String prefix, Integer key, String localName)
+    {
+        MediaWikiTitle split = this.namespaces.splitTitle(title);
+
+        assertEquals(title, split.getTitle());
+        assertEquals(prefix != null, split.hasPrefix());
+        assertEquals(prefix, split.getPrefix());
+        assertEquals(localName, split.getLocalName());
+        if (key != null) {
+            assertEquals(key, split.getNamespace().getKey());
+        } else {
+            assertNull(split.getNamespace());
+        }
+    }
+
+    @Test
+    void splitTitle()
+    {
+        assertTitle("Page", null, null, "Page");
+        assertTitle("File:Image.png", "File", MediaWikiNamespaces.NAMESPACE_FILE_IDX, "Image.png");
+        assertTitle("image:Image.png", "image", MediaWikiNamespaces.NAMESPACE_FILE_IDX, "Image.png");
+        assertTitle("user:Name:With:Colons", "user", MediaWikiNamespaces.NAMESPACE_USER_IDX, "Name:With:Colons");
+        assertTitle("Category:", "Category", MediaWikiNamespaces.NAMESPACE_CATEGORY_IDX, "");
+        // Not a registered namespace
+        assertTitle("Unknown:Page", "Unknown", null, "Page");
+        // Leading colon
+        assertTitle(":Page", null, null, ":Page");
+        assertTitle("", null, null, "");
+    }
+
+    @Test
+    void getNamespace()
+    {
+        MediaWikiNamespace file = this.namespaces.getNamespace("File");
+
+        assertEquals(MediaWikiNamespaces.NAMESPACE_FILE_IDX, file.getKey().intValue());
+        assertSame(file, this.namespaces.getNamespace("IMAGE"));
+        assertSame(file, this.namespaces.getNamespace("[[image:a.png]]", 2, 7));
+        assertEquals(0, this.namespaces.getNamespace("").getKey().intValue());
+        assertNull(this.namespaces.getNamespace("Unknown"));
+        assertNull(this.namespaces.getNamespace(null));
+
+        assertTrue(this.namespaces.isNamespace("special"));
+        assertTrue(this.namespaces.isSpecialNamespace("SPECIAL"));
+        assertTrue(this.namespaces.isFileNamespace("file"));
+        assertFalse(this.namespaces.isFileNamespace("Media"));
+        assertFalse(this.namespaces.isNamespace("Unknown"));
+
+        // Custom namespace with aliases
+        this.namespaces.addNamespace("100", "Portal", MediaWikiNamespace.CASE_CASE_SENSITIVE);
+        this.namespaces.addNamespace(100, "Portail", MediaWikiNamespace.CASE_CASE_SENSITIVE);
+        assertSame(this.namespaces.getNamespace("portal"), this.namespaces.getNamespace("PORTAIL"));
+        assertEquals("Portail", this.namespaces.resolve("portal"));
+        assertEquals("Unknown", this.namespaces.resolve("Unknown"));
+        assertTrue(this.namespaces.isNamespace(100, "Portal"));
+    }
+
+    @Test
+    void getFileName()
+    {
+        assertEquals("My_image.png", this.namespaces.getFileName("File:My image.png"));
+        assertEquals("My_image.png", this.namespaces.getFileName("image:My image.png"));
+        assertNull(this.namespaces.getFileName("My image.png"));
+        assertNull(this.namespaces.getFileName("User:My image.png"));
+        assertNull(this.namespaces.getFileName(":File:My image.png"));
+
+        assertTrue(this.namespaces.isInFileNamespace("FILE:a.png"));
+        assertFalse(this.namespaces.isInFileNamespace("Media:a.png"));
+    }
+}
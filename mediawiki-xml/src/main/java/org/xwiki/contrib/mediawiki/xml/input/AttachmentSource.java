@@ -0,0 +1,56 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.input;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Implemented by the attachment content {@link java.io.InputStream}s sent by the MediaWiki input filter when the
+ * content is stored in a file. Output filters which can write to a channel can check for this interface to copy the
+ * content without going through heap buffers (using {@link FileChannel#transferTo(long, long, WritableByteChannel)}
+ * or {@link FileChannel#map(FileChannel.MapMode, long, long)}). The others can keep reading the stream.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public interface AttachmentSource
+{
+    /**
+     * @return the size of the attachment content
+     */
+    long getSize();
+
+    /**
+     * @return the channel of the file containing the attachment content (closed with the stream)
+     */
+    FileChannel getChannel();
+
+    /**
+     * Copy the remaining attachment content to the passed channel, letting the operating system move the bytes
+     * directly when it can.
+     *
+     * @param target the channel where to write the content
+     * @return the number of bytes written
+     * @throws IOException when failing to copy the content
+     */
+    long transferTo(WritableByteChannel target) throws IOException;
+}
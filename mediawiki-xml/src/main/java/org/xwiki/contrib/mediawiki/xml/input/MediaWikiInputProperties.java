@@ -19,6 +19,10 @@
  */
 package org.xwiki.contrib.mediawiki.xml.input;
 
+import java.io.File;
+import java.util.Date;
+import java.util.List;
+
 import org.xwiki.filter.input.InputSource;
 import org.xwiki.filter.type.FilterStreamType;
 import org.xwiki.filter.type.SystemType;
@@ -47,6 +51,35 @@ public class MediaWikiInputProperties extends XMLInputProperties
      */
     public static final String FILTER_STREAM_TYPE_STRING = "mediawiki+xml";
 
+    /**
+     * The revisions to import for each page.
+     *
+     * @version $Id$
+     * @since 2.1.2
+     */
+    public enum RevisionPolicy
+    {
+        /**
+         * All the revisions.
+         */
+        ALL,
+
+        /**
+         * Only the most recent revision.
+         */
+        LATEST,
+
+        /**
+         * The most recent revisions (see {@link MediaWikiInputProperties#getRevisionCount()}).
+         */
+        LAST,
+
+        /**
+         * The revisions made after a date (see {@link MediaWikiInputProperties#getRevisionsSince()}).
+         */
+        SINCE
+    }
+
     /**
      * @see #getFiles()
      */
@@ -109,11 +142,171 @@ public class MediaWikiInputProperties extends XMLInputProperties
 
     private boolean forceFramedCaption;
 
+    /**
+     * @see #getWorkers()
+     */
+    private int workers;
+
+    /**
+     * @see #getDecompressionWorkers()
+     */
+    private int decompressionWorkers = 1;
+
+    /**
+     * @see #getMultistreamIndex()
+     */
+    private InputSource multistreamIndex;
+
+    /**
+     * @see #getShard()
+     */
+    private int shard;
+
+    /**
+     * @see #getShardCount()
+     */
+    private int shardCount = 1;
+
+    /**
+     * @see #getRevisions()
+     */
+    private RevisionPolicy revisions = RevisionPolicy.ALL;
+
+    /**
+     * @see #getRevisionCount()
+     */
+    private int revisionCount = 1;
+
+    /**
+     * @see #getRevisionsSince()
+     */
+    private Date revisionsSince;
+
+    /**
+     * @see #getCheckpoint()
+     */
+    private File checkpoint;
+
+    /**
+     * @see #getCheckpointInterval()
+     */
+    private int checkpointInterval = 1000;
+
+    /**
+     * @see #getPageIndex()
+     */
+    private File pageIndex;
+
+    /**
+     * @see #getIncludedNamespaces()
+     */
+    private List<String> includedNamespaces;
+
+    /**
+     * @see #getExcludedNamespaces()
+     */
+    private List<String> excludedNamespaces;
+
+    /**
+     * @see #getIncludedTitles()
+     */
+    private List<String> includedTitles;
+
+    /**
+     * @see #getIncludedTitlePattern()
+     */
+    private String includedTitlePattern;
+
+    /**
+     * @see #getExcludedTitlePattern()
+     */
+    private String excludedTitlePattern;
+
+    /**
+     * @see #getReferenceCacheSize()
+     */
+    private int referenceCacheSize = 10000;
+
+    /**
+     * @see #isFilesIndex()
+     */
+    private boolean filesIndex;
+
+    /**
+     * @see #getFilesIndexSnapshot()
+     */
+    private File filesIndexSnapshot;
+
+    /**
+     * @see #isFilesIndexFallback()
+     */
+    private boolean filesIndexFallback;
+
+    /**
+     * @see #getImageDimensionCache()
+     */
+    private File imageDimensionCache;
+
+    /**
+     * @see #getAttachmentWorkers()
+     */
+    private int attachmentWorkers;
+
+    /**
+     * @see #getAttachmentBudget()
+     */
+    private long attachmentBudget = 64L * 1024 * 1024;
+
+    /**
+     * @see #getAttachmentReadAheadSize()
+     */
+    private int attachmentReadAheadSize = 256 * 1024;
+
+    /**
+     * @see #isMetrics()
+     */
+    private boolean metrics;
+
+    /**
+     * @see #isCollapseRedirects()
+     */
+    private boolean collapseRedirects;
+
+    /**
+     * @see #isRewriteRedirectLinks()
+     */
+    private boolean rewriteRedirectLinks;
+
+    /**
+     * @see #isCategoryMembers()
+     */
+    private boolean categoryMembers;
+
+    /**
+     * @see #getCategoryMembersBufferSize()
+     */
+    private long categoryMembersBufferSize = 64L * 1024 * 1024;
+
+    /**
+     * @see #getLinkGraph()
+     */
+    private File linkGraph;
+
+    /**
+     * @see #getManifest()
+     */
+    private File manifest;
+
+    /**
+     * @see #getPreviousManifest()
+     */
+    private File previousManifest;
+
     /**
      * @return the folder or package containing files
      */
     @PropertyName("Files")
-    @PropertyDescription("The folder or package containing files")
+    @PropertyDescription("The folder or archive (zip, tar, tar.gz) containing files")
     public InputSource getFiles()
     {
         return this.files;
@@ -362,4 +555,691 @@ public class MediaWikiInputProperties extends XMLInputProperties
     {
         this.forceFramedCaption = forceFramedCaption;
     }
+
+    /**
+     * @return the number of threads used to convert the pages content, 0 or 1 to convert them in the reading thread
+     * @since 2.1.2
+     */
+    @PropertyName("Conversion workers")
+    @PropertyDescription("The number of threads used to convert the pages content in parallel."
+        + " 0 or 1 means that the content is converted in the thread reading the XML.")
+    public int getWorkers()
+    {
+        return this.workers;
+    }
+
+    /**
+     * @param workers the number of threads used to convert the pages content, 0 or 1 to convert them in the reading
+     *            thread
+     * @since 2.1.2
+     */
+    public void setWorkers(int workers)
+    {
+        this.workers = workers;
+    }
+
+    /**
+     * @return the number of threads used to decompress a bzip2 multistream dump, 0 to use the number of available
+     *         processors, 1 (the default) to decompress it in the thread reading the XML
+     * @since 2.1.2
+     */
+    @PropertyName("Decompression workers")
+    @PropertyDescription("The number of threads used to decompress a bzip2 multistream dump (.xml.bz2)."
+        + " 1 (the default) means that the dump is decompressed in the thread reading the XML and 0 means the number"
+        + " of available processors. Each worker keeps a few decompressed streams in memory.")
+    public int getDecompressionWorkers()
+    {
+        return this.decompressionWorkers;
+    }
+
+    /**
+     * @param decompressionWorkers the number of threads used to decompress a bzip2 multistream dump, 0 to use the
+     *            number of available processors, 1 to decompress it in the thread reading the XML
+     * @since 2.1.2
+     */
+    public void setDecompressionWorkers(int decompressionWorkers)
+    {
+        this.decompressionWorkers = decompressionWorkers;
+    }
+
+    /**
+     * @return the index of the multistream dump, used to find the streams of a shard
+     * @since 2.1.2
+     */
+    @PropertyName("Multistream index")
+    @PropertyDescription("The index of the multistream dump (pages-articles-multistream-index.txt[.bz2])."
+        + " Required when the import is divided in several shards.")
+    public InputSource getMultistreamIndex()
+    {
+        return this.multistreamIndex;
+    }
+
+    /**
+     * @param multistreamIndex the index of the multistream dump, used to find the streams of a shard
+     * @since 2.1.2
+     */
+    public void setMultistreamIndex(InputSource multistreamIndex)
+    {
+        this.multistreamIndex = multistreamIndex;
+    }
+
+    /**
+     * @return the index (starting from 0) of the shard to import
+     * @since 2.1.2
+     */
+    @PropertyName("Shard")
+    @PropertyDescription("The index (starting from 0) of the shard to import when the import is divided in several"
+        + " shards.")
+    public int getShard()
+    {
+        return this.shard;
+    }
+
+    /**
+     * @param shard the index (starting from 0) of the shard to import
+     * @since 2.1.2
+     */
+    public void setShard(int shard)
+    {
+        this.shard = shard;
+    }
+
+    /**
+     * @return the number of shards in which the import of a multistream dump is divided
+     * @since 2.1.2
+     */
+    @PropertyName("Shard count")
+    @PropertyDescription("The number of shards in which the import of a multistream dump file is divided."
+        + " Each shard reads a distinct set of streams of the dump and can be imported independently.")
+    public int getShardCount()
+    {
+        return this.shardCount;
+    }
+
+    /**
+     * @param shardCount the number of shards in which the import of a multistream dump is divided
+     * @since 2.1.2
+     */
+    public void setShardCount(int shardCount)
+    {
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * @return the revisions to import for each page
+     * @since 2.1.2
+     */
+    @PropertyName("Revisions")
+    @PropertyDescription("The revisions to import for each page: ALL, LATEST (only the most recent revision), LAST"
+        + " (the most recent \"Revision count\" revisions) or SINCE (the revisions made after \"Revisions since\").")
+    public RevisionPolicy getRevisions()
+    {
+        return this.revisions;
+    }
+
+    /**
+     * @param revisions the revisions to import for each page
+     * @since 2.1.2
+     */
+    public void setRevisions(RevisionPolicy revisions)
+    {
+        this.revisions = revisions;
+    }
+
+    /**
+     * @return the number of most recent revisions to import for each page when the revision policy is
+     *         {@link RevisionPolicy#LAST}
+     * @since 2.1.2
+     */
+    @PropertyName("Revision count")
+    @PropertyDescription("The number of most recent revisions to import for each page when \"Revisions\" is LAST.")
+    public int getRevisionCount()
+    {
+        return this.revisionCount;
+    }
+
+    /**
+     * @param revisionCount the number of most recent revisions to import for each page when the revision policy is
+     *            {@link RevisionPolicy#LAST}
+     * @since 2.1.2
+     */
+    public void setRevisionCount(int revisionCount)
+    {
+        this.revisionCount = revisionCount;
+    }
+
+    /**
+     * @return the date after which the revisions are imported when the revision policy is
+     *         {@link RevisionPolicy#SINCE}
+     * @since 2.1.2
+     */
+    @PropertyName("Revisions since")
+    @PropertyDescription("The date after which the revisions are imported when \"Revisions\" is SINCE.")
+    public Date getRevisionsSince()
+    {
+        return this.revisionsSince;
+    }
+
+    /**
+     * @param revisionsSince the date after which the revisions are imported when the revision policy is
+     *            {@link RevisionPolicy#SINCE}
+     * @since 2.1.2
+     */
+    public void setRevisionsSince(Date revisionsSince)
+    {
+        this.revisionsSince = revisionsSince;
+    }
+
+    /**
+     * @return the file where the progress of the import is recorded
+     * @since 2.1.2
+     */
+    @PropertyName("Checkpoint")
+    @PropertyDescription("The file where the progress of the import is periodically recorded. If the file exists when"
+        + " the import starts, the pages sent before the recorded checkpoint are skipped. The file is deleted when the"
+        + " import is finished.")
+    public File getCheckpoint()
+    {
+        return this.checkpoint;
+    }
+
+    /**
+     * @param checkpoint the file where the progress of the import is recorded
+     * @since 2.1.2
+     */
+    public void setCheckpoint(File checkpoint)
+    {
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * @return the number of pages between two checkpoints
+     * @since 2.1.2
+     */
+    @PropertyName("Checkpoint interval")
+    @PropertyDescription("The number of imported pages between two checkpoints.")
+    public int getCheckpointInterval()
+    {
+        return this.checkpointInterval;
+    }
+
+    /**
+     * @param checkpointInterval the number of pages between two checkpoints
+     * @since 2.1.2
+     */
+    public void setCheckpointInterval(int checkpointInterval)
+    {
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * @return the file containing the index of the pages of the dump
+     * @since 2.1.2
+     */
+    @PropertyName("Page index")
+    @PropertyDescription("The file containing the title, namespace, id and offset of each page of the dump. It's"
+        + " generated by a quick scan of the dump if it does not exist yet and used to only parse the pages selected"
+        + " by the namespace and title filters.")
+    public File getPageIndex()
+    {
+        return this.pageIndex;
+    }
+
+    /**
+     * @param pageIndex the file containing the index of the pages of the dump
+     * @since 2.1.2
+     */
+    public void setPageIndex(File pageIndex)
+    {
+        this.pageIndex = pageIndex;
+    }
+
+    /**
+     * @return the namespaces (keys or names) of the pages to import
+     * @since 2.1.2
+     */
+    @PropertyName("Included namespaces")
+    @PropertyDescription("The namespaces (keys or names) of the pages to import. All namespaces are imported if"
+        + " empty.")
+    public List<String> getIncludedNamespaces()
+    {
+        return this.includedNamespaces;
+    }
+
+    /**
+     * @param includedNamespaces the namespaces (keys or names) of the pages to import
+     * @since 2.1.2
+     */
+    public void setIncludedNamespaces(List<String> includedNamespaces)
+    {
+        this.includedNamespaces = includedNamespaces;
+    }
+
+    /**
+     * @return the namespaces (keys or names) of the pages to skip
+     * @since 2.1.2
+     */
+    @PropertyName("Excluded namespaces")
+    @PropertyDescription("The namespaces (keys or names) of the pages to skip.")
+    public List<String> getExcludedNamespaces()
+    {
+        return this.excludedNamespaces;
+    }
+
+    /**
+     * @param excludedNamespaces the namespaces (keys or names) of the pages to skip
+     * @since 2.1.2
+     */
+    public void setExcludedNamespaces(List<String> excludedNamespaces)
+    {
+        this.excludedNamespaces = excludedNamespaces;
+    }
+
+    /**
+     * @return the titles of the pages to import
+     * @since 2.1.2
+     */
+    @PropertyName("Included titles")
+    @PropertyDescription("The titles (including the namespace prefix) of the pages to import. All pages are imported"
+        + " if empty.")
+    public List<String> getIncludedTitles()
+    {
+        return this.includedTitles;
+    }
+
+    /**
+     * @param includedTitles the titles of the pages to import
+     * @since 2.1.2
+     */
+    public void setIncludedTitles(List<String> includedTitles)
+    {
+        this.includedTitles = includedTitles;
+    }
+
+    /**
+     * @return the regular expression matching the titles of the pages to import
+     * @since 2.1.2
+     */
+    @PropertyName("Included title pattern")
+    @PropertyDescription("The regular expression matching the titles (including the namespace prefix) of the pages"
+        + " to import.")
+    public String getIncludedTitlePattern()
+    {
+        return this.includedTitlePattern;
+    }
+
+    /**
+     * @param includedTitlePattern the regular expression matching the titles of the pages to import
+     * @since 2.1.2
+     */
+    public void setIncludedTitlePattern(String includedTitlePattern)
+    {
+        this.includedTitlePattern = includedTitlePattern;
+    }
+
+    /**
+     * @return the regular expression matching the titles of the pages to skip
+     * @since 2.1.2
+     */
+    @PropertyName("Excluded title pattern")
+    @PropertyDescription("The regular expression matching the titles (including the namespace prefix) of the pages"
+        + " to skip.")
+    public String getExcludedTitlePattern()
+    {
+        return this.excludedTitlePattern;
+    }
+
+    /**
+     * @param excludedTitlePattern the regular expression matching the titles of the pages to skip
+     * @since 2.1.2
+     */
+    public void setExcludedTitlePattern(String excludedTitlePattern)
+    {
+        this.excludedTitlePattern = excludedTitlePattern;
+    }
+
+    /**
+     * @return the maximum number of resolved references to keep in memory
+     * @since 2.1.2
+     */
+    @PropertyName("Reference cache size")
+    @PropertyDescription("The maximum number of page titles and link targets for which the resolved reference is kept"
+        + " in memory. 0 to disable the cache. The cache hits and misses are part of the import metrics.")
+    public int getReferenceCacheSize()
+    {
+        return this.referenceCacheSize;
+    }
+
+    /**
+     * @param referenceCacheSize the maximum number of resolved references to keep in memory
+     * @since 2.1.2
+     */
+    public void setReferenceCacheSize(int referenceCacheSize)
+    {
+        this.referenceCacheSize = referenceCacheSize;
+    }
+
+    /**
+     * @return true if the media files folder should be indexed at startup
+     * @since 2.1.2
+     */
+    @PropertyName("Files index")
+    @PropertyDescription("Index the media files folder at startup (walking it in parallel) to find the attachments"
+        + " without accessing the file system for each page. Only supported when the files are a folder. The files"
+        + " which are not in the index are considered missing, unless the files index fallback is enabled.")
+    public boolean isFilesIndex()
+    {
+        return this.filesIndex;
+    }
+
+    /**
+     * @param filesIndex true if the media files folder should be indexed at startup
+     * @since 2.1.2
+     */
+    public void setFilesIndex(boolean filesIndex)
+    {
+        this.filesIndex = filesIndex;
+    }
+
+    /**
+     * @return the file where the index of the media files folder is saved
+     * @since 2.1.2
+     */
+    @PropertyName("Files index snapshot")
+    @PropertyDescription("The file where the index of the media files folder is saved. If it already exists, the"
+        + " index is loaded from it instead of walking the folder, unless files were added to or removed from the"
+        + " folder since.")
+    public File getFilesIndexSnapshot()
+    {
+        return this.filesIndexSnapshot;
+    }
+
+    /**
+     * @param filesIndexSnapshot the file where the index of the media files folder is saved
+     * @since 2.1.2
+     */
+    public void setFilesIndexSnapshot(File filesIndexSnapshot)
+    {
+        this.filesIndexSnapshot = filesIndexSnapshot;
+    }
+
+    /**
+     * @return true if the files which are not in the media files index should be looked for in the folder
+     * @since 2.1.2
+     */
+    @PropertyName("Files index fallback")
+    @PropertyDescription("Look in the media files folder for the files which are not in the index, in case they were"
+        + " added after the index was built. Each missing file is then looked for once.")
+    public boolean isFilesIndexFallback()
+    {
+        return this.filesIndexFallback;
+    }
+
+    /**
+     * @param filesIndexFallback true if the files which are not in the media files index should be looked for in the
+     *            folder
+     * @since 2.1.2
+     */
+    public void setFilesIndexFallback(boolean filesIndexFallback)
+    {
+        this.filesIndexFallback = filesIndexFallback;
+    }
+
+    /**
+     * @return the file where the dimensions of the images are saved
+     * @since 2.1.2
+     */
+    @PropertyName("Image dimension cache")
+    @PropertyDescription("The file where the dimensions of the images are saved between imports. The dimensions are"
+        + " always kept in memory during an import.")
+    public File getImageDimensionCache()
+    {
+        return this.imageDimensionCache;
+    }
+
+    /**
+     * @param imageDimensionCache the file where the dimensions of the images are saved
+     * @since 2.1.2
+     */
+    public void setImageDimensionCache(File imageDimensionCache)
+    {
+        this.imageDimensionCache = imageDimensionCache;
+    }
+
+    /**
+     * @return the number of threads used to find and read the attachments in the background
+     * @since 2.1.2
+     */
+    @PropertyName("Attachment workers")
+    @PropertyDescription("The number of threads used to find (and read, when small enough) the attachments in the"
+        + " background as soon as they are referenced in a page. 0 to find them only when they are sent.")
+    public int getAttachmentWorkers()
+    {
+        return this.attachmentWorkers;
+    }
+
+    /**
+     * @param attachmentWorkers the number of threads used to find and read the attachments in the background
+     * @since 2.1.2
+     */
+    public void setAttachmentWorkers(int attachmentWorkers)
+    {
+        this.attachmentWorkers = attachmentWorkers;
+    }
+
+    /**
+     * @return the maximum number of bytes of attachment content read in advance
+     * @since 2.1.2
+     */
+    @PropertyName("Attachment budget")
+    @PropertyDescription("The maximum number of bytes of attachment content read in advance and not sent yet.")
+    public long getAttachmentBudget()
+    {
+        return this.attachmentBudget;
+    }
+
+    /**
+     * @param attachmentBudget the maximum number of bytes of attachment content read in advance
+     * @since 2.1.2
+     */
+    public void setAttachmentBudget(long attachmentBudget)
+    {
+        this.attachmentBudget = attachmentBudget;
+    }
+
+    /**
+     * @return the maximum size of the attachments read in advance
+     * @since 2.1.2
+     */
+    @PropertyName("Attachment read ahead size")
+    @PropertyDescription("The maximum size (in bytes) of the attachments read in advance. The bigger ones are only"
+        + " found in advance and read when sent.")
+    public int getAttachmentReadAheadSize()
+    {
+        return this.attachmentReadAheadSize;
+    }
+
+    /**
+     * @param attachmentReadAheadSize the maximum size of the attachments read in advance
+     * @since 2.1.2
+     */
+    public void setAttachmentReadAheadSize(int attachmentReadAheadSize)
+    {
+        this.attachmentReadAheadSize = attachmentReadAheadSize;
+    }
+
+    /**
+     * @return true if the import metrics should be published
+     * @since 2.1.2
+     */
+    @PropertyName("Metrics")
+    @PropertyDescription("Publish the import metrics (throughput, latencies, attachments, conversion failures,"
+        + " progress) while the import is running (through JMX by default).")
+    public boolean isMetrics()
+    {
+        return this.metrics;
+    }
+
+    /**
+     * @param metrics true if the import metrics should be published
+     * @since 2.1.2
+     */
+    public void setMetrics(boolean metrics)
+    {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return true if the redirects should point directly to the final target of a chain of redirects
+     * @since 2.1.2
+     */
+    @PropertyName("Collapse redirects")
+    @PropertyDescription("Scan the dump a first time to find all the redirects so that each redirect points directly"
+        + " to the final target of a chain of redirects (the cycles are broken). Only supported when the source is a"
+        + " file.")
+    public boolean isCollapseRedirects()
+    {
+        return this.collapseRedirects;
+    }
+
+    /**
+     * @param collapseRedirects true if the redirects should point directly to the final target of a chain of
+     *            redirects
+     * @since 2.1.2
+     */
+    public void setCollapseRedirects(boolean collapseRedirects)
+    {
+        this.collapseRedirects = collapseRedirects;
+    }
+
+    /**
+     * @return true if the links to a redirect page should point to the final target of the redirect instead
+     * @since 2.1.2
+     */
+    @PropertyName("Rewrite redirect links")
+    @PropertyDescription("Make the links to a redirect page point to the final target of the redirect instead."
+        + " Requires the redirects to be collapsed.")
+    public boolean isRewriteRedirectLinks()
+    {
+        return this.rewriteRedirectLinks;
+    }
+
+    /**
+     * @param rewriteRedirectLinks true if the links to a redirect page should point to the final target of the
+     *            redirect instead
+     * @since 2.1.2
+     */
+    public void setRewriteRedirectLinks(boolean rewriteRedirectLinks)
+    {
+        this.rewriteRedirectLinks = rewriteRedirectLinks;
+    }
+
+    /**
+     * @return true if the pages member of each category should be listed in an object of the category page
+     * @since 2.1.2
+     */
+    @PropertyName("Category members")
+    @PropertyDescription("List the pages member of each category in the last revision of the category page (created"
+        + " if missing). The category pages are sent at the end of the import. Only complete when the whole dump is"
+        + " imported in a single run.")
+    public boolean isCategoryMembers()
+    {
+        return this.categoryMembers;
+    }
+
+    /**
+     * @param categoryMembers true if the pages member of each category should be listed in an object of the category
+     *            page
+     * @since 2.1.2
+     */
+    public void setCategoryMembers(boolean categoryMembers)
+    {
+        this.categoryMembers = categoryMembers;
+    }
+
+    /**
+     * @return the approximate maximum number of bytes used to collect the category members before writing them to a
+     *         temporary file
+     * @since 2.1.2
+     */
+    @PropertyName("Category members buffer size")
+    @PropertyDescription("The approximate maximum number of bytes used to collect the category members before writing"
+        + " them to a temporary file.")
+    public long getCategoryMembersBufferSize()
+    {
+        return this.categoryMembersBufferSize;
+    }
+
+    /**
+     * @param categoryMembersBufferSize the approximate maximum number of bytes used to collect the category members
+     *            before writing them to a temporary file
+     * @since 2.1.2
+     */
+    public void setCategoryMembersBufferSize(long categoryMembersBufferSize)
+    {
+        this.categoryMembersBufferSize = categoryMembersBufferSize;
+    }
+
+    /**
+     * @return the file where the links, images and attachments found in the pages are written
+     * @since 2.1.2
+     */
+    @PropertyName("Link graph")
+    @PropertyDescription("The file where the links, images and attachments found in the pages are written (one JSON"
+        + " object per line, gzip compressed when the name ends with .gz).")
+    public File getLinkGraph()
+    {
+        return this.linkGraph;
+    }
+
+    /**
+     * @param linkGraph the file where the links, images and attachments found in the pages are written
+     * @since 2.1.2
+     */
+    public void setLinkGraph(File linkGraph)
+    {
+        this.linkGraph = linkGraph;
+    }
+
+    /**
+     * @return the file where the id, last revision id and SHA-1 of each imported page are written
+     * @since 2.1.2
+     */
+    @PropertyName("Manifest")
+    @PropertyDescription("The file where the id, last revision id and SHA-1 of each imported page are written at the"
+        + " end of the import, to be used as previous manifest by the next import.")
+    public File getManifest()
+    {
+        return this.manifest;
+    }
+
+    /**
+     * @param manifest the file where the id, last revision id and SHA-1 of each imported page are written
+     * @since 2.1.2
+     */
+    public void setManifest(File manifest)
+    {
+        this.manifest = manifest;
+    }
+
+    /**
+     * @return the manifest written by a previous import
+     * @since 2.1.2
+     */
+    @PropertyName("Previous manifest")
+    @PropertyDescription("The manifest written by a previous import. The pages whose last revision did not change are"
+        + " skipped without being converted and the pages which disappeared from the dump are reported.")
+    public File getPreviousManifest()
+    {
+        return this.previousManifest;
+    }
+
+    /**
+     * @param previousManifest the manifest written by a previous import
+     * @since 2.1.2
+     */
+    public void setPreviousManifest(File previousManifest)
+    {
+        this.previousManifest = previousManifest;
+    }
 }
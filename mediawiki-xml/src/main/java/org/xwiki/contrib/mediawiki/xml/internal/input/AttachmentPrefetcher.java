@@ -0,0 +1,282 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.xwiki.filter.FilterException;
+
+/**
+ * Find the attachments (and read the small ones) in background threads as soon as they are referenced in a page, so
+ * that they are ready when the attachment events are sent.
+ * <p>
+ * The content read ahead is limited by a budget of bytes: when it's exhausted, only the attachment metadata is
+ * prefetched and the content is read when the attachment is sent.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public class AttachmentPrefetcher implements Closeable
+{
+    private final Resolver resolver;
+
+    private final long budget;
+
+    private final long readAheadSize;
+
+    private final ExecutorService executor;
+
+    private final Map<String, Future<Attachment>> prefetched = new ConcurrentHashMap<>();
+
+    private final AtomicLong reserved = new AtomicLong();
+
+    /**
+     * Find an attachment.
+     *
+     * @version $Id$
+     */
+    @FunctionalInterface
+    public interface Resolver
+    {
+        /**
+         * @param fileName the name of the file
+         * @return the attachment or null if it cannot be found
+         * @throws FilterException when failing to find the attachment
+         */
+        Attachment resolve(String fileName) throws FilterException;
+    }
+
+    /**
+     * Open the content of an attachment.
+     *
+     * @version $Id$
+     */
+    @FunctionalInterface
+    public interface ContentOpener
+    {
+        /**
+         * @return the content of the attachment
+         * @throws IOException when failing to open the content
+         */
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * A resolved attachment.
+     *
+     * @version $Id$
+     */
+    public static class Attachment
+    {
+        private final long size;
+
+        private final ContentOpener opener;
+
+        private byte[] content;
+
+        /**
+         * @param size the size of the attachment content
+         * @param opener used to open the content of the attachment
+         */
+        public Attachment(long size, ContentOpener opener)
+        {
+            this.size = size;
+            this.opener = opener;
+        }
+
+        /**
+         * @return the size of the attachment content
+         */
+        public long getSize()
+        {
+            return this.size;
+        }
+
+        /**
+         * @return the content of the attachment
+         * @throws IOException when failing to open the content
+         */
+        public InputStream openStream() throws IOException
+        {
+            return this.content != null ? new ByteArrayInputStream(this.content) : this.opener.open();
+        }
+    }
+
+    /**
+     * @param resolver used to find the attachments
+     * @param threads the number of threads used to prefetch the attachments
+     * @param budget the maximum number of bytes read ahead and not sent yet
+     * @param readAheadSize the maximum size of the attachments to read ahead
+     */
+    public AttachmentPrefetcher(Resolver resolver, int threads, long budget, long readAheadSize)
+    {
+        this.resolver = resolver;
+        this.budget = budget;
+        this.readAheadSize = readAheadSize;
+
+        // Mostly waiting for the file system
+        this.executor = Executors.newFixedThreadPool(threads,
+            new BasicThreadFactory.Builder().namingPattern("MediaWiki attachment prefetcher %d").daemon(true).build());
+    }
+
+    /**
+     * Start finding the attachment in the background (if not already started).
+     *
+     * @param fileName the name of the file
+     */
+    public void prefetch(String fileName)
+    {
+        if (fileName != null && !this.prefetched.containsKey(fileName)) {
+            try {
+                this.prefetched.computeIfAbsent(fileName, key -> this.executor.submit(() -> load(key)));
+            } catch (RejectedExecutionException e) {
+                // Closed: the attachment will be resolved when sent
+            }
+        }
+    }
+
+    private Attachment load(String fileName) throws FilterException, IOException
+    {
+        Attachment attachment = this.resolver.resolve(fileName);
+
+        if (attachment != null && attachment.size <= this.readAheadSize && reserve(attachment.size)) {
+            try (InputStream stream = attachment.opener.open()) {
+                attachment.content = IOUtils.toByteArray(stream, attachment.size);
+            } catch (IOException e) {
+                this.reserved.addAndGet(-attachment.size);
+
+                throw e;
+            }
+        }
+
+        return attachment;
+    }
+
+    private boolean reserve(long size)
+    {
+        for (long current = this.reserved.get(); current + size <= this.budget; current = this.reserved.get()) {
+            if (this.reserved.compareAndSet(current, current + size)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Get the prefetched attachment (waiting for it if needed) or find it now if it was not prefetched.
+     * {@link #release(Attachment)} should be called once the attachment is sent.
+     *
+     * @param fileName the name of the file
+     * @return the attachment or null if it cannot be found
+     * @throws FilterException when failing to find the attachment
+     */
+    public Attachment take(String fileName) throws FilterException
+    {
+        Future<Attachment> future = this.prefetched.remove(fileName);
+
+        if (future == null) {
+            return this.resolver.resolve(fileName);
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new FilterException("Interrupted while waiting for attachment [" + fileName + "]", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof FilterException) {
+                throw (FilterException) e.getCause();
+            }
+
+            throw new FilterException("Failed to prefetch attachment [" + fileName + "]", e.getCause());
+        }
+    }
+
+    /**
+     * Give back to the budget the content read ahead for the attachment.
+     *
+     * @param attachment the sent attachment
+     */
+    public void release(Attachment attachment)
+    {
+        if (attachment.content != null) {
+            this.reserved.addAndGet(-attachment.content.length);
+            attachment.content = null;
+        }
+    }
+
+    /**
+     * Stop prefetching an attachment which won't be sent (for example because the conversion of the page referencing
+     * it failed) and give back to the budget the content read ahead for it.
+     *
+     * @param fileName the name of the file
+     */
+    public void discard(String fileName)
+    {
+        Future<Attachment> future = this.prefetched.remove(fileName);
+
+        if (future != null && !future.cancel(false)) {
+            // Already loading or loaded: release it once loaded
+            try {
+                this.executor.submit(() -> releaseLoaded(future));
+            } catch (RejectedExecutionException e) {
+                // Closed: the budget does not matter anymore
+            }
+        }
+    }
+
+    private void releaseLoaded(Future<Attachment> future)
+    {
+        try {
+            Attachment attachment = future.get();
+
+            if (attachment != null) {
+                release(attachment);
+            }
+        } catch (InterruptedException e) {
+            // Closed: the budget does not matter anymore
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Nothing was reserved
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        this.executor.shutdownNow();
+        this.prefetched.clear();
+    }
+}
@@ -0,0 +1,428 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Collect records associated to categories (mostly the pages member of each category) in a bounded amount of memory:
+ * when the buffer is full the records are sorted and written in a temporary run file, and all the runs are merged at
+ * the end to read the records grouped by category.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public class CategoryMembershipBuffer implements Closeable
+{
+    /**
+     * The title used by a member page to reference the category.
+     */
+    public static final byte TYPE_LINKED_TITLE = 0;
+
+    /**
+     * A page member of the category.
+     */
+    public static final byte TYPE_MEMBER = 1;
+
+    /**
+     * Approximate memory taken by a record in addition to its strings.
+     */
+    private static final int RECORD_OVERHEAD = 64;
+
+    private static final int RUN_BUFFER_SIZE = 65536;
+
+    /**
+     * The maximum number of run files read at the same time (to not run out of file descriptors).
+     */
+    private static final int MAX_MERGED_RUNS = 128;
+
+    private static final Comparator<Record> COMPARATOR = Comparator.comparing(Record::getCategory)
+        .thenComparingInt(Record::getType).thenComparing(Record::getValue);
+
+    private final long bufferSize;
+
+    private List<Record> buffer = new ArrayList<>();
+
+    private long bufferedSize;
+
+    private final List<File> runs = new ArrayList<>();
+
+    private long size;
+
+    /**
+     * A record associated to a category.
+     *
+     * @version $Id$
+     */
+    public static final class Record
+    {
+        private final String category;
+
+        private final byte type;
+
+        private final String value;
+
+        Record(String category, byte type, String value)
+        {
+            this.category = category;
+            this.type = type;
+            this.value = value;
+        }
+
+        /**
+         * @return the category
+         */
+        public String getCategory()
+        {
+            return this.category;
+        }
+
+        /**
+         * @return the type of the record
+         */
+        public byte getType()
+        {
+            return this.type;
+        }
+
+        /**
+         * @return the value of the record
+         */
+        public String getValue()
+        {
+            return this.value;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (obj instanceof Record) {
+                Record other = (Record) obj;
+
+                return this.type == other.type && this.category.equals(other.category)
+                    && this.value.equals(other.value);
+            }
+
+            return false;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return (this.category.hashCode() * 31 + this.type) * 31 + this.value.hashCode();
+        }
+    }
+
+    /**
+     * The sorted records of a run file.
+     *
+     * @version $Id$
+     */
+    private static final class RunReader implements Closeable
+    {
+        private final DataInputStream input;
+
+        private Record current;
+
+        RunReader(File run) throws IOException
+        {
+            this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(run), RUN_BUFFER_SIZE));
+        }
+
+        boolean next() throws IOException
+        {
+            String category;
+            try {
+                category = readString(this.input);
+            } catch (EOFException e) {
+                this.current = null;
+
+                return false;
+            }
+
+            this.current = new Record(category, this.input.readByte(), readString(this.input));
+
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            this.input.close();
+        }
+    }
+
+    /**
+     * Iterate over the merged records, sorted by category, type and value and without duplicates.
+     *
+     * @version $Id$
+     */
+    public static final class Cursor implements Closeable
+    {
+        private final Iterator<Record> memory;
+
+        private Record memoryCurrent;
+
+        private final List<RunReader> readers = new ArrayList<>();
+
+        private final PriorityQueue<RunReader> queue =
+            new PriorityQueue<>((reader1, reader2) -> COMPARATOR.compare(reader1.current, reader2.current));
+
+        private Record previous;
+
+        Cursor(List<Record> records, List<File> files) throws IOException
+        {
+            this.memory = records.iterator();
+            this.memoryCurrent = this.memory.hasNext() ? this.memory.next() : null;
+
+            try {
+                for (File run : files) {
+                    RunReader reader = new RunReader(run);
+                    this.readers.add(reader);
+
+                    if (reader.next()) {
+                        this.queue.add(reader);
+                    }
+                }
+            } catch (IOException e) {
+                close();
+
+                throw e;
+            }
+        }
+
+        /**
+         * @return the next record or null if there is no more records
+         * @throws IOException when failing to read a run file
+         */
+        public Record next() throws IOException
+        {
+            Record record = nextRecord();
+            while (record != null && record.equals(this.previous)) {
+                record = nextRecord();
+            }
+
+            this.previous = record;
+
+            return record;
+        }
+
+        private Record nextRecord() throws IOException
+        {
+            RunReader reader = this.queue.peek();
+
+            if (this.memoryCurrent != null
+                && (reader == null || COMPARATOR.compare(this.memoryCurrent, reader.current) <= 0)) {
+                Record record = this.memoryCurrent;
+                this.memoryCurrent = this.memory.hasNext() ? this.memory.next() : null;
+
+                return record;
+            }
+
+            if (reader == null) {
+                return null;
+            }
+
+            // Move the run to its next record
+            this.queue.poll();
+            Record record = reader.current;
+            if (reader.next()) {
+                this.queue.add(reader);
+            }
+
+            return record;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            this.queue.clear();
+
+            for (RunReader reader : this.readers) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * @param bufferSize the approximate maximum number of bytes of records to keep in memory before writing them in a
+     *            run file
+     */
+    public CategoryMembershipBuffer(long bufferSize)
+    {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * @param category the category
+     * @param type the type of the record
+     * @param value the value of the record
+     * @throws IOException when failing to write a run file
+     */
+    public void add(String category, byte type, String value) throws IOException
+    {
+        this.buffer.add(new Record(category, type, value));
+        this.bufferedSize += RECORD_OVERHEAD + 2L * (category.length() + value.length());
+        ++this.size;
+
+        if (this.bufferedSize >= this.bufferSize) {
+            spill();
+        }
+    }
+
+    private void spill() throws IOException
+    {
+        this.buffer.sort(COMPARATOR);
+
+        File run = createRun();
+        try (DataOutputStream output = openRun(run)) {
+            Record previous = null;
+            for (Record record : this.buffer) {
+                if (!record.equals(previous)) {
+                    write(record, output);
+
+                    previous = record;
+                }
+            }
+        }
+
+        // Let the garbage collector get rid of the records and of the (possibly big) backing array
+        this.buffer = new ArrayList<>();
+        this.bufferedSize = 0;
+    }
+
+    private File createRun() throws IOException
+    {
+        File run = File.createTempFile("mediawiki-categories", ".run");
+        this.runs.add(run);
+
+        return run;
+    }
+
+    private static DataOutputStream openRun(File run) throws IOException
+    {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), RUN_BUFFER_SIZE));
+    }
+
+    private static void write(Record record, DataOutputStream output) throws IOException
+    {
+        writeString(record.category, output);
+        output.writeByte(record.type);
+        writeString(record.value, output);
+    }
+
+    /**
+     * Merge the oldest run files together until there is few enough of them to be read at the same time.
+     */
+    private void reduceRuns() throws IOException
+    {
+        while (this.runs.size() > MAX_MERGED_RUNS) {
+            List<File> mergedRuns = new ArrayList<>(this.runs.subList(0, MAX_MERGED_RUNS));
+            this.runs.subList(0, MAX_MERGED_RUNS).clear();
+
+            File run = createRun();
+            try (Cursor cursor = new Cursor(Collections.<Record>emptyList(), mergedRuns);
+                DataOutputStream output = openRun(run)) {
+                for (Record record = cursor.next(); record != null; record = cursor.next()) {
+                    write(record, output);
+                }
+            } finally {
+                for (File mergedRun : mergedRuns) {
+                    Files.deleteIfExists(mergedRun.toPath());
+                }
+            }
+        }
+    }
+
+    private static void writeString(String value, DataOutputStream output) throws IOException
+    {
+        // DataOutputStream#writeUTF is limited to 64KB, too small for the content of some pages
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException
+    {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the number of added records
+     */
+    public long size()
+    {
+        return this.size;
+    }
+
+    /**
+     * @return the number of run files written so far
+     */
+    public int getRuns()
+    {
+        return this.runs.size();
+    }
+
+    /**
+     * Merge the records still in memory and the run files. No record should be added after calling this method.
+     *
+     * @return the cursor used to read the records, to be closed when done
+     * @throws IOException when failing to open the run files
+     */
+    public Cursor merge() throws IOException
+    {
+        reduceRuns();
+
+        this.buffer.sort(COMPARATOR);
+
+        return new Cursor(this.buffer, this.runs);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        this.buffer = new ArrayList<>();
+
+        for (File run : this.runs) {
+            Files.deleteIfExists(run.toPath());
+        }
+        this.runs.clear();
+    }
+}
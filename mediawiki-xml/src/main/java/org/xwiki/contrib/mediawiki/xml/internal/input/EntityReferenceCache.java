@@ -0,0 +1,166 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.EntityReference;
+
+/**
+ * A size bounded (least recently used entries are evicted first) cache of the {@link EntityReference}s resolved from
+ * MediaWiki titles and link targets. Can be used from several threads.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public class EntityReferenceCache
+{
+    /**
+     * Stored in place of a null reference (the target should be ignored).
+     */
+    private static final EntityReference NULL = new EntityReference("null", EntityType.DOCUMENT);
+
+    private final Map<Key, EntityReference> references;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * The key of the cache.
+     *
+     * @version $Id$
+     */
+    private static final class Key
+    {
+        private final String reference;
+
+        private final boolean link;
+
+        private final int hash;
+
+        Key(String reference, boolean link)
+        {
+            this.reference = reference;
+            this.link = link;
+            this.hash = reference.hashCode() * 31 + (link ? 1 : 0);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (obj == this) {
+                return true;
+            }
+
+            if (obj instanceof Key) {
+                Key other = (Key) obj;
+
+                return this.link == other.link && this.reference.equals(other.reference);
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * @param size the maximum number of references to keep
+     */
+    public EntityReferenceCache(int size)
+    {
+        this.references = new LinkedHashMap<Key, EntityReference>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, EntityReference> eldest)
+            {
+                return size() > size;
+            }
+        };
+    }
+
+    /**
+     * @param reference the MediaWiki reference
+     * @param link true if the reference is the target of a link
+     * @param resolver called to resolve the reference when it's not in the cache
+     * @return the resolved reference (possibly null)
+     */
+    public EntityReference get(String reference, boolean link, Function<String, EntityReference> resolver)
+    {
+        Key key = new Key(reference, link);
+
+        EntityReference entityReference;
+        synchronized (this.references) {
+            entityReference = this.references.get(key);
+        }
+
+        if (entityReference != null) {
+            this.hits.incrementAndGet();
+        } else {
+            this.misses.incrementAndGet();
+
+            // Resolved outside of the lock, several threads might resolve the same reference but it does not matter
+            entityReference = resolver.apply(reference);
+
+            synchronized (this.references) {
+                this.references.put(key, entityReference != null ? entityReference : NULL);
+            }
+        }
+
+        return entityReference != NULL ? entityReference : null;
+    }
+
+    /**
+     * Remove all the cached references (for example when the configuration used to resolve them changed).
+     */
+    public void clear()
+    {
+        synchronized (this.references) {
+            this.references.clear();
+        }
+    }
+
+    /**
+     * @return the number of references found in the cache
+     */
+    public long getHits()
+    {
+        return this.hits.get();
+    }
+
+    /**
+     * @return the number of references which had to be resolved
+     */
+    public long getMisses()
+    {
+        return this.misses.get();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.apache.commons.io.IOUtils;
+import org.xwiki.contrib.mediawiki.xml.input.AttachmentSource;
+
+/**
+ * A {@link FileInputStream} exposing the attachment file as an {@link AttachmentSource}.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public class FileAttachmentInputStream extends FileInputStream implements AttachmentSource
+{
+    private final long size;
+
+    /**
+     * @param file the attachment file
+     * @throws FileNotFoundException when the file does not exist
+     */
+    public FileAttachmentInputStream(File file) throws FileNotFoundException
+    {
+        super(file);
+
+        this.size = file.length();
+    }
+
+    @Override
+    public long getSize()
+    {
+        return this.size;
+    }
+
+    @Override
+    public long transferTo(WritableByteChannel target) throws IOException
+    {
+        FileChannel channel = getChannel();
+
+        long start = channel.position();
+        long end = channel.size();
+
+        // transferTo might copy less than asked
+        long position = start;
+        while (position < end) {
+            long transferred = channel.transferTo(position, end - position, target);
+
+            if (transferred <= 0) {
+                // The target does not accept the bytes this way (for example when it's full or not blocking)
+                channel.position(position);
+
+                return position - start + IOUtils.copyLarge(this, Channels.newOutputStream(target));
+            }
+
+            position += transferred;
+        }
+
+        channel.position(position);
+
+        return position - start;
+    }
+
+    /**
+     * Copy the remaining attachment content to the passed stream, through the file channels when the stream is a
+     * {@link FileOutputStream}.
+     *
+     * @param out the stream where to write the content
+     * @return the number of bytes written
+     * @throws IOException when failing to copy the content
+     */
+    public long transferTo(OutputStream out) throws IOException
+    {
+        if (out instanceof FileOutputStream) {
+            return transferTo(((FileOutputStream) out).getChannel());
+        }
+
+        return transferTo(Channels.newChannel(out));
+    }
+}
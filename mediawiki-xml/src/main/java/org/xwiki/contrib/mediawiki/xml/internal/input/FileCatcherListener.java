@@ -20,7 +20,6 @@
 package org.xwiki.contrib.mediawiki.xml.internal.input;
 
 import java.awt.Dimension;
-import java.io.File;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -71,6 +70,15 @@ public class FileCatcherListener extends WrappingListener
         this.stream = stream;
     }
 
+    /**
+     * Start a new set of files so that the listener can be reused for another content (the previous set being owned by
+     * the converted revision).
+     */
+    void reset()
+    {
+        this.files = new HashSet<>();
+    }
+
     /**
      * @return the found referenced files
      */
@@ -79,11 +87,19 @@ public class FileCatcherListener extends WrappingListener
         return this.files;
     }
 
+    private void addFile(String fileName)
+    {
+        if (this.files.add(fileName)) {
+            // Start looking for the file while the rest of the page is parsed
+            this.stream.prefetchAttachment(fileName);
+        }
+    }
+
     @Override
     public void beginLink(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
     {
         if (reference instanceof AttachmentResourceReference) {
-            this.files.add(reference.getReference());
+            addFile(reference.getReference());
         }
 
         super.beginLink(reference, freestanding, parameters);
@@ -95,7 +111,7 @@ public class FileCatcherListener extends WrappingListener
         if (reference instanceof AttachmentResourceReference) {
             String fileName = reference.getReference();
 
-            this.files.add(fileName);
+            addFile(fileName);
 
             // Make sure the image keep aspect ratio no matter what (since that's what happen in mediawiki)
             String widthString = parameters.get(WIDTH);
@@ -123,9 +139,8 @@ public class FileCatcherListener extends WrappingListener
 
             if (width != -1 && height != -1) {
                 try {
-                    File file = this.stream.getFile(fileName);
-                    if (file != null) {
-                        Dimension dimension = MediaWikiUtils.getImageDimension(file);
+                    Dimension dimension = this.stream.getImageDimension(fileName);
+                    if (dimension != null) {
 
                         double widthRatio = width / dimension.getWidth();
                         double heightRatio = height / dimension.getHeight();
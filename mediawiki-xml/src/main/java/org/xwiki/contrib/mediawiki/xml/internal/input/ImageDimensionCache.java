@@ -0,0 +1,224 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.awt.Dimension;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.xwiki.filter.FilterException;
+
+/**
+ * Remember the dimension of the images, identified by their path, size and last modification date, so that each
+ * image is read only once even if it's used in many pages and revisions (and across imports when the cache is saved).
+ * Can be used from several threads.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public class ImageDimensionCache
+{
+    private static final int MAGIC = 0x4d574943;
+
+    private static final int VERSION = 1;
+
+    private final Map<String, CachedDimension> dimensions = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private volatile boolean modified;
+
+    /**
+     * The dimension of an image file, valid as long as the file does not change.
+     *
+     * @version $Id$
+     */
+    private static final class CachedDimension
+    {
+        private final long size;
+
+        private final long lastModified;
+
+        private final int width;
+
+        private final int height;
+
+        CachedDimension(long size, long lastModified, int width, int height)
+        {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.width = width;
+            this.height = height;
+        }
+
+        boolean isValid(long size, long lastModified)
+        {
+            return this.size == size && this.lastModified == lastModified;
+        }
+    }
+
+    /**
+     * Read the dimension of an image when it's not in the cache.
+     *
+     * @version $Id$
+     */
+    @FunctionalInterface
+    private interface DimensionReader
+    {
+        Dimension read() throws FilterException;
+    }
+
+    /**
+     * @param file the image file
+     * @return the dimension of the image
+     * @throws FilterException when failing to get the image dimension
+     */
+    public Dimension get(File file) throws FilterException
+    {
+        return get(file.getAbsolutePath(), file.length(), file.lastModified(),
+            () -> MediaWikiUtils.getImageDimension(file));
+    }
+
+    /**
+     * @param file the image file stored in an archive
+     * @param archive the archive containing the file
+     * @return the dimension of the image
+     * @throws FilterException when failing to get the image dimension
+     */
+    public Dimension get(MediaFilesArchive.ArchivedFile file, MediaFilesArchive archive) throws FilterException
+    {
+        return get(archive.getArchive().getAbsolutePath() + '!' + file.getPath(), file.getSize(),
+            archive.getLastModified(), () -> MediaWikiUtils.getImageDimension(file, archive));
+    }
+
+    private Dimension get(String path, long size, long lastModified, DimensionReader reader) throws FilterException
+    {
+        CachedDimension cachedDimension = this.dimensions.get(path);
+        if (cachedDimension != null && cachedDimension.isValid(size, lastModified)) {
+            this.hits.incrementAndGet();
+
+            return new Dimension(cachedDimension.width, cachedDimension.height);
+        }
+
+        this.misses.incrementAndGet();
+
+        Dimension dimension = reader.read();
+
+        this.dimensions.put(path, new CachedDimension(size, lastModified, dimension.width, dimension.height));
+        this.modified = true;
+
+        return dimension;
+    }
+
+    /**
+     * Add the dimensions previously saved with {@link #save(File)}.
+     *
+     * @param file the file containing the dimensions
+     * @throws IOException when failing to read the file
+     */
+    public void load(File file) throws IOException
+    {
+        try (DataInputStream input =
+            new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException("Unsupported image dimension cache [" + file + "]");
+            }
+
+            int size = input.readInt();
+            for (int i = 0; i < size; ++i) {
+                this.dimensions.put(input.readUTF(),
+                    new CachedDimension(input.readLong(), input.readLong(), input.readInt(), input.readInt()));
+            }
+        }
+    }
+
+    /**
+     * @param file the file where to save the dimensions
+     * @throws IOException when failing to write the file
+     */
+    public void save(File file) throws IOException
+    {
+        File tmpFile = new File(file.getPath() + ".tmp");
+
+        try (DataOutputStream output =
+            new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 65536))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+
+            // Take a snapshot since other threads might still add dimensions
+            List<Map.Entry<String, CachedDimension>> entries = new ArrayList<>(this.dimensions.entrySet());
+
+            output.writeInt(entries.size());
+            for (Map.Entry<String, CachedDimension> entry : entries) {
+                CachedDimension dimension = entry.getValue();
+
+                output.writeUTF(entry.getKey());
+                output.writeLong(dimension.size);
+                output.writeLong(dimension.lastModified);
+                output.writeInt(dimension.width);
+                output.writeInt(dimension.height);
+            }
+        }
+
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+
+        this.modified = false;
+    }
+
+    /**
+     * @return true if dimensions were added since the cache was created or saved
+     */
+    public boolean isModified()
+    {
+        return this.modified;
+    }
+
+    /**
+     * @return the number of dimensions found in the cache
+     */
+    public long getHits()
+    {
+        return this.hits.get();
+    }
+
+    /**
+     * @return the number of images which had to be read
+     */
+    public long getMisses()
+    {
+        return this.misses.get();
+    }
+}
@@ -0,0 +1,361 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.awt.Dimension;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Extract the dimension of PNG, GIF, WebP, JPEG and SVG images by reading only their header (and the segment headers
+ * for JPEG) instead of going through ImageIO.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public final class ImageHeaderReader
+{
+    private static final int HEADER_SIZE = 512;
+
+    /**
+     * SVG files may start with a prolog, a DOCTYPE or comments before the root element.
+     */
+    private static final int SVG_HEADER_SIZE = 4096;
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+
+    private static final int JPEG_MARKER = 0xFF;
+
+    private static final int JPEG_SOI = 0xD8;
+
+    private static final int JPEG_EOI = 0xD9;
+
+    private static final int JPEG_SOS = 0xDA;
+
+    private static final Pattern SVG_ELEMENT = Pattern.compile("<svg\\b[^>]*>", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern SVG_WIDTH = Pattern.compile("\\swidth\\s*=\\s*[\"']\\s*([\\d.]+)\\s*(px)?\\s*[\"']");
+
+    private static final Pattern SVG_HEIGHT = Pattern.compile("\\sheight\\s*=\\s*[\"']\\s*([\\d.]+)\\s*(px)?\\s*[\"']");
+
+    private static final Pattern SVG_VIEWBOX = Pattern.compile(
+        "\\sviewBox\\s*=\\s*[\"']\\s*[-\\d.]+[\\s,]+[-\\d.]+[\\s,]+([\\d.]+)[\\s,]+([\\d.]+)\\s*[\"']");
+
+    /**
+     * Continue with the stream after the already read header, without reading the skipped bytes.
+     *
+     * @version $Id$
+     */
+    private static final class HeaderInputStream extends InputStream
+    {
+        private final byte[] header;
+
+        private int position;
+
+        private final int length;
+
+        private final InputStream stream;
+
+        HeaderInputStream(byte[] header, int position, int length, InputStream stream)
+        {
+            this.header = header;
+            this.position = position;
+            this.length = length;
+            this.stream = stream;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            if (this.position < this.length) {
+                return this.header[this.position++] & 0xFF;
+            }
+
+            return this.stream.read();
+        }
+
+        @Override
+        public long skip(long n) throws IOException
+        {
+            if (this.position < this.length) {
+                int skipped = (int) Math.min(n, this.length - this.position);
+                this.position += skipped;
+
+                return skipped;
+            }
+
+            return this.stream.skip(n);
+        }
+    }
+
+    private ImageHeaderReader()
+    {
+        // Utility class
+    }
+
+    /**
+     * @param file the image file
+     * @return the dimension of the image or null if the format is not supported or the header could not be understood
+     * @throws IOException when failing to read the file
+     */
+    public static Dimension read(File file) throws IOException
+    {
+        try (InputStream stream = new FileInputStream(file)) {
+            return read(stream, file.getName());
+        }
+    }
+
+    /**
+     * @param stream the content of the image (not closed)
+     * @param fileName the name of the image file
+     * @return the dimension of the image or null if the format is not supported or the header could not be understood
+     * @throws IOException when failing to read the stream
+     */
+    public static Dimension read(InputStream stream, String fileName) throws IOException
+    {
+        byte[] header = new byte[isSVG(fileName) ? SVG_HEADER_SIZE : HEADER_SIZE];
+        int length = IOUtils.read(stream, header);
+
+        if (startsWith(header, length, PNG_SIGNATURE)) {
+            return readPNG(header, length);
+        } else if (length >= 10 && header[0] == 'G' && header[1] == 'I' && header[2] == 'F') {
+            return toDimension(uint16LE(header, 6), uint16LE(header, 8));
+        } else if (length >= 30 && isRIFFWebP(header)) {
+            return readWebP(header, length);
+        } else if (length >= 2 && (header[0] & 0xFF) == JPEG_MARKER && (header[1] & 0xFF) == JPEG_SOI) {
+            return readJPEG(new HeaderInputStream(header, 2, length, stream));
+        } else if (isSVG(fileName)) {
+            return readSVG(new String(header, 0, length, StandardCharsets.UTF_8));
+        }
+
+        return null;
+    }
+
+    private static Dimension readPNG(byte[] header, int length)
+    {
+        // The IHDR chunk is always the first one
+        if (length < 24 || header[12] != 'I' || header[13] != 'H' || header[14] != 'D' || header[15] != 'R') {
+            return null;
+        }
+
+        return toDimension(int32BE(header, 16), int32BE(header, 20));
+    }
+
+    private static boolean isRIFFWebP(byte[] header)
+    {
+        return header[0] == 'R' && header[1] == 'I' && header[2] == 'F' && header[3] == 'F' && header[8] == 'W'
+            && header[9] == 'E' && header[10] == 'B' && header[11] == 'P';
+    }
+
+    private static Dimension readWebP(byte[] header, int length)
+    {
+        if (header[12] != 'V' || header[13] != 'P' || header[14] != '8') {
+            return null;
+        }
+
+        switch (header[15]) {
+            case ' ':
+                // Lossy: frame tag (3 bytes), start code (9d 01 2a), then the 14 bits dimensions
+                if ((header[23] & 0xFF) != 0x9d || (header[24] & 0xFF) != 0x01 || (header[25] & 0xFF) != 0x2a) {
+                    return null;
+                }
+                return toDimension(uint16LE(header, 26) & 0x3FFF, uint16LE(header, 28) & 0x3FFF);
+
+            case 'L':
+                // Lossless: signature (0x2f), then the 14 bits dimensions minus one
+                if ((header[20] & 0xFF) != 0x2f) {
+                    return null;
+                }
+                int b1 = header[21] & 0xFF;
+                int b2 = header[22] & 0xFF;
+                int b3 = header[23] & 0xFF;
+                int b4 = header[24] & 0xFF;
+                return toDimension(1 + (((b2 & 0x3F) << 8) | b1),
+                    1 + (((b4 & 0x0F) << 10) | (b3 << 2) | ((b2 & 0xC0) >> 6)));
+
+            case 'X':
+                // Extended: the 24 bits canvas dimensions minus one
+                return toDimension(1 + uint24LE(header, 24), 1 + uint24LE(header, 27));
+
+            default:
+                return null;
+        }
+    }
+
+    private static Dimension readJPEG(InputStream stream) throws IOException
+    {
+        byte[] segment = new byte[7];
+
+        // Jump from segment header to segment header until the frame header
+        for (int marker = nextJPEGMarker(stream); marker >= 0; marker = nextJPEGMarker(stream)) {
+            if (marker == JPEG_EOI || marker == JPEG_SOS) {
+                // No frame header before the image data
+                return null;
+            } else if (marker != 0x01 && (marker < 0xD0 || marker > 0xD7)) {
+                // Not a marker without any content
+                if (IOUtils.read(stream, segment, 0, 2) < 2) {
+                    return null;
+                }
+
+                if (isJPEGFrameHeader(marker)) {
+                    // Length, precision, height and width
+                    if (IOUtils.read(stream, segment, 2, 5) < 5) {
+                        return null;
+                    }
+
+                    return toDimension(uint16BE(segment, 5), uint16BE(segment, 3));
+                }
+
+                if (!skip(stream, uint16BE(segment, 0) - 2L)) {
+                    return null;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static int nextJPEGMarker(InputStream stream) throws IOException
+    {
+        if (stream.read() != JPEG_MARKER) {
+            return -1;
+        }
+
+        // Skip the fill bytes
+        int marker = stream.read();
+        while (marker == JPEG_MARKER) {
+            marker = stream.read();
+        }
+
+        return marker;
+    }
+
+    private static boolean skip(InputStream stream, long length) throws IOException
+    {
+        // Unlike IOUtils#skip, rely on InputStream#skip to seek in files instead of reading the skipped bytes
+        long remaining = length;
+        while (remaining > 0) {
+            long skipped = stream.skip(remaining);
+
+            if (skipped <= 0) {
+                if (stream.read() < 0) {
+                    return false;
+                }
+                skipped = 1;
+            }
+
+            remaining -= skipped;
+        }
+
+        return true;
+    }
+
+    private static boolean isJPEGFrameHeader(int marker)
+    {
+        // SOF0 to SOF15 except DHT, JPG and DAC
+        return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+    }
+
+    private static boolean isSVG(String name)
+    {
+        return name.regionMatches(true, name.length() - 4, ".svg", 0, 4);
+    }
+
+    private static Dimension readSVG(String header)
+    {
+        Matcher element = SVG_ELEMENT.matcher(header);
+        if (!element.find()) {
+            return null;
+        }
+
+        String attributes = element.group();
+
+        Matcher width = SVG_WIDTH.matcher(attributes);
+        Matcher height = SVG_HEIGHT.matcher(attributes);
+        if (width.find() && height.find()) {
+            return toDimension(width.group(1), height.group(1));
+        }
+
+        // Relative or missing dimensions: rely on the view box
+        Matcher viewBox = SVG_VIEWBOX.matcher(attributes);
+        if (viewBox.find()) {
+            return toDimension(viewBox.group(1), viewBox.group(2));
+        }
+
+        return null;
+    }
+
+    private static Dimension toDimension(String width, String height)
+    {
+        try {
+            return toDimension((int) Math.round(Double.parseDouble(width)),
+                (int) Math.round(Double.parseDouble(height)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Dimension toDimension(int width, int height)
+    {
+        return width > 0 && height > 0 ? new Dimension(width, height) : null;
+    }
+
+    private static boolean startsWith(byte[] header, int length, byte[] signature)
+    {
+        if (length < signature.length) {
+            return false;
+        }
+
+        for (int i = 0; i < signature.length; ++i) {
+            if (header[i] != signature[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int uint16LE(byte[] bytes, int offset)
+    {
+        return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8;
+    }
+
+    private static int uint24LE(byte[] bytes, int offset)
+    {
+        return uint16LE(bytes, offset) | (bytes[offset + 2] & 0xFF) << 16;
+    }
+
+    private static int uint16BE(byte[] bytes, int offset)
+    {
+        return (bytes[offset] & 0xFF) << 8 | (bytes[offset + 1] & 0xFF);
+    }
+
+    private static int int32BE(byte[] bytes, int offset)
+    {
+        return uint16BE(bytes, offset) << 16 | uint16BE(bytes, offset + 2);
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Write the links, images and attachments found in the pages as a graph of edges (one JSON object per line) from a
+ * background thread, so that the conversion does not wait for the disk.
+ * <p>
+ * The edges of a revision are written together as a single chunk. When the writer is behind, the threads adding
+ * chunks wait for it instead of accumulating them in memory.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public class LinkGraphWriter implements Closeable
+{
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private static final int WRITER_BUFFER_SIZE = 65536;
+
+    /**
+     * Tell the writer thread that all the chunks were added (never a real chunk since they contain at least one edge).
+     */
+    private static final String END = "";
+
+    private static final String HEXADECIMAL = "0123456789abcdef";
+
+    private final File file;
+
+    private final BlockingQueue<String> chunks = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    private final Thread thread;
+
+    private final Writer writer;
+
+    private volatile IOException failure;
+
+    private long edges;
+
+    /**
+     * The kind of reference found in a page.
+     *
+     * @version $Id$
+     */
+    public enum Kind
+    {
+        /**
+         * A link to a page.
+         */
+        LINK,
+
+        /**
+         * A link to an attachment.
+         */
+        ATTACHMENT,
+
+        /**
+         * An image.
+         */
+        IMAGE;
+
+        private final String id = name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A reference found in a page.
+     *
+     * @version $Id$
+     */
+    public static final class Edge
+    {
+        private final Kind kind;
+
+        private final String target;
+
+        /**
+         * @param kind the kind of reference
+         * @param target the serialized reference of the target
+         */
+        public Edge(Kind kind, String target)
+        {
+            this.kind = kind;
+            this.target = target;
+        }
+    }
+
+    /**
+     * @param file the file where to write the edges (gzip compressed when the name ends with {@code .gz})
+     * @throws IOException when failing to create the file
+     */
+    public LinkGraphWriter(File file) throws IOException
+    {
+        this.file = file;
+
+        OutputStream stream = new FileOutputStream(file);
+        if (file.getName().endsWith(".gz")) {
+            stream = new GZIPOutputStream(stream, WRITER_BUFFER_SIZE);
+        }
+        this.writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), WRITER_BUFFER_SIZE);
+
+        this.thread = new Thread(this::run, "MediaWiki link graph writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void run()
+    {
+        try {
+            for (String chunk = this.chunks.take(); !chunk.isEmpty(); chunk = this.chunks.take()) {
+                // Keep consuming after a failure so that the producers are not blocked forever
+                if (this.failure == null) {
+                    try {
+                        this.writer.write(chunk);
+                    } catch (IOException e) {
+                        this.failure = e;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Add the edges found in a revision. Can be called from several threads.
+     *
+     * @param source the serialized reference of the page
+     * @param revision the version of the revision
+     * @param edges the references found in the revision
+     * @throws IOException when the writer failed or the thread was interrupted while waiting for the writer
+     */
+    public void write(String source, String revision, List<Edge> edges) throws IOException
+    {
+        if (this.failure != null) {
+            throw new IOException("Failed to write the link graph [" + this.file + "]", this.failure);
+        }
+
+        if (edges.isEmpty()) {
+            return;
+        }
+
+        StringBuilder chunk = new StringBuilder(edges.size() * 128);
+        for (Edge edge : edges) {
+            chunk.append("{\"source\":");
+            appendString(source, chunk);
+            chunk.append(",\"revision\":");
+            appendString(revision, chunk);
+            chunk.append(",\"kind\":\"").append(edge.kind.id).append("\",\"target\":");
+            appendString(edge.target, chunk);
+            chunk.append("}\n");
+        }
+
+        try {
+            this.chunks.put(chunk.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new IOException("Interrupted while waiting for the link graph writer", e);
+        }
+
+        synchronized (this) {
+            this.edges += edges.size();
+        }
+    }
+
+    private static void appendString(String value, StringBuilder builder)
+    {
+        if (value == null) {
+            builder.append("null");
+
+            return;
+        }
+
+        builder.append('"');
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append("\\u00").append(HEXADECIMAL.charAt(c >> 4)).append(HEXADECIMAL.charAt(c & 0xF));
+            } else {
+                builder.append(c);
+            }
+        }
+        builder.append('"');
+    }
+
+    /**
+     * @return the number of edges added
+     */
+    public synchronized long getEdges()
+    {
+        return this.edges;
+    }
+
+    /**
+     * Wait for the pending edges to be written and close the file.
+     *
+     * @throws IOException when failing to write the file
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try {
+            this.chunks.put(END);
+            this.thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            this.thread.interrupt();
+        } finally {
+            this.writer.close();
+        }
+
+        if (this.failure != null) {
+            throw new IOException("Failed to write the link graph [" + this.file + "]", this.failure);
+        }
+    }
+}
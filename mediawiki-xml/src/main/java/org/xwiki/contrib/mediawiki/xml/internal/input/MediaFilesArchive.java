@@ -0,0 +1,349 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.io.input.CountingInputStream;
+
+/**
+ * A zip or tar archive containing the MediaWiki media files, read without extracting it.
+ * <p>
+ * The files are searched the same way as in a folder: first in the hashed sub folders ({@code a/ab/File.png}) and
+ * then at the root of the archive. If all the entries are located in the same top level folder (like
+ * {@code images/}), it's used as the root.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public abstract class MediaFilesArchive implements Closeable
+{
+    private static final String ZIP_EXTENSION = ".zip";
+
+    private static final String TAR_EXTENSION = ".tar";
+
+    private static final String[] COMPRESSED_TAR_EXTENSIONS = {".tar.gz", ".tgz", ".tar.bz2", ".tbz2"};
+
+    private static final char SEPARATOR = '/';
+
+    private final File archive;
+
+    private final long lastModified;
+
+    private Map<String, ArchivedFile> files = new HashMap<>();
+
+    /**
+     * A file stored in the archive.
+     *
+     * @version $Id$
+     */
+    public static class ArchivedFile
+    {
+        private final String path;
+
+        private final long size;
+
+        private final Object location;
+
+        ArchivedFile(String path, long size, Object location)
+        {
+            this.path = path;
+            this.size = size;
+            this.location = location;
+        }
+
+        /**
+         * @return the path of the file in the archive
+         */
+        public String getPath()
+        {
+            return this.path;
+        }
+
+        /**
+         * @return the size of the file
+         */
+        public long getSize()
+        {
+            return this.size;
+        }
+    }
+
+    /**
+     * Use the central directory of the zip file to find the entries.
+     *
+     * @version $Id$
+     */
+    private static final class ZipMediaFilesArchive extends MediaFilesArchive
+    {
+        private final ZipFile zipFile;
+
+        ZipMediaFilesArchive(File archive) throws IOException
+        {
+            super(archive);
+
+            this.zipFile = new ZipFile(archive);
+
+            Enumeration<ZipArchiveEntry> entries = this.zipFile.getEntries();
+            while (entries.hasMoreElements()) {
+                ZipArchiveEntry entry = entries.nextElement();
+
+                if (!entry.isDirectory()) {
+                    add(entry.getName(), entry.getSize(), entry);
+                }
+            }
+            setRoot();
+        }
+
+        @Override
+        public InputStream openStream(ArchivedFile file) throws IOException
+        {
+            return this.zipFile.getInputStream((ZipArchiveEntry) file.location);
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            this.zipFile.close();
+        }
+    }
+
+    /**
+     * Remember the offset of each entry in the tar file during a single pass and then read them directly.
+     *
+     * @version $Id$
+     */
+    private static final class TarMediaFilesArchive extends MediaFilesArchive
+    {
+        private final File tarFile;
+
+        private final boolean temporary;
+
+        TarMediaFilesArchive(File archive, File tarFile, boolean temporary) throws IOException
+        {
+            super(archive);
+
+            this.tarFile = tarFile;
+            this.temporary = temporary;
+
+            try (CountingInputStream counter =
+                new CountingInputStream(new BufferedInputStream(new FileInputStream(tarFile), 65536));
+                TarArchiveInputStream stream = new TarArchiveInputStream(counter)) {
+                for (TarArchiveEntry entry = stream.getNextTarEntry(); entry != null;
+                    entry = stream.getNextTarEntry()) {
+                    // The stream is positioned at the beginning of the entry content
+                    if (entry.isFile() && !entry.isSparse()) {
+                        add(entry.getName(), entry.getSize(), counter.getByteCount());
+                    }
+                }
+            }
+            setRoot();
+        }
+
+        @Override
+        public InputStream openStream(ArchivedFile file) throws IOException
+        {
+            FileInputStream stream = new FileInputStream(this.tarFile);
+
+            try {
+                long offset = (Long) file.location;
+                while (offset > 0) {
+                    long skipped = stream.skip(offset);
+                    if (skipped <= 0) {
+                        throw new IOException("Failed to reach the content of [" + file.getPath() + "]");
+                    }
+                    offset -= skipped;
+                }
+            } catch (IOException e) {
+                stream.close();
+
+                throw e;
+            }
+
+            return new BoundedInputStream(stream, file.getSize());
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if (this.temporary) {
+                Files.deleteIfExists(this.tarFile.toPath());
+            }
+        }
+    }
+
+    protected MediaFilesArchive(File archive)
+    {
+        this.archive = archive;
+        this.lastModified = archive.lastModified();
+    }
+
+    /**
+     * @param file the file
+     * @return true if the file has the extension of a supported archive
+     */
+    public static boolean isArchive(File file)
+    {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+
+        return name.endsWith(ZIP_EXTENSION) || name.endsWith(TAR_EXTENSION) || isCompressedTar(name);
+    }
+
+    private static boolean isCompressedTar(String name)
+    {
+        for (String extension : COMPRESSED_TAR_EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Index the entries of the archive.
+     *
+     * @param archive the archive
+     * @return the archive
+     * @throws IOException when failing to read the archive
+     */
+    public static MediaFilesArchive open(File archive) throws IOException
+    {
+        String name = archive.getName().toLowerCase(Locale.ROOT);
+
+        if (name.endsWith(ZIP_EXTENSION)) {
+            return new ZipMediaFilesArchive(archive);
+        } else if (isCompressedTar(name)) {
+            // A compressed tar does not allow random access: decompress it once in a single temporary file
+            File tarFile = File.createTempFile("mediawiki-files", TAR_EXTENSION);
+            try {
+                try (InputStream stream = MediaWikiUtils.decompress(new FileInputStream(archive), 1)) {
+                    Files.copy(stream, tarFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+
+                return new TarMediaFilesArchive(archive, tarFile, true);
+            } catch (IOException e) {
+                Files.deleteIfExists(tarFile.toPath());
+
+                throw e;
+            }
+        } else {
+            return new TarMediaFilesArchive(archive, archive, false);
+        }
+    }
+
+    protected void add(String path, long size, Object location)
+    {
+        this.files.put(path, new ArchivedFile(path, size, location));
+    }
+
+    /**
+     * Remove the top level folder shared by all the entries, if any.
+     */
+    protected void setRoot()
+    {
+        String root = null;
+        for (String path : this.files.keySet()) {
+            int index = path.indexOf(SEPARATOR);
+
+            if (index <= 0 || (root != null && !path.regionMatches(0, root, 0, index + 1))) {
+                return;
+            }
+
+            root = path.substring(0, index + 1);
+        }
+
+        // Don't mistake a lonely hashed folder for the root
+        if (root != null && !(root.length() == 2 && Character.digit(root.charAt(0), 16) >= 0)) {
+            Map<String, ArchivedFile> relativeFiles = new HashMap<>(this.files.size() * 4 / 3 + 1);
+            for (Map.Entry<String, ArchivedFile> entry : this.files.entrySet()) {
+                relativeFiles.put(entry.getKey().substring(root.length()), entry.getValue());
+            }
+            this.files = relativeFiles;
+        }
+    }
+
+    /**
+     * @return the archive file
+     */
+    public File getArchive()
+    {
+        return this.archive;
+    }
+
+    /**
+     * @return the last modification date of the archive when it was opened
+     */
+    public long getLastModified()
+    {
+        return this.lastModified;
+    }
+
+    /**
+     * @return the number of files in the archive
+     */
+    public int size()
+    {
+        return this.files.size();
+    }
+
+    /**
+     * @param fileName the name of the MediaWiki file
+     * @return the file stored in the archive or null if it cannot be found
+     */
+    public ArchivedFile get(String fileName)
+    {
+        String md5Hex = DigestUtils.md5Hex(fileName);
+
+        ArchivedFile file = this.files.get(new StringBuilder(fileName.length() + 5).append(md5Hex.charAt(0))
+            .append(SEPARATOR).append(md5Hex, 0, 2).append(SEPARATOR).append(fileName).toString());
+
+        if (file == null) {
+            // Try simple path
+            file = this.files.get(fileName);
+        }
+
+        return file;
+    }
+
+    /**
+     * @param file the archived file
+     * @return the content of the file
+     * @throws IOException when failing to read the archive
+     */
+    public abstract InputStream openStream(ArchivedFile file) throws IOException;
+}
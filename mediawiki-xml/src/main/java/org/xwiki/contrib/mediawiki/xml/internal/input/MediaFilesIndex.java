@@ -0,0 +1,427 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+
+/**
+ * An in memory index of the MediaWiki media files folder associating each file name to its location and size, so
+ * that finding the file of an attachment does not require any access to the file system.
+ * <p>
+ * Only the files which can be found by {@link MediaWikiInputFilterStream#getFile(String)} are indexed: the files
+ * stored in the hashed sub folders ({@code a/ab/File.png}, where {@code ab} are the first characters of the MD5 of
+ * the file name) and, with a lower priority, the files stored directly in the folder.
+ * <p>
+ * The index can be saved to be reused by the next imports. Since adding or removing a file changes the last
+ * modification date of its folder, the dates of the indexed folders are saved with the index and a snapshot is only
+ * reused when none of them changed.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public class MediaFilesIndex
+{
+    private static final int MAGIC = 0x4d574649;
+
+    private static final int VERSION = 2;
+
+    private static final int BUFFER_SIZE = 65536;
+
+    /**
+     * Listing a folder is bound by the latency of the file system (especially network ones), not by the CPU.
+     */
+    private static final int WALK_THREADS = 16;
+
+    private static final String HEXADECIMAL = "0123456789abcdef";
+
+    private final File folder;
+
+    private final Map<String, Entry> entries;
+
+    /**
+     * The last modification date of the indexed folders, by path relative to the media files folder.
+     */
+    private final Map<String, Long> folderDates;
+
+    /**
+     * The location and size of an indexed file.
+     *
+     * @version $Id$
+     */
+    private static final class Entry
+    {
+        private final String path;
+
+        private final long size;
+
+        private final long lastModified;
+
+        Entry(String path, BasicFileAttributes attributes)
+        {
+            this(path, attributes.size(), attributes.lastModifiedTime().toMillis());
+        }
+
+        Entry(String path, long size, long lastModified)
+        {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * A {@link File} which does not need to access the file system to know it exists, its size or its last
+     * modification date.
+     *
+     * @version $Id$
+     */
+    private static final class IndexedFile extends File
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final long size;
+
+        private final long lastModified;
+
+        IndexedFile(File folder, Entry entry)
+        {
+            super(folder, entry.path);
+
+            this.size = entry.size;
+            this.lastModified = entry.lastModified;
+        }
+
+        @Override
+        public boolean exists()
+        {
+            return true;
+        }
+
+        @Override
+        public boolean isFile()
+        {
+            return true;
+        }
+
+        @Override
+        public boolean isDirectory()
+        {
+            return false;
+        }
+
+        @Override
+        public long length()
+        {
+            return this.size;
+        }
+
+        @Override
+        public long lastModified()
+        {
+            return this.lastModified;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return super.equals(obj);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return super.hashCode();
+        }
+    }
+
+    private MediaFilesIndex(File folder, Map<String, Entry> entries, Map<String, Long> folderDates)
+    {
+        this.folder = folder;
+        this.entries = entries;
+        this.folderDates = folderDates;
+    }
+
+    /**
+     * Walk the media files folder, listing the hashed sub folders in parallel.
+     *
+     * @param folder the media files folder
+     * @return the index
+     * @throws IOException when failing to list the folder
+     */
+    public static MediaFilesIndex build(File folder) throws IOException
+    {
+        Map<String, Entry> flatEntries = new HashMap<>();
+        List<Path> hashedFolders = new ArrayList<>();
+        Map<String, Long> folderDates = new ConcurrentHashMap<>();
+
+        // The dates are read before listing the folders so that a change during the walk invalidates the snapshot
+        folderDates.put("", Files.getLastModifiedTime(folder.toPath()).toMillis());
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder.toPath())) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+
+                if (attributes.isRegularFile()) {
+                    flatEntries.put(normalize(name), new Entry(name, attributes));
+                } else if (attributes.isDirectory() && isHashedFolder(name, 1)) {
+                    folderDates.put(name, attributes.lastModifiedTime().toMillis());
+
+                    addHashedFolders(path, name, hashedFolders);
+                }
+            }
+        }
+
+        Map<String, Entry> entries = new ConcurrentHashMap<>(flatEntries.size() + hashedFolders.size() * 64);
+
+        if (!hashedFolders.isEmpty()) {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(WALK_THREADS, hashedFolders.size()),
+                new BasicThreadFactory.Builder().namingPattern("MediaWiki files index walker %d").daemon(true)
+                    .build());
+
+            try {
+                List<Future<Void>> futures = new ArrayList<>(hashedFolders.size());
+                for (Path hashedFolder : hashedFolders) {
+                    futures.add(executor.submit(() -> {
+                        indexHashedFolder(hashedFolder, entries, folderDates);
+
+                        return null;
+                    }));
+                }
+
+                for (Future<Void> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw new IOException("Interrupted while indexing the media files folder", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Failed to index the media files folder", e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        // The files found in the hashed folders have priority
+        for (Map.Entry<String, Entry> entry : flatEntries.entrySet()) {
+            entries.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+
+        return new MediaFilesIndex(folder, entries, folderDates);
+    }
+
+    private static void addHashedFolders(Path folder1, String folderName1, List<Path> hashedFolders)
+        throws IOException
+    {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder1, Files::isDirectory)) {
+            for (Path folder2 : stream) {
+                String folderName2 = folder2.getFileName().toString();
+
+                if (isHashedFolder(folderName2, 2) && folderName2.charAt(0) == folderName1.charAt(0)) {
+                    hashedFolders.add(folder2);
+                }
+            }
+        }
+    }
+
+    private static void indexHashedFolder(Path hashedFolder, Map<String, Entry> entries,
+        Map<String, Long> folderDates) throws IOException
+    {
+        String hashedFolderName = hashedFolder.getFileName().toString();
+        String pathPrefix = hashedFolderName.charAt(0) + File.separator + hashedFolderName + File.separator;
+
+        folderDates.put(hashedFolderName.charAt(0) + "/" + hashedFolderName,
+            Files.getLastModifiedTime(hashedFolder).toMillis());
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(hashedFolder)) {
+            for (Path path : stream) {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+
+                if (attributes.isRegularFile()) {
+                    String name = path.getFileName().toString();
+                    String normalizedName = normalize(name);
+
+                    // A file stored in the wrong hashed folder would not be found without the index either
+                    if (DigestUtils.md5Hex(normalizedName).startsWith(hashedFolderName)) {
+                        entries.put(normalizedName, new Entry(pathPrefix + name, attributes));
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isHashedFolder(String name, int length)
+    {
+        if (name.length() != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; ++i) {
+            if (HEXADECIMAL.indexOf(name.charAt(i)) < 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Some file systems (like HFS+) return the file names in a decomposed Unicode form while MediaWiki titles are
+     * composed.
+     */
+    private static String normalize(String fileName)
+    {
+        return Normalizer.isNormalized(fileName, Normalizer.Form.NFC) ? fileName
+            : Normalizer.normalize(fileName, Normalizer.Form.NFC);
+    }
+
+    /**
+     * Load an index previously saved with {@link #save(File)}.
+     *
+     * @param snapshot the file containing the index
+     * @param folder the media files folder
+     * @return the index or null if the snapshot was produced for another folder, by an older version or if the content
+     *         of the folder changed since
+     * @throws IOException when failing to read the snapshot
+     */
+    public static MediaFilesIndex load(File snapshot, File folder) throws IOException
+    {
+        try (DataInputStream input =
+            new DataInputStream(new BufferedInputStream(new FileInputStream(snapshot), BUFFER_SIZE))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Unsupported media files index [" + snapshot + "]");
+            }
+
+            if (input.readInt() != VERSION || !input.readUTF().equals(folder.getAbsolutePath())) {
+                return null;
+            }
+
+            int folderCount = input.readInt();
+            Map<String, Long> folderDates = new HashMap<>(folderCount * 4 / 3 + 1);
+            for (int i = 0; i < folderCount; ++i) {
+                String path = input.readUTF();
+                long date = input.readLong();
+
+                if (!isUnchanged(folder, path, date)) {
+                    return null;
+                }
+
+                folderDates.put(path, date);
+            }
+
+            int size = input.readInt();
+            Map<String, Entry> entries = new HashMap<>(size * 4 / 3 + 1);
+            for (int i = 0; i < size; ++i) {
+                entries.put(input.readUTF(), new Entry(input.readUTF(), input.readLong(), input.readLong()));
+            }
+
+            return new MediaFilesIndex(folder, entries, folderDates);
+        }
+    }
+
+    private static boolean isUnchanged(File folder, String path, long date) throws IOException
+    {
+        Path indexedFolder = path.isEmpty() ? folder.toPath() : folder.toPath().resolve(path);
+
+        if (!Files.isDirectory(indexedFolder)) {
+            return false;
+        }
+
+        return Files.getLastModifiedTime(indexedFolder).toMillis() == date;
+    }
+
+    /**
+     * @param snapshot the file where to save the index
+     * @throws IOException when failing to write the snapshot
+     */
+    public void save(File snapshot) throws IOException
+    {
+        File tmpFile = new File(snapshot.getPath() + ".tmp");
+
+        try (DataOutputStream output =
+            new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), BUFFER_SIZE))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeUTF(this.folder.getAbsolutePath());
+
+            output.writeInt(this.folderDates.size());
+            for (Map.Entry<String, Long> entry : this.folderDates.entrySet()) {
+                output.writeUTF(entry.getKey());
+                output.writeLong(entry.getValue());
+            }
+
+            output.writeInt(this.entries.size());
+            for (Map.Entry<String, Entry> entry : this.entries.entrySet()) {
+                output.writeUTF(entry.getKey());
+                output.writeUTF(entry.getValue().path);
+                output.writeLong(entry.getValue().size);
+                output.writeLong(entry.getValue().lastModified);
+            }
+        }
+
+        Files.move(tmpFile.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the number of indexed files
+     */
+    public int size()
+    {
+        return this.entries.size();
+    }
+
+    /**
+     * @param fileName the name of the file
+     * @return the file or null if it's not part of the index
+     */
+    public File get(String fileName)
+    {
+        Entry entry = this.entries.get(normalize(fileName));
+
+        return entry != null ? new IndexedFile(this.folder, entry) : null;
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+import org.apache.commons.io.IOUtils;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.EntityReference;
+
+/**
+ * Periodically record the progress of an import in a file so that it can be resumed after the last recorded page.
+ * <p>
+ * The checkpoint contains the offset (in the uncompressed XML) of the end of the last sent page. When resuming, the
+ * beginning of the XML (up to the first page) is kept and everything until the recorded offset is skipped without
+ * being parsed.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public class MediaWikiCheckpoint
+{
+    private static final byte[] PAGE_START = "<page>".getBytes(StandardCharsets.US_ASCII);
+
+    private static final String PROPERTY_OFFSET = "offset";
+
+    private static final String PROPERTY_PAGE_ID = "page.id";
+
+    private static final String PROPERTY_PAGE_TITLE = "page.title";
+
+    private static final String PROPERTY_PAGES = "pages";
+
+    private static final String PROPERTY_PARENT = "parent.";
+
+    private static final String PROPERTY_PARENT_TYPE = ".type";
+
+    private static final String PROPERTY_PARENT_NAME = ".name";
+
+    private final File file;
+
+    private final int interval;
+
+    private long resumeOffset = -1;
+
+    private String resumePageTitle;
+
+    private EntityReference resumeParentReference;
+
+    private long pages;
+
+    private int pagesSinceLastWrite;
+
+    private boolean held;
+
+    private PageOffsetInputStream pageOffsets;
+
+    /**
+     * @param file the file where to store the checkpoint
+     * @param interval the number of sent pages between two checkpoints
+     */
+    public MediaWikiCheckpoint(File file, int interval)
+    {
+        this.file = file;
+        this.interval = Math.max(1, interval);
+    }
+
+    /**
+     * Load the existing checkpoint, if any.
+     *
+     * @throws IOException when failing to read the checkpoint file
+     */
+    public void load() throws IOException
+    {
+        if (this.file.exists()) {
+            Properties properties = new Properties();
+            try (InputStream stream = new FileInputStream(this.file)) {
+                properties.load(stream);
+            }
+
+            try {
+                this.resumeOffset = Long.parseLong(properties.getProperty(PROPERTY_OFFSET));
+                this.pages = Long.parseLong(properties.getProperty(PROPERTY_PAGES, "0"));
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid checkpoint file [" + this.file + "]", e);
+            }
+            this.resumePageTitle = properties.getProperty(PROPERTY_PAGE_TITLE);
+
+            for (int i = 0; properties.containsKey(PROPERTY_PARENT + i + PROPERTY_PARENT_TYPE); ++i) {
+                this.resumeParentReference =
+                    new EntityReference(properties.getProperty(PROPERTY_PARENT + i + PROPERTY_PARENT_NAME),
+                        EntityType.valueOf(properties.getProperty(PROPERTY_PARENT + i + PROPERTY_PARENT_TYPE)),
+                        this.resumeParentReference);
+            }
+        }
+    }
+
+    /**
+     * @return true if the import is resumed from an existing checkpoint
+     */
+    public boolean isResuming()
+    {
+        return this.resumeOffset >= 0;
+    }
+
+    /**
+     * @return the offset (in the uncompressed XML) from which the import is resumed
+     */
+    public long getResumeOffset()
+    {
+        return this.resumeOffset;
+    }
+
+    /**
+     * @return the title of the last page sent before the checkpoint
+     */
+    public String getResumePageTitle()
+    {
+        return this.resumePageTitle;
+    }
+
+    /**
+     * @return the parent of the last page sent before the checkpoint
+     */
+    public EntityReference getResumeParentReference()
+    {
+        return this.resumeParentReference;
+    }
+
+    /**
+     * @param dump the uncompressed XML
+     * @return the stream to parse
+     * @throws IOException when failing to read the dump
+     */
+    public InputStream open(InputStream dump) throws IOException
+    {
+        if (!isResuming()) {
+            this.pageOffsets = new PageOffsetInputStream(dump, 0);
+
+            return this.pageOffsets;
+        }
+
+        InputStream bufferedDump = dump instanceof BufferedInputStream ? dump : new BufferedInputStream(dump);
+
+        // Keep everything before the first page (the root element and the siteinfo)
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        long consumed = 0;
+        for (int matched = 0; matched < PAGE_START.length;) {
+            int b = bufferedDump.read();
+            if (b < 0) {
+                throw new IOException("Could not find any page in the dump");
+            }
+
+            ++consumed;
+            header.write(b);
+
+            if (b == PAGE_START[matched]) {
+                ++matched;
+            } else {
+                matched = b == PAGE_START[0] ? 1 : 0;
+            }
+        }
+
+        if (this.resumeOffset < consumed) {
+            throw new IOException("Invalid checkpoint offset [" + this.resumeOffset + "]");
+        }
+
+        // Skip the pages already sent
+        IOUtils.skipFully(bufferedDump, this.resumeOffset - consumed);
+
+        this.pageOffsets = new PageOffsetInputStream(bufferedDump, this.resumeOffset);
+
+        byte[] headerBytes = header.toByteArray();
+        return new SequenceInputStream(
+            new ByteArrayInputStream(headerBytes, 0, headerBytes.length - PAGE_START.length), this.pageOffsets);
+    }
+
+    /**
+     * @return the offset just after the end of the next page read by the XML reader, -1 if unknown
+     */
+    public long pollPageEnd()
+    {
+        return this.pageOffsets != null ? this.pageOffsets.pollPageEnd() : -1;
+    }
+
+    /**
+     * Indicate that a page was fully sent to the filter.
+     *
+     * @param page the sent page
+     * @throws IOException when failing to write the checkpoint
+     */
+    public void onPageSent(MediaWikiPage page) throws IOException
+    {
+        ++this.pages;
+
+        if (++this.pagesSinceLastWrite >= this.interval && page.getEndOffset() >= 0 && !this.held) {
+            write(page);
+
+            this.pagesSinceLastWrite = 0;
+        }
+    }
+
+    /**
+     * Indicate that a page was read but will only be sent at the end of the import. Resuming after it would lose it
+     * so the checkpoint is not updated anymore.
+     */
+    public void onPageHeld()
+    {
+        this.held = true;
+    }
+
+    private void write(MediaWikiPage page) throws IOException
+    {
+        Properties properties = new Properties();
+
+        properties.setProperty(PROPERTY_OFFSET, String.valueOf(page.getEndOffset()));
+        properties.setProperty(PROPERTY_PAGES, String.valueOf(this.pages));
+        properties.setProperty(PROPERTY_PAGE_TITLE, page.getTitle());
+        if (page.getId() != null) {
+            properties.setProperty(PROPERTY_PAGE_ID, page.getId());
+        }
+
+        EntityReference parentReference = page.getReference().getParent();
+        if (parentReference != null) {
+            int i = 0;
+            for (EntityReference parent : parentReference.getReversedReferenceChain()) {
+                properties.setProperty(PROPERTY_PARENT + i + PROPERTY_PARENT_TYPE, parent.getType().name());
+                properties.setProperty(PROPERTY_PARENT + i + PROPERTY_PARENT_NAME, parent.getName());
+                ++i;
+            }
+        }
+
+        // Make sure to never leave a partially written checkpoint
+        File temporaryFile = new File(this.file.getPath() + ".tmp");
+        try (OutputStream stream = new FileOutputStream(temporaryFile)) {
+            properties.store(stream, "MediaWiki import checkpoint");
+        }
+        Files.move(temporaryFile.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Indicate that the import is finished and the checkpoint is not needed anymore.
+     *
+     * @throws IOException when failing to delete the checkpoint file
+     */
+    public void complete() throws IOException
+    {
+        Files.deleteIfExists(this.file.toPath());
+    }
+}
@@ -19,9 +19,12 @@
  */
 package org.xwiki.contrib.mediawiki.xml.internal.input;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -73,6 +76,9 @@ public class MediaWikiContextConverterListener extends WrappingListener implemen
     @Named("local")
     private EntityReferenceSerializer<String> localSerializer;
 
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
     @Inject
     private RenderingContext renderingContext;
 
@@ -85,6 +91,8 @@ public class MediaWikiContextConverterListener extends WrappingListener implemen
 
     private MediaWikiInputFilterStream stream;
 
+    private MediaWikiPageRevision revision;
+
     private Deque<ResourceReference> currentReference = new LinkedList<>();
 
     private Syntax targetSyntax;
@@ -93,14 +101,40 @@ public class MediaWikiContextConverterListener extends WrappingListener implemen
 
     private String redirectTitle;
 
-    void initialize(Listener listener, MediaWikiInputFilterStream stream, Syntax targetSyntax)
+    private List<LinkGraphWriter.Edge> links;
+
+    private final VoidListener voidListener = new VoidListener();
+
+    void initialize(Listener listener, MediaWikiInputFilterStream stream, MediaWikiPageRevision revision,
+        Syntax targetSyntax)
     {
         setWrappedListener(listener);
 
         this.fileCatcher.initialize(stream);
-        this.fileCatcher.setWrappedListener(new VoidListener());
+        this.fileCatcher.setWrappedListener(this.voidListener);
         this.stream = stream;
+        this.revision = revision;
         this.targetSyntax = targetSyntax;
+
+        // Collect the references only when they are written somewhere
+        this.links = stream.getProperties().getLinkGraph() != null ? new ArrayList<>() : null;
+    }
+
+    /**
+     * Forget the state of the last converted revision so that the listener can be reused for another one. The
+     * collections returned for the last revision are not modified.
+     */
+    void reset()
+    {
+        setWrappedListener(null);
+
+        this.fileCatcher.reset();
+        this.revision = null;
+        this.targetSyntax = null;
+        this.currentReference.clear();
+        this.categories = new LinkedHashSet<>();
+        this.redirectTitle = null;
+        this.links = null;
     }
 
     /**
@@ -121,6 +155,21 @@ public class MediaWikiContextConverterListener extends WrappingListener implemen
         return this.redirectTitle;
     }
 
+    /**
+     * @return the links, images and attachments found in the content
+     */
+    public List<LinkGraphWriter.Edge> getLinks()
+    {
+        return this.links != null ? this.links : Collections.<LinkGraphWriter.Edge>emptyList();
+    }
+
+    private void addLink(LinkGraphWriter.Kind kind, EntityReference target)
+    {
+        if (this.links != null) {
+            this.links.add(new LinkGraphWriter.Edge(kind, this.serializer.serialize(target)));
+        }
+    }
+
     private EntityReference compact(EntityReference linkReference, EntityReference pageReference)
     {
         if (this.stream.getProperties().isAbsoluteReferences()) {
@@ -157,7 +206,7 @@ public class MediaWikiContextConverterListener extends WrappingListener implemen
         EntityReference compactReference;
 
         try {
-            compactReference = compact(entityReference, this.stream.currentPageReference);
+            compactReference = compact(entityReference, this.revision.getPage().getReference());
         } catch (Exception e) {
             // Bulletproofing
             compactReference = entityReference;
@@ -179,8 +228,16 @@ public class MediaWikiContextConverterListener extends WrappingListener implemen
             if (entityReference != null) {
                 if (entityReference.getType() == EntityType.ATTACHMENT) {
                     newReference = new AttachmentResourceReference(entityReference.getName());
+
+                    addLink(LinkGraphWriter.Kind.ATTACHMENT, new EntityReference(entityReference.getName(),
+                        EntityType.ATTACHMENT, this.revision.getPage().getReference()));
                 } else {
-                    if (this.stream.currentPageReference.equals(entityReference)) {
+                    // Skip the redirect pages
+                    entityReference = this.stream.getRedirectLinkTarget(entityReference);
+
+                    addLink(LinkGraphWriter.Kind.LINK, entityReference);
+
+                    if (this.revision.getPage().getReference().equals(entityReference)) {
                         newReference = new DocumentResourceReference("");
                         newReference.setTyped(false);
                     } else {
@@ -195,13 +252,13 @@ public class MediaWikiContextConverterListener extends WrappingListener implemen
         } catch (Exception e) {
             this.logger.error(
                 "Failed to refactor the link reference [{}] located in page with title [{}] and version [{}]",
-                reference, this.stream.currentPageTitle, this.stream.currentPageVersion, e);
+                reference, this.revision.getPage().getTitle(), this.revision.getVersion(), e);
         }
 
         return newReference;
     }
 
-    private AttachmentResourceReference refactor(AttachmentResourceReference reference)
+    private AttachmentResourceReference refactor(AttachmentResourceReference reference, LinkGraphWriter.Kind kind)
     {
         AttachmentResourceReference newReference = reference;
 
@@ -210,6 +267,8 @@ public class MediaWikiContextConverterListener extends WrappingListener implemen
 
         if (entityReference != null) {
             entityReference = new EntityReference(reference.getReference(), EntityType.ATTACHMENT, entityReference);
+            addLink(kind, entityReference);
+
             newReference = new AttachmentResourceReference(compact(entityReference));
             newReference.setParameters(reference.getParameters());
             newReference.setAnchor(reference.getAnchor());
@@ -231,7 +290,7 @@ public class MediaWikiContextConverterListener extends WrappingListener implemen
 
         // Refactor the reference if needed
         if (reference instanceof AttachmentResourceReference) {
-            newReference = refactor((AttachmentResourceReference) reference);
+            newReference = refactor((AttachmentResourceReference) reference, LinkGraphWriter.Kind.ATTACHMENT);
         } else if (reference instanceof DocumentResourceReference) {
             newReference = refactor((DocumentResourceReference) reference);
         } else if (reference.getType() == ResourceType.URL) {
@@ -265,7 +324,7 @@ public class MediaWikiContextConverterListener extends WrappingListener implemen
 
         // Refactor the reference if needed
         if (reference instanceof AttachmentResourceReference) {
-            newReference = refactor((AttachmentResourceReference) reference);
+            newReference = refactor((AttachmentResourceReference) reference, LinkGraphWriter.Kind.IMAGE);
             newReference.setTyped(false);
         }
 
@@ -0,0 +1,151 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.IOException;
+
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.contrib.mediawiki.syntax.MediaWikiSyntaxInputProperties;
+import org.xwiki.filter.FilterException;
+import org.xwiki.filter.input.BeanInputFilterStream;
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.renderer.PrintRenderer;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.syntax.Syntax;
+
+/**
+ * The components needed to convert the content of a revision (the converter listener, the MediaWiki syntax parser and
+ * the buffer of the XWiki syntax renderer), created once and reused for the following revisions converted by the same
+ * thread. The renderer itself keeps some state between events (for example the pending new lines or the list depth) so
+ * a new one is created for each revision, printing in the reused buffer.
+ * <p>
+ * A context is used by a single thread at a time and {@link #reset()} must be called before it's reused.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public class MediaWikiConversionContext
+{
+    /**
+     * Don't keep forever the memory needed by a huge page.
+     */
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    private final MediaWikiInputFilterStream stream;
+
+    private final MediaWikiContextConverterListener listener;
+
+    private BeanInputFilterStream<MediaWikiSyntaxInputProperties> parser;
+
+    private DefaultWikiPrinter printer;
+
+    /**
+     * @param stream the stream converting the revisions
+     * @param listener the listener in charge of modifying the events produced by the parser
+     */
+    public MediaWikiConversionContext(MediaWikiInputFilterStream stream, MediaWikiContextConverterListener listener)
+    {
+        this.stream = stream;
+        this.listener = listener;
+    }
+
+    /**
+     * Parse the content of a revision.
+     *
+     * @param revision the revision
+     * @param properties the properties of the parser, including the content to parse
+     * @param listener the listener receiving the converted events
+     * @param targetSyntax the syntax the events are converted to
+     * @return the converter listener, containing the files, categories, redirect and links found in the content
+     * @throws FilterException when failing to parse the content
+     * @throws IOException when failing to close the content
+     * @throws ComponentLookupException when failing to find the parser
+     */
+    public MediaWikiContextConverterListener parse(MediaWikiPageRevision revision,
+        MediaWikiSyntaxInputProperties properties, Listener listener, Syntax targetSyntax)
+        throws FilterException, IOException, ComponentLookupException
+    {
+        this.listener.initialize(listener, this.stream, revision, targetSyntax);
+
+        if (this.parser == null) {
+            this.parser = this.stream.getInputFilterStreamFactory().createInputFilterStream(properties);
+        } else {
+            this.parser.setProperties(properties);
+        }
+
+        try {
+            this.parser.read(this.listener);
+        } finally {
+            // Only close the source, the parser stays usable
+            this.parser.close();
+        }
+
+        return this.listener;
+    }
+
+    /**
+     * @return the listener in charge of modifying the events produced by the parser
+     */
+    public MediaWikiContextConverterListener getListener()
+    {
+        return this.listener;
+    }
+
+    /**
+     * @param factory the factory of the renderer
+     * @param capacity the expected size of the rendered content
+     * @return a new renderer, printing in the reused (empty) buffer
+     */
+    public PrintRenderer createRenderer(PrintRendererFactory factory, int capacity)
+    {
+        if (this.printer == null) {
+            this.printer = new DefaultWikiPrinter(new StringBuffer(capacity));
+        } else {
+            this.printer.getBuffer().ensureCapacity(capacity);
+        }
+
+        return factory.createRenderer(this.printer);
+    }
+
+    /**
+     * @return the content printed by the renderer since the last reset
+     */
+    public String getRenderedContent()
+    {
+        return this.printer.toString();
+    }
+
+    /**
+     * Forget the state of the last conversion.
+     */
+    public void reset()
+    {
+        this.listener.reset();
+
+        if (this.printer != null) {
+            StringBuffer buffer = this.printer.getBuffer();
+            buffer.setLength(0);
+            if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+                buffer.trimToSize();
+            }
+        }
+    }
+}
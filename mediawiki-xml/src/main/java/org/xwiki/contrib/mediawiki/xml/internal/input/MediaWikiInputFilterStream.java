@@ -19,50 +19,75 @@
  */
 package org.xwiki.contrib.mediawiki.xml.internal.input;
 
+import java.awt.Dimension;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 import javax.xml.datatype.DatatypeConfigurationException;
-import javax.xml.datatype.DatatypeFactory;
 import javax.xml.stream.FactoryConfigurationError;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
 import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.io.input.CountingInputStream;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.contrib.mediawiki.MediaWikiNamespace;
 import org.xwiki.contrib.mediawiki.MediaWikiNamespaces;
+import org.xwiki.contrib.mediawiki.MediaWikiTitle;
 import org.xwiki.contrib.mediawiki.syntax.MediaWikiSyntaxInputProperties;
 import org.xwiki.contrib.mediawiki.syntax.MediaWikiSyntaxInputProperties.ReferenceType;
 import org.xwiki.contrib.mediawiki.syntax.bliki.internal.input.BlikiMediaWikiSyntaxInputFilterStreamFactory;
 import org.xwiki.contrib.mediawiki.syntax.bliki.internal.parser.BlikiMediaWikiStreamParser;
+import org.xwiki.contrib.mediawiki.syntax.internal.input.CharArrayInputSource;
 import org.xwiki.contrib.mediawiki.xml.input.MediaWikiInputProperties;
+import org.xwiki.contrib.mediawiki.xml.input.MediaWikiInputProperties.RevisionPolicy;
 import org.xwiki.contrib.mediawiki.xml.internal.MediaWikiFilter;
+import org.xwiki.contrib.mediawiki.xml.metrics.MediaWikiImportMetrics;
+import org.xwiki.contrib.mediawiki.xml.metrics.MediaWikiImportMetricsRegistry;
 import org.xwiki.filter.FilterEventParameters;
 import org.xwiki.filter.FilterException;
 import org.xwiki.filter.event.model.WikiDocumentFilter;
 import org.xwiki.filter.event.model.WikiObjectFilter;
 import org.xwiki.filter.input.AbstractBeanInputFilterStream;
-import org.xwiki.filter.input.BeanInputFilterStream;
 import org.xwiki.filter.input.BeanInputFilterStreamFactory;
 import org.xwiki.filter.input.FileInputSource;
 import org.xwiki.filter.input.InputFilterStreamFactory;
@@ -74,12 +99,14 @@ import org.xwiki.filter.xml.input.SourceInputSource;
 import org.xwiki.model.EntityType;
 import org.xwiki.model.ModelConfiguration;
 import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceResolver;
 import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.rendering.internal.parser.XDOMGeneratorListener;
 import org.xwiki.rendering.listener.Listener;
 import org.xwiki.rendering.renderer.PrintRenderer;
 import org.xwiki.rendering.renderer.PrintRendererFactory;
-import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
 import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.transformation.RenderingContext;
 import org.xwiki.xml.stax.StAXUtils;
 
 /**
@@ -104,6 +131,8 @@ public class MediaWikiInputFilterStream extends AbstractBeanInputFilterStream<Me
 
     private static final String TAG_PAGE_TITLE = "title";
 
+    private static final String TAG_PAGE_ID = "id";
+
     private static final String TAG_PAGE_REVISION = "revision";
 
     private static final String TAG_PAGE_REVISION_CONTRIBUTOR = "contributor";
@@ -122,10 +151,47 @@ public class MediaWikiInputFilterStream extends AbstractBeanInputFilterStream<Me
 
     private static final String TAG_PAGE_REVISION_CONTENT = "text";
 
+    private static final String TAG_PAGE_REVISION_SHA1 = "sha1";
+
     private static final String REFERENCE_TAGCLASS = "XWiki.TagClass";
 
     private static final String REFERENCE_REDIRECTCLASS = "XWiki.RedirectClass";
 
+    private static final String REFERENCE_CATEGORYMEMBERSCLASS = "MediaWiki.CategoryMembersClass";
+
+    /**
+     * The maximum number of members listed in each category members object.
+     */
+    private static final int CATEGORY_MEMBERS_PER_OBJECT = 1000;
+
+    /**
+     * The version of the category pages created to list the members of categories which don't have a page.
+     */
+    private static final String CATEGORY_PAGE_VERSION = "1.1";
+
+    private static final String ATTRIBUTE_PAGE_REVISION_CONTENT_BYTES = "bytes";
+
+    /**
+     * The maximum number of revisions given to the workers and not sent yet, for each worker.
+     */
+    private static final int PENDING_REVISIONS_PER_WORKER = 16;
+
+    /**
+     * The maximum number of characters of the revisions given to the workers and not sent yet.
+     */
+    private static final long MAX_PENDING_CONTENT_LENGTH = 64L * 1024 * 1024;
+
+    private static final int MAX_POOLED_CONTENT_BUFFERS = 64;
+
+    private static final int MAX_POOLED_CONTENT_CAPACITY = 4 * 1024 * 1024;
+
+    private static final byte[] MEDIAWIKI_END = "</mediawiki>\n".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Used to give a unique name to the metrics of each import.
+     */
+    private static final AtomicInteger IMPORT_COUNTER = new AtomicInteger();
+
     /**
      * This is not final, it gets initialized right after the base url is read from the xml, with the precise value from
      * the XML.
@@ -148,30 +214,102 @@ public class MediaWikiInputFilterStream extends AbstractBeanInputFilterStream<Me
     @Inject
     private EntityReferenceSerializer<String> serializer;
 
+    @Inject
+    @Named("relative")
+    private EntityReferenceResolver<String> relativeResolver;
+
     @Inject
     @Named("context")
     private Provider<ComponentManager> componentManagerProvider;
 
+    @Inject
+    private RenderingContext renderingContext;
+
     private BeanInputFilterStreamFactory<MediaWikiSyntaxInputProperties> inputFilterStreamFactory;
 
     private MediaWikiNamespaces namespaces = new MediaWikiNamespaces();
 
-    private Set<String> currentFiles;
+    private ExecutorService conversionExecutor;
+
+    /**
+     * The conversion contexts not currently used (at most one per thread converting revisions).
+     */
+    private final Deque<MediaWikiConversionContext> conversionContexts = new ConcurrentLinkedDeque<>();
+
+    /**
+     * The pages whose revisions are being converted by the workers, in the order of the dump.
+     */
+    private final Deque<MediaWikiPage> pendingPages = new ArrayDeque<>();
+
+    private int pendingRevisions;
+
+    private long pendingContentLength;
+
+    private boolean contentEvents;
+
+    private Syntax contentEventsTargetSyntax;
+
+    private int lastRevisions;
+
+    private final Deque<RevisionContentBuffer> contentBuffers = new ArrayDeque<>();
+
+    private InputStream dumpStream;
+
+    private MediaWikiCheckpoint checkpoint;
+
+    private PageSelector pageSelector;
+
+    private boolean pagesPreselected;
+
+    private final RevisionMetadataDecoder metadataDecoder = new RevisionMetadataDecoder();
+
+    private EntityReferenceCache referenceCache;
+
+    private PageNameNormalizer pageNameNormalizer;
+
+    private MediaFilesIndex filesIndex;
+
+    /**
+     * The files which could not be found in the media files index.
+     */
+    private final Set<String> missingFiles = ConcurrentHashMap.newKeySet();
+
+    private MediaFilesArchive filesArchive;
+
+    private AttachmentPrefetcher attachmentPrefetcher;
+
+    private MediaWikiRedirectMap redirectMap;
+
+    private CategoryMembershipBuffer categoryMembers;
+
+    /**
+     * The category pages held back until the members of the categories are known, indexed by document reference.
+     */
+    private final Map<String, MediaWikiPage> categoryPages = new LinkedHashMap<>();
+
+    private MediaWikiPageRevision lastSentRevision;
+
+    private LinkGraphWriter linkGraph;
+
+    private MediaWikiManifest previousManifest;
+
+    private MediaWikiManifest.Writer manifestWriter;
 
-    private Set<String> currentCategories;
+    private long unchangedPages;
 
-    private String currentRedirectTitle;
+    @Inject
+    private Provider<MediaWikiImportMetricsRegistry> metricsRegistryProvider;
+
+    private final MediaWikiImportMetrics metrics = new MediaWikiImportMetrics();
 
-    String currentPageTitle;
+    private String metricsName;
 
-    String currentPageVersion;
+    private final ImageDimensionCache imageDimensionCache = new ImageDimensionCache();
 
     EntityReference previousParentReference;
 
     EntityReference currentParentReference;
 
-    EntityReference currentPageReference;
-
     String baseURL;
 
     MediaWikiInputProperties getProperties()
@@ -190,22 +328,37 @@ public class MediaWikiInputFilterStream extends AbstractBeanInputFilterStream<Me
         return this.inputFilterStreamFactory;
     }
 
+    EntityReferenceCache getReferenceCache()
+    {
+        return this.referenceCache;
+    }
+
     EntityReference toEntityReference(String reference, boolean link)
     {
-        String pageName = reference;
+        if (this.referenceCache != null) {
+            return this.referenceCache.get(reference, link, r -> resolveEntityReference(r, link));
+        }
+
+        return resolveEntityReference(reference, link);
+    }
+
+    private EntityReference resolveEntityReference(String reference, boolean link)
+    {
+        String pageName;
         String namespace;
 
         // Separate namespace and page name
-        int index = pageName.indexOf(':');
-        if (index > 0) {
-            namespace = this.namespaces.resolve(pageName.substring(0, index));
-            if (!this.properties.isOnlyRegisteredNamespaces() || this.namespaces.isNamespace(namespace)) {
-                pageName = pageName.substring(index + 1);
-            } else {
-                namespace = null;
-            }
+        MediaWikiTitle title = this.namespaces.splitTitle(reference);
+        MediaWikiNamespace mediaWikiNamespace = title.getNamespace();
+        if (mediaWikiNamespace != null) {
+            namespace = mediaWikiNamespace.getName();
+            pageName = title.getLocalName();
+        } else if (title.hasPrefix() && !this.properties.isOnlyRegisteredNamespaces()) {
+            namespace = title.getPrefix();
+            pageName = title.getLocalName();
         } else {
             namespace = null;
+            pageName = reference;
         }
 
         if (link) {
@@ -214,32 +367,26 @@ public class MediaWikiInputFilterStream extends AbstractBeanInputFilterStream<Me
             pageName = decodeLinkReference(pageName);
         }
 
-        // Normalize page name according to MediaWiki rules and namespace configuration
-        pageName = this.namespaces.normalizeMediaWikiPageName(namespace, pageName);
+        boolean fileNamespace = isNamespace(mediaWikiNamespace, MediaWikiNamespaces.NAMESPACE_FILE_IDX);
+        boolean attachment = link && this.properties.isFileAttached() && fileNamespace;
 
-        // Maybe convert MediaWiki home page name into XWiki home page name
-        if (this.properties.isConvertToXWiki() && pageName.equals(this.mainPageName)) {
-            pageName = this.modelConfiguration.getDefaultReferenceValue(EntityType.DOCUMENT);
-        }
+        // Normalize page name according to MediaWiki rules and namespace configuration, maybe convert MediaWiki home
+        // page name into XWiki home page name and clean page name if required (attachments attached directly to the
+        // using page should not be cleaned)
+        pageName = this.pageNameNormalizer.normalize(pageName,
+            mediaWikiNamespace == null || mediaWikiNamespace.isCapitalized(), !attachment);
 
-        // Take care of attachments attached directly to the using page (which should not be cleaned)
-        if (link && this.properties.isFileAttached() && this.namespaces.isFileNamespace(namespace)) {
+        // Take care of attachments attached directly to the using page
+        if (attachment) {
             return new EntityReference(pageName, EntityType.ATTACHMENT);
         }
 
-        // Clean page name if required
-        if (StringUtils.isNotEmpty(this.properties.getForbiddenCharacters())) {
-            for (int i = 0; i < this.properties.getForbiddenCharacters().length(); ++i) {
-                pageName = StringUtils.remove(pageName, this.properties.getForbiddenCharacters().charAt(i));
-            }
-        }
-
         // Find page parent reference
         EntityReference parentReference;
         if (namespace != null) {
-            if (this.namespaces.isFileNamespace(namespace)) {
+            if (fileNamespace) {
                 return toFileEntityReference(pageName);
-            } else if (this.namespaces.isSpecialNamespace(namespace)) {
+            } else if (isNamespace(mediaWikiNamespace, MediaWikiNamespaces.NAMESPACE_SPECIAL_IDX)) {
                 return null;
             } else {
                 parentReference = new EntityReference(namespace, EntityType.SPACE, this.properties.getParent());
@@ -261,22 +408,25 @@ public class MediaWikiInputFilterStream extends AbstractBeanInputFilterStream<Me
         }
 
         // Split by space separators
-        if (StringUtils.isNotEmpty(this.properties.getSpaceSeparator())) {
-            String[] elements = pageName.split(this.properties.getSpaceSeparator());
-            if (elements.length > 1) {
-                for (int i = 0; i < elements.length - 1; ++i) {
-                    parentReference = new EntityReference(elements[i], EntityType.SPACE, parentReference);
-                }
-                pageName = elements[elements.length - 1];
-                if (pageName.isEmpty()) {
-                    pageName = this.modelConfiguration.getDefaultReferenceValue(EntityType.DOCUMENT);
-                }
+        String[] elements = this.pageNameNormalizer.split(pageName);
+        if (elements != null) {
+            for (int i = 0; i < elements.length - 1; ++i) {
+                parentReference = new EntityReference(elements[i], EntityType.SPACE, parentReference);
+            }
+            pageName = elements[elements.length - 1];
+            if (pageName.isEmpty()) {
+                pageName = this.modelConfiguration.getDefaultReferenceValue(EntityType.DOCUMENT);
             }
         }
 
         return new EntityReference(pageName, EntityType.DOCUMENT, parentReference);
     }
 
+    private boolean isNamespace(MediaWikiNamespace namespace, int key)
+    {
+        return namespace != null && namespace.getKey() != null && namespace.getKey().intValue() == key;
+    }
+
     private String decodeLinkReference(String mediaWikiReference)
     {
         byte[] bytes = mediaWikiReference.getBytes(StandardCharsets.UTF_8);
@@ -340,12 +490,26 @@ public class MediaWikiInputFilterStream extends AbstractBeanInputFilterStream<Me
     @Override
     public void close() throws IOException
     {
+        if (this.dumpStream != null) {
+            this.dumpStream.close();
+        }
+
+        if (this.filesArchive != null) {
+            this.filesArchive.close();
+        }
+
         this.properties.getSource().close();
     }
 
     @Override
     protected void read(Object filter, MediaWikiFilter proxyFilter) throws FilterException
     {
+        this.metrics.start();
+        if (this.properties.isMetrics()) {
+            this.metricsName = "import-" + IMPORT_COUNTER.incrementAndGet();
+            this.metricsRegistryProvider.get().register(this.metricsName, this.metrics);
+        }
+
         // Create reader
         XMLStreamReader xmlReader;
         try {
@@ -354,206 +518,1212 @@ public class MediaWikiInputFilterStream extends AbstractBeanInputFilterStream<Me
             throw new FilterException("Failed to create XMLStreamReader", e);
         }
 
+        this.contentEvents = this.properties.isContentEvents() && filter instanceof Listener;
+
+        // The number of revisions to keep for each page (0 for all)
+        if (this.properties.getRevisions() == RevisionPolicy.LATEST) {
+            this.lastRevisions = 1;
+        } else if (this.properties.getRevisions() == RevisionPolicy.LAST) {
+            this.lastRevisions = Math.max(1, this.properties.getRevisionCount());
+        } else {
+            this.lastRevisions = 0;
+        }
+
+        if (this.properties.getReferenceCacheSize() > 0) {
+            this.referenceCache = new EntityReferenceCache(this.properties.getReferenceCacheSize());
+            this.metrics.setReferenceCache(this.referenceCache::getHits, this.referenceCache::getMisses);
+        }
+        initializeReferenceResolution();
+
+        if (isFilesArchive()) {
+            openFilesArchive();
+        } else if (this.properties.isFilesIndex()) {
+            initializeFilesIndex();
+        }
+        loadImageDimensionCache();
+
+        if (this.properties.isCategoryMembers()) {
+            startCategoryMembers();
+        }
+
+        openManifests();
+
+        if (this.properties.getLinkGraph() != null) {
+            try {
+                this.linkGraph = new LinkGraphWriter(this.properties.getLinkGraph());
+            } catch (IOException e) {
+                throw new FilterException(
+                    "Failed to create the link graph [" + this.properties.getLinkGraph().getAbsolutePath() + "]", e);
+            }
+        }
+
+        if (this.properties.getAttachmentWorkers() > 0) {
+            this.attachmentPrefetcher = new AttachmentPrefetcher(this::resolveAttachment,
+                this.properties.getAttachmentWorkers(), this.properties.getAttachmentBudget(),
+                this.properties.getAttachmentReadAheadSize());
+        }
+
+        // Start the conversion workers if needed
+        if (this.properties.getWorkers() > 1) {
+            startConversionWorkers();
+        }
+
         // Read document
         try {
             read(xmlReader, filter, proxyFilter);
+
+            // The whole dump was imported
+            if (this.checkpoint != null) {
+                this.checkpoint.complete();
+            }
+
+            completeManifests();
         } catch (Exception e) {
             throw new FilterException("Failed to parse XML", e);
+        } finally {
+            stopConversionWorkers();
+
+            if (this.attachmentPrefetcher != null) {
+                this.attachmentPrefetcher.close();
+                this.attachmentPrefetcher = null;
+            }
+
+            saveImageDimensionCache();
+
+            closeLinkGraph();
+
+            if (this.manifestWriter != null) {
+                try {
+                    this.manifestWriter.close();
+                } catch (IOException e) {
+                    this.logger.warn("Failed to delete the temporary manifest", e);
+                }
+                this.manifestWriter = null;
+            }
+
+            if (this.categoryMembers != null) {
+                try {
+                    this.categoryMembers.close();
+                } catch (IOException e) {
+                    this.logger.warn("Failed to delete the category members temporary files", e);
+                }
+                this.categoryMembers = null;
+            }
+            this.categoryPages.clear();
+
+            if (this.metricsName != null) {
+                this.metricsRegistryProvider.get().unregister(this.metricsName);
+                this.metricsName = null;
+            }
+
+            if (this.properties.isVerbose()) {
+                this.logger.info("Import metrics: {}", this.metrics);
+            }
         }
     }
 
-    private XMLStreamReader getXMLStreamReader()
-        throws XMLStreamException, FactoryConfigurationError, FilterException, IOException
+    private void startCategoryMembers()
     {
-        XMLStreamReader xmlReader;
-
-        if (this.properties.getSource() instanceof SourceInputSource) {
-            xmlReader = StAXUtils.getXMLStreamReader(((SourceInputSource) this.properties.getSource()).getSource());
-        } else if (this.properties.getSource() instanceof ReaderInputSource) {
-            xmlReader =
-                XML_INPUT_FACTORY.createXMLStreamReader(((ReaderInputSource) this.properties.getSource()).getReader());
-        } else if (this.properties.getSource() instanceof InputStreamInputSource) {
-            xmlReader = XML_INPUT_FACTORY
-                .createXMLStreamReader(((InputStreamInputSource) this.properties.getSource()).getInputStream());
-        } else {
-            throw new FilterException("Unknown source type [" + this.properties.getSource().getClass() + "]");
+        if (this.properties.getShardCount() > 1 || (this.checkpoint != null && this.checkpoint.isResuming())) {
+            this.logger.warn("The category members only include the pages imported in this run");
         }
 
-        return xmlReader;
+        this.categoryMembers = new CategoryMembershipBuffer(this.properties.getCategoryMembersBufferSize());
     }
 
-    private void read(XMLStreamReader xmlReader, Object filter, MediaWikiFilter proxyFilter)
-        throws XMLStreamException, FilterException, IOException
+    private void openManifests() throws FilterException
     {
-        xmlReader.nextTag();
+        File previousManifestFile = this.properties.getPreviousManifest();
+        if (previousManifestFile != null && previousManifestFile.exists()) {
+            try {
+                this.previousManifest = MediaWikiManifest.load(previousManifestFile);
+            } catch (IOException e) {
+                throw new FilterException(
+                    "Failed to read the previous manifest [" + previousManifestFile.getAbsolutePath() + "]", e);
+            }
 
-        readMediaWiki(xmlReader, filter, proxyFilter);
+            if (this.properties.isVerbose()) {
+                this.logger.info("Loaded [{}] pages from the previous manifest", this.previousManifest.size());
+            }
+        }
+
+        File manifestFile = this.properties.getManifest();
+        if (manifestFile != null) {
+            try {
+                this.manifestWriter = new MediaWikiManifest.Writer(manifestFile);
+            } catch (IOException e) {
+                throw new FilterException("Failed to create the manifest [" + manifestFile.getAbsolutePath() + "]",
+                    e);
+            }
+        }
     }
 
-    private void readMediaWiki(XMLStreamReader xmlReader, Object filter, MediaWikiFilter proxyFilter)
-        throws XMLStreamException, FilterException, IOException
+    private void completeManifests() throws IOException
     {
-        for (xmlReader.nextTag(); xmlReader.isStartElement(); xmlReader.nextTag()) {
-            String elementName = xmlReader.getLocalName();
-
-            if (elementName.equals(TAG_SITEINFO)) {
-                readSiteInfo(xmlReader);
-            } else if (elementName.equals(TAG_PAGE)) {
-                readPage(xmlReader, filter, proxyFilter);
+        if (this.previousManifest != null) {
+            if (this.properties.getShardCount() > 1 || PageSelector.hasFilters(this.properties)
+                || (this.checkpoint != null && this.checkpoint.isResuming())) {
+                // Only part of the dump was read
+                this.logger.warn("The deleted pages cannot be found when only part of the dump is imported");
             } else {
-                StAXUtils.skipElement(xmlReader);
+                this.previousManifest.forEachDeletedPage((pageId, title) -> this.logger
+                    .info("Page with title [{}] and id [{}] was deleted since the previous import", title, pageId));
             }
-        }
 
-        this.currentParentReference = null;
+            if (this.properties.isVerbose()) {
+                this.logger.info("Skipped [{}] unchanged pages", this.unchangedPages);
+            }
+        }
 
-        // Send parent events
-        sendSpaceEvents(proxyFilter);
+        if (this.manifestWriter != null) {
+            this.manifestWriter.commit();
+        }
     }
 
-    private void readSiteInfo(XMLStreamReader xmlReader) throws XMLStreamException
+    private void closeLinkGraph()
     {
-        for (xmlReader.nextTag(); xmlReader.isStartElement(); xmlReader.nextTag()) {
-            String elementName = xmlReader.getLocalName();
+        if (this.linkGraph != null) {
+            try {
+                this.linkGraph.close();
 
-            if (elementName.equals(TAG_SITEINFO_NAMESPACES)) {
-                readNamespaces(xmlReader);
-            } else if (elementName.equals(TAG_SITEINFO_BASE)) {
-                readBaseURLInfo(xmlReader);
-            } else {
-                StAXUtils.skipElement(xmlReader);
+                if (this.properties.isVerbose()) {
+                    this.logger.info("Link graph: [{}] references written", this.linkGraph.getEdges());
+                }
+            } catch (IOException e) {
+                this.logger.error("Failed to write the link graph [{}]",
+                    this.properties.getLinkGraph().getAbsolutePath(), e);
             }
+            this.linkGraph = null;
         }
     }
 
-    private void readNamespaces(XMLStreamReader xmlReader) throws XMLStreamException
+    private void loadImageDimensionCache()
     {
-        for (xmlReader.nextTag(); xmlReader.isStartElement(); xmlReader.nextTag()) {
-            String elementName = xmlReader.getLocalName();
-
-            if (elementName.equals(TAG_SITEINFO_NAMESPACE)) {
-                String key = xmlReader.getAttributeValue(null, "key");
-                String caseValue = xmlReader.getAttributeValue(null, "case");
+        File cacheFile = this.properties.getImageDimensionCache();
 
-                this.namespaces.addNamespace(key, xmlReader.getElementText(), caseValue);
-            } else {
-                StAXUtils.skipElement(xmlReader);
+        if (cacheFile != null && cacheFile.exists()) {
+            try {
+                this.imageDimensionCache.load(cacheFile);
+            } catch (IOException e) {
+                this.logger.warn("Failed to load the image dimension cache [{}]", cacheFile.getAbsolutePath(), e);
             }
         }
     }
 
-    private void readBaseURLInfo(XMLStreamReader xmlReader) throws XMLStreamException
+    private void saveImageDimensionCache()
     {
-        this.baseURL = xmlReader.getElementText();
-        if (!StringUtils.isEmpty(this.baseURL)) {
-            int lastSlash = this.baseURL.lastIndexOf('/');
-            // if a last slash even exists, and some string is still left after it in the string, extract that string
-            // and use it as homepage name
-            if (lastSlash > 0 && (lastSlash + 1 < this.baseURL.length())) {
-                this.mainPageName = this.baseURL.substring(lastSlash + 1);
-                this.baseURL = this.baseURL.substring(0, lastSlash + 1);
+        File cacheFile = this.properties.getImageDimensionCache();
+
+        if (cacheFile != null && this.imageDimensionCache.isModified()) {
+            try {
+                this.imageDimensionCache.save(cacheFile);
+            } catch (IOException e) {
+                this.logger.warn("Failed to save the image dimension cache [{}]", cacheFile.getAbsolutePath(), e);
             }
         }
+
+        if (this.properties.isVerbose()) {
+            this.logger.info("Image dimension cache: [{}] hits and [{}] misses", this.imageDimensionCache.getHits(),
+                this.imageDimensionCache.getMisses());
+        }
     }
 
-    private void readPage(XMLStreamReader xmlReader, Object filter, MediaWikiFilter proxyFilter)
-        throws FilterException, XMLStreamException, IOException
+    private boolean isFilesArchive()
     {
-        boolean skip = false;
+        InputSource files = this.properties.getFiles();
 
-        for (xmlReader.nextTag(); xmlReader.isStartElement(); xmlReader.nextTag()) {
-            String elementName = xmlReader.getLocalName();
-
-            if (skip) {
-                StAXUtils.skipElement(xmlReader);
-            } else if (elementName.equals(TAG_PAGE_TITLE)) {
-                this.currentPageTitle = xmlReader.getElementText();
+        if (files instanceof FileInputSource) {
+            File file = ((FileInputSource) files).getFile();
 
-                try {
-                    // Find current page reference
-                    this.currentPageReference = toEntityReference(this.currentPageTitle, false);
-
-                    if (this.currentPageReference != null) {
-                        if (this.properties.isConvertToXWiki() && !this.properties.isTerminalPages()
-                            && !this.namespaces.isInFileNamespace(this.currentPageTitle)) {
-                            // Make the page a non terminal page
-                            String defaultPageName =
-                                this.modelConfiguration.getDefaultReferenceValue(EntityType.DOCUMENT);
-                            if (!this.currentPageReference.getName().equals(defaultPageName)) {
-                                this.currentPageReference = new EntityReference(this.currentPageReference.getName(),
-                                    EntityType.SPACE, this.currentPageReference.getParent());
-                                this.currentPageReference = new EntityReference(
-                                    this.modelConfiguration.getDefaultReferenceValue(EntityType.DOCUMENT),
-                                    EntityType.DOCUMENT, this.currentPageReference);
-                            }
-                        }
+            return file.isFile() && MediaFilesArchive.isArchive(file);
+        }
 
-                        this.currentParentReference = this.currentPageReference.getParent();
+        return false;
+    }
 
-                        // Send parent events
-                        sendSpaceEvents(proxyFilter);
+    private void openFilesArchive() throws FilterException
+    {
+        File archive = ((FileInputSource) this.properties.getFiles()).getFile();
 
-                        // Send document event
-                        proxyFilter.beginWikiDocument(this.currentPageReference.getName(), FilterEventParameters.EMPTY);
-                        proxyFilter.beginWikiDocumentLocale(Locale.ROOT, FilterEventParameters.EMPTY);
-                    } else {
-                        skip = true;
-                    }
-                } catch (Exception e) {
-                    throw new FilterException("Failed to parse page with title [" + this.currentPageTitle + "]", e);
-                }
-            } else if (elementName.equals(TAG_PAGE_REVISION)) {
-                readPageRevision(xmlReader, filter, proxyFilter);
-            } else {
-                StAXUtils.skipElement(xmlReader);
-            }
+        try {
+            this.filesArchive = MediaFilesArchive.open(archive);
+        } catch (IOException e) {
+            throw new FilterException("Failed to index the media files archive [" + archive + "]", e);
         }
 
-        this.currentPageReference = null;
-
-        if (!skip) {
-            proxyFilter.endWikiDocumentLocale(Locale.ROOT, FilterEventParameters.EMPTY);
-            proxyFilter.endWikiDocument(this.currentParentReference.getName(), FilterEventParameters.EMPTY);
+        if (this.properties.isVerbose()) {
+            this.logger.info("Indexed [{}] media files in archive [{}]", this.filesArchive.size(),
+                archive.getAbsolutePath());
         }
     }
 
-    private void sendSpaceEvents(MediaWikiFilter proxyFilter) throws FilterException
+    private void initializeFilesIndex() throws FilterException
     {
-        // Close spaces that need to be closed
-        if (this.previousParentReference != null) {
-            sendEndParents(proxyFilter);
-        }
+        InputSource files = this.properties.getFiles();
 
-        // Open spaces that need to be open
-        if (this.currentParentReference != null) {
-            sendBeginParents(proxyFilter);
+        if (!(files instanceof FileInputSource)) {
+            this.logger.warn("The media files can only be indexed when they are a folder");
+
+            return;
         }
-    }
 
-    private void sendEndParents(MediaWikiFilter proxyFilter) throws FilterException
-    {
-        List<EntityReference> previousParents = this.previousParentReference.getReversedReferenceChain();
-        List<EntityReference> currentParents = this.currentParentReference != null
-            ? this.currentParentReference.getReversedReferenceChain() : Collections.<EntityReference>emptyList();
+        File folder = ((FileInputSource) files).getFile();
+        File snapshot = this.properties.getFilesIndexSnapshot();
 
-        // Find the first different level
-        int i = 0;
-        while (i < previousParents.size() && i < currentParents.size()) {
-            if (!currentParents.get(i).equals(previousParents.get(i))) {
-                break;
+        try {
+            if (snapshot != null && snapshot.exists()) {
+                this.filesIndex = MediaFilesIndex.load(snapshot, folder);
+
+                if (this.filesIndex == null) {
+                    this.logger.warn("The media files index [{}] was produced for another folder or the folder"
+                        + " changed since, indexing the folder again", snapshot.getAbsolutePath());
+                }
             }
 
-            ++i;
-        }
+            if (this.filesIndex == null) {
+                this.filesIndex = MediaFilesIndex.build(folder);
 
-        if (i < previousParents.size()) {
-            // Delete what is different
-            for (int diff = previousParents.size() - i; diff > 0; --diff, this.previousParentReference =
-                this.previousParentReference.getParent()) {
-                if (this.previousParentReference.getType() == EntityType.WIKI) {
-                    proxyFilter.endWiki(this.previousParentReference.getName(), FilterEventParameters.EMPTY);
-                } else {
-                    proxyFilter.endWikiSpace(this.previousParentReference.getName(), FilterEventParameters.EMPTY);
+                if (snapshot != null) {
+                    this.filesIndex.save(snapshot);
+                }
+            }
+        } catch (IOException e) {
+            throw new FilterException("Failed to index the media files folder [" + folder + "]", e);
+        }
+
+        if (this.properties.isVerbose()) {
+            this.logger.info("Indexed [{}] media files", this.filesIndex.size());
+        }
+    }
+
+    private void startConversionWorkers() throws FilterException
+    {
+        // Make sure the factory is resolved before being shared with the workers
+        try {
+            getInputFilterStreamFactory();
+        } catch (ComponentLookupException e) {
+            throw new FilterException("Failed to get the MediaWiki syntax input filter stream factory", e);
+        }
+
+        // The rendering context is bound to the current thread so it needs to be resolved before starting the workers
+        this.contentEventsTargetSyntax = this.renderingContext.getTargetSyntax();
+
+        // The reader sends the converted revisions before giving more to the workers so the queue is not expected to
+        // be full, but the reader converts the revision itself when it is
+        int workers = this.properties.getWorkers();
+        this.conversionExecutor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(workers * PENDING_REVISIONS_PER_WORKER),
+            new BasicThreadFactory.Builder().namingPattern("MediaWiki conversion worker %d").daemon(true).build(),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private void stopConversionWorkers()
+    {
+        if (this.conversionExecutor != null) {
+            this.conversionExecutor.shutdownNow();
+            this.conversionExecutor = null;
+        }
+
+        this.pendingPages.clear();
+        this.pendingRevisions = 0;
+        this.pendingContentLength = 0;
+        this.conversionContexts.clear();
+    }
+
+    private XMLStreamReader getXMLStreamReader()
+        throws XMLStreamException, FactoryConfigurationError, FilterException, IOException
+    {
+        XMLStreamReader xmlReader;
+
+        if (this.properties.getShardCount() > 1) {
+            // Only read the part of the dump assigned to this shard
+            this.dumpStream = openShard();
+        } else if (this.properties.getSource() instanceof InputStreamInputSource) {
+            InputStream stream = ((InputStreamInputSource) this.properties.getSource()).getInputStream();
+
+            // Follow the progress in the dump
+            if (this.properties.isMetrics()) {
+                CountingInputStream counter = new CountingInputStream(stream);
+                this.metrics.setInput(counter::getByteCount,
+                    this.properties.getSource() instanceof FileInputSource
+                        ? ((FileInputSource) this.properties.getSource()).getFile().length() : -1);
+                stream = counter;
+            }
+
+            // The dump might be compressed
+            this.dumpStream = MediaWikiUtils.decompress(stream, getDecompressionWorkers());
+
+            // Jump straight to the selected pages when they can be found in an index
+            if (PageSelector.hasFilters(this.properties)
+                && ((this.properties.getPageIndex() != null && this.properties.getPageIndex().exists())
+                    || this.properties.getSource() instanceof FileInputSource)) {
+                this.dumpStream = selectPages(this.dumpStream);
+            }
+        }
+
+        if (this.dumpStream != null) {
+            xmlReader = XML_INPUT_FACTORY.createXMLStreamReader(openCheckpoint(this.dumpStream));
+        } else {
+            if (this.properties.getCheckpoint() != null) {
+                this.logger.warn("Checkpoints are not supported with source type [{}]",
+                    this.properties.getSource().getClass());
+            }
+
+            if (this.properties.getSource() instanceof SourceInputSource) {
+                xmlReader =
+                    StAXUtils.getXMLStreamReader(((SourceInputSource) this.properties.getSource()).getSource());
+            } else if (this.properties.getSource() instanceof ReaderInputSource) {
+                xmlReader = XML_INPUT_FACTORY
+                    .createXMLStreamReader(((ReaderInputSource) this.properties.getSource()).getReader());
+            } else {
+                throw new FilterException("Unknown source type [" + this.properties.getSource().getClass() + "]");
+            }
+        }
+
+        return xmlReader;
+    }
+
+    private InputStream openCheckpoint(InputStream stream) throws IOException
+    {
+        if (this.properties.getCheckpoint() == null) {
+            return stream;
+        }
+
+        this.checkpoint =
+            new MediaWikiCheckpoint(this.properties.getCheckpoint(), this.properties.getCheckpointInterval());
+        this.checkpoint.load();
+
+        if (this.checkpoint.isResuming()) {
+            this.logger.info("Resuming the import after page with title [{}] (offset [{}])",
+                this.checkpoint.getResumePageTitle(), this.checkpoint.getResumeOffset());
+        }
+
+        return this.checkpoint.open(stream);
+    }
+
+    private InputStream selectPages(InputStream stream) throws IOException, XMLStreamException, FilterException
+    {
+        File indexFile = this.properties.getPageIndex();
+        boolean temporaryIndex = false;
+
+        if (indexFile == null || !indexFile.exists()) {
+            if (indexFile == null) {
+                indexFile = File.createTempFile("mediawiki", ".index");
+                temporaryIndex = true;
+            }
+
+            if (this.properties.isVerbose()) {
+                this.logger.info("Indexing the pages of the dump in [{}]", indexFile);
+            }
+
+            // Scan the dump a first time to find the pages
+            File dump = ((FileInputSource) this.properties.getSource()).getFile();
+            try (InputStream dumpScanStream =
+                MediaWikiUtils.decompress(new FileInputStream(dump), getDecompressionWorkers())) {
+                MediaWikiPageIndex.write(dumpScanStream, indexFile);
+            }
+        }
+
+        try (MediaWikiPageIndex index = MediaWikiPageIndex.open(indexFile)) {
+            byte[] header = index.getHeader();
+
+            if (header == null) {
+                // No page in the dump
+                return stream;
+            }
+
+            // The namespaces of the wiki are needed to resolve the filters
+            readHeader(header);
+            this.pageSelector = new PageSelector(this.properties, this.namespaces);
+
+            PageSelectionInputStream selectionStream = new PageSelectionInputStream(stream, MEDIAWIKI_END);
+            selectionStream.addRange(0, header.length);
+
+            int pages = 0;
+            int selectedPages = 0;
+            while (index.next()) {
+                int namespace = index.getNamespace() != MediaWikiPageIndex.UNKNOWN_NAMESPACE ? index.getNamespace()
+                    : this.pageSelector.getNamespace(index.getTitle());
+
+                if (this.pageSelector.isSelected(index.getTitle(), namespace)) {
+                    selectionStream.addRange(index.getStart(), index.getEnd());
+                    ++selectedPages;
+                }
+                ++pages;
+            }
+
+            if (this.properties.isVerbose()) {
+                this.logger.info("Importing [{}] pages out of [{}]", selectedPages, pages);
+            }
+
+            this.pagesPreselected = true;
+
+            return selectionStream;
+        } finally {
+            if (temporaryIndex) {
+                Files.deleteIfExists(indexFile.toPath());
+            }
+        }
+    }
+
+    private void readHeader(byte[] header) throws XMLStreamException
+    {
+        XMLStreamReader xmlReader = XML_INPUT_FACTORY.createXMLStreamReader(
+            new SequenceInputStream(new ByteArrayInputStream(header), new ByteArrayInputStream(MEDIAWIKI_END)));
+
+        try {
+            xmlReader.nextTag();
+
+            for (xmlReader.nextTag(); xmlReader.isStartElement(); xmlReader.nextTag()) {
+                if (xmlReader.getLocalName().equals(TAG_SITEINFO)) {
+                    readSiteInfo(xmlReader);
+                } else {
+                    StAXUtils.skipElement(xmlReader);
+                }
+            }
+        } finally {
+            xmlReader.close();
+        }
+    }
+
+    private InputStream openShard() throws FilterException, IOException
+    {
+        int shard = this.properties.getShard();
+        int shardCount = this.properties.getShardCount();
+
+        if (shard < 0 || shard >= shardCount) {
+            throw new FilterException("Invalid shard [" + shard + "] for a shard count of [" + shardCount + "]");
+        }
+        if (!(this.properties.getSource() instanceof FileInputSource)) {
+            throw new FilterException("A sharded import requires a multistream dump file as source but got ["
+                + this.properties.getSource().getClass() + "]");
+        }
+        if (!(this.properties.getMultistreamIndex() instanceof InputStreamInputSource)) {
+            throw new FilterException("A sharded import requires the index of the multistream dump");
+        }
+
+        // Read the index
+        MultistreamIndex index;
+        try (InputStream indexStream = MediaWikiUtils.decompress(
+            ((InputStreamInputSource) this.properties.getMultistreamIndex()).getInputStream(), 1)) {
+            index = MultistreamIndex.read(indexStream);
+        }
+
+        if (index.size() == 0) {
+            throw new FilterException("The multistream index is empty");
+        }
+
+        int start = index.getShardStart(shard, shardCount);
+        int end = index.getShardEnd(shard, shardCount);
+
+        if (this.properties.isVerbose()) {
+            this.logger.info("Reading streams [{}] to [{}] (out of [{}]) for shard [{}]", start, end - 1,
+                index.size(), shard);
+        }
+
+        File dump = ((FileInputSource) this.properties.getSource()).getFile();
+
+        // The first stream contains the siteinfo
+        InputStream rawStream = openRange(dump, 0, index.getOffset(0));
+        long rawSize = index.getOffset(0);
+
+        if (start < end) {
+            // The stream following the last indexed stream contains the end of the XML document
+            long length = end < index.size() ? index.getOffset(end) - index.getOffset(start) : -1;
+            rawStream = new SequenceInputStream(rawStream, openRange(dump, index.getOffset(start), length));
+            rawSize += length >= 0 ? length : dump.length() - index.getOffset(start);
+        }
+
+        // Follow the progress in the ranges of the dump
+        if (this.properties.isMetrics()) {
+            CountingInputStream counter = new CountingInputStream(rawStream);
+            this.metrics.setInput(counter::getByteCount, rawSize);
+            rawStream = counter;
+        }
+
+        InputStream stream = MediaWikiUtils.decompress(rawStream, getDecompressionWorkers());
+
+        if (end < index.size()) {
+            // Close the XML document
+            stream = new SequenceInputStream(stream, new ByteArrayInputStream(MEDIAWIKI_END));
+        }
+
+        return stream;
+    }
+
+    private InputStream openRange(File file, long offset, long length) throws IOException
+    {
+        FileInputStream stream = new FileInputStream(file);
+
+        try {
+            stream.getChannel().position(offset);
+        } catch (IOException e) {
+            stream.close();
+
+            throw e;
+        }
+
+        return length >= 0 ? new BoundedInputStream(stream, length) : stream;
+    }
+
+    private int getDecompressionWorkers()
+    {
+        int workers = this.properties.getDecompressionWorkers();
+
+        return workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+    }
+
+    private void read(XMLStreamReader xmlReader, Object filter, MediaWikiFilter proxyFilter)
+        throws XMLStreamException, FilterException, IOException
+    {
+        xmlReader.nextTag();
+
+        // Reopen the spaces of the last page sent before the checkpoint
+        if (this.checkpoint != null && this.checkpoint.isResuming()) {
+            this.currentParentReference = this.checkpoint.getResumeParentReference();
+            sendSpaceEvents(proxyFilter);
+        }
+
+        readMediaWiki(xmlReader, filter, proxyFilter);
+    }
+
+    private void readMediaWiki(XMLStreamReader xmlReader, Object filter, MediaWikiFilter proxyFilter)
+        throws XMLStreamException, FilterException, IOException
+    {
+        for (xmlReader.nextTag(); xmlReader.isStartElement(); xmlReader.nextTag()) {
+            String elementName = xmlReader.getLocalName();
+
+            if (elementName.equals(TAG_SITEINFO)) {
+                readSiteInfo(xmlReader);
+
+                // The redirect targets can only be resolved once the namespaces are known
+                if (this.properties.isCollapseRedirects() && this.redirectMap == null) {
+                    scanRedirects();
+                }
+            } else if (elementName.equals(TAG_PAGE)) {
+                readPage(xmlReader, filter, proxyFilter);
+            } else {
+                StAXUtils.skipElement(xmlReader);
+            }
+        }
+
+        // Send the pages still waiting for their conversion
+        sendPendingPages(proxyFilter, true);
+
+        if (this.previousManifest != null) {
+            addSkippedPages();
+        }
+
+        // All the members of the categories are known
+        if (this.categoryMembers != null) {
+            sendCategoryPages(proxyFilter);
+        }
+
+        this.currentParentReference = null;
+
+        // Send parent events
+        sendSpaceEvents(proxyFilter);
+    }
+
+    private void scanRedirects() throws FilterException
+    {
+        if (!(this.properties.getSource() instanceof FileInputSource)) {
+            this.logger.warn("Redirects can only be collapsed when the source is a file");
+
+            return;
+        }
+
+        // Scan the dump a first time to find the redirects
+        File dump = ((FileInputSource) this.properties.getSource()).getFile();
+        this.redirectMap = new MediaWikiRedirectMap(this::getRedirectKey);
+        try (InputStream stream =
+            MediaWikiUtils.decompress(new FileInputStream(dump), getDecompressionWorkers())) {
+            this.redirectMap.scan(stream);
+        } catch (IOException | XMLStreamException e) {
+            throw new FilterException("Failed to collect the redirects of the dump [" + dump + "]", e);
+        }
+
+        if (this.redirectMap.getCycles() > 0) {
+            this.logger.warn("[{}] redirects are part of a cycle of redirects or lead to one",
+                this.redirectMap.getCycles());
+        }
+
+        if (this.properties.isVerbose()) {
+            this.logger.info("Found [{}] redirects", this.redirectMap.size());
+        }
+    }
+
+    private String getRedirectKey(String title)
+    {
+        EntityReference reference = toEntityReference(title, false);
+
+        return reference != null ? this.serializer.serialize(reference) : title;
+    }
+
+    /**
+     * @param reference the reference of the target of a link
+     * @return the final target of the redirect if the link targets a redirect page and the links should be rewritten,
+     *         the passed reference otherwise
+     */
+    EntityReference getRedirectLinkTarget(EntityReference reference)
+    {
+        if (this.redirectMap != null && this.properties.isRewriteRedirectLinks()
+            && reference.getType() == EntityType.DOCUMENT) {
+            String targetTitle = this.redirectMap.getTargetByKey(this.serializer.serialize(reference));
+
+            if (targetTitle != null) {
+                EntityReference targetReference = toEntityReference(targetTitle, false);
+
+                if (targetReference != null) {
+                    return targetReference;
+                }
+            }
+        }
+
+        return reference;
+    }
+
+    private void readSiteInfo(XMLStreamReader xmlReader) throws XMLStreamException
+    {
+        for (xmlReader.nextTag(); xmlReader.isStartElement(); xmlReader.nextTag()) {
+            String elementName = xmlReader.getLocalName();
+
+            if (elementName.equals(TAG_SITEINFO_NAMESPACES)) {
+                readNamespaces(xmlReader);
+            } else if (elementName.equals(TAG_SITEINFO_BASE)) {
+                readBaseURLInfo(xmlReader);
+            } else {
+                StAXUtils.skipElement(xmlReader);
+            }
+        }
+
+        // The references depend on the namespaces and the main page
+        initializeReferenceResolution();
+    }
+
+    private void initializeReferenceResolution()
+    {
+        this.pageNameNormalizer =
+            new PageNameNormalizer(this.properties, this.properties.isConvertToXWiki() ? this.mainPageName : null,
+                this.modelConfiguration.getDefaultReferenceValue(EntityType.DOCUMENT));
+
+        if (this.referenceCache != null) {
+            this.referenceCache.clear();
+        }
+    }
+
+    private void readNamespaces(XMLStreamReader xmlReader) throws XMLStreamException
+    {
+        for (xmlReader.nextTag(); xmlReader.isStartElement(); xmlReader.nextTag()) {
+            String elementName = xmlReader.getLocalName();
+
+            if (elementName.equals(TAG_SITEINFO_NAMESPACE)) {
+                String key = xmlReader.getAttributeValue(null, "key");
+                String caseValue = xmlReader.getAttributeValue(null, "case");
+
+                this.namespaces.addNamespace(key, xmlReader.getElementText(), caseValue);
+            } else {
+                StAXUtils.skipElement(xmlReader);
+            }
+        }
+    }
+
+    private void readBaseURLInfo(XMLStreamReader xmlReader) throws XMLStreamException
+    {
+        this.baseURL = xmlReader.getElementText();
+        if (!StringUtils.isEmpty(this.baseURL)) {
+            int lastSlash = this.baseURL.lastIndexOf('/');
+            // if a last slash even exists, and some string is still left after it in the string, extract that string
+            // and use it as homepage name
+            if (lastSlash > 0 && (lastSlash + 1 < this.baseURL.length())) {
+                this.mainPageName = this.baseURL.substring(lastSlash + 1);
+                this.baseURL = this.baseURL.substring(0, lastSlash + 1);
+            }
+        }
+    }
+
+    private void readPage(XMLStreamReader xmlReader, Object filter, MediaWikiFilter proxyFilter)
+        throws FilterException, XMLStreamException, IOException
+    {
+        MediaWikiPage page = null;
+        boolean pageStarted = false;
+        boolean categoryPage = false;
+        boolean skip = false;
+
+        for (xmlReader.nextTag(); xmlReader.isStartElement(); xmlReader.nextTag()) {
+            String elementName = xmlReader.getLocalName();
+
+            if (skip) {
+                StAXUtils.skipElement(xmlReader);
+            } else if (elementName.equals(TAG_PAGE_TITLE)) {
+                String title = xmlReader.getElementText();
+
+                try {
+                    // Find current page reference (unless the page is filtered)
+                    EntityReference pageReference = isSelected(title) ? toPageReference(title) : null;
+
+                    if (pageReference != null) {
+                        page = new MediaWikiPage(title, pageReference);
+
+                        // The category pages are sent at the end, once the members of the categories are known
+                        categoryPage = this.categoryMembers != null && isCategoryPage(title);
+
+                        // Send the page right away unless its revisions are buffered, might all be filtered or might
+                        // not have changed since the previous import
+                        if (!categoryPage && !isBufferingRevisions()
+                            && this.properties.getRevisions() == RevisionPolicy.ALL && this.previousManifest == null) {
+                            beginPage(page, proxyFilter);
+                            pageStarted = true;
+                        }
+                    } else {
+                        skip = true;
+                    }
+                } catch (Exception e) {
+                    throw new FilterException("Failed to parse page with title [" + title + "]", e);
+                }
+            } else if (page != null && elementName.equals(TAG_PAGE_ID)) {
+                page.setId(xmlReader.getElementText());
+
+                if (this.previousManifest != null) {
+                    page.setPreviousRevision(this.previousManifest.getRevisionId(page.getId()));
+                }
+            } else if (page != null && elementName.equals(TAG_PAGE_REVISION)) {
+                MediaWikiPageRevision revision = readPageRevision(xmlReader, page);
+
+                if (revision != null) {
+                    if (categoryPage) {
+                        // Converted at the end with the other category pages
+                        bufferPageRevision(page, revision, false);
+                    } else if (isHeldBack(page, revision)) {
+                        // Wait for the end of the page to know if it changed since the previous import
+                        bufferPageRevision(page, revision, false);
+                    } else {
+                        if (page.getPreviousRevision() >= 0) {
+                            // More recent than the previous import: the page changed
+                            page.setPreviousRevision(-1);
+                            pageStarted = releasePageRevisions(page, proxyFilter);
+                        }
+
+                        if (isBufferingRevisions()) {
+                            bufferPageRevision(page, revision, true);
+
+                            if (this.conversionExecutor != null && !isConversionDeferred()) {
+                                // Send the revisions as soon as they are converted
+                                queuePage(page, proxyFilter);
+                            }
+                        } else {
+                            if (!pageStarted) {
+                                sendBeginPage(page, proxyFilter);
+                                pageStarted = true;
+                            }
+
+                            sendPageRevision(revision, proxyFilter);
+                        }
+                    }
+                }
+            } else {
+                StAXUtils.skipElement(xmlReader);
+            }
+        }
+
+        // Remember where the page ends (even if it's not sent) to keep the offsets synchronized
+        long endOffset = this.checkpoint != null ? this.checkpoint.pollPageEnd() : -1;
+        if (page != null) {
+            page.setEndOffset(endOffset);
+        }
+
+        if (pageStarted) {
+            endPage(page, proxyFilter);
+        } else if (categoryPage) {
+            holdCategoryPage(page);
+        } else if (page != null && isUnchanged(page)) {
+            skipPage(page);
+        } else if (page != null && (page.isQueued() || this.properties.getRevisions() == RevisionPolicy.ALL
+            || !page.getRevisions().isEmpty())) {
+            if (this.conversionExecutor != null && (isConversionDeferred() || page.getPreviousRevision() >= 0)) {
+                // The selected revisions are now known
+                for (MediaWikiPageRevision revision : page.getRevisions()) {
+                    submitConversion(revision);
+                }
+            }
+
+            if (this.conversionExecutor != null) {
+                page.setComplete(true);
+                queuePage(page, proxyFilter);
+            } else {
+                sendPage(page, proxyFilter);
+            }
+        }
+    }
+
+    private void holdCategoryPage(MediaWikiPage page)
+    {
+        if (!page.getRevisions().isEmpty()) {
+            this.categoryPages.put(this.serializer.serialize(page.getReference()), page);
+
+            if (this.checkpoint != null) {
+                this.checkpoint.onPageHeld();
+            }
+        }
+    }
+
+    private boolean isSelected(String title) throws FilterException
+    {
+        if (this.pagesPreselected) {
+            return true;
+        }
+
+        // The namespaces are known at this point
+        if (this.pageSelector == null) {
+            this.pageSelector = new PageSelector(this.properties, this.namespaces);
+        }
+
+        return !this.pageSelector.isEnabled()
+            || this.pageSelector.isSelected(title, this.pageSelector.getNamespace(title));
+    }
+
+    private boolean isBufferingRevisions()
+    {
+        return this.conversionExecutor != null || isConversionDeferred();
+    }
+
+    /**
+     * @return true if the revisions to convert are only known once the whole page is read
+     */
+    private boolean isConversionDeferred()
+    {
+        return this.lastRevisions > 0;
+    }
+
+    /**
+     * @return true if the revision is not more recent than the last revision of the page in the previous import, in
+     *         which case the page might not have changed
+     */
+    private boolean isHeldBack(MediaWikiPage page, MediaWikiPageRevision revision)
+    {
+        // The ids of the revisions always increase
+        long revisionId = NumberUtils.toLong(revision.getVersion(), -1);
+
+        return revisionId >= 0 && revisionId <= page.getPreviousRevision();
+    }
+
+    /**
+     * Handle the revisions held back until it was known that the page changed since the previous import.
+     *
+     * @return true if the page was started
+     */
+    private boolean releasePageRevisions(MediaWikiPage page, MediaWikiFilter proxyFilter)
+        throws FilterException, IOException
+    {
+        if (isBufferingRevisions()) {
+            if (!isConversionDeferred()) {
+                for (MediaWikiPageRevision revision : page.getRevisions()) {
+                    submitConversion(revision);
+                }
+            }
+
+            return false;
+        }
+
+        if (page.getRevisions().isEmpty()) {
+            return false;
+        }
+
+        sendBeginPage(page, proxyFilter);
+
+        for (MediaWikiPageRevision revision : page.getRevisions()) {
+            sendPageRevision(revision, proxyFilter);
+        }
+        page.getRevisions().clear();
+
+        return true;
+    }
+
+    private boolean isUnchanged(MediaWikiPage page)
+    {
+        if (page.getPreviousRevision() < 0 || page.getId() == null || page.getRevisions().isEmpty()) {
+            return false;
+        }
+
+        MediaWikiPageRevision lastRevision = page.getRevisions().get(page.getRevisions().size() - 1);
+
+        return this.previousManifest.isUnchanged(page.getId(), lastRevision.getVersion(), lastRevision.getSha1());
+    }
+
+    private void skipPage(MediaWikiPage page)
+    {
+        for (MediaWikiPageRevision revision : page.getRevisions()) {
+            releaseContent(revision);
+        }
+
+        // Still part of the wiki (added to the manifest and to the category members at the end of the import)
+        this.previousManifest.skip(page.getId());
+
+        ++this.unchangedPages;
+    }
+
+    private void addToManifest(MediaWikiPage page, MediaWikiPageRevision lastRevision) throws FilterException
+    {
+        if (this.manifestWriter != null && page.getId() != null) {
+            try {
+                this.manifestWriter.add(page.getId(), lastRevision.getVersion(), lastRevision.getSha1(),
+                    page.getTitle(), lastRevision.getCategories());
+            } catch (IOException e) {
+                throw new FilterException("Failed to write the manifest", e);
+            }
+        }
+    }
+
+    /**
+     * Add the pages skipped because they did not change since the previous import to the new manifest and to the
+     * members of their categories, as they were recorded in the previous manifest.
+     */
+    private void addSkippedPages() throws FilterException
+    {
+        try {
+            this.previousManifest.forEachSkippedPage((pageId, revisionId, sha1, title, categories) -> {
+                if (this.manifestWriter != null) {
+                    this.manifestWriter.add(pageId, revisionId, sha1, title, categories);
+                }
+
+                if (this.categoryMembers != null && !categories.isEmpty()) {
+                    EntityReference pageReference = toPageReference(title);
+                    if (pageReference != null) {
+                        addCategoryMembership(this.serializer.serialize(pageReference), categories);
+                    }
+                }
+            });
+        } catch (IOException e) {
+            throw new FilterException("Failed to add the unchanged pages from the previous manifest", e);
+        }
+    }
+
+    /**
+     * @param convert true if the revision can be converted right away
+     */
+    private void bufferPageRevision(MediaWikiPage page, MediaWikiPageRevision revision, boolean convert)
+    {
+        if (this.lastRevisions > 0) {
+            // Only keep the last revisions
+            if (page.getRevisions().size() == this.lastRevisions) {
+                // Reuse the buffer of the dropped revision
+                releaseContent(page.getRevisions().remove(0));
+            }
+        } else if (convert && this.conversionExecutor != null) {
+            // Delegate the conversion to the workers
+            submitConversion(revision);
+        }
+
+        page.getRevisions().add(revision);
+    }
+
+    private void submitConversion(MediaWikiPageRevision revision)
+    {
+        ++this.pendingRevisions;
+        this.pendingContentLength += getContentLength(revision);
+
+        revision.setConversion(this.conversionExecutor.submit(() -> convertPageRevision(revision)));
+    }
+
+    private int getContentLength(MediaWikiPageRevision revision)
+    {
+        return revision.getContent() != null ? revision.getContent().length() : 0;
+    }
+
+    private RevisionContentBuffer getContentBuffer()
+    {
+        return this.contentBuffers.isEmpty() ? new RevisionContentBuffer() : this.contentBuffers.pop();
+    }
+
+    private void releaseContent(MediaWikiPageRevision revision)
+    {
+        RevisionContentBuffer content = revision.getContent();
+
+        if (content != null) {
+            revision.setContent(null);
+
+            // Don't keep too many buffers or too big ones
+            if (this.contentBuffers.size() < MAX_POOLED_CONTENT_BUFFERS
+                && content.capacity() <= MAX_POOLED_CONTENT_CAPACITY) {
+                this.contentBuffers.push(content);
+            }
+        }
+    }
+
+    private EntityReference toPageReference(String title)
+    {
+        EntityReference pageReference = toEntityReference(title, false);
+
+        if (pageReference != null && this.properties.isConvertToXWiki() && !this.properties.isTerminalPages()
+            && !this.namespaces.isInFileNamespace(title)) {
+            // Make the page a non terminal page
+            String defaultPageName = this.modelConfiguration.getDefaultReferenceValue(EntityType.DOCUMENT);
+            if (!pageReference.getName().equals(defaultPageName)) {
+                pageReference = new EntityReference(pageReference.getName(), EntityType.SPACE,
+                    pageReference.getParent());
+                pageReference = new EntityReference(defaultPageName, EntityType.DOCUMENT, pageReference);
+            }
+        }
+
+        return pageReference;
+    }
+
+    private void queuePage(MediaWikiPage page, MediaWikiFilter proxyFilter) throws FilterException, IOException
+    {
+        if (!page.isQueued()) {
+            page.setQueued(true);
+            this.pendingPages.add(page);
+        }
+
+        sendPendingPages(proxyFilter, false);
+    }
+
+    private boolean isPendingFull()
+    {
+        return this.pendingRevisions >= this.properties.getWorkers() * PENDING_REVISIONS_PER_WORKER
+            || this.pendingContentLength >= MAX_PENDING_CONTENT_LENGTH;
+    }
+
+    /**
+     * Send the revisions of the oldest pages which are already converted, in the order of the dump. The revisions are
+     * sent before the end of their page is read, so that only a bounded number of revisions are kept in memory.
+     *
+     * @param all true to wait for the conversion of all the revisions, false to only wait while too many revisions
+     *            are pending
+     */
+    private void sendPendingPages(MediaWikiFilter proxyFilter, boolean all) throws FilterException, IOException
+    {
+        while (!this.pendingPages.isEmpty()) {
+            MediaWikiPage page = this.pendingPages.peek();
+
+            List<MediaWikiPageRevision> revisions = page.getRevisions();
+            while (!revisions.isEmpty() && (all || isPendingFull() || revisions.get(0).isConversionDone())) {
+                MediaWikiPageRevision revision = revisions.remove(0);
+
+                if (!page.isStarted()) {
+                    sendBeginPage(page, proxyFilter);
+                    page.setStarted(true);
+                }
+
+                // The content is released once the revision is sent
+                --this.pendingRevisions;
+                this.pendingContentLength -= getContentLength(revision);
+
+                sendPageRevision(revision, proxyFilter);
+            }
+
+            if (!revisions.isEmpty() || !page.isComplete()) {
+                // Wait for the next conversions or for the next revisions of the page
+                break;
+            }
+
+            if (!page.isStarted()) {
+                sendBeginPage(page, proxyFilter);
+            }
+
+            endPage(page, proxyFilter);
+
+            this.pendingPages.poll();
+        }
+    }
+
+    private void sendPage(MediaWikiPage page, MediaWikiFilter proxyFilter) throws FilterException, IOException
+    {
+        sendBeginPage(page, proxyFilter);
+
+        for (MediaWikiPageRevision revision : page.getRevisions()) {
+            sendPageRevision(revision, proxyFilter);
+        }
+
+        endPage(page, proxyFilter);
+    }
+
+    private void sendBeginPage(MediaWikiPage page, MediaWikiFilter proxyFilter) throws FilterException
+    {
+        try {
+            beginPage(page, proxyFilter);
+        } catch (Exception e) {
+            throw new FilterException("Failed to parse page with title [" + page.getTitle() + "]", e);
+        }
+    }
+
+    private void beginPage(MediaWikiPage page, MediaWikiFilter proxyFilter) throws FilterException
+    {
+        this.currentParentReference = page.getReference().getParent();
+
+        // Send parent events
+        sendSpaceEvents(proxyFilter);
+
+        // Send document event
+        proxyFilter.beginWikiDocument(page.getReference().getName(), FilterEventParameters.EMPTY);
+        proxyFilter.beginWikiDocumentLocale(Locale.ROOT, FilterEventParameters.EMPTY);
+    }
+
+    private void endPage(MediaWikiPage page, MediaWikiFilter proxyFilter) throws FilterException
+    {
+        proxyFilter.endWikiDocumentLocale(Locale.ROOT, FilterEventParameters.EMPTY);
+        proxyFilter.endWikiDocument(page.getReference().getName(), FilterEventParameters.EMPTY);
+
+        MediaWikiPageRevision lastRevision = this.lastSentRevision;
+        this.lastSentRevision = null;
+
+        if (lastRevision != null) {
+            // The categories of the category pages are collected before they are sent
+            if (this.categoryMembers != null && !isCategoryPage(page.getTitle())) {
+                addCategoryMembership(page, lastRevision);
+            }
+
+            addToManifest(page, lastRevision);
+        }
+
+        this.metrics.onPage();
+
+        if (this.checkpoint != null) {
+            try {
+                this.checkpoint.onPageSent(page);
+            } catch (IOException e) {
+                throw new FilterException("Failed to write checkpoint", e);
+            }
+        }
+    }
+
+    private void sendSpaceEvents(MediaWikiFilter proxyFilter) throws FilterException
+    {
+        // Close spaces that need to be closed
+        if (this.previousParentReference != null) {
+            sendEndParents(proxyFilter);
+        }
+
+        // Open spaces that need to be open
+        if (this.currentParentReference != null) {
+            sendBeginParents(proxyFilter);
+        }
+    }
+
+    private void sendEndParents(MediaWikiFilter proxyFilter) throws FilterException
+    {
+        List<EntityReference> previousParents = this.previousParentReference.getReversedReferenceChain();
+        List<EntityReference> currentParents = this.currentParentReference != null
+            ? this.currentParentReference.getReversedReferenceChain() : Collections.<EntityReference>emptyList();
+
+        // Find the first different level
+        int i = 0;
+        while (i < previousParents.size() && i < currentParents.size()) {
+            if (!currentParents.get(i).equals(previousParents.get(i))) {
+                break;
+            }
+
+            ++i;
+        }
+
+        if (i < previousParents.size()) {
+            // Delete what is different
+            for (int diff = previousParents.size() - i; diff > 0; --diff, this.previousParentReference =
+                this.previousParentReference.getParent()) {
+                if (this.previousParentReference.getType() == EntityType.WIKI) {
+                    proxyFilter.endWiki(this.previousParentReference.getName(), FilterEventParameters.EMPTY);
+                } else {
+                    proxyFilter.endWikiSpace(this.previousParentReference.getName(), FilterEventParameters.EMPTY);
                 }
             }
         }
@@ -583,11 +1753,23 @@ public class MediaWikiInputFilterStream extends AbstractBeanInputFilterStream<Me
     }
 
     public MediaWikiSyntaxInputProperties createMediaWikiSyntaxInputProperties(String content)
+    {
+        return createMediaWikiSyntaxInputProperties(new StringInputSource(content));
+    }
+
+    private MediaWikiSyntaxInputProperties createMediaWikiSyntaxInputProperties(RevisionContentBuffer content)
+    {
+        // Give access to the buffer without copying it
+        return createMediaWikiSyntaxInputProperties(
+            new CharArrayInputSource(content.getChars(), 0, content.length()));
+    }
+
+    private MediaWikiSyntaxInputProperties createMediaWikiSyntaxInputProperties(InputSource source)
     {
         MediaWikiSyntaxInputProperties parserProperties = new MediaWikiSyntaxInputProperties(this.namespaces);
 
         // Set source
-        parserProperties.setSource(new StringInputSource(content));
+        parserProperties.setSource(source);
 
         // Make sure to keep source references unchanged
         parserProperties.setReferenceType(ReferenceType.MEDIAWIKI);
@@ -601,77 +1783,53 @@ public class MediaWikiInputFilterStream extends AbstractBeanInputFilterStream<Me
         return parserProperties;
     }
 
-    private void readPageRevision(XMLStreamReader xmlReader, Object filter, MediaWikiFilter proxyFilter)
-        throws XMLStreamException, FilterException, IOException
+    private MediaWikiPageRevision readPageRevision(XMLStreamReader xmlReader, MediaWikiPage page)
+        throws XMLStreamException
     {
-        FilterEventParameters pageRevisionParameters = new FilterEventParameters();
+        // Each revision gets its own parameters since the filters are allowed to keep them
+        MediaWikiPageRevision revision = new MediaWikiPageRevision(page);
+        boolean skip = false;
+
+        FilterEventParameters pageRevisionParameters = revision.getParameters();
 
         // Defaults
         pageRevisionParameters.put(WikiDocumentFilter.PARAMETER_REVISION_MINOR, false);
 
-        pageRevisionParameters.put(WikiDocumentFilter.PARAMETER_TITLE, this.currentPageTitle);
-
-        this.currentPageVersion = "1";
-
-        boolean beginWikiDocumentRevisionSent = false;
-
-        this.currentFiles = Collections.emptySet();
-        this.currentRedirectTitle = null;
+        pageRevisionParameters.put(WikiDocumentFilter.PARAMETER_TITLE, page.getTitle());
 
         for (xmlReader.nextTag(); xmlReader.isStartElement(); xmlReader.nextTag()) {
             String elementName = xmlReader.getLocalName();
 
             if (elementName.equals(TAG_PAGE_REVISION_VERSION)) {
-                this.currentPageVersion = xmlReader.getElementText();
+                revision.setVersion(xmlReader.getElementText());
             } else if (elementName.equals(TAG_PAGE_REVISION_COMMENT)) {
-                pageRevisionParameters.put(WikiDocumentFilter.PARAMETER_REVISION_COMMENT, xmlReader.getElementText());
+                pageRevisionParameters.put(WikiDocumentFilter.PARAMETER_REVISION_COMMENT,
+                    this.metadataDecoder.readInterned(xmlReader));
             } else if (elementName.equals(TAG_PAGE_REVISION_CONTENT)) {
-                String content = xmlReader.getElementText();
-
-                try {
-                    if (this.properties.isContentEvents() && filter instanceof Listener) {
-                        // Begin document revision
-                        proxyFilter.beginWikiDocumentRevision(this.currentPageVersion, pageRevisionParameters);
-                        beginWikiDocumentRevisionSent = true;
-
-                        MediaWikiSyntaxInputProperties parserProperties = createMediaWikiSyntaxInputProperties(content);
-
-                        // Refactor references and find attachments
-                        MediaWikiContextConverterListener listener = this.listenerProvider.get();
-                        listener.initialize(proxyFilter, this, null);
-
-                        // Generate events
-                        try (BeanInputFilterStream<MediaWikiSyntaxInputProperties> stream =
-                            getInputFilterStreamFactory().createInputFilterStream(parserProperties)) {
-                            stream.read(listener);
-                        }
+                if (isSkipped(pageRevisionParameters)) {
+                    // Don't even read the content of a revision which won't be imported
+                    StAXUtils.skipElement(xmlReader);
+                    skip = true;
+                } else {
+                    // Read the content in a reusable buffer instead of creating a String
+                    RevisionContentBuffer content = getContentBuffer();
 
-                        // Remember linked files
-                        this.currentFiles = listener.getFiles();
-                        this.currentRedirectTitle = listener.getRedirectTitle();
-                    } else if (this.properties.isConvertToXWiki()) {
-                        // Convert content to XWiki syntax
-                        pageRevisionParameters.put(WikiDocumentFilter.PARAMETER_CONTENT, convertToXWiki21(content));
-                        pageRevisionParameters.put(WikiDocumentFilter.PARAMETER_SYNTAX, Syntax.XWIKI_2_1);
+                    // The size in bytes is the maximum number of characters
+                    content.ensureCapacity(NumberUtils.toInt(
+                        xmlReader.getAttributeValue(null, ATTRIBUTE_PAGE_REVISION_CONTENT_BYTES), 0));
 
-                    } else {
-                        // Keep MediaWiki syntax
-                        pageRevisionParameters.put(WikiDocumentFilter.PARAMETER_CONTENT, content);
-                        pageRevisionParameters.put(WikiDocumentFilter.PARAMETER_SYNTAX,
-                            BlikiMediaWikiStreamParser.SYNTAX);
-                    }
-                } catch (Exception e) {
-                    this.logger.error("Failed to converter content located in page with title [{}] and version [{}]",
-                        this.currentPageTitle, this.currentPageVersion, e);
+                    content.read(xmlReader);
+                    revision.setContent(content);
                 }
+            } else if (elementName.equals(TAG_PAGE_REVISION_SHA1)) {
+                revision.setSha1(xmlReader.getElementText());
             } else if (elementName.equals(TAG_PAGE_REVISION_MINOR)) {
                 pageRevisionParameters.put(WikiDocumentFilter.PARAMETER_REVISION_MINOR, true);
                 StAXUtils.skipElement(xmlReader);
             } else if (elementName.equals(TAG_PAGE_REVISION_TIMESTAMP)) {
                 try {
-                    Date date = DatatypeFactory.newInstance().newXMLGregorianCalendar(xmlReader.getElementText())
-                        .toGregorianCalendar().getTime();
-                    pageRevisionParameters.put(WikiDocumentFilter.PARAMETER_REVISION_DATE, date);
+                    pageRevisionParameters.put(WikiDocumentFilter.PARAMETER_REVISION_DATE,
+                        this.metadataDecoder.readTimestamp(xmlReader));
                 } catch (DatatypeConfigurationException e) {
                     this.logger.error("Failed to create DatatypeFactory instance", e);
                 }
@@ -682,79 +1840,279 @@ public class MediaWikiInputFilterStream extends AbstractBeanInputFilterStream<Me
             }
         }
 
-        if (!beginWikiDocumentRevisionSent) {
-            proxyFilter.beginWikiDocumentRevision(this.currentPageVersion, pageRevisionParameters);
+        return skip || isSkipped(pageRevisionParameters) ? null : revision;
+    }
+
+    private boolean isSkipped(FilterEventParameters pageRevisionParameters)
+    {
+        if (this.properties.getRevisions() == RevisionPolicy.SINCE && this.properties.getRevisionsSince() != null) {
+            Date date = (Date) pageRevisionParameters.get(WikiDocumentFilter.PARAMETER_REVISION_DATE);
+
+            return date == null || date.before(this.properties.getRevisionsSince());
+        }
+
+        return false;
+    }
+
+    /**
+     * Convert the content of the revision. Can be called from a worker thread so it should only manipulate the state
+     * of the passed revision.
+     */
+    private void convertPageRevision(MediaWikiPageRevision revision)
+    {
+        RevisionContentBuffer content = revision.getContent();
+
+        if (content != null) {
+            FilterEventParameters pageRevisionParameters = revision.getParameters();
+
+            long start = System.nanoTime();
+            try {
+                if (this.contentEvents) {
+                    // Remember the events until the revision is sent
+                    XDOMGeneratorListener xdomListener = new XDOMGeneratorListener();
+                    parseContent(revision, xdomListener, this.contentEventsTargetSyntax);
+                    revision.setXDOM(xdomListener.getXDOM());
+                } else if (this.properties.isConvertToXWiki()) {
+                    // Convert content to XWiki syntax
+                    pageRevisionParameters.put(WikiDocumentFilter.PARAMETER_CONTENT, convertToXWiki21(revision));
+                    pageRevisionParameters.put(WikiDocumentFilter.PARAMETER_SYNTAX, Syntax.XWIKI_2_1);
+                } else {
+                    // Keep MediaWiki syntax
+                    pageRevisionParameters.put(WikiDocumentFilter.PARAMETER_CONTENT, content.toString());
+                    pageRevisionParameters.put(WikiDocumentFilter.PARAMETER_SYNTAX,
+                        BlikiMediaWikiStreamParser.SYNTAX);
+                }
+            } catch (Exception e) {
+                this.logger.error("Failed to converter content located in page with title [{}] and version [{}]",
+                    revision.getPage().getTitle(), revision.getVersion(), e);
+
+                this.metrics.onConversionFailure(e);
+            }
+            this.metrics.onParse(System.nanoTime() - start);
+        }
+    }
+
+    private void sendPageRevision(MediaWikiPageRevision revision, MediaWikiFilter proxyFilter)
+        throws FilterException, IOException
+    {
+        beginPageRevision(revision, proxyFilter);
+        endPageRevision(revision, proxyFilter);
+    }
+
+    /**
+     * Send the beginning of the revision, its content and its objects and attachments.
+     */
+    private void beginPageRevision(MediaWikiPageRevision revision, MediaWikiFilter proxyFilter)
+        throws FilterException, IOException
+    {
+        boolean converted = revision.waitForConversion();
+
+        // Convert the content if not already done by a worker (content events are streamed while sending the revision)
+        if (!converted && !this.contentEvents) {
+            convertPageRevision(revision);
+        }
+
+        // Begin document revision
+        proxyFilter.beginWikiDocumentRevision(revision.getVersion(), revision.getParameters());
+
+        if (revision.getXDOM() != null) {
+            // Send the events produced by a worker
+            revision.getXDOM().traverse(proxyFilter);
+            revision.setXDOM(null);
+        } else if (this.contentEvents && !converted && revision.getContent() != null) {
+            // Stream the content events
+            long start = System.nanoTime();
+            try {
+                parseContent(revision, proxyFilter, null);
+            } catch (Exception e) {
+                this.logger.error("Failed to converter content located in page with title [{}] and version [{}]",
+                    revision.getPage().getTitle(), revision.getVersion(), e);
+
+                this.metrics.onConversionFailure(e);
+            }
+            this.metrics.onParse(System.nanoTime() - start);
         }
 
+        // The source is not needed anymore
+        releaseContent(revision);
+
         // It might be a page dedicated to a file
-        String filename = this.namespaces.getFileName(this.currentPageTitle);
-        if (filename != null) {
-            this.currentFiles.add(filename);
+        String filename = this.namespaces.getFileName(revision.getPage().getTitle());
+        if (filename != null && revision.getFiles().add(filename)) {
+            prefetchAttachment(filename);
         }
 
         // Generate tags for categories
-        if (!this.currentCategories.isEmpty()) {
-            sendCategories(this.currentCategories, proxyFilter);
+        if (!revision.getCategories().isEmpty()) {
+            sendCategories(revision.getCategories(), proxyFilter);
         }
 
         // Add redirect if needed
-        if (this.currentRedirectTitle != null) {
-            sendRedirect(this.currentRedirectTitle, proxyFilter);
+        if (revision.getRedirectTitle() != null) {
+            sendRedirect(revision.getPage().getTitle(), revision.getRedirectTitle(), proxyFilter);
         }
 
         // Attach files if any
-        if (!this.currentFiles.isEmpty()) {
-            for (String fileName : this.currentFiles) {
+        if (!revision.getFiles().isEmpty()) {
+            for (String fileName : revision.getFiles()) {
                 sendAttachment(fileName, proxyFilter);
             }
         }
-        // Reset files
-        this.currentFiles = null;
+    }
+
+    private void endPageRevision(MediaWikiPageRevision revision, MediaWikiFilter proxyFilter) throws FilterException
+    {
+        proxyFilter.endWikiDocumentRevision(revision.getVersion(), revision.getParameters());
 
-        proxyFilter.endWikiDocumentRevision(this.currentPageVersion, pageRevisionParameters);
+        // The last revision describes the current state of the page
+        this.lastSentRevision = revision;
 
-        // Reset version
-        this.currentPageVersion = null;
+        this.metrics.onRevision();
     }
 
-    private String convertToXWiki21(String content) throws FilterException
+    MediaWikiConversionContext createConversionContext()
     {
-        if (this.properties.isVerbose()) {
-            this.logger.info("Parsing content located in page with title [{}] and version [{}]", this.currentPageTitle,
-                this.currentPageVersion);
+        return new MediaWikiConversionContext(this, this.listenerProvider.get());
+    }
+
+    private MediaWikiConversionContext borrowConversionContext()
+    {
+        MediaWikiConversionContext context = this.conversionContexts.poll();
+
+        return context != null ? context : createConversionContext();
+    }
+
+    private void releaseConversionContext(MediaWikiConversionContext context, boolean reusable)
+    {
+        // A context which failed in the middle of a conversion might be left in an inconsistent state
+        if (reusable) {
+            context.reset();
+            this.conversionContexts.push(context);
         }
+    }
+
+    private void parseContent(MediaWikiPageRevision revision, Listener listener, Syntax targetSyntax)
+        throws FilterException, IOException, ComponentLookupException
+    {
+        MediaWikiConversionContext context = borrowConversionContext();
 
-        DefaultWikiPrinter printer = new DefaultWikiPrinter();
-        PrintRenderer renderer = this.xwiki21Factory.createRenderer(printer);
+        boolean reusable = false;
+        try {
+            parseContent(context, revision, listener, targetSyntax);
 
-        MediaWikiSyntaxInputProperties parserProperties = createMediaWikiSyntaxInputProperties(content);
+            reusable = true;
+        } finally {
+            releaseConversionContext(context, reusable);
+        }
+    }
 
-        // Refactor references and find attachments
-        MediaWikiContextConverterListener listener = this.listenerProvider.get();
-        listener.initialize(renderer, this, this.xwiki21Factory.getSyntax());
+    private void parseContent(MediaWikiConversionContext context, MediaWikiPageRevision revision, Listener listener,
+        Syntax targetSyntax) throws FilterException, IOException, ComponentLookupException
+    {
+        MediaWikiSyntaxInputProperties parserProperties = createMediaWikiSyntaxInputProperties(revision.getContent());
 
-        // Generate events
-        try (BeanInputFilterStream<MediaWikiSyntaxInputProperties> stream =
-            getInputFilterStreamFactory().createInputFilterStream(parserProperties)) {
-            stream.read(listener);
+        // Generate events (refactor references and find attachments)
+        MediaWikiContextConverterListener converter;
+        try {
+            converter = context.parse(revision, parserProperties, listener, targetSyntax);
         } catch (Exception e) {
-            throw new FilterException("Failed to convert content page", e);
+            // The files found before the failure won't be sent
+            discardAttachments(context.getListener().getFiles());
+
+            throw e;
+        }
+
+        // Remember linked files, categories and redirect
+        revision.setFiles(converter.getFiles());
+        revision.setCategories(converter.getCategories());
+        revision.setRedirectTitle(converter.getRedirectTitle());
+
+        if (this.linkGraph != null) {
+            this.linkGraph.write(this.serializer.serialize(revision.getPage().getReference()), revision.getVersion(),
+                converter.getLinks());
+        }
+    }
+
+    private String convertToXWiki21(MediaWikiPageRevision revision) throws FilterException
+    {
+        if (this.properties.isVerbose()) {
+            this.logger.info("Parsing content located in page with title [{}] and version [{}]",
+                revision.getPage().getTitle(), revision.getVersion());
         }
 
-        this.currentFiles = listener.getFiles();
-        this.currentCategories = listener.getCategories();
-        this.currentRedirectTitle = listener.getRedirectTitle();
+        MediaWikiConversionContext context = borrowConversionContext();
+
+        boolean reusable = false;
+        try {
+            // The converted content is usually about the same size as the source
+            PrintRenderer renderer = context.createRenderer(this.xwiki21Factory, revision.getContent().length());
+
+            parseContent(context, revision, renderer, this.xwiki21Factory.getSyntax());
+
+            reusable = true;
 
-        return printer.toString();
+            return context.getRenderedContent();
+        } catch (Exception e) {
+            throw new FilterException("Failed to convert content page", e);
+        } finally {
+            releaseConversionContext(context, reusable);
+        }
     }
 
     private void sendAttachment(String fileName, MediaWikiFilter proxyFilter) throws FilterException, IOException
     {
+        long start = System.nanoTime();
+        AttachmentPrefetcher.Attachment attachment = this.attachmentPrefetcher != null
+            ? this.attachmentPrefetcher.take(fileName) : resolveAttachment(fileName);
+        this.metrics.onAttachmentLookup(System.nanoTime() - start);
+
+        if (attachment != null) {
+            try (InputStream streamToClose = attachment.openStream()) {
+                proxyFilter.onWikiAttachment(fileName, streamToClose, attachment.getSize(),
+                    FilterEventParameters.EMPTY);
+
+                this.metrics.onAttachment(attachment.getSize());
+            } finally {
+                if (this.attachmentPrefetcher != null) {
+                    this.attachmentPrefetcher.release(attachment);
+                }
+            }
+        }
+    }
+
+    private AttachmentPrefetcher.Attachment resolveAttachment(String fileName) throws FilterException
+    {
+        if (this.filesArchive != null) {
+            MediaFilesArchive.ArchivedFile file = getArchivedFile(fileName);
+
+            return file != null
+                ? new AttachmentPrefetcher.Attachment(file.getSize(), () -> this.filesArchive.openStream(file)) : null;
+        }
+
         File file = getFile(fileName);
 
-        if (file != null) {
-            try (InputStream streamToClose = new FileInputStream(file)) {
-                proxyFilter.onWikiAttachment(fileName, streamToClose, file.length(), FilterEventParameters.EMPTY);
+        return file != null
+            ? new AttachmentPrefetcher.Attachment(file.length(), () -> new FileAttachmentInputStream(file)) : null;
+    }
+
+    /**
+     * Start looking for the attachment in the background if enabled.
+     *
+     * @param fileName the name of the file
+     * @since 2.1.2
+     */
+    public void prefetchAttachment(String fileName)
+    {
+        if (this.attachmentPrefetcher != null && StringUtils.isNotEmpty(fileName)) {
+            this.attachmentPrefetcher.prefetch(fileName);
+        }
+    }
+
+    private void discardAttachments(Collection<String> fileNames)
+    {
+        if (this.attachmentPrefetcher != null) {
+            for (String fileName : fileNames) {
+                this.attachmentPrefetcher.discard(fileName);
             }
         }
     }
@@ -766,38 +2124,109 @@ public class MediaWikiInputFilterStream extends AbstractBeanInputFilterStream<Me
 
             if (files == null) {
                 this.logger.warn("No folder indicated to find media files");
+            } else if (this.filesIndex != null) {
+                return getIndexedFile(fileName, ((FileInputSource) files).getFile());
             } else if (files instanceof FileInputSource) {
-                File folder = ((FileInputSource) files).getFile();
-
-                String md5Hex = DigestUtils.md5Hex(fileName).substring(0, 2);
-                String folderName1 = md5Hex.substring(0, 1);
-                String folderName2 = md5Hex.substring(0, 2);
+                File file = findFile(((FileInputSource) files).getFile(), fileName);
 
-                File folder1 = new File(folder, folderName1);
-                File folder2 = new File(folder1, folderName2);
+                if (file == null) {
+                    this.logger.warn("Can't find file [{}]", fileName);
+                }
 
-                File file = new File(folder2, fileName);
+                return file;
+            } else {
+                throw new FilterException("Unsupported input source [" + files.getClass() + "] ([" + files + "])");
+            }
+        }
 
-                if (file.exists() && file.isFile()) {
-                    return file;
-                }
+        return null;
+    }
 
-                // Try simple path
-                File fileFallback = new File(folder, fileName);
+    private File getIndexedFile(String fileName, File folder)
+    {
+        File file = this.filesIndex.get(fileName);
 
-                if (fileFallback.exists() && fileFallback.isFile()) {
-                    return fileFallback;
-                }
+        // Don't look for a missing file (and don't warn about it) every time it's referenced
+        if (file == null && !this.missingFiles.contains(fileName)) {
+            // The index is authoritative unless the files added after it was built should also be found
+            if (this.properties.isFilesIndexFallback()) {
+                file = findFile(folder, fileName);
+            }
 
-                this.logger.warn("Can't find file [{}]", file.getAbsolutePath());
-            } else {
-                throw new FilterException("Unsupported input source [" + files.getClass() + "] ([" + files + "])");
+            if (file == null && this.missingFiles.add(fileName)) {
+                this.logger.warn("Can't find file [{}]", fileName);
             }
         }
 
+        return file;
+    }
+
+    private File findFile(File folder, String fileName)
+    {
+        String md5Hex = DigestUtils.md5Hex(fileName).substring(0, 2);
+        String folderName1 = md5Hex.substring(0, 1);
+        String folderName2 = md5Hex.substring(0, 2);
+
+        File folder1 = new File(folder, folderName1);
+        File folder2 = new File(folder1, folderName2);
+
+        File file = new File(folder2, fileName);
+
+        if (file.exists() && file.isFile()) {
+            return file;
+        }
+
+        // Try simple path
+        File fileFallback = new File(folder, fileName);
+
+        if (fileFallback.exists() && fileFallback.isFile()) {
+            return fileFallback;
+        }
+
         return null;
     }
 
+    /**
+     * @param fileName the name of the image file
+     * @return the dimension of the image or null if the file cannot be found
+     * @throws FilterException when failing to get the image dimension
+     * @since 2.1.2
+     */
+    public Dimension getImageDimension(String fileName) throws FilterException
+    {
+        long start = System.nanoTime();
+
+        try {
+            if (this.filesArchive != null) {
+                MediaFilesArchive.ArchivedFile file = getArchivedFile(fileName);
+
+                return file != null ? this.imageDimensionCache.get(file, this.filesArchive) : null;
+            }
+
+            File file = getFile(fileName);
+
+            return file != null ? this.imageDimensionCache.get(file) : null;
+        } finally {
+            this.metrics.onImageDimension(System.nanoTime() - start);
+        }
+    }
+
+    private MediaFilesArchive.ArchivedFile getArchivedFile(String fileName)
+    {
+        MediaFilesArchive.ArchivedFile file = null;
+
+        if (StringUtils.isNotEmpty(fileName)) {
+            file = this.filesArchive.get(fileName);
+
+            if (file == null) {
+                this.logger.warn("Can't find file [{}] in archive [{}]", fileName,
+                    this.filesArchive.getArchive().getAbsolutePath());
+            }
+        }
+
+        return file;
+    }
+
     private void sendCategories(Set<String> categories, MediaWikiFilter proxyFilter) throws FilterException
     {
         FilterEventParameters objectParameters = new FilterEventParameters();
@@ -821,9 +2250,214 @@ public class MediaWikiInputFilterStream extends AbstractBeanInputFilterStream<Me
         proxyFilter.endWikiObject(REFERENCE_TAGCLASS, objectParameters);
     }
 
-    private void sendRedirect(String redirectTitle, MediaWikiFilter proxyFilter) throws FilterException
+    private boolean isCategoryPage(String title)
+    {
+        return isNamespace(this.namespaces.splitTitle(title).getNamespace(),
+            MediaWikiNamespaces.NAMESPACE_CATEGORY_IDX);
+    }
+
+    private void addCategoryMembership(MediaWikiPage page, MediaWikiPageRevision revision) throws FilterException
+    {
+        String pageKey = this.serializer.serialize(page.getReference());
+
+        try {
+            addCategoryMembership(pageKey, revision.getCategories());
+        } catch (IOException e) {
+            throw new FilterException("Failed to collect the categories of page [" + page.getTitle() + "]", e);
+        }
+    }
+
+    private void addCategoryMembership(String pageKey, Collection<String> categories) throws IOException
+    {
+        String categoryNamespace =
+            this.namespaces.getDefaultNamespace(MediaWikiNamespaces.NAMESPACE_CATEGORY_IDX) + ':';
+
+        for (String category : categories) {
+            String categoryTitle = categoryNamespace + category;
+            EntityReference categoryReference = toPageReference(categoryTitle);
+
+            if (categoryReference != null) {
+                String categoryKey = this.serializer.serialize(categoryReference);
+
+                this.categoryMembers.add(categoryKey, CategoryMembershipBuffer.TYPE_LINKED_TITLE, categoryTitle);
+                this.categoryMembers.add(categoryKey, CategoryMembershipBuffer.TYPE_MEMBER, pageKey);
+            }
+        }
+    }
+
+    private void sendCategoryPages(MediaWikiFilter proxyFilter) throws FilterException, IOException
+    {
+        // The category pages can themselves be members of categories
+        convertCategoryPages();
+
+        if (this.properties.isVerbose()) {
+            this.logger.info("Merging [{}] category records from [{}] temporary files", this.categoryMembers.size(),
+                this.categoryMembers.getRuns());
+        }
+
+        try (CategoryMembershipBuffer.Cursor cursor = this.categoryMembers.merge()) {
+            CategoryMembershipBuffer.Record record = cursor.next();
+            while (record != null) {
+                record = sendCategoryPage(record, cursor, proxyFilter);
+            }
+        } catch (IOException e) {
+            throw new FilterException("Failed to merge the members of the categories", e);
+        }
+
+        // The category pages without any member
+        for (MediaWikiPage page : this.categoryPages.values()) {
+            sendPage(page, proxyFilter);
+        }
+        this.categoryPages.clear();
+    }
+
+    /**
+     * Convert the last revision of the held category pages to know the categories they are members of.
+     */
+    private void convertCategoryPages() throws FilterException
+    {
+        if (this.conversionExecutor != null) {
+            for (MediaWikiPage page : this.categoryPages.values()) {
+                MediaWikiPageRevision revision = page.getRevisions().get(page.getRevisions().size() - 1);
+                revision.setConversion(this.conversionExecutor.submit(() -> convertPageRevision(revision)));
+            }
+        }
+
+        for (MediaWikiPage page : this.categoryPages.values()) {
+            MediaWikiPageRevision revision = page.getRevisions().get(page.getRevisions().size() - 1);
+            if (!revision.waitForConversion()) {
+                convertPageRevision(revision);
+            }
+
+            // Don't convert the revision again when sending it
+            revision.setConversion(CompletableFuture.completedFuture(null));
+
+            addCategoryMembership(page, revision);
+        }
+    }
+
+    /**
+     * @return the first record of the next category
+     */
+    private CategoryMembershipBuffer.Record sendCategoryPage(CategoryMembershipBuffer.Record firstRecord,
+        CategoryMembershipBuffer.Cursor cursor, MediaWikiFilter proxyFilter) throws IOException, FilterException
+    {
+        String categoryKey = firstRecord.getCategory();
+
+        // The titles used to reference the category come before the members
+        String title = firstRecord.getValue();
+        CategoryMembershipBuffer.Record record = firstRecord;
+        while (isCategoryRecord(record, categoryKey)
+            && record.getType() == CategoryMembershipBuffer.TYPE_LINKED_TITLE) {
+            record = cursor.next();
+        }
+
+        MediaWikiPage page = this.categoryPages.remove(categoryKey);
+
+        if (page != null) {
+            sendBeginPage(page, proxyFilter);
+
+            List<MediaWikiPageRevision> revisions = page.getRevisions();
+            for (MediaWikiPageRevision revision : revisions.subList(0, revisions.size() - 1)) {
+                sendPageRevision(revision, proxyFilter);
+            }
+
+            // The members are added to the current revision of the page
+            MediaWikiPageRevision lastRevision = revisions.get(revisions.size() - 1);
+            beginPageRevision(lastRevision, proxyFilter);
+            record = sendCategoryMembers(categoryKey, record, cursor, proxyFilter);
+            endPageRevision(lastRevision, proxyFilter);
+
+            endPage(page, proxyFilter);
+        } else {
+            // The category is used but its page is not part of the import
+            EntityReference reference = this.relativeResolver.resolve(categoryKey, EntityType.DOCUMENT);
+
+            this.currentParentReference = reference.getParent();
+            sendSpaceEvents(proxyFilter);
+
+            proxyFilter.beginWikiDocument(reference.getName(), FilterEventParameters.EMPTY);
+            proxyFilter.beginWikiDocumentLocale(Locale.ROOT, FilterEventParameters.EMPTY);
+
+            FilterEventParameters parameters = new FilterEventParameters();
+            parameters.put(WikiDocumentFilter.PARAMETER_TITLE, title);
+            parameters.put(WikiDocumentFilter.PARAMETER_CONTENT, "");
+            parameters.put(WikiDocumentFilter.PARAMETER_SYNTAX,
+                this.properties.isConvertToXWiki() ? Syntax.XWIKI_2_1 : BlikiMediaWikiStreamParser.SYNTAX);
+
+            proxyFilter.beginWikiDocumentRevision(CATEGORY_PAGE_VERSION, parameters);
+            record = sendCategoryMembers(categoryKey, record, cursor, proxyFilter);
+            proxyFilter.endWikiDocumentRevision(CATEGORY_PAGE_VERSION, parameters);
+
+            proxyFilter.endWikiDocumentLocale(Locale.ROOT, FilterEventParameters.EMPTY);
+            proxyFilter.endWikiDocument(reference.getName(), FilterEventParameters.EMPTY);
+        }
+
+        return record;
+    }
+
+    /**
+     * @return the first record of the next category
+     */
+    private CategoryMembershipBuffer.Record sendCategoryMembers(String categoryKey,
+        CategoryMembershipBuffer.Record firstRecord, CategoryMembershipBuffer.Cursor cursor,
+        MediaWikiFilter proxyFilter) throws IOException, FilterException
+    {
+        // Split the members in several objects to not keep them all in memory
+        List<String> members = new ArrayList<>();
+        int number = 0;
+        CategoryMembershipBuffer.Record record = firstRecord;
+        for (; isCategoryRecord(record, categoryKey); record = cursor.next()) {
+            members.add(record.getValue());
+
+            if (members.size() == CATEGORY_MEMBERS_PER_OBJECT) {
+                sendCategoryMembers(members, number++, proxyFilter);
+                members.clear();
+            }
+        }
+        if (!members.isEmpty()) {
+            sendCategoryMembers(members, number, proxyFilter);
+        }
+
+        return record;
+    }
+
+    private boolean isCategoryRecord(CategoryMembershipBuffer.Record record, String categoryKey)
+    {
+        return record != null && record.getCategory().equals(categoryKey);
+    }
+
+    private void sendCategoryMembers(List<String> members, int number, MediaWikiFilter proxyFilter)
+        throws FilterException
+    {
+        FilterEventParameters objectParameters = new FilterEventParameters();
+        objectParameters.put(WikiObjectFilter.PARAMETER_CLASS_REFERENCE, REFERENCE_CATEGORYMEMBERSCLASS);
+        objectParameters.put(WikiObjectFilter.PARAMETER_NUMBER, number);
+
+        proxyFilter.beginWikiObject(REFERENCE_CATEGORYMEMBERSCLASS, objectParameters);
+
+        // Category members class definition
+        // TODO: Remove when https://jira.xwiki.org/browse/XWIKI-14061 is fixed (9.2+)
+        proxyFilter.beginWikiClass(FilterEventParameters.EMPTY);
+        proxyFilter.beginWikiClassProperty("members", "StaticList", FilterEventParameters.EMPTY);
+        proxyFilter.onWikiClassPropertyField("multiSelect", "1", FilterEventParameters.EMPTY);
+        proxyFilter.onWikiClassPropertyField("relationalStorage", "1", FilterEventParameters.EMPTY);
+        proxyFilter.endWikiClassProperty("members", "StaticList", FilterEventParameters.EMPTY);
+        proxyFilter.endWikiClass(FilterEventParameters.EMPTY);
+
+        proxyFilter.onWikiObjectProperty("members", new ArrayList<>(members), FilterEventParameters.EMPTY);
+
+        proxyFilter.endWikiObject(REFERENCE_CATEGORYMEMBERSCLASS, objectParameters);
+    }
+
+    private void sendRedirect(String title, String redirectTitle, MediaWikiFilter proxyFilter)
+        throws FilterException
     {
-        EntityReference redirectReference = toEntityReference(redirectTitle, false);
+        // Skip the intermediate redirects
+        String targetTitle =
+            this.redirectMap != null ? this.redirectMap.getFinalTarget(title, redirectTitle) : redirectTitle;
+
+        EntityReference redirectReference = toEntityReference(targetTitle, false);
 
         FilterEventParameters objectParameters = new FilterEventParameters();
         objectParameters.put(WikiObjectFilter.PARAMETER_CLASS_REFERENCE, REFERENCE_REDIRECTCLASS);
@@ -852,12 +2486,12 @@ public class MediaWikiInputFilterStream extends AbstractBeanInputFilterStream<Me
 
             switch (elementName) {
                 case TAG_PAGE_REVISION_CONTRIBUTOR_USERNAME:
-                    userName = xmlReader.getElementText();
+                    userName = this.metadataDecoder.readInterned(xmlReader);
                     continue;
 
                 case TAG_PAGE_REVISION_CONTRIBUTOR_IP:
                     if (!this.properties.isConvertToXWiki()) {
-                        userName = xmlReader.getElementText();
+                        userName = this.metadataDecoder.readInterned(xmlReader);
                         continue;
                     }
             }
@@ -0,0 +1,509 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+/**
+ * The last revision (id and SHA-1) of each page imported from a dump, used to only import the pages which changed
+ * since a previous import.
+ * <p>
+ * To support millions of pages, the manifest is kept in memory in compact arrays sorted by page id and the titles and
+ * categories (only needed to report the deleted pages and to list the members of the categories) are read again from
+ * the file when needed.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public class MediaWikiManifest
+{
+    private static final int MAGIC = 0x4d574d46;
+
+    private static final int VERSION = 1;
+
+    /**
+     * The SHA-1 of the revisions are kept in memory as a MD5 digest, so that they all take the same space whatever
+     * their encoding (base 36 in the MediaWiki dumps, hexadecimal in some other exports).
+     */
+    private static final int SHA1_WIDTH = 16;
+
+    private static final int BUFFER_SIZE = 65536;
+
+    private final File file;
+
+    private final int size;
+
+    private final long[] pageIds;
+
+    private final long[] revisionIds;
+
+    private final byte[] sha1s;
+
+    private final BitSet seen;
+
+    private final BitSet skipped;
+
+    /**
+     * A page found in the manifest.
+     *
+     * @version $Id$
+     */
+    @FunctionalInterface
+    public interface PageConsumer
+    {
+        /**
+         * @param pageId the id of the page
+         * @param title the title of the page
+         */
+        void accept(String pageId, String title);
+    }
+
+    /**
+     * A skipped page found in the manifest.
+     *
+     * @version $Id$
+     */
+    @FunctionalInterface
+    public interface SkippedPageConsumer
+    {
+        /**
+         * @param pageId the id of the page
+         * @param revisionId the id of the last revision of the page
+         * @param sha1 the SHA-1 of the content of the last revision of the page
+         * @param title the title of the page
+         * @param categories the categories of the last revision of the page
+         * @throws IOException when failing to handle the page
+         */
+        void accept(String pageId, String revisionId, String sha1, String title, List<String> categories)
+            throws IOException;
+    }
+
+    /**
+     * Write a new manifest. The file is only replaced when {@link #commit()} is called.
+     *
+     * @version $Id$
+     */
+    public static class Writer implements Closeable
+    {
+        private final File file;
+
+        private final File tmpFile;
+
+        private final DataOutputStream output;
+
+        private long size;
+
+        private boolean committed;
+
+        /**
+         * @param file the manifest file
+         * @throws IOException when failing to create the file
+         */
+        public Writer(File file) throws IOException
+        {
+            this.file = file;
+            this.tmpFile = new File(file.getPath() + ".tmp");
+
+            this.output =
+                new DataOutputStream(new BufferedOutputStream(new FileOutputStream(this.tmpFile), BUFFER_SIZE));
+            this.output.writeInt(MAGIC);
+            this.output.writeInt(VERSION);
+        }
+
+        /**
+         * @param pageId the id of the page
+         * @param revisionId the id of the last revision of the page
+         * @param sha1 the SHA-1 of the content of the last revision of the page
+         * @param title the title of the page
+         * @param categories the categories of the last revision of the page
+         * @throws IOException when failing to write the file
+         */
+        public void add(String pageId, String revisionId, String sha1, String title, Collection<String> categories)
+            throws IOException
+        {
+            this.output.writeBoolean(true);
+            this.output.writeUTF(pageId);
+            this.output.writeUTF(revisionId);
+            this.output.writeUTF(sha1 != null ? sha1 : "");
+            this.output.writeUTF(title);
+            this.output.writeInt(categories.size());
+            for (String category : categories) {
+                this.output.writeUTF(category);
+            }
+
+            ++this.size;
+        }
+
+        /**
+         * @return the number of pages added
+         */
+        public long size()
+        {
+            return this.size;
+        }
+
+        /**
+         * Replace the manifest file with the pages added so far.
+         *
+         * @throws IOException when failing to write the file
+         */
+        public void commit() throws IOException
+        {
+            this.output.writeBoolean(false);
+            this.output.close();
+
+            Files.move(this.tmpFile.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+            this.committed = true;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if (!this.committed) {
+                this.output.close();
+
+                Files.deleteIfExists(this.tmpFile.toPath());
+            }
+        }
+    }
+
+    private MediaWikiManifest(File file, int size, long[] pageIds, long[] revisionIds, byte[] sha1s)
+    {
+        this.file = file;
+        this.size = size;
+        this.pageIds = pageIds;
+        this.revisionIds = revisionIds;
+        this.sha1s = sha1s;
+        this.seen = new BitSet(size);
+        this.skipped = new BitSet(size);
+    }
+
+    private static DataInputStream open(File file) throws IOException
+    {
+        return new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+    }
+
+    private static void readHeader(DataInputStream input, File file) throws IOException
+    {
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Unsupported manifest [" + file + "]");
+        }
+
+        int version = input.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported manifest [" + file + "] version [" + version + "]");
+        }
+    }
+
+    private static byte[] digest(String sha1)
+    {
+        return DigestUtils.md5(sha1);
+    }
+
+    private static List<String> readCategories(DataInputStream input) throws IOException
+    {
+        int count = input.readInt();
+        List<String> categories = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            categories.add(input.readUTF());
+        }
+
+        return categories;
+    }
+
+    private static void skipCategories(DataInputStream input) throws IOException
+    {
+        for (int count = input.readInt(); count > 0; --count) {
+            input.readUTF();
+        }
+    }
+
+    /**
+     * @param file the manifest written by a previous import
+     * @return the manifest
+     * @throws IOException when failing to read the file
+     */
+    public static MediaWikiManifest load(File file) throws IOException
+    {
+        int size = 0;
+        long[] pageIds = new long[1024];
+        long[] revisionIds = new long[1024];
+        byte[] sha1s = new byte[1024 * SHA1_WIDTH];
+
+        try (DataInputStream input = open(file)) {
+            readHeader(input, file);
+
+            while (input.readBoolean()) {
+                long pageId = NumberUtils.toLong(input.readUTF(), -1);
+                long revisionId = NumberUtils.toLong(input.readUTF(), -1);
+                String sha1 = input.readUTF();
+                input.readUTF();
+                skipCategories(input);
+
+                // Only the pages identified by numbers can be found (the revisions without id or SHA-1 are never
+                // unchanged but the page is still reported when deleted)
+                if (pageId >= 0) {
+                    if (size == pageIds.length) {
+                        pageIds = Arrays.copyOf(pageIds, size * 2);
+                        revisionIds = Arrays.copyOf(revisionIds, size * 2);
+                        sha1s = Arrays.copyOf(sha1s, size * 2 * SHA1_WIDTH);
+                    }
+
+                    pageIds[size] = pageId;
+                    revisionIds[size] = revisionId;
+                    System.arraycopy(digest(sha1), 0, sha1s, size * SHA1_WIDTH, SHA1_WIDTH);
+                    ++size;
+                }
+            }
+        }
+
+        MediaWikiManifest manifest = new MediaWikiManifest(file, size, pageIds, revisionIds, sha1s);
+
+        // The pages are generally written in the order of their id
+        if (!manifest.isSorted()) {
+            manifest.sort(0, size - 1);
+        }
+
+        return manifest;
+    }
+
+    private boolean isSorted()
+    {
+        for (int i = 1; i < this.size; ++i) {
+            if (this.pageIds[i - 1] > this.pageIds[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Sort the parallel arrays by page id without allocating anything.
+     */
+    private void sort(int low, int high)
+    {
+        int start = low;
+        int end = high;
+
+        while (start < end) {
+            long pivot = this.pageIds[(start + end) >>> 1];
+            int i = start;
+            int j = end;
+            while (i <= j) {
+                while (this.pageIds[i] < pivot) {
+                    ++i;
+                }
+                while (this.pageIds[j] > pivot) {
+                    --j;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+
+            // Recurse on the smallest part to limit the depth of the stack
+            if (j - start < end - i) {
+                sort(start, j);
+                start = i;
+            } else {
+                sort(i, end);
+                end = j;
+            }
+        }
+    }
+
+    private void swap(int i, int j)
+    {
+        long pageId = this.pageIds[i];
+        this.pageIds[i] = this.pageIds[j];
+        this.pageIds[j] = pageId;
+
+        long revisionId = this.revisionIds[i];
+        this.revisionIds[i] = this.revisionIds[j];
+        this.revisionIds[j] = revisionId;
+
+        byte[] sha1 = Arrays.copyOfRange(this.sha1s, i * SHA1_WIDTH, (i + 1) * SHA1_WIDTH);
+        System.arraycopy(this.sha1s, j * SHA1_WIDTH, this.sha1s, i * SHA1_WIDTH, SHA1_WIDTH);
+        System.arraycopy(sha1, 0, this.sha1s, j * SHA1_WIDTH, SHA1_WIDTH);
+    }
+
+    /**
+     * @return the number of pages in the manifest identified by a number
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Remember that the page is still in the wiki and indicate if it changed since the previous import.
+     *
+     * @param pageId the id of the page
+     * @param revisionId the id of the last revision of the page
+     * @param sha1 the SHA-1 of the content of the last revision of the page
+     * @return true if the last revision of the page is the same as in the previous import
+     */
+    public boolean isUnchanged(String pageId, String revisionId, String sha1)
+    {
+        int index = see(pageId);
+
+        if (index < 0 || StringUtils.isEmpty(sha1)) {
+            return false;
+        }
+
+        long revision = this.revisionIds[index];
+
+        return revision >= 0 && revision == NumberUtils.toLong(revisionId, -1) && isSha1(index, sha1);
+    }
+
+    /**
+     * Remember that the page is still in the wiki and get the last revision it had in the previous import.
+     *
+     * @param pageId the id of the page
+     * @return the id of the last revision of the page in the previous import, -1 if unknown
+     */
+    public long getRevisionId(String pageId)
+    {
+        int index = see(pageId);
+
+        return index >= 0 ? this.revisionIds[index] : -1;
+    }
+
+    private int see(String pageId)
+    {
+        int index = Arrays.binarySearch(this.pageIds, 0, this.size, NumberUtils.toLong(pageId, -1));
+
+        if (index >= 0) {
+            this.seen.set(index);
+        }
+
+        return index;
+    }
+
+    /**
+     * Remember that an unchanged page was not imported again, so that it's still part of the next manifest.
+     *
+     * @param pageId the id of the page
+     * @see #forEachSkippedPage(SkippedPageConsumer)
+     */
+    public void skip(String pageId)
+    {
+        int index = Arrays.binarySearch(this.pageIds, 0, this.size, NumberUtils.toLong(pageId, -1));
+
+        if (index >= 0) {
+            this.skipped.set(index);
+        }
+    }
+
+    private boolean isSha1(int index, String sha1)
+    {
+        byte[] digest = digest(sha1);
+
+        int offset = index * SHA1_WIDTH;
+        for (int i = 0; i < SHA1_WIDTH; ++i) {
+            if (this.sha1s[offset + i] != digest[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Read the manifest again to find the pages which were not found in the current import.
+     *
+     * @param consumer called for each deleted page
+     * @throws IOException when failing to read the file
+     */
+    public void forEachDeletedPage(PageConsumer consumer) throws IOException
+    {
+        try (DataInputStream input = open(this.file)) {
+            readHeader(input, this.file);
+
+            while (input.readBoolean()) {
+                String pageId = input.readUTF();
+                input.readUTF();
+                input.readUTF();
+                String title = input.readUTF();
+                skipCategories(input);
+
+                int index = Arrays.binarySearch(this.pageIds, 0, this.size, NumberUtils.toLong(pageId, -1));
+                if (index >= 0 && !this.seen.get(index)) {
+                    consumer.accept(pageId, title);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the manifest again to find the pages which were skipped because they did not change since the previous
+     * import.
+     *
+     * @param consumer called for each skipped page
+     * @throws IOException when failing to read the file
+     * @see #skip(String)
+     */
+    public void forEachSkippedPage(SkippedPageConsumer consumer) throws IOException
+    {
+        if (this.skipped.isEmpty()) {
+            return;
+        }
+
+        try (DataInputStream input = open(this.file)) {
+            readHeader(input, this.file);
+
+            while (input.readBoolean()) {
+                String pageId = input.readUTF();
+                String revisionId = input.readUTF();
+                String sha1 = input.readUTF();
+                String title = input.readUTF();
+
+                int index = Arrays.binarySearch(this.pageIds, 0, this.size, NumberUtils.toLong(pageId, -1));
+                if (index >= 0 && this.skipped.get(index)) {
+                    consumer.accept(pageId, revisionId, sha1, title, readCategories(input));
+                } else {
+                    skipCategories(input);
+                }
+            }
+        }
+    }
+}
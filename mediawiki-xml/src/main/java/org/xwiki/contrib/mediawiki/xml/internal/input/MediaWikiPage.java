@@ -0,0 +1,184 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.xwiki.model.reference.EntityReference;
+
+/**
+ * The state associated to a page being read from the MediaWiki XML.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public class MediaWikiPage
+{
+    private final String title;
+
+    private final EntityReference reference;
+
+    private final List<MediaWikiPageRevision> revisions = new ArrayList<>();
+
+    private String id;
+
+    private long endOffset = -1;
+
+    private long previousRevision = -1;
+
+    private boolean queued;
+
+    private boolean started;
+
+    private boolean complete;
+
+    /**
+     * @param title the MediaWiki title of the page
+     * @param reference the reference of the XWiki document
+     */
+    public MediaWikiPage(String title, EntityReference reference)
+    {
+        this.title = title;
+        this.reference = reference;
+    }
+
+    /**
+     * @return the MediaWiki title of the page
+     */
+    public String getTitle()
+    {
+        return this.title;
+    }
+
+    /**
+     * @return the reference of the XWiki document
+     */
+    public EntityReference getReference()
+    {
+        return this.reference;
+    }
+
+    /**
+     * @return the revisions waiting to be sent
+     */
+    public List<MediaWikiPageRevision> getRevisions()
+    {
+        return this.revisions;
+    }
+
+    /**
+     * @return the MediaWiki identifier of the page
+     */
+    public String getId()
+    {
+        return this.id;
+    }
+
+    /**
+     * @param id the MediaWiki identifier of the page
+     */
+    public void setId(String id)
+    {
+        this.id = id;
+    }
+
+    /**
+     * @return the offset in the uncompressed XML just after the end of the page, -1 if unknown
+     */
+    public long getEndOffset()
+    {
+        return this.endOffset;
+    }
+
+    /**
+     * @param endOffset the offset in the uncompressed XML just after the end of the page
+     */
+    public void setEndOffset(long endOffset)
+    {
+        this.endOffset = endOffset;
+    }
+
+    /**
+     * @return the id of the last revision of the page in the previous import while the page might not have changed
+     *         since then, -1 otherwise
+     */
+    public long getPreviousRevision()
+    {
+        return this.previousRevision;
+    }
+
+    /**
+     * @param previousRevision the id of the last revision of the page in the previous import while the page might not
+     *            have changed since then, -1 otherwise
+     */
+    public void setPreviousRevision(long previousRevision)
+    {
+        this.previousRevision = previousRevision;
+    }
+
+    /**
+     * @return true if the page is waiting for the conversion of its revisions to be sent
+     */
+    public boolean isQueued()
+    {
+        return this.queued;
+    }
+
+    /**
+     * @param queued true if the page is waiting for the conversion of its revisions to be sent
+     */
+    public void setQueued(boolean queued)
+    {
+        this.queued = queued;
+    }
+
+    /**
+     * @return true if the beginning of the page was sent
+     */
+    public boolean isStarted()
+    {
+        return this.started;
+    }
+
+    /**
+     * @param started true if the beginning of the page was sent
+     */
+    public void setStarted(boolean started)
+    {
+        this.started = started;
+    }
+
+    /**
+     * @return true if all the revisions of the page were read
+     */
+    public boolean isComplete()
+    {
+        return this.complete;
+    }
+
+    /**
+     * @param complete true if all the revisions of the page were read
+     */
+    public void setComplete(boolean complete)
+    {
+        this.complete = complete;
+    }
+}
@@ -0,0 +1,452 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.commons.text.StringEscapeUtils;
+
+/**
+ * A compact binary index of the pages of a dump: the offset (in the uncompressed XML) of the start and the end of each
+ * page with its namespace key, id and title.
+ * <p>
+ * The index is produced by a scan of the bytes of the dump which only looks at the elements of the page (and not at
+ * the revisions), so it's a lot faster than parsing the XML. It also contains the beginning of the XML (the root
+ * element and the siteinfo) so that the namespaces of the wiki are known before going through the pages.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public class MediaWikiPageIndex implements Closeable
+{
+    /**
+     * The value of the namespace when the page does not indicate it.
+     */
+    public static final int UNKNOWN_NAMESPACE = Integer.MIN_VALUE;
+
+    private static final int MAGIC = 0x4d575049;
+
+    private static final int VERSION = 1;
+
+    private final DataInputStream input;
+
+    private final byte[] header;
+
+    private long start;
+
+    private long end;
+
+    private int namespace;
+
+    private long id;
+
+    private String title;
+
+    private MediaWikiPageIndex(DataInputStream input) throws IOException
+    {
+        this.input = input;
+
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+            throw new IOException("Unsupported page index format");
+        }
+
+        int headerLength = input.readInt();
+        if (headerLength >= 0) {
+            this.header = new byte[headerLength];
+            input.readFully(this.header);
+        } else {
+            this.header = null;
+        }
+    }
+
+    /**
+     * @param file the index file
+     * @return the index, positioned before the first page
+     * @throws IOException when failing to read the index
+     */
+    public static MediaWikiPageIndex open(File file) throws IOException
+    {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+        try {
+            return new MediaWikiPageIndex(input);
+        } catch (IOException e) {
+            input.close();
+
+            throw new IOException("Invalid page index file [" + file + "]", e);
+        }
+    }
+
+    /**
+     * Scan the passed dump and write its index.
+     *
+     * @param dump the uncompressed XML
+     * @param file the index file to write
+     * @throws IOException when failing to read the dump or write the index
+     */
+    public static void write(InputStream dump, File file) throws IOException
+    {
+        // Make sure to never leave a partially written index
+        File temporaryFile = new File(file.getPath() + ".tmp");
+        try (DataOutputStream output =
+            new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+            new Scanner(dump, output).scan();
+        }
+        Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the beginning of the XML, before the first page, or null if the dump does not contain any page
+     */
+    public byte[] getHeader()
+    {
+        return this.header;
+    }
+
+    /**
+     * Move to the next page of the index.
+     *
+     * @return false if there is no more page in the index
+     * @throws IOException when failing to read the index
+     */
+    public boolean next() throws IOException
+    {
+        this.start = this.input.readLong();
+
+        if (this.start < 0) {
+            return false;
+        }
+
+        this.end = this.input.readLong();
+        this.namespace = this.input.readInt();
+        this.id = this.input.readLong();
+        this.title = this.input.readUTF();
+
+        return true;
+    }
+
+    /**
+     * @return the offset of the {@code <page>} element
+     */
+    public long getStart()
+    {
+        return this.start;
+    }
+
+    /**
+     * @return the offset just after the {@code </page>} element
+     */
+    public long getEnd()
+    {
+        return this.end;
+    }
+
+    /**
+     * @return the key of the namespace of the page or {@link #UNKNOWN_NAMESPACE}
+     */
+    public int getNamespace()
+    {
+        return this.namespace;
+    }
+
+    /**
+     * @return the id of the page or -1 if unknown
+     */
+    public long getId()
+    {
+        return this.id;
+    }
+
+    /**
+     * @return the title of the page
+     */
+    public String getTitle()
+    {
+        return this.title;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        this.input.close();
+    }
+
+    /**
+     * Find the pages in the bytes of the dump. This relies on the fact that a {@code <} is always escaped in a text
+     * so every {@code <} found is the beginning of a tag.
+     *
+     * @version $Id$
+     */
+    private static final class Scanner
+    {
+        private static final byte[] PAGE_START = "<page>".getBytes(StandardCharsets.US_ASCII);
+
+        private static final byte[] TAG_PAGE = "page".getBytes(StandardCharsets.US_ASCII);
+
+        private static final byte[] TAG_TITLE = "title".getBytes(StandardCharsets.US_ASCII);
+
+        private static final byte[] TAG_NS = "ns".getBytes(StandardCharsets.US_ASCII);
+
+        private static final byte[] TAG_ID = "id".getBytes(StandardCharsets.US_ASCII);
+
+        private static final byte[] TAG_REVISION = "revision".getBytes(StandardCharsets.US_ASCII);
+
+        private static final int BUFFER_SIZE = 64 * 1024;
+
+        private static final int MAX_TAG_NAME_LENGTH = 16;
+
+        private final InputStream dump;
+
+        private final DataOutputStream output;
+
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+
+        private int position;
+
+        private int limit;
+
+        private long bufferOffset;
+
+        private final byte[] tagName = new byte[MAX_TAG_NAME_LENGTH];
+
+        private int tagNameLength;
+
+        private final ByteArrayOutputStream text = new ByteArrayOutputStream();
+
+        private long pageStart;
+
+        private int pageNamespace;
+
+        private long pageId;
+
+        private String pageTitle;
+
+        private boolean inRevision;
+
+        Scanner(InputStream dump, DataOutputStream output)
+        {
+            this.dump = dump;
+            this.output = output;
+        }
+
+        void scan() throws IOException
+        {
+            this.output.writeInt(MAGIC);
+            this.output.writeInt(VERSION);
+
+            if (!scanHeader()) {
+                // No page in the dump
+                this.output.writeLong(-1);
+
+                return;
+            }
+
+            for (int b = read(); b >= 0; b = read()) {
+                if (b == '<') {
+                    scanTag();
+                }
+            }
+
+            this.output.writeLong(-1);
+        }
+
+        private boolean scanHeader() throws IOException
+        {
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+
+            for (int matched = 0; matched < PAGE_START.length;) {
+                int b = read();
+                if (b < 0) {
+                    this.output.writeInt(-1);
+
+                    return false;
+                }
+
+                header.write(b);
+
+                if (b == PAGE_START[matched]) {
+                    ++matched;
+                } else {
+                    matched = b == PAGE_START[0] ? 1 : 0;
+                }
+            }
+
+            this.output.writeInt(header.size() - PAGE_START.length);
+            this.output.write(header.toByteArray(), 0, header.size() - PAGE_START.length);
+
+            startPage(getOffset() - PAGE_START.length);
+
+            return true;
+        }
+
+        private void scanTag() throws IOException
+        {
+            long tagStart = getOffset() - 1;
+
+            int b = read();
+            boolean closing = b == '/';
+            if (closing) {
+                b = read();
+            }
+
+            this.tagNameLength = 0;
+            while (b >= 0 && b != '>' && b != '/' && b > ' ') {
+                if (this.tagNameLength < MAX_TAG_NAME_LENGTH) {
+                    this.tagName[this.tagNameLength] = (byte) b;
+                }
+                ++this.tagNameLength;
+                b = read();
+            }
+
+            // Skip the attributes
+            boolean empty = false;
+            while (b >= 0 && b != '>') {
+                empty = b == '/';
+                b = read();
+            }
+
+            if (closing) {
+                if (isTag(TAG_PAGE) && this.pageStart >= 0) {
+                    endPage();
+                }
+            } else if (isTag(TAG_PAGE)) {
+                startPage(tagStart);
+            } else if (this.pageStart >= 0 && !this.inRevision) {
+                if (isTag(TAG_REVISION)) {
+                    this.inRevision = true;
+                } else if (!empty) {
+                    scanPageElement();
+                }
+            }
+        }
+
+        private void scanPageElement() throws IOException
+        {
+            if (isTag(TAG_TITLE)) {
+                this.pageTitle = StringEscapeUtils.unescapeXml(readText());
+            } else if (isTag(TAG_NS)) {
+                try {
+                    this.pageNamespace = Integer.parseInt(readText().trim());
+                } catch (NumberFormatException e) {
+                    this.pageNamespace = UNKNOWN_NAMESPACE;
+                }
+            } else if (isTag(TAG_ID) && this.pageId < 0) {
+                try {
+                    this.pageId = Long.parseLong(readText().trim());
+                } catch (NumberFormatException e) {
+                    this.pageId = -1;
+                }
+            }
+        }
+
+        private boolean isTag(byte[] name)
+        {
+            if (this.tagNameLength != name.length) {
+                return false;
+            }
+
+            for (int i = 0; i < name.length; ++i) {
+                if (this.tagName[i] != name[i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private String readText() throws IOException
+        {
+            this.text.reset();
+
+            for (int b = read(); b >= 0; b = read()) {
+                if (b == '<') {
+                    // Let the main loop handle the end tag
+                    --this.position;
+                    break;
+                }
+
+                this.text.write(b);
+            }
+
+            return new String(this.text.toByteArray(), StandardCharsets.UTF_8);
+        }
+
+        private void startPage(long offset)
+        {
+            this.pageStart = offset;
+            this.pageNamespace = UNKNOWN_NAMESPACE;
+            this.pageId = -1;
+            this.pageTitle = null;
+            this.inRevision = false;
+        }
+
+        private void endPage() throws IOException
+        {
+            this.output.writeLong(this.pageStart);
+            this.output.writeLong(getOffset());
+            this.output.writeInt(this.pageNamespace);
+            this.output.writeLong(this.pageId);
+            this.output.writeUTF(this.pageTitle != null ? this.pageTitle : "");
+
+            this.pageStart = -1;
+        }
+
+        private long getOffset()
+        {
+            return this.bufferOffset + this.position;
+        }
+
+        private int read() throws IOException
+        {
+            if (this.position == this.limit) {
+                this.bufferOffset += this.limit;
+                this.position = 0;
+                this.limit = 0;
+
+                int read;
+                do {
+                    read = this.dump.read(this.buffer);
+                } while (read == 0);
+
+                if (read < 0) {
+                    return -1;
+                }
+
+                this.limit = read;
+            }
+
+            return this.buffer[this.position++] & 0xff;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.xwiki.filter.FilterEventParameters;
+import org.xwiki.filter.FilterException;
+import org.xwiki.rendering.block.XDOM;
+
+/**
+ * The state associated to a page revision being read, converted and sent. Each revision carries its own state so that
+ * several revisions can be converted at the same time.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public class MediaWikiPageRevision
+{
+    private final MediaWikiPage page;
+
+    private final FilterEventParameters parameters;
+
+    private String version = "1";
+
+    private RevisionContentBuffer content;
+
+    private Set<String> files = new HashSet<>();
+
+    private Set<String> categories = Collections.emptySet();
+
+    private String redirectTitle;
+
+    private String sha1;
+
+    private XDOM xdom;
+
+    private Future<?> conversion;
+
+    /**
+     * @param page the page containing this revision
+     */
+    public MediaWikiPageRevision(MediaWikiPage page)
+    {
+        this(page, new FilterEventParameters());
+    }
+
+    /**
+     * @param page the page containing this revision
+     * @param parameters the (empty) parameters of the revision event
+     */
+    public MediaWikiPageRevision(MediaWikiPage page, FilterEventParameters parameters)
+    {
+        this.page = page;
+        this.parameters = parameters;
+    }
+
+    /**
+     * @return the page containing this revision
+     */
+    public MediaWikiPage getPage()
+    {
+        return this.page;
+    }
+
+    /**
+     * @return the parameters of the revision event
+     */
+    public FilterEventParameters getParameters()
+    {
+        return this.parameters;
+    }
+
+    /**
+     * @return the version of the revision
+     */
+    public String getVersion()
+    {
+        return this.version;
+    }
+
+    /**
+     * @param version the version of the revision
+     */
+    public void setVersion(String version)
+    {
+        this.version = version;
+    }
+
+    /**
+     * @return the buffer holding the MediaWiki content of the revision, null if not (or not anymore) available
+     */
+    public RevisionContentBuffer getContent()
+    {
+        return this.content;
+    }
+
+    /**
+     * @param content the buffer holding the MediaWiki content of the revision
+     */
+    public void setContent(RevisionContentBuffer content)
+    {
+        this.content = content;
+    }
+
+    /**
+     * @return the files referenced in the revision content
+     */
+    public Set<String> getFiles()
+    {
+        return this.files;
+    }
+
+    /**
+     * @param files the files referenced in the revision content
+     */
+    public void setFiles(Set<String> files)
+    {
+        this.files = files;
+    }
+
+    /**
+     * @return the categories of the revision
+     */
+    public Set<String> getCategories()
+    {
+        return this.categories;
+    }
+
+    /**
+     * @param categories the categories of the revision
+     */
+    public void setCategories(Set<String> categories)
+    {
+        this.categories = categories;
+    }
+
+    /**
+     * @return the title of the redirect target, null if the revision is not a redirect
+     */
+    public String getRedirectTitle()
+    {
+        return this.redirectTitle;
+    }
+
+    /**
+     * @param redirectTitle the title of the redirect target
+     */
+    public void setRedirectTitle(String redirectTitle)
+    {
+        this.redirectTitle = redirectTitle;
+    }
+
+    /**
+     * @return the SHA-1 of the content as found in the dump, null if unknown
+     */
+    public String getSha1()
+    {
+        return this.sha1;
+    }
+
+    /**
+     * @param sha1 the SHA-1 of the content as found in the dump
+     */
+    public void setSha1(String sha1)
+    {
+        this.sha1 = sha1;
+    }
+
+    /**
+     * @return the content events produced in a worker thread, null if the content was not parsed in advance
+     */
+    public XDOM getXDOM()
+    {
+        return this.xdom;
+    }
+
+    /**
+     * @param xdom the content events produced in a worker thread
+     */
+    public void setXDOM(XDOM xdom)
+    {
+        this.xdom = xdom;
+    }
+
+    /**
+     * @param conversion the task converting the content of the revision
+     */
+    public void setConversion(Future<?> conversion)
+    {
+        this.conversion = conversion;
+    }
+
+    /**
+     * @return true if the conversion of the content was not delegated to a worker or is finished
+     */
+    public boolean isConversionDone()
+    {
+        return this.conversion == null || this.conversion.isDone();
+    }
+
+    /**
+     * Wait until the content of the revision is converted (if the conversion was delegated to a worker).
+     *
+     * @return true if the conversion was delegated to a worker
+     * @throws FilterException when interrupted while waiting for the conversion
+     */
+    public boolean waitForConversion() throws FilterException
+    {
+        if (this.conversion != null) {
+            try {
+                this.conversion.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw new FilterException("Interrupted while waiting for the conversion of page with title ["
+                    + this.page.getTitle() + "] and version [" + this.version + "]", e);
+            } catch (ExecutionException e) {
+                throw new FilterException("Failed to convert page with title [" + this.page.getTitle()
+                    + "] and version [" + this.version + "]", e.getCause());
+            } finally {
+                this.conversion = null;
+            }
+
+            return true;
+        }
+
+        return false;
+    }
+}
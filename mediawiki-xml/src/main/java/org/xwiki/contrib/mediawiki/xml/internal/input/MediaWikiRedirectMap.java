@@ -0,0 +1,247 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.xwiki.xml.stax.StAXUtils;
+
+/**
+ * The target of each redirect page of a dump, collected by a first scan of the dump, so that a redirect can point
+ * directly to the end of a chain of redirects.
+ * <p>
+ * Only the redirect pages are kept in memory, identified by a key computed from their title (so that the different
+ * ways of writing the same title are associated with the same page).
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public class MediaWikiRedirectMap
+{
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    private static final Pattern REDIRECT =
+        Pattern.compile("^\\s*#REDIRECT\\s*:?\\s*\\[\\[\\s*:?([^\\]|#]+)", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * The redirect is always at the beginning of the content.
+     */
+    private static final int TEXT_PREFIX_LENGTH = 512;
+
+    private static final String TAG_PAGE = "page";
+
+    private static final String TAG_TITLE = "title";
+
+    private static final String TAG_REDIRECT = "redirect";
+
+    private static final String TAG_REVISION = "revision";
+
+    private static final String TAG_TEXT = "text";
+
+    private final UnaryOperator<String> keyResolver;
+
+    private final Map<String, String> targets = new HashMap<>();
+
+    private int cycles;
+
+    /**
+     * @param keyResolver compute the key identifying the page with the passed title
+     */
+    public MediaWikiRedirectMap(UnaryOperator<String> keyResolver)
+    {
+        this.keyResolver = keyResolver;
+    }
+
+    /**
+     * Collect the redirects of a dump and find the final target of each of them.
+     *
+     * @param dump the uncompressed XML
+     * @throws XMLStreamException when failing to parse the dump
+     */
+    public void scan(InputStream dump) throws XMLStreamException
+    {
+        XMLStreamReader xmlReader = XML_INPUT_FACTORY.createXMLStreamReader(dump);
+
+        try {
+            while (xmlReader.hasNext()) {
+                if (xmlReader.next() == XMLStreamConstants.START_ELEMENT
+                    && xmlReader.getLocalName().equals(TAG_PAGE)) {
+                    scanPage(xmlReader);
+                }
+            }
+        } finally {
+            xmlReader.close();
+        }
+
+        collapse();
+    }
+
+    private void scanPage(XMLStreamReader xmlReader) throws XMLStreamException
+    {
+        String title = null;
+        String redirectTitle = null;
+        String target = null;
+
+        for (xmlReader.nextTag(); xmlReader.isStartElement(); xmlReader.nextTag()) {
+            String elementName = xmlReader.getLocalName();
+
+            if (elementName.equals(TAG_TITLE)) {
+                title = xmlReader.getElementText();
+            } else if (elementName.equals(TAG_REDIRECT)) {
+                // Exported by recent versions of MediaWiki
+                redirectTitle = xmlReader.getAttributeValue(null, TAG_TITLE);
+                StAXUtils.skipElement(xmlReader);
+            } else if (elementName.equals(TAG_REVISION)) {
+                // Only the last revision matters
+                target = scanRevision(xmlReader);
+            } else {
+                StAXUtils.skipElement(xmlReader);
+            }
+        }
+
+        if (redirectTitle != null) {
+            target = redirectTitle;
+        }
+
+        if (title != null && target != null) {
+            this.targets.put(this.keyResolver.apply(title), target);
+        }
+    }
+
+    private String scanRevision(XMLStreamReader xmlReader) throws XMLStreamException
+    {
+        String target = null;
+
+        for (xmlReader.nextTag(); xmlReader.isStartElement(); xmlReader.nextTag()) {
+            if (xmlReader.getLocalName().equals(TAG_TEXT)) {
+                Matcher matcher = REDIRECT.matcher(readTextPrefix(xmlReader));
+                if (matcher.find()) {
+                    target = matcher.group(1).trim();
+                }
+            } else {
+                StAXUtils.skipElement(xmlReader);
+            }
+        }
+
+        return target;
+    }
+
+    private String readTextPrefix(XMLStreamReader xmlReader) throws XMLStreamException
+    {
+        StringBuilder prefix = new StringBuilder();
+
+        // Don't create a String for the whole content
+        for (int event = xmlReader.next(); event != XMLStreamConstants.END_ELEMENT; event = xmlReader.next()) {
+            if (xmlReader.isCharacters() && prefix.length() < TEXT_PREFIX_LENGTH) {
+                prefix.append(xmlReader.getTextCharacters(), xmlReader.getTextStart(),
+                    Math.min(xmlReader.getTextLength(), TEXT_PREFIX_LENGTH - prefix.length()));
+            }
+        }
+
+        return prefix.toString();
+    }
+
+    /**
+     * Replace the target of each redirect by the end of the chain of redirects. When a chain loops, it stops just
+     * before coming back to a page already in the chain.
+     */
+    private void collapse()
+    {
+        Map<String, String> finalTargets = new HashMap<>(this.targets.size() * 4 / 3 + 1);
+        Set<String> visited = new HashSet<>();
+
+        for (Map.Entry<String, String> entry : this.targets.entrySet()) {
+            visited.clear();
+            visited.add(entry.getKey());
+
+            String target = entry.getValue();
+            for (String key = this.keyResolver.apply(target); this.targets.containsKey(key);
+                key = this.keyResolver.apply(target)) {
+                String nextTarget = this.targets.get(key);
+
+                if (!visited.add(key) || visited.contains(this.keyResolver.apply(nextTarget))) {
+                    ++this.cycles;
+                    break;
+                }
+
+                target = nextTarget;
+            }
+
+            finalTargets.put(entry.getKey(), target);
+        }
+
+        this.targets.clear();
+        this.targets.putAll(finalTargets);
+    }
+
+    /**
+     * @param key the key of a page
+     * @return the final target of the page if it's a redirect, null otherwise
+     */
+    public String getTargetByKey(String key)
+    {
+        return this.targets.get(key);
+    }
+
+    /**
+     * @param title the title of a redirect page
+     * @param targetTitle the target of the redirect
+     * @return the final target of the redirect, or the passed target if it's not a redirect or if going further would
+     *         lead back to the redirect page
+     */
+    public String getFinalTarget(String title, String targetTitle)
+    {
+        String finalTarget = this.targets.get(this.keyResolver.apply(targetTitle));
+
+        if (finalTarget == null || this.keyResolver.apply(finalTarget).equals(this.keyResolver.apply(title))) {
+            return targetTitle;
+        }
+
+        return finalTarget;
+    }
+
+    /**
+     * @return the number of redirects
+     */
+    public int size()
+    {
+        return this.targets.size();
+    }
+
+    /**
+     * @return the number of redirects which are part of a cycle or lead to one
+     */
+    public int getCycles()
+    {
+        return this.cycles;
+    }
+}
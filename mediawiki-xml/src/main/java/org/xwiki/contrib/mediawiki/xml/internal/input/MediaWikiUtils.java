@@ -20,15 +20,22 @@
 package org.xwiki.contrib.mediawiki.xml.internal.input;
 
 import java.awt.Dimension;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
 import java.util.Iterator;
 
 import javax.imageio.ImageIO;
 import javax.imageio.ImageReader;
 import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.stream.ImageInputStream;
 
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xwiki.filter.FilterException;
@@ -43,6 +50,8 @@ public final class MediaWikiUtils
 {
     protected static final Logger LOGGER = LoggerFactory.getLogger(MediaWikiUtils.class);
 
+    private static final int MAGIC_LENGTH = 3;
+
     private MediaWikiUtils()
     {
         // Utility class
@@ -57,6 +66,16 @@ public final class MediaWikiUtils
      */
     public static Dimension getImageDimension(File file) throws FilterException
     {
+        // Try to find the dimension in the header of the most common formats first
+        try {
+            Dimension dimension = ImageHeaderReader.read(file);
+            if (dimension != null) {
+                return dimension;
+            }
+        } catch (IOException e) {
+            throw new FilterException("Failed to read image file [" + file.getAbsolutePath() + "]", e);
+        }
+
         String extension = FilenameUtils.getExtension(file.getName());
 
         if (extension == null) {
@@ -67,8 +86,8 @@ public final class MediaWikiUtils
         while (it.hasNext()) {
             ImageReader imageReader = it.next();
 
-            try {
-                imageReader.setInput(new FileImageInputStream(file));
+            try (ImageInputStream stream = new FileImageInputStream(file)) {
+                imageReader.setInput(stream);
 
                 int width = imageReader.getWidth(imageReader.getMinIndex());
                 int height = imageReader.getHeight(imageReader.getMinIndex());
@@ -83,4 +102,84 @@ public final class MediaWikiUtils
 
         throw new FilterException("Unsupported image file [" + file.getAbsolutePath() + "]");
     }
+
+    /**
+     * Extract the dimension of an image stored in an archive.
+     *
+     * @param file the image file
+     * @param archive the archive containing the image file
+     * @return dimensions the dimensions of the image
+     * @throws FilterException when failing to get the image dimension
+     * @since 2.1.2
+     */
+    public static Dimension getImageDimension(MediaFilesArchive.ArchivedFile file, MediaFilesArchive archive)
+        throws FilterException
+    {
+        try {
+            try (InputStream stream = archive.openStream(file)) {
+                Dimension dimension = ImageHeaderReader.read(stream, file.getPath());
+                if (dimension != null) {
+                    return dimension;
+                }
+            }
+
+            // Archive entries cannot be read randomly, let ImageIO cache what it needs
+            try (InputStream stream = archive.openStream(file);
+                ImageInputStream imageStream = ImageIO.createImageInputStream(stream)) {
+                Iterator<ImageReader> it =
+                    imageStream != null ? ImageIO.getImageReaders(imageStream) : Collections.emptyIterator();
+                if (it.hasNext()) {
+                    ImageReader imageReader = it.next();
+
+                    try {
+                        imageReader.setInput(imageStream);
+
+                        return new Dimension(imageReader.getWidth(imageReader.getMinIndex()),
+                            imageReader.getHeight(imageReader.getMinIndex()));
+                    } finally {
+                        imageReader.dispose();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new FilterException("Failed to read image file [" + file.getPath() + "] in archive ["
+                + archive.getArchive().getAbsolutePath() + "]", e);
+        }
+
+        throw new FilterException("Unsupported image file [" + file.getPath() + "] in archive ["
+            + archive.getArchive().getAbsolutePath() + "]");
+    }
+
+    /**
+     * Detect if the passed stream is compressed (bzip2 or gzip) and return a stream providing the uncompressed data.
+     * 
+     * @param stream the stream to decompress
+     * @param bzip2Workers the number of threads to use to decompress a bzip2 multistream file, 1 or less to
+     *            decompress it in the calling thread
+     * @return the uncompressed stream
+     * @throws IOException when failing to read the stream
+     * @since 2.1.2
+     */
+    public static InputStream decompress(InputStream stream, int bzip2Workers) throws IOException
+    {
+        InputStream bufferedStream = stream.markSupported() ? stream : new BufferedInputStream(stream);
+
+        // Read the magic number
+        byte[] magic = new byte[MAGIC_LENGTH];
+        bufferedStream.mark(MAGIC_LENGTH);
+        int length = IOUtils.read(bufferedStream, magic);
+        bufferedStream.reset();
+
+        if (length == MAGIC_LENGTH && magic[0] == 'B' && magic[1] == 'Z' && magic[2] == 'h') {
+            if (bzip2Workers > 1) {
+                return new ParallelBZip2InputStream(bufferedStream, bzip2Workers);
+            }
+
+            return new BZip2CompressorInputStream(bufferedStream, true);
+        } else if (length >= 2 && (magic[0] & 0xFF) == 0x1f && (magic[1] & 0xFF) == 0x8b) {
+            return new GzipCompressorInputStream(bufferedStream, true);
+        }
+
+        return bufferedStream;
+    }
 }
@@ -0,0 +1,122 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The offsets of the bzip2 streams listed in a Wikimedia multistream dump index
+ * ({@code pages-articles-multistream-index.txt.bz2}).
+ * <p>
+ * Each line of the index has the form {@code offset:pageid:title} where the offset is the position in the compressed
+ * dump of the bzip2 stream containing the page. Several pages (usually 100) share the same stream.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public class MultistreamIndex
+{
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private long[] offsets = new long[DEFAULT_CAPACITY];
+
+    private int size;
+
+    /**
+     * @param stream the (uncompressed) index content
+     * @return the index
+     * @throws IOException when failing to read the index
+     */
+    public static MultistreamIndex read(InputStream stream) throws IOException
+    {
+        MultistreamIndex index = new MultistreamIndex();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            int separator = line.indexOf(':');
+
+            if (separator > 0) {
+                try {
+                    index.add(Long.parseLong(line.substring(0, separator)));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid multistream index line [" + line + "]", e);
+                }
+            }
+        }
+
+        return index;
+    }
+
+    private void add(long offset)
+    {
+        // Pages of the same stream are consecutive
+        if (this.size > 0 && this.offsets[this.size - 1] == offset) {
+            return;
+        }
+
+        if (this.size == this.offsets.length) {
+            this.offsets = Arrays.copyOf(this.offsets, this.size * 2);
+        }
+
+        this.offsets[this.size++] = offset;
+    }
+
+    /**
+     * @return the number of streams containing pages
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * @param stream the index of the stream
+     * @return the offset of the stream in the compressed dump
+     */
+    public long getOffset(int stream)
+    {
+        return this.offsets[stream];
+    }
+
+    /**
+     * @param shard the index of the shard
+     * @param shardCount the total number of shards
+     * @return the index of the first stream of the shard
+     */
+    public int getShardStart(int shard, int shardCount)
+    {
+        return (int) ((long) this.size * shard / shardCount);
+    }
+
+    /**
+     * @param shard the index of the shard
+     * @param shardCount the total number of shards
+     * @return the index of the stream following the last stream of the shard
+     */
+    public int getShardEnd(int shard, int shardCount)
+    {
+        return getShardStart(shard + 1, shardCount);
+    }
+}
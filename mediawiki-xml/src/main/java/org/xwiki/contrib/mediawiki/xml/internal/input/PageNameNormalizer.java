@@ -0,0 +1,255 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.xwiki.contrib.mediawiki.xml.input.MediaWikiInputProperties;
+
+/**
+ * Normalize and clean page names according to the MediaWiki rules and the import configuration in a single pass over
+ * the characters, without any regular expression and without allocating anything when the page name is already
+ * normalized.
+ * <p>
+ * The result is the same as:
+ * <ol>
+ * <li>replacing white spaces with underscores and several underscores with a single one</li>
+ * <li>capitalizing the first letter (depending on the namespace)</li>
+ * <li>replacing the MediaWiki main page name with the XWiki default document name</li>
+ * <li>removing the forbidden characters</li>
+ * </ol>
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public class PageNameNormalizer
+{
+    private static final int ASCII_SIZE = 128;
+
+    private static final String REGEX_SPECIAL_CHARACTERS = ".$|()[{^?*+\\";
+
+    private final boolean[] forbiddenASCII = new boolean[ASCII_SIZE];
+
+    private final String forbiddenOthers;
+
+    private final boolean forbidden;
+
+    private final String mainPageName;
+
+    private final String defaultPageName;
+
+    private final char separator;
+
+    private final Pattern separatorPattern;
+
+    /**
+     * @param properties the import configuration
+     * @param mainPageName the name of the main page of the MediaWiki instance, null if it should not be replaced
+     * @param defaultPageName the name of the XWiki default document
+     */
+    public PageNameNormalizer(MediaWikiInputProperties properties, String mainPageName, String defaultPageName)
+    {
+        StringBuilder others = new StringBuilder();
+        String forbiddenCharacters = properties.getForbiddenCharacters();
+        if (forbiddenCharacters != null) {
+            for (int i = 0; i < forbiddenCharacters.length(); ++i) {
+                char c = forbiddenCharacters.charAt(i);
+
+                if (c < ASCII_SIZE) {
+                    this.forbiddenASCII[c] = true;
+                } else {
+                    others.append(c);
+                }
+            }
+        }
+        this.forbiddenOthers = others.toString();
+        this.forbidden = StringUtils.isNotEmpty(forbiddenCharacters);
+
+        this.mainPageName = mainPageName;
+        this.defaultPageName = defaultPageName;
+
+        String spaceSeparator = properties.getSpaceSeparator();
+        if (StringUtils.isEmpty(spaceSeparator)) {
+            this.separator = 0;
+            this.separatorPattern = null;
+        } else if (spaceSeparator.length() == 1 && REGEX_SPECIAL_CHARACTERS.indexOf(spaceSeparator.charAt(0)) < 0) {
+            this.separator = spaceSeparator.charAt(0);
+            this.separatorPattern = null;
+        } else {
+            // The separator has always been a regular expression
+            this.separator = 0;
+            this.separatorPattern = Pattern.compile(spaceSeparator);
+        }
+    }
+
+    /**
+     * @return true if some characters should be removed from the page names
+     */
+    public boolean hasForbiddenCharacters()
+    {
+        return this.forbidden;
+    }
+
+    /**
+     * @param c the character
+     * @return true if the character should be removed from the page names
+     */
+    public boolean isForbidden(char c)
+    {
+        return c < ASCII_SIZE ? this.forbiddenASCII[c] : this.forbiddenOthers.indexOf(c) >= 0;
+    }
+
+    /**
+     * @param pageName the MediaWiki page name (without namespace)
+     * @param capitalize true if the first letter should be capitalized
+     * @param clean true if the forbidden characters should be removed
+     * @return the normalized page name (the same instance if nothing changed)
+     */
+    public String normalize(String pageName, boolean capitalize, boolean clean)
+    {
+        String source = pageName;
+        boolean capitalizeFirst = capitalize;
+
+        if (capitalize && !source.isEmpty()) {
+            int codePoint = source.codePointAt(0);
+            int titleCodePoint = Character.toTitleCase(codePoint);
+
+            if (codePoint != titleCodePoint
+                && (Character.charCount(codePoint) > 1 || Character.charCount(titleCodePoint) > 1)) {
+                // Rare case of a letter outside the BMP
+                source = new StringBuilder(source.length() + 1).appendCodePoint(titleCodePoint)
+                    .append(source, Character.charCount(codePoint), source.length()).toString();
+                capitalizeFirst = false;
+            }
+        }
+
+        int length = source.length();
+        boolean removeForbidden = clean && this.forbidden;
+
+        // Only allocated when the result is different from the source
+        char[] buffer = null;
+        int size = 0;
+
+        boolean previousUnderscore = false;
+        int mainPageIndex = this.mainPageName != null ? 0 : -1;
+
+        for (int i = 0; i < length; ++i) {
+            char c = source.charAt(i);
+
+            // MediaWiki automatically replace white space with underscore in pages or files
+            if (c == ' ') {
+                c = '_';
+            }
+
+            // ... and also reduces several underscores into a single one
+            boolean keep = c != '_' || !previousUnderscore;
+            previousUnderscore = c == '_';
+
+            if (keep) {
+                // MediaWiki automatically capitalize references to pages or files by default
+                if (i == 0 && capitalizeFirst) {
+                    c = Character.toTitleCase(c);
+                }
+
+                // Compare with the main page name before removing the forbidden characters
+                if (mainPageIndex >= 0) {
+                    mainPageIndex = mainPageIndex < this.mainPageName.length()
+                        && this.mainPageName.charAt(mainPageIndex) == c ? mainPageIndex + 1 : -1;
+                }
+
+                keep = !removeForbidden || !isForbidden(c);
+            }
+
+            if (buffer == null) {
+                if (keep && c == source.charAt(i)) {
+                    // Still identical to the source
+                    ++size;
+
+                    continue;
+                }
+
+                buffer = new char[length];
+                source.getChars(0, size, buffer, 0);
+            }
+
+            if (keep) {
+                buffer[size++] = c;
+            }
+        }
+
+        if (mainPageIndex >= 0 && mainPageIndex == this.mainPageName.length()) {
+            return this.defaultPageName;
+        }
+
+        if (buffer == null) {
+            return source;
+        }
+
+        return new String(buffer, 0, size);
+    }
+
+    /**
+     * Split the page name according to the configured space separator.
+     *
+     * @param pageName the page name
+     * @return the elements (the same as {@link String#split(String)}) or null if there is less than two elements
+     */
+    public String[] split(String pageName)
+    {
+        String[] elements;
+
+        if (this.separatorPattern != null) {
+            elements = this.separatorPattern.split(pageName);
+        } else if (this.separator != 0) {
+            elements = split(pageName, this.separator);
+        } else {
+            elements = null;
+        }
+
+        return elements != null && elements.length > 1 ? elements : null;
+    }
+
+    private static String[] split(String pageName, char separator)
+    {
+        int index = pageName.indexOf(separator);
+        if (index < 0) {
+            return null;
+        }
+
+        List<String> elements = new ArrayList<>();
+        int start = 0;
+        for (; index >= 0; index = pageName.indexOf(separator, start)) {
+            elements.add(pageName.substring(start, index));
+            start = index + 1;
+        }
+        elements.add(pageName.substring(start));
+
+        // Remove the trailing empty elements, like String#split
+        int size = elements.size();
+        while (size > 0 && elements.get(size - 1).isEmpty()) {
+            --size;
+        }
+
+        return elements.subList(0, size).toArray(new String[size]);
+    }
+}
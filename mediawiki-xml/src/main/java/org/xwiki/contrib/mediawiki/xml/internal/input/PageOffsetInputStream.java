@@ -0,0 +1,164 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Remember the offset of the end of each {@code </page>} tag going through the stream.
+ * <p>
+ * The XML reader reads ahead so the number of bytes read from the stream cannot be used to know where the reader is.
+ * But since a {@code <} in a text is always escaped, the n-th {@code </page>} sequence of bytes is always the end of
+ * the n-th page read by the XML reader.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public class PageOffsetInputStream extends FilterInputStream
+{
+    private static final byte[] PAGE_END = "</page>".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private long offset;
+
+    private int matched;
+
+    private long[] pageEnds = new long[DEFAULT_CAPACITY];
+
+    private int pageEndsStart;
+
+    private int pageEndsSize;
+
+    /**
+     * @param in the stream to track
+     * @param offset the offset of the first byte of the stream
+     */
+    public PageOffsetInputStream(InputStream in, long offset)
+    {
+        super(in);
+
+        this.offset = offset;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        int b = super.read();
+
+        if (b >= 0) {
+            track((byte) b);
+        }
+
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        int read = super.read(b, off, len);
+
+        for (int i = off; i < off + read; ++i) {
+            track(b[i]);
+        }
+
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException
+    {
+        if (n <= 0) {
+            return 0;
+        }
+
+        // Make sure all bytes are tracked
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read < 0) {
+                break;
+            }
+            skipped += read;
+        }
+
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+        return false;
+    }
+
+    private void track(byte b)
+    {
+        ++this.offset;
+
+        if (b == PAGE_END[this.matched]) {
+            ++this.matched;
+
+            if (this.matched == PAGE_END.length) {
+                addPageEnd(this.offset);
+                this.matched = 0;
+            }
+        } else {
+            this.matched = b == PAGE_END[0] ? 1 : 0;
+        }
+    }
+
+    private void addPageEnd(long pageEnd)
+    {
+        if (this.pageEndsSize == this.pageEnds.length) {
+            long[] newPageEnds = Arrays.copyOf(this.pageEnds, this.pageEnds.length * 2);
+            if (this.pageEndsStart > 0) {
+                // Unwrap the ring
+                System.arraycopy(this.pageEnds, 0, newPageEnds, this.pageEnds.length, this.pageEndsStart);
+            }
+            this.pageEnds = newPageEnds;
+        }
+
+        this.pageEnds[(this.pageEndsStart + this.pageEndsSize) % this.pageEnds.length] = pageEnd;
+        ++this.pageEndsSize;
+    }
+
+    /**
+     * @return the offset just after the next {@code </page>} not yet consumed, -1 if none is known
+     */
+    public long pollPageEnd()
+    {
+        if (this.pageEndsSize == 0) {
+            return -1;
+        }
+
+        long pageEnd = this.pageEnds[this.pageEndsStart];
+
+        this.pageEndsStart = (this.pageEndsStart + 1) % this.pageEnds.length;
+        --this.pageEndsSize;
+
+        return pageEnd;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Only expose some ranges of bytes of the dump, followed by a footer. The bytes between the ranges are skipped without
+ * being copied anywhere.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public class PageSelectionInputStream extends InputStream
+{
+    /**
+     * Two ranges separated by less than this number of bytes (generally the indentation between two pages) are
+     * merged.
+     */
+    private static final int MERGE_GAP = 64;
+
+    private final InputStream in;
+
+    private final byte[] footer;
+
+    private long[] ranges = new long[16];
+
+    private int rangesSize;
+
+    private int currentRange;
+
+    private long offset;
+
+    private int footerPosition;
+
+    /**
+     * @param in the dump
+     * @param footer the bytes to return after the last range
+     */
+    public PageSelectionInputStream(InputStream in, byte[] footer)
+    {
+        this.in = in;
+        this.footer = footer;
+    }
+
+    /**
+     * Add a range of bytes to expose. The ranges must be added in order.
+     *
+     * @param start the offset of the first byte of the range
+     * @param end the offset just after the last byte of the range
+     */
+    public void addRange(long start, long end)
+    {
+        if (this.rangesSize > 0 && start - this.ranges[this.rangesSize - 1] <= MERGE_GAP) {
+            this.ranges[this.rangesSize - 1] = end;
+        } else {
+            if (this.rangesSize == this.ranges.length) {
+                this.ranges = Arrays.copyOf(this.ranges, this.ranges.length * 2);
+            }
+
+            this.ranges[this.rangesSize++] = start;
+            this.ranges[this.rangesSize++] = end;
+        }
+    }
+
+    /**
+     * @return the number of distinct ranges of bytes
+     */
+    public int getRangeCount()
+    {
+        return this.rangesSize / 2;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        byte[] b = new byte[1];
+
+        return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if (len == 0) {
+            return 0;
+        }
+
+        // Move to the next range if the current one is finished
+        while (this.currentRange < this.rangesSize && this.offset >= this.ranges[this.currentRange + 1]) {
+            this.currentRange += 2;
+        }
+
+        if (this.currentRange >= this.rangesSize) {
+            return readFooter(b, off, len);
+        }
+
+        // Skip the bytes before the range
+        long rangeStart = this.ranges[this.currentRange];
+        if (this.offset < rangeStart) {
+            IOUtils.skipFully(this.in, rangeStart - this.offset);
+            this.offset = rangeStart;
+        }
+
+        int read = this.in.read(b, off, (int) Math.min(len, this.ranges[this.currentRange + 1] - this.offset));
+        if (read < 0) {
+            // The dump is truncated
+            this.currentRange = this.rangesSize;
+
+            return readFooter(b, off, len);
+        }
+
+        this.offset += read;
+
+        return read;
+    }
+
+    private int readFooter(byte[] b, int off, int len)
+    {
+        if (this.footerPosition == this.footer.length) {
+            return -1;
+        }
+
+        int read = Math.min(len, this.footer.length - this.footerPosition);
+        System.arraycopy(this.footer, this.footerPosition, b, off, read);
+        this.footerPosition += read;
+
+        return read;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        this.in.close();
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.xwiki.contrib.mediawiki.MediaWikiNamespace;
+import org.xwiki.contrib.mediawiki.MediaWikiNamespaces;
+import org.xwiki.contrib.mediawiki.xml.input.MediaWikiInputProperties;
+import org.xwiki.filter.FilterException;
+
+/**
+ * Decide which pages should be imported according to the namespace and title filters of the
+ * {@link MediaWikiInputProperties}.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public class PageSelector
+{
+    private static final int MAIN_NAMESPACE = 0;
+
+    private final MediaWikiNamespaces namespaces;
+
+    private final Set<Integer> includedNamespaces;
+
+    private final Set<Integer> excludedNamespaces;
+
+    private final Set<String> includedTitles;
+
+    private final Pattern includedTitlePattern;
+
+    private final Pattern excludedTitlePattern;
+
+    /**
+     * @param properties the properties containing the filters
+     * @param namespaces the namespaces of the wiki
+     * @throws FilterException when a filter is invalid
+     */
+    public PageSelector(MediaWikiInputProperties properties, MediaWikiNamespaces namespaces) throws FilterException
+    {
+        this.namespaces = namespaces;
+
+        this.includedNamespaces = toNamespaceKeys(properties.getIncludedNamespaces());
+        this.excludedNamespaces = toNamespaceKeys(properties.getExcludedNamespaces());
+
+        if (isNotEmpty(properties.getIncludedTitles())) {
+            this.includedTitles = new HashSet<>(properties.getIncludedTitles().size());
+            for (String title : properties.getIncludedTitles()) {
+                this.includedTitles.add(normalizeTitle(title));
+            }
+        } else {
+            this.includedTitles = null;
+        }
+
+        this.includedTitlePattern = StringUtils.isNotEmpty(properties.getIncludedTitlePattern())
+            ? Pattern.compile(properties.getIncludedTitlePattern()) : null;
+        this.excludedTitlePattern = StringUtils.isNotEmpty(properties.getExcludedTitlePattern())
+            ? Pattern.compile(properties.getExcludedTitlePattern()) : null;
+    }
+
+    private Set<Integer> toNamespaceKeys(Collection<String> values) throws FilterException
+    {
+        if (!isNotEmpty(values)) {
+            return null;
+        }
+
+        Set<Integer> keys = new HashSet<>(values.size());
+        for (String value : values) {
+            String trimmedValue = value.trim();
+
+            if (trimmedValue.matches("-?\\d+")) {
+                keys.add(Integer.valueOf(trimmedValue));
+            } else {
+                MediaWikiNamespace namespace = this.namespaces.getNamespace(trimmedValue);
+
+                if (namespace == null || namespace.getKey() == null) {
+                    throw new FilterException("Unknown namespace [" + value + "]");
+                }
+
+                keys.add(namespace.getKey());
+            }
+        }
+
+        return keys;
+    }
+
+    /**
+     * @param properties the properties of the import
+     * @return true if some pages might not be selected
+     */
+    public static boolean hasFilters(MediaWikiInputProperties properties)
+    {
+        return isNotEmpty(properties.getIncludedNamespaces()) || isNotEmpty(properties.getExcludedNamespaces())
+            || isNotEmpty(properties.getIncludedTitles())
+            || StringUtils.isNotEmpty(properties.getIncludedTitlePattern())
+            || StringUtils.isNotEmpty(properties.getExcludedTitlePattern());
+    }
+
+    private static boolean isNotEmpty(Collection<?> collection)
+    {
+        return collection != null && !collection.isEmpty();
+    }
+
+    private static String normalizeTitle(String title)
+    {
+        return title.trim().replace('_', ' ');
+    }
+
+    /**
+     * @return true if some pages might not be selected
+     */
+    public boolean isEnabled()
+    {
+        return this.includedNamespaces != null || this.excludedNamespaces != null || this.includedTitles != null
+            || this.includedTitlePattern != null || this.excludedTitlePattern != null;
+    }
+
+    /**
+     * @param title the title of the page
+     * @return the key of the namespace of the page, deduced from its title
+     */
+    public int getNamespace(String title)
+    {
+        int index = title.indexOf(':');
+        if (index > 0) {
+            MediaWikiNamespace namespace = this.namespaces.getNamespace(title, 0, index);
+
+            if (namespace != null && namespace.getKey() != null) {
+                return namespace.getKey();
+            }
+        }
+
+        return MAIN_NAMESPACE;
+    }
+
+    /**
+     * @param title the title of the page
+     * @param namespace the key of the namespace of the page
+     * @return true if the page should be imported
+     */
+    public boolean isSelected(String title, int namespace)
+    {
+        if (this.includedNamespaces != null && !this.includedNamespaces.contains(namespace)) {
+            return false;
+        }
+        if (this.excludedNamespaces != null && this.excludedNamespaces.contains(namespace)) {
+            return false;
+        }
+
+        if (this.includedTitles != null && !this.includedTitles.contains(normalizeTitle(title))) {
+            return false;
+        }
+        if (this.includedTitlePattern != null && !this.includedTitlePattern.matcher(title).matches()) {
+            return false;
+        }
+
+        return this.excludedTitlePattern == null || !this.excludedTitlePattern.matcher(title).matches();
+    }
+}
@@ -0,0 +1,442 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+
+/**
+ * Decompress a bzip2 multistream file (like the Wikimedia {@code pages-articles-multistream} dumps) using several
+ * threads.
+ * <p>
+ * The raw stream is cut at the beginning of the bzip2 streams it contains (which are byte aligned, unlike the blocks
+ * inside a stream) and each chunk is decompressed by a worker while the previous ones are consumed. If no stream
+ * boundary can be found in a reasonable amount of data (the file is made of a single big stream) the rest of the file
+ * is decompressed sequentially.
+ * <p>
+ * The decompressed chunks waiting to be consumed are bounded both in number (twice the number of workers) and in size:
+ * no new chunk is sent to the workers while the decompressed size of the pending chunks (estimated from the
+ * compression ratio observed so far for the chunks not yet decompressed) would exceed the maximum pending size.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public class ParallelBZip2InputStream extends InputStream
+{
+    /**
+     * The bzip2 stream header ("BZh" followed by the block size) and the first block magic number. The block size is a
+     * digit between 1 and 9 and is ignored when matching.
+     */
+    private static final byte[] STREAM_SIGNATURE = {'B', 'Z', 'h', '9', 0x31, 0x41, 0x59, 0x26, 0x53, 0x59};
+
+    private static final int STREAM_SIGNATURE_LEVEL = 3;
+
+    private static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private static final int DEFAULT_MAX_CHUNK_SIZE = 16 * 1024 * 1024;
+
+    private static final long DEFAULT_MAX_PENDING_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * The compression ratio assumed before the first chunk is decompressed (the XML dumps are usually compressed by a
+     * factor between 4 and 6).
+     */
+    private static final double DEFAULT_COMPRESSION_RATIO = 5;
+
+    private static final int READ_SIZE = 64 * 1024;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final InputStream raw;
+
+    private final ExecutorService executor;
+
+    private final int maxPendingChunks;
+
+    private final int chunkSize;
+
+    private final int maxChunkSize;
+
+    private final long maxPendingSize;
+
+    private final Deque<PendingChunk> pendingChunks = new ArrayDeque<>();
+
+    private long decompressedCompressedSize;
+
+    private long decompressedSize;
+
+    private int chunkCount;
+
+    private byte[] buffer;
+
+    private int bufferLength;
+
+    private boolean rawEnd;
+
+    private boolean sequential;
+
+    private InputStream sequentialStream;
+
+    private byte[] current = EMPTY;
+
+    private int currentPosition;
+
+    /**
+     * @param raw the compressed stream
+     * @param workers the number of threads to use to decompress the streams
+     */
+    public ParallelBZip2InputStream(InputStream raw, int workers)
+    {
+        this(raw, workers, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_CHUNK_SIZE, DEFAULT_MAX_PENDING_SIZE);
+    }
+
+    /**
+     * @param raw the compressed stream
+     * @param workers the number of threads to use to decompress the streams
+     * @param chunkSize the minimum size of the compressed chunks sent to the workers
+     * @param maxChunkSize the size of compressed data after which the stream is decompressed sequentially if no
+     *            stream boundary was found
+     * @param maxPendingSize the maximum size of the decompressed data waiting to be consumed (a single chunk is always
+     *            accepted, whatever its size)
+     */
+    public ParallelBZip2InputStream(InputStream raw, int workers, int chunkSize, int maxChunkSize,
+        long maxPendingSize)
+    {
+        this.raw = raw;
+        this.chunkSize = chunkSize;
+        this.maxChunkSize = Math.max(chunkSize, maxChunkSize);
+        this.maxPendingSize = maxPendingSize;
+        this.maxPendingChunks = workers * 2;
+        this.buffer = new byte[chunkSize + READ_SIZE];
+
+        this.executor = Executors.newFixedThreadPool(workers,
+            new BasicThreadFactory.Builder().namingPattern("MediaWiki bzip2 decoder %d").daemon(true).build());
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        if (ensureAvailable()) {
+            return this.current[this.currentPosition++] & 0xFF;
+        }
+
+        return this.sequentialStream != null ? this.sequentialStream.read() : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if (len == 0) {
+            return 0;
+        }
+
+        if (ensureAvailable()) {
+            int size = Math.min(len, this.current.length - this.currentPosition);
+            System.arraycopy(this.current, this.currentPosition, b, off, size);
+            this.currentPosition += size;
+
+            return size;
+        }
+
+        return this.sequentialStream != null ? this.sequentialStream.read(b, off, len) : -1;
+    }
+
+    @Override
+    public int available() throws IOException
+    {
+        if (this.currentPosition < this.current.length) {
+            return this.current.length - this.currentPosition;
+        }
+
+        return this.sequentialStream != null ? this.sequentialStream.available() : 0;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        for (PendingChunk chunk : this.pendingChunks) {
+            chunk.future.cancel(true);
+        }
+        this.pendingChunks.clear();
+
+        this.executor.shutdownNow();
+
+        this.current = EMPTY;
+        this.buffer = EMPTY;
+
+        if (this.sequentialStream != null) {
+            this.sequentialStream.close();
+        } else {
+            this.raw.close();
+        }
+    }
+
+    /**
+     * @return true if there is some decompressed bytes available in {@link #current}
+     */
+    private boolean ensureAvailable() throws IOException
+    {
+        while (this.currentPosition >= this.current.length) {
+            if (this.sequentialStream != null) {
+                return false;
+            }
+
+            // Make sure the workers are busy
+            fillPendingChunks();
+
+            PendingChunk next = this.pendingChunks.poll();
+
+            if (next == null) {
+                if (this.sequential) {
+                    // Decompress what's left in the calling thread
+                    this.sequentialStream = new BZip2CompressorInputStream(
+                        new SequenceInputStream(new ByteArrayInputStream(this.buffer, 0, this.bufferLength), this.raw),
+                        true);
+                }
+
+                return false;
+            }
+
+            this.current = getChunk(next.future);
+            this.currentPosition = 0;
+
+            this.decompressedCompressedSize += next.compressedSize;
+            this.decompressedSize += this.current.length;
+        }
+
+        return true;
+    }
+
+    private void fillPendingChunks() throws IOException
+    {
+        while (!this.sequential && this.pendingChunks.size() < this.maxPendingChunks && canAcceptChunk()) {
+            byte[] chunk = readChunk();
+
+            if (chunk == null) {
+                break;
+            }
+
+            this.pendingChunks.add(new PendingChunk(this.executor.submit(() -> decompress(chunk)), chunk.length));
+            ++this.chunkCount;
+        }
+    }
+
+    /**
+     * @return true if the decompressed size of a new chunk would fit in the maximum pending size
+     */
+    private boolean canAcceptChunk()
+    {
+        if (this.pendingChunks.isEmpty()) {
+            // Always make progress
+            return true;
+        }
+
+        double ratio = getCompressionRatio();
+
+        long pendingSize = this.current.length - this.currentPosition;
+        for (PendingChunk chunk : this.pendingChunks) {
+            pendingSize += chunk.getSize(ratio);
+        }
+
+        return pendingSize + (long) (this.chunkSize * ratio) <= this.maxPendingSize;
+    }
+
+    private double getCompressionRatio()
+    {
+        if (this.decompressedCompressedSize == 0) {
+            return DEFAULT_COMPRESSION_RATIO;
+        }
+
+        return (double) this.decompressedSize / this.decompressedCompressedSize;
+    }
+
+    /**
+     * @return the number of chunks sent to the workers so far
+     */
+    int getChunkCount()
+    {
+        return this.chunkCount;
+    }
+
+    /**
+     * @return true if the rest of the stream is decompressed in the calling thread because no stream boundary could be
+     *         found
+     */
+    boolean isSequential()
+    {
+        return this.sequential;
+    }
+
+    private byte[] getChunk(Future<byte[]> chunk) throws IOException
+    {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException("Interrupted while waiting for a bzip2 stream to be decompressed");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+
+            throw new IOException("Failed to decompress bzip2 stream", e.getCause());
+        }
+    }
+
+    /**
+     * @return the next chunk of compressed data starting and ending at a bzip2 stream boundary, null if there is
+     *         nothing more to decompress in parallel
+     */
+    private byte[] readChunk() throws IOException
+    {
+        int scanFrom = this.chunkSize;
+
+        while (true) {
+            // Search for the next stream boundary in what's already buffered
+            if (this.bufferLength > scanFrom) {
+                int boundary = findStreamSignature(scanFrom);
+
+                if (boundary >= 0) {
+                    return cut(boundary);
+                }
+
+                scanFrom = Math.max(scanFrom, this.bufferLength - STREAM_SIGNATURE.length + 1);
+            }
+
+            if (this.rawEnd) {
+                return this.bufferLength > 0 ? cut(this.bufferLength) : null;
+            }
+
+            if (this.bufferLength >= this.maxChunkSize) {
+                // Probably not a multistream file
+                this.sequential = true;
+
+                return null;
+            }
+
+            fill();
+        }
+    }
+
+    private int findStreamSignature(int from)
+    {
+        int end = this.bufferLength - STREAM_SIGNATURE.length;
+
+        for (int i = from; i <= end; ++i) {
+            if (isStreamSignature(i)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private boolean isStreamSignature(int index)
+    {
+        for (int i = 0; i < STREAM_SIGNATURE.length; ++i) {
+            byte b = this.buffer[index + i];
+
+            if (i == STREAM_SIGNATURE_LEVEL) {
+                if (b < '1' || b > '9') {
+                    return false;
+                }
+            } else if (b != STREAM_SIGNATURE[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private byte[] cut(int length)
+    {
+        byte[] chunk = Arrays.copyOf(this.buffer, length);
+
+        this.bufferLength -= length;
+        System.arraycopy(this.buffer, length, this.buffer, 0, this.bufferLength);
+
+        return chunk;
+    }
+
+    private void fill() throws IOException
+    {
+        if (this.buffer.length - this.bufferLength < READ_SIZE) {
+            this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+        }
+
+        int read = this.raw.read(this.buffer, this.bufferLength, this.buffer.length - this.bufferLength);
+
+        if (read < 0) {
+            this.rawEnd = true;
+        } else {
+            this.bufferLength += read;
+        }
+    }
+
+    private static byte[] decompress(byte[] chunk) throws IOException
+    {
+        try (InputStream stream = new BZip2CompressorInputStream(new ByteArrayInputStream(chunk), true)) {
+            return IOUtils.toByteArray(stream);
+        }
+    }
+
+    private static final class PendingChunk
+    {
+        private final Future<byte[]> future;
+
+        private final int compressedSize;
+
+        PendingChunk(Future<byte[]> future, int compressedSize)
+        {
+            this.future = future;
+            this.compressedSize = compressedSize;
+        }
+
+        long getSize(double ratio)
+        {
+            if (this.future.isDone() && !this.future.isCancelled()) {
+                try {
+                    return this.future.get().length;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    // Reported when the chunk is consumed
+                }
+            }
+
+            return (long) (this.compressedSize * ratio);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.util.Arrays;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * A reusable buffer holding the content of a revision without creating a {@link String}. The content is passed to the
+ * MediaWiki syntax parser through a {@link org.xwiki.contrib.mediawiki.syntax.internal.input.CharArrayInputSource}.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public class RevisionContentBuffer
+{
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private char[] chars = new char[DEFAULT_CAPACITY];
+
+    private int length;
+
+    /**
+     * Read the text of the current element (the reader is expected to be positioned on the start element) and move
+     * the reader to the corresponding end element.
+     *
+     * @param xmlReader the XML reader
+     * @throws XMLStreamException when failing to read the element text
+     */
+    public void read(XMLStreamReader xmlReader) throws XMLStreamException
+    {
+        this.length = 0;
+
+        for (int event = xmlReader.next(); event != XMLStreamConstants.END_ELEMENT; event = xmlReader.next()) {
+            switch (event) {
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    append(xmlReader.getTextCharacters(), xmlReader.getTextStart(), xmlReader.getTextLength());
+                    break;
+
+                case XMLStreamConstants.ENTITY_REFERENCE:
+                    String text = xmlReader.getText();
+                    append(text.toCharArray(), 0, text.length());
+                    break;
+
+                case XMLStreamConstants.END_DOCUMENT:
+                    throw new XMLStreamException("Unexpected end of document when reading element text content",
+                        xmlReader.getLocation());
+
+                case XMLStreamConstants.START_ELEMENT:
+                    throw new XMLStreamException("Element text content may not contain START_ELEMENT",
+                        xmlReader.getLocation());
+
+                default:
+                    // Ignore comments and processing instructions
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Make sure the buffer can hold the passed number of characters without being resized. The current content might
+     * be lost.
+     *
+     * @param capacity the minimum capacity
+     */
+    public void ensureCapacity(int capacity)
+    {
+        if (capacity > this.chars.length) {
+            this.chars = new char[capacity];
+            this.length = 0;
+        }
+    }
+
+    private void append(char[] source, int start, int sourceLength)
+    {
+        int newLength = this.length + sourceLength;
+
+        if (newLength > this.chars.length) {
+            this.chars = Arrays.copyOf(this.chars, Math.max(newLength, this.chars.length * 2));
+        }
+
+        System.arraycopy(source, start, this.chars, this.length, sourceLength);
+        this.length = newLength;
+    }
+
+    /**
+     * @return the characters of the buffer (the array is reused, only the first {@link #length()} characters are
+     *         relevant)
+     */
+    public char[] getChars()
+    {
+        return this.chars;
+    }
+
+    /**
+     * @return the number of characters the buffer can hold without being resized
+     */
+    public int capacity()
+    {
+        return this.chars.length;
+    }
+
+    /**
+     * @return the number of characters in the buffer
+     */
+    public int length()
+    {
+        return this.length;
+    }
+
+    @Override
+    public String toString()
+    {
+        return new String(this.chars, 0, this.length);
+    }
+}
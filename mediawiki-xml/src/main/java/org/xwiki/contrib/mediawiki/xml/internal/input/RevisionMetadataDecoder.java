@@ -0,0 +1,234 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.util.Date;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Decode the metadata of the revisions (timestamp, contributor, comment) with as few allocations as possible.
+ * <p>
+ * A dump contains millions of revisions written by a few thousands contributors so the short texts are interned in a
+ * small fixed size table and only the timestamp {@link Date} is allocated for each revision. Not thread safe: each
+ * input filter stream has its own decoder.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public class RevisionMetadataDecoder
+{
+    /**
+     * The value returned by {@link #parseTimestamp(char[], int, int)} when the timestamp is not in the MediaWiki
+     * format.
+     */
+    public static final long INVALID_TIMESTAMP = Long.MIN_VALUE;
+
+    /**
+     * The length of a MediaWiki timestamp (for example {@code 2016-06-24T09:37:15Z}).
+     */
+    private static final int TIMESTAMP_LENGTH = 20;
+
+    private static final int INTERNED_SIZE = 4096;
+
+    private static final int MAX_INTERNED_LENGTH = 64;
+
+    private static final long MILLISECONDS_PER_SECOND = 1000L;
+
+    private static final long SECONDS_PER_DAY = 86400L;
+
+    private final String[] interned = new String[INTERNED_SIZE];
+
+    private final RevisionContentBuffer text = new RevisionContentBuffer();
+
+    private DatatypeFactory datatypeFactory;
+
+    /**
+     * Read the text of a {@code <timestamp>} element.
+     *
+     * @param xmlReader the XML reader positioned on the start element
+     * @return the date of the revision
+     * @throws XMLStreamException when failing to read the element
+     * @throws DatatypeConfigurationException when failing to create a {@link DatatypeFactory} to parse a timestamp
+     *             which is not in the usual MediaWiki format
+     */
+    public Date readTimestamp(XMLStreamReader xmlReader) throws XMLStreamException, DatatypeConfigurationException
+    {
+        this.text.read(xmlReader);
+
+        long time = parseTimestamp(this.text.getChars(), 0, this.text.length());
+
+        if (time == INVALID_TIMESTAMP) {
+            // Not the usual MediaWiki format, use the generic (and a lot slower) parser
+            if (this.datatypeFactory == null) {
+                this.datatypeFactory = DatatypeFactory.newInstance();
+            }
+
+            return this.datatypeFactory.newXMLGregorianCalendar(this.text.toString().trim()).toGregorianCalendar()
+                .getTime();
+        }
+
+        return new Date(time);
+    }
+
+    /**
+     * Read the text of an element which is expected to have a lot of duplicates (for example contributor names).
+     *
+     * @param xmlReader the XML reader positioned on the start element
+     * @return the text of the element
+     * @throws XMLStreamException when failing to read the element
+     */
+    public String readInterned(XMLStreamReader xmlReader) throws XMLStreamException
+    {
+        this.text.read(xmlReader);
+
+        return intern(this.text.getChars(), 0, this.text.length());
+    }
+
+    /**
+     * @param chars the characters
+     * @param offset the index of the first character
+     * @param length the number of characters
+     * @return the {@link String} with the passed characters, the same instance as the last time those characters
+     *         were interned if it's still in the table
+     */
+    public String intern(char[] chars, int offset, int length)
+    {
+        if (length > MAX_INTERNED_LENGTH) {
+            return new String(chars, offset, length);
+        }
+
+        int hash = 0;
+        for (int i = offset; i < offset + length; ++i) {
+            hash = 31 * hash + chars[i];
+        }
+
+        int index = (hash ^ (hash >>> 16)) & (INTERNED_SIZE - 1);
+
+        String value = this.interned[index];
+        if (value == null || !contentEquals(value, chars, offset, length)) {
+            value = new String(chars, offset, length);
+            this.interned[index] = value;
+        }
+
+        return value;
+    }
+
+    private static boolean contentEquals(String value, char[] chars, int offset, int length)
+    {
+        if (value.length() != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; ++i) {
+            if (value.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Parse a timestamp in the format used by MediaWiki dumps ({@code yyyy-MM-ddTHH:mm:ssZ}).
+     *
+     * @param chars the characters
+     * @param offset the index of the first character
+     * @param length the number of characters
+     * @return the number of milliseconds since the epoch or {@link #INVALID_TIMESTAMP} if the characters are not a
+     *         timestamp in the expected format
+     */
+    public static long parseTimestamp(char[] chars, int offset, int length)
+    {
+        // Ignore the white spaces around the timestamp
+        int start = offset;
+        int end = offset + length;
+        while (start < end && Character.isWhitespace(chars[start])) {
+            ++start;
+        }
+        while (end > start && Character.isWhitespace(chars[end - 1])) {
+            --end;
+        }
+
+        if (end - start != TIMESTAMP_LENGTH || chars[start + 4] != '-' || chars[start + 7] != '-'
+            || chars[start + 10] != 'T' || chars[start + 13] != ':' || chars[start + 16] != ':'
+            || chars[start + 19] != 'Z') {
+            return INVALID_TIMESTAMP;
+        }
+
+        int year = parseDigits(chars, start, 4);
+        int month = parseDigits(chars, start + 5, 2);
+        int day = parseDigits(chars, start + 8, 2);
+        int hour = parseDigits(chars, start + 11, 2);
+        int minute = parseDigits(chars, start + 14, 2);
+        int second = parseDigits(chars, start + 17, 2);
+
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > getMonthLength(year, month) || hour < 0
+            || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return INVALID_TIMESTAMP;
+        }
+
+        long seconds = daysFromCivil(year, month, day) * SECONDS_PER_DAY + hour * 3600L + minute * 60L + second;
+
+        return seconds * MILLISECONDS_PER_SECOND;
+    }
+
+    private static int parseDigits(char[] chars, int offset, int length)
+    {
+        int value = 0;
+
+        for (int i = offset; i < offset + length; ++i) {
+            char c = chars[i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+
+            value = value * 10 + (c - '0');
+        }
+
+        return value;
+    }
+
+    private static int getMonthLength(int year, int month)
+    {
+        if (month == 2) {
+            return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+        }
+
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    /**
+     * @return the number of days between 1970-01-01 and the passed date of the proleptic Gregorian calendar
+     */
+    private static long daysFromCivil(int year, int month, int day)
+    {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+
+        return era * 146097L + dayOfEra - 719468L;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.metrics;
+
+import java.lang.management.ManagementFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.contrib.mediawiki.xml.metrics.MediaWikiImportMetrics;
+import org.xwiki.contrib.mediawiki.xml.metrics.MediaWikiImportMetricsRegistry;
+
+/**
+ * Expose the metrics of the MediaWiki imports as MBeans of the platform MBean server, under
+ * {@code org.xwiki.contrib.mediawiki:type=Import,name=<name>}.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+@Component
+@Singleton
+public class JMXMediaWikiImportMetricsRegistry implements MediaWikiImportMetricsRegistry
+{
+    private static final String DOMAIN = "org.xwiki.contrib.mediawiki:type=Import,name=";
+
+    @Inject
+    private Logger logger;
+
+    @Override
+    public void register(String name, MediaWikiImportMetrics metrics)
+    {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            ObjectName objectName = getObjectName(name);
+
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(metrics, objectName);
+        } catch (JMException e) {
+            this.logger.warn("Failed to expose the metrics of import [{}] through JMX", name, e);
+        }
+    }
+
+    @Override
+    public void unregister(String name)
+    {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            ObjectName objectName = getObjectName(name);
+
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            this.logger.warn("Failed to remove the metrics of import [{}] from JMX", name, e);
+        }
+    }
+
+    private ObjectName getObjectName(String name) throws JMException
+    {
+        return new ObjectName(DOMAIN + ObjectName.quote(name));
+    }
+}
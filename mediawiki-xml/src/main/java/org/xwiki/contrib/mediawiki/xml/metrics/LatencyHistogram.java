@@ -0,0 +1,101 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * A lock free histogram of durations using power of two buckets (in microseconds), precise enough to follow the
+ * evolution of the latencies during an import.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+@Unstable
+public class LatencyHistogram
+{
+    private static final int BUCKETS = 40;
+
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder total = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param nanos the duration to record, in nanoseconds
+     */
+    public void record(long nanos)
+    {
+        long micros = Math.max(1, nanos / 1000);
+
+        this.buckets.incrementAndGet(Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros)));
+        this.count.increment();
+        this.total.add(nanos);
+        this.max.accumulate(nanos);
+    }
+
+    /**
+     * @return a summary of the recorded durations
+     */
+    public LatencySnapshot getSnapshot()
+    {
+        long[] counts = new long[BUCKETS];
+        long snapshotCount = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            counts[i] = this.buckets.get(i);
+            snapshotCount += counts[i];
+        }
+
+        long sum = this.total.sum();
+        double mean = snapshotCount > 0 ? sum / NANOS_PER_MILLI / snapshotCount : 0;
+        double maxMillis = this.max.get() / NANOS_PER_MILLI;
+
+        return new LatencySnapshot(snapshotCount, mean, percentile(counts, snapshotCount, 0.5, maxMillis),
+            percentile(counts, snapshotCount, 0.9, maxMillis), percentile(counts, snapshotCount, 0.99, maxMillis),
+            maxMillis);
+    }
+
+    private static double percentile(long[] counts, long total, double percentile, double max)
+    {
+        long rank = (long) Math.ceil(total * percentile);
+
+        long seen = 0;
+        for (int i = 0; i < counts.length; ++i) {
+            seen += counts[i];
+
+            if (seen >= rank && seen > 0) {
+                // Upper bound of the bucket
+                return Math.min((1L << (i + 1)) / 1000.0, max);
+            }
+        }
+
+        return 0;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.metrics;
+
+import java.util.Locale;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * A summary of the durations recorded in a {@link LatencyHistogram}, in milliseconds. The percentiles are the upper
+ * bound of the bucket containing them.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+@Unstable
+public class LatencySnapshot
+{
+    private final long count;
+
+    private final double mean;
+
+    private final double p50;
+
+    private final double p90;
+
+    private final double p99;
+
+    private final double max;
+
+    LatencySnapshot(long count, double mean, double p50, double p90, double p99, double max)
+    {
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.max = max;
+    }
+
+    /**
+     * @return the number of recorded durations
+     */
+    public long getCount()
+    {
+        return this.count;
+    }
+
+    /**
+     * @return the mean duration
+     */
+    public double getMean()
+    {
+        return this.mean;
+    }
+
+    /**
+     * @return the median duration
+     */
+    public double getP50()
+    {
+        return this.p50;
+    }
+
+    /**
+     * @return the 90th percentile
+     */
+    public double getP90()
+    {
+        return this.p90;
+    }
+
+    /**
+     * @return the 99th percentile
+     */
+    public double getP99()
+    {
+        return this.p99;
+    }
+
+    /**
+     * @return the longest duration
+     */
+    public double getMax()
+    {
+        return this.max;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format(Locale.ROOT, "count=%d, mean=%.3fms, p50=%.3fms, p90=%.3fms, p99=%.3fms, max=%.3fms",
+            this.count, this.mean, this.p50, this.p90, this.p99, this.max);
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.metrics;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * Collect the metrics of a MediaWiki import. Can be updated from several threads.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+@Unstable
+public class MediaWikiImportMetrics implements MediaWikiImportMetricsMXBean
+{
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private long start = System.nanoTime();
+
+    private final LongAdder pages = new LongAdder();
+
+    private final LongAdder revisions = new LongAdder();
+
+    private LongSupplier inputOffset;
+
+    private long inputSize = -1;
+
+    private final LatencyHistogram parseLatency = new LatencyHistogram();
+
+    private final LongAdder attachments = new LongAdder();
+
+    private final LongAdder attachmentBytes = new LongAdder();
+
+    private final LatencyHistogram attachmentLookupLatency = new LatencyHistogram();
+
+    private final LatencyHistogram imageDimensionLatency = new LatencyHistogram();
+
+    private final Map<String, LongAdder> conversionFailures = new ConcurrentHashMap<>();
+
+    private LongSupplier referenceCacheHits;
+
+    private LongSupplier referenceCacheMisses;
+
+    /**
+     * Indicate that the import is starting.
+     */
+    public void start()
+    {
+        this.start = System.nanoTime();
+    }
+
+    /**
+     * @param offset provide the number of bytes read from the dump
+     * @param size the size of the dump, -1 if unknown
+     */
+    public void setInput(LongSupplier offset, long size)
+    {
+        this.inputOffset = offset;
+        this.inputSize = size;
+    }
+
+    /**
+     * @param hits provide the number of references found in the reference cache
+     * @param misses provide the number of references which had to be resolved
+     */
+    public void setReferenceCache(LongSupplier hits, LongSupplier misses)
+    {
+        this.referenceCacheHits = hits;
+        this.referenceCacheMisses = misses;
+    }
+
+    /**
+     * A page was sent.
+     */
+    public void onPage()
+    {
+        this.pages.increment();
+    }
+
+    /**
+     * A revision was sent.
+     */
+    public void onRevision()
+    {
+        this.revisions.increment();
+    }
+
+    /**
+     * @param nanos the time spent parsing and converting the content of a revision
+     */
+    public void onParse(long nanos)
+    {
+        this.parseLatency.record(nanos);
+    }
+
+    /**
+     * @param error the reason why the content of a revision could not be converted
+     */
+    public void onConversionFailure(Throwable error)
+    {
+        this.conversionFailures.computeIfAbsent(error.getClass().getName(), key -> new LongAdder()).increment();
+    }
+
+    /**
+     * @param nanos the time spent finding the attachment
+     */
+    public void onAttachmentLookup(long nanos)
+    {
+        this.attachmentLookupLatency.record(nanos);
+    }
+
+    /**
+     * @param size the size of the sent attachment
+     */
+    public void onAttachment(long size)
+    {
+        this.attachments.increment();
+        this.attachmentBytes.add(size);
+    }
+
+    /**
+     * @param nanos the time spent getting the dimension of an image
+     */
+    public void onImageDimension(long nanos)
+    {
+        this.imageDimensionLatency.record(nanos);
+    }
+
+    @Override
+    public double getElapsedSeconds()
+    {
+        return (System.nanoTime() - this.start) / NANOS_PER_SECOND;
+    }
+
+    private double perSecond(long value)
+    {
+        double elapsed = getElapsedSeconds();
+
+        return elapsed > 0 ? value / elapsed : 0;
+    }
+
+    @Override
+    public long getPages()
+    {
+        return this.pages.sum();
+    }
+
+    @Override
+    public double getPagesPerSecond()
+    {
+        return perSecond(getPages());
+    }
+
+    @Override
+    public long getRevisions()
+    {
+        return this.revisions.sum();
+    }
+
+    @Override
+    public double getRevisionsPerSecond()
+    {
+        return perSecond(getRevisions());
+    }
+
+    @Override
+    public long getInputOffset()
+    {
+        return this.inputOffset != null ? this.inputOffset.getAsLong() : -1;
+    }
+
+    @Override
+    public long getInputSize()
+    {
+        return this.inputSize;
+    }
+
+    @Override
+    public double getInputBytesPerSecond()
+    {
+        return perSecond(Math.max(0, getInputOffset()));
+    }
+
+    @Override
+    public long getEstimatedSecondsRemaining()
+    {
+        long offset = getInputOffset();
+        double speed = getInputBytesPerSecond();
+
+        if (offset < 0 || this.inputSize < 0 || speed <= 0) {
+            return -1;
+        }
+
+        return (long) (Math.max(0, this.inputSize - offset) / speed);
+    }
+
+    @Override
+    public LatencySnapshot getParseLatency()
+    {
+        return this.parseLatency.getSnapshot();
+    }
+
+    @Override
+    public long getAttachments()
+    {
+        return this.attachments.sum();
+    }
+
+    @Override
+    public long getAttachmentBytes()
+    {
+        return this.attachmentBytes.sum();
+    }
+
+    @Override
+    public LatencySnapshot getAttachmentLookupLatency()
+    {
+        return this.attachmentLookupLatency.getSnapshot();
+    }
+
+    @Override
+    public LatencySnapshot getImageDimensionLatency()
+    {
+        return this.imageDimensionLatency.getSnapshot();
+    }
+
+    @Override
+    public Map<String, Long> getConversionFailures()
+    {
+        Map<String, Long> failures = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : this.conversionFailures.entrySet()) {
+            failures.put(entry.getKey(), entry.getValue().sum());
+        }
+
+        return failures;
+    }
+
+    @Override
+    public long getReferenceCacheHits()
+    {
+        return this.referenceCacheHits != null ? this.referenceCacheHits.getAsLong() : -1;
+    }
+
+    @Override
+    public long getReferenceCacheMisses()
+    {
+        return this.referenceCacheMisses != null ? this.referenceCacheMisses.getAsLong() : -1;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format(Locale.ROOT,
+            "[%d] pages (%.1f/s), [%d] revisions (%.1f/s), [%d] attachments ([%d] bytes), parse latency: %s,"
+                + " attachment lookup latency: %s, image dimension latency: %s, conversion failures: %s,"
+                + " reference cache: [%d] hits and [%d] misses",
+            getPages(), getPagesPerSecond(), getRevisions(), getRevisionsPerSecond(), getAttachments(),
+            getAttachmentBytes(), getParseLatency(), getAttachmentLookupLatency(), getImageDimensionLatency(),
+            getConversionFailures(), getReferenceCacheHits(), getReferenceCacheMisses());
+    }
+}
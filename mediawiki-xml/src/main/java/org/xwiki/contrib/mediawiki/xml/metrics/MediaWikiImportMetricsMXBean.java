@@ -0,0 +1,120 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.metrics;
+
+import java.util.Map;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * The metrics of a running MediaWiki import, as exposed through JMX.
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+@Unstable
+public interface MediaWikiImportMetricsMXBean
+{
+    /**
+     * @return the number of seconds since the import started
+     */
+    double getElapsedSeconds();
+
+    /**
+     * @return the number of pages sent
+     */
+    long getPages();
+
+    /**
+     * @return the average number of pages sent per second
+     */
+    double getPagesPerSecond();
+
+    /**
+     * @return the number of revisions sent
+     */
+    long getRevisions();
+
+    /**
+     * @return the average number of revisions sent per second
+     */
+    double getRevisionsPerSecond();
+
+    /**
+     * @return the number of bytes read from the dump (before decompression), -1 if unknown
+     */
+    long getInputOffset();
+
+    /**
+     * @return the size of the dump (before decompression), -1 if unknown
+     */
+    long getInputSize();
+
+    /**
+     * @return the average number of bytes read from the dump per second
+     */
+    double getInputBytesPerSecond();
+
+    /**
+     * @return the estimated number of seconds before the end of the dump, -1 if unknown
+     */
+    long getEstimatedSecondsRemaining();
+
+    /**
+     * @return the time spent parsing and converting the content of each revision
+     */
+    LatencySnapshot getParseLatency();
+
+    /**
+     * @return the number of attachments sent
+     */
+    long getAttachments();
+
+    /**
+     * @return the number of bytes of attachment content sent
+     */
+    long getAttachmentBytes();
+
+    /**
+     * @return the time spent finding each attachment
+     */
+    LatencySnapshot getAttachmentLookupLatency();
+
+    /**
+     * @return the time spent getting the dimension of each image
+     */
+    LatencySnapshot getImageDimensionLatency();
+
+    /**
+     * @return the number of content conversion failures by exception type
+     */
+    Map<String, Long> getConversionFailures();
+
+    /**
+     * @return the number of references found in the reference cache, -1 if the cache is disabled
+     */
+    long getReferenceCacheHits();
+
+    /**
+     * @return the number of references which were not found in the reference cache and had to be resolved, -1 if the
+     *         cache is disabled
+     */
+    long getReferenceCacheMisses();
+}
@@ -0,0 +1,591 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Generate a MediaWiki XML export of any size to test the import at scale, since real big dumps cannot be part of the
+ * test resources. The dump is written as it's generated and the same configuration (including the seed) always
+ * produces the same dump.
+ * <p>
+ * The configuration is passed as {@code key=value} arguments:
+ * <ul>
+ * <li>{@code output}: the dump file to write (compressed if it ends with {@code .gz}), required</li>
+ * <li>{@code files}: the folder where to write the images referenced in the dump, in the hashed sub folders layout
+ * ({@code a/ab/Image_1.png}), no images are written by default</li>
+ * <li>{@code seed}: the seed of the random generator, {@code 0} by default</li>
+ * <li>{@code pages}: the number of content pages, {@code 1000} by default</li>
+ * <li>{@code images}, {@code templates}, {@code categories}: the number of distinct images, templates and categories
+ * (each having its own page)</li>
+ * <li>{@code redirects}: the probability for a content page to be a redirect, {@code 0.05} by default</li>
+ * <li>{@code pageSize}, {@code pageRevisions}, {@code linkDensity} (per 1000 characters), {@code pageImages},
+ * {@code pageTables}, {@code pageTemplates}, {@code pageCategories}, {@code imageSize} (in pixels): the
+ * {@link Distribution distributions} of the content of the pages</li>
+ * </ul>
+ * For example, from the {@code mediawiki-xml} module:
+ *
+ * <pre>
+ * mvn exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.xwiki.contrib.mediawiki.xml.DumpGenerator
+ *   -Dexec.args="output=target/big.xml.gz files=target/images pages=1000000 pageRevisions=exponential:5"
+ * </pre>
+ *
+ * @version $Id$
+ * @since 2.1.2
+ */
+public class DumpGenerator
+{
+    private static final String[] WORDS = {"the", "of", "and", "wiki", "page", "content", "import", "history",
+        "revision", "section", "example", "important", "world", "data", "some", "with", "between", "about",
+        "\u00C9t\u00E9", "na\u00EFve", "\u00FCber", "\u65E5\u672C\u8A9E", "test", "value", "reference", "document",
+        "table", "image", "category", "template"};
+
+    private static final String[] NAMESPACES = {"Media", "Special", "", "Talk", "User", "User talk", "Wiki",
+        "Wiki talk", "File", "File talk", "MediaWiki", "MediaWiki talk", "Template", "Template talk", "Help",
+        "Help talk", "Category", "Category talk"};
+
+    private static final String NAMESPACE_FILE = "File:";
+
+    private static final String NAMESPACE_TEMPLATE = "Template:";
+
+    private static final String NAMESPACE_CATEGORY = "Category:";
+
+    private static final String PAGE = "Page ";
+
+    private static final String IMAGE = "Image ";
+
+    private static final String TEMPLATE = "Template ";
+
+    private static final String CATEGORY = "Category ";
+
+    private static final String IMAGE_EXTENSION = ".png";
+
+    private static final String LINK_OPEN = "[[";
+
+    private static final String LINK_CLOSE = "]]";
+
+    private static final long START_DATE = 1466760000000L;
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+
+    private final Map<String, String> configuration;
+
+    private final long seed;
+
+    private final Random random;
+
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.ROOT);
+
+    private final int pages;
+
+    private final int images;
+
+    private final int templates;
+
+    private final int categories;
+
+    private final double redirects;
+
+    private final Distribution pageSize;
+
+    private final Distribution pageRevisions;
+
+    private final Distribution linkDensity;
+
+    private final Distribution pageImages;
+
+    private final Distribution pageTables;
+
+    private final Distribution pageTemplates;
+
+    private final Distribution pageCategories;
+
+    private final Distribution imageSize;
+
+    private int pageId;
+
+    private int revisionId;
+
+    private long date = START_DATE;
+
+    /**
+     * A random distribution of positive values, written {@code constant:<value>}, {@code uniform:<min>:<max>},
+     * {@code exponential:<mean>} or {@code lognormal:<mean>:<sigma>}.
+     *
+     * @version $Id$
+     */
+    public static class Distribution
+    {
+        private final String type;
+
+        private final double parameter1;
+
+        private final double parameter2;
+
+        /**
+         * @param value the serialized distribution
+         */
+        public Distribution(String value)
+        {
+            String[] elements = value.split(":");
+
+            this.type = elements[0];
+            this.parameter1 = elements.length > 1 ? Double.parseDouble(elements[1]) : 0;
+            this.parameter2 = elements.length > 2 ? Double.parseDouble(elements[2]) : 0;
+
+            if (!this.type.equals("constant") && !this.type.equals("uniform") && !this.type.equals("exponential")
+                && !this.type.equals("lognormal")) {
+                throw new IllegalArgumentException("Unknown distribution [" + value + "]");
+            }
+        }
+
+        /**
+         * @param random the random generator
+         * @return the next value, never negative
+         */
+        public double next(Random random)
+        {
+            double value;
+            switch (this.type) {
+                case "uniform":
+                    value = this.parameter1 + random.nextDouble() * (this.parameter2 - this.parameter1);
+                    break;
+                case "exponential":
+                    value = -this.parameter1 * Math.log(1 - random.nextDouble());
+                    break;
+                case "lognormal":
+                    // Choose mu so that the mean of the distribution is the first parameter
+                    double mu = Math.log(this.parameter1) - this.parameter2 * this.parameter2 / 2;
+                    value = Math.exp(mu + this.parameter2 * random.nextGaussian());
+                    break;
+                default:
+                    value = this.parameter1;
+                    break;
+            }
+
+            return Math.max(0, value);
+        }
+
+        /**
+         * @param random the random generator
+         * @return the next value rounded to an integer
+         */
+        public int nextInt(Random random)
+        {
+            return (int) Math.round(next(random));
+        }
+    }
+
+    /**
+     * Generate the content of a revision.
+     *
+     * @version $Id$
+     */
+    @FunctionalInterface
+    private interface ContentGenerator
+    {
+        String generate();
+    }
+
+    /**
+     * @param configuration the configuration of the generated dump
+     */
+    public DumpGenerator(Map<String, String> configuration)
+    {
+        this.configuration = configuration;
+
+        this.seed = Long.parseLong(get("seed", "0"));
+        this.random = new Random(this.seed);
+        this.dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        this.pages = Integer.parseInt(get("pages", "1000"));
+        this.images = Integer.parseInt(get("images", "100"));
+        this.templates = Integer.parseInt(get("templates", "20"));
+        this.categories = Integer.parseInt(get("categories", "50"));
+        this.redirects = Double.parseDouble(get("redirects", "0.05"));
+
+        this.pageSize = new Distribution(get("pageSize", "lognormal:3000:1"));
+        this.pageRevisions = new Distribution(get("pageRevisions", "exponential:3"));
+        this.linkDensity = new Distribution(get("linkDensity", "uniform:2:20"));
+        this.pageImages = new Distribution(get("pageImages", "exponential:1"));
+        this.pageTables = new Distribution(get("pageTables", "exponential:0.3"));
+        this.pageTemplates = new Distribution(get("pageTemplates", "exponential:1"));
+        this.pageCategories = new Distribution(get("pageCategories", "uniform:0:3"));
+        this.imageSize = new Distribution(get("imageSize", "uniform:16:1024"));
+    }
+
+    private String get(String key, String defaultValue)
+    {
+        String value = this.configuration.get(key);
+
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * @param args the configuration as {@code key=value} arguments
+     * @throws Exception when failing to generate the dump
+     */
+    public static void main(String[] args) throws Exception
+    {
+        Map<String, String> configuration = new LinkedHashMap<>();
+        for (String arg : args) {
+            int index = arg.indexOf('=');
+            if (index <= 0) {
+                throw new IllegalArgumentException("Invalid argument [" + arg + "], expected key=value");
+            }
+
+            configuration.put(arg.substring(0, index), arg.substring(index + 1));
+        }
+
+        String output = configuration.get("output");
+        if (output == null) {
+            throw new IllegalArgumentException("The output file is required (output=<file>)");
+        }
+
+        DumpGenerator generator = new DumpGenerator(configuration);
+
+        String files = configuration.get("files");
+        if (files != null) {
+            generator.generateFiles(new File(files));
+        }
+
+        try (OutputStream stream = generator.openOutput(new File(output))) {
+            generator.generate(stream);
+        }
+    }
+
+    private OutputStream openOutput(File file) throws IOException
+    {
+        OutputStream stream = new BufferedOutputStream(new FileOutputStream(file), 65536);
+
+        return file.getName().endsWith(".gz") ? new GZIPOutputStream(stream, 65536) : stream;
+    }
+
+    /**
+     * Write the dump.
+     *
+     * @param stream where to write the dump (not closed)
+     * @throws XMLStreamException when failing to write the dump
+     */
+    public void generate(OutputStream stream) throws XMLStreamException
+    {
+        XMLStreamWriter writer =
+            XMLOutputFactory.newInstance().createXMLStreamWriter(stream, StandardCharsets.UTF_8.name());
+
+        writer.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+        writer.writeStartElement("mediawiki");
+        writer.writeDefaultNamespace("http://www.mediawiki.org/xml/export-0.10/");
+        writer.writeAttribute("version", "0.10");
+        writer.writeAttribute(XMLConstants.XML_NS_PREFIX, XMLConstants.XML_NS_URI, "lang", "en");
+
+        writeSiteInfo(writer);
+
+        for (int i = 0; i < this.pages; ++i) {
+            if (i > 0 && this.random.nextDouble() < this.redirects) {
+                // Redirect to a previous page
+                String target = PAGE + this.random.nextInt(i);
+                writePage(writer, 0, PAGE + i, () -> "#REDIRECT [[" + target + LINK_CLOSE);
+            } else {
+                writePage(writer, 0, PAGE + i, this::generateContent);
+            }
+        }
+        for (int i = 0; i < this.templates; ++i) {
+            writePage(writer, 10, NAMESPACE_TEMPLATE + TEMPLATE + i,
+                () -> "<div class=\"template\">{{{1|default}}} " + generateText(200) + "</div>");
+        }
+        for (int i = 0; i < this.categories; ++i) {
+            writePage(writer, 14, NAMESPACE_CATEGORY + CATEGORY + i, () -> generateText(100));
+        }
+        for (int i = 0; i < this.images; ++i) {
+            writePage(writer, 6, NAMESPACE_FILE + IMAGE + i + IMAGE_EXTENSION, () -> generateText(100));
+        }
+
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.flush();
+    }
+
+    private void writeSiteInfo(XMLStreamWriter writer) throws XMLStreamException
+    {
+        writer.writeStartElement("siteinfo");
+        writeElement(writer, "sitename", "wiki");
+        writeElement(writer, "dbname", "mediawiki");
+        writeElement(writer, "base", "http://127.0.0.1/mediawiki/index.php/Main_Page");
+        writeElement(writer, "generator", "MediaWiki 1.26.3");
+        writeElement(writer, "case", "first-letter");
+
+        writer.writeStartElement("namespaces");
+        for (int i = 0; i < NAMESPACES.length; ++i) {
+            writer.writeStartElement("namespace");
+            writer.writeAttribute("key", String.valueOf(i - 2));
+            writer.writeAttribute("case", "first-letter");
+            writer.writeCharacters(NAMESPACES[i]);
+            writer.writeEndElement();
+        }
+        writer.writeEndElement();
+
+        writer.writeEndElement();
+    }
+
+    private void writePage(XMLStreamWriter writer, int namespace, String title, ContentGenerator content)
+        throws XMLStreamException
+    {
+        ++this.pageId;
+
+        writer.writeStartElement("page");
+        writeElement(writer, "title", title);
+        writeElement(writer, "ns", String.valueOf(namespace));
+        writeElement(writer, "id", String.valueOf(this.pageId));
+
+        String text = content.generate();
+        int revisions = Math.max(1, this.pageRevisions.nextInt(this.random));
+        for (int i = 0; i < revisions; ++i) {
+            if (i > 0 && !text.startsWith("#REDIRECT")) {
+                // Each revision adds a paragraph to the previous one
+                text = text + "\n\n" + generateText(this.pageSize.next(this.random) / revisions);
+            }
+
+            writeRevision(writer, text, i + 1);
+        }
+
+        writer.writeEndElement();
+        writer.writeCharacters("\n");
+    }
+
+    private void writeRevision(XMLStreamWriter writer, String text, int revision) throws XMLStreamException
+    {
+        ++this.revisionId;
+        this.date += 1000L + this.random.nextInt(3600000);
+
+        writer.writeStartElement("revision");
+        writeElement(writer, "id", String.valueOf(this.revisionId));
+        writeElement(writer, "timestamp", this.dateFormat.format(new Date(this.date)));
+        writer.writeStartElement("contributor");
+        writeElement(writer, "username", "User " + this.random.nextInt(100));
+        writeElement(writer, "id", String.valueOf(revision));
+        writer.writeEndElement();
+        writeElement(writer, "comment", "Revision " + revision);
+        writeElement(writer, "model", "wikitext");
+        writeElement(writer, "format", "text/x-wiki");
+        writer.writeStartElement("text");
+        writer.writeAttribute(XMLConstants.XML_NS_PREFIX, XMLConstants.XML_NS_URI, "space", "preserve");
+        writer.writeAttribute("bytes", String.valueOf(text.getBytes(StandardCharsets.UTF_8).length));
+        writer.writeCharacters(text);
+        writer.writeEndElement();
+        writeElement(writer, "sha1", sha1(text));
+        writer.writeEndElement();
+    }
+
+    /**
+     * @param text the content of a revision
+     * @return the SHA-1 of the content in base 36, padded to 31 characters, like in the MediaWiki database and dumps
+     */
+    static String sha1(String text)
+    {
+        return StringUtils.leftPad(new BigInteger(DigestUtils.sha1Hex(text), 16).toString(36), 31, '0');
+    }
+
+    private void writeElement(XMLStreamWriter writer, String name, String value) throws XMLStreamException
+    {
+        writer.writeStartElement(name);
+        writer.writeCharacters(value);
+        writer.writeEndElement();
+    }
+
+    private String generateContent()
+    {
+        double size = this.pageSize.next(this.random);
+
+        StringBuilder content = new StringBuilder((int) size + 256);
+
+        content.append("== Section ==\n");
+        int templateCount = this.templates > 0 ? this.pageTemplates.nextInt(this.random) : 0;
+        for (int i = 0; i < templateCount; ++i) {
+            content.append("{{").append(TEMPLATE).append(this.random.nextInt(this.templates)).append("|")
+                .append(generateText(20)).append("}}\n");
+        }
+
+        content.append(generateText(size));
+
+        int imageCount = this.images > 0 ? this.pageImages.nextInt(this.random) : 0;
+        for (int i = 0; i < imageCount; ++i) {
+            content.append("\n\n").append(LINK_OPEN).append(NAMESPACE_FILE).append(IMAGE)
+                .append(this.random.nextInt(this.images)).append(IMAGE_EXTENSION);
+            if (this.random.nextBoolean()) {
+                content.append("|thumb|").append(50 + this.random.nextInt(300)).append("x")
+                    .append(50 + this.random.nextInt(300)).append("px");
+            }
+            content.append(LINK_CLOSE);
+        }
+
+        int tableCount = this.pageTables.nextInt(this.random);
+        for (int i = 0; i < tableCount; ++i) {
+            appendTable(content);
+        }
+
+        int categoryCount = this.categories > 0 ? this.pageCategories.nextInt(this.random) : 0;
+        for (int i = 0; i < categoryCount; ++i) {
+            content.append('\n').append(LINK_OPEN).append(NAMESPACE_CATEGORY).append(CATEGORY)
+                .append(this.random.nextInt(this.categories)).append(LINK_CLOSE);
+        }
+
+        return content.toString();
+    }
+
+    private void appendTable(StringBuilder content)
+    {
+        int rows = 1 + this.random.nextInt(10);
+        int columns = 1 + this.random.nextInt(5);
+
+        content.append("\n\n{| class=\"wikitable\"\n");
+        for (int column = 0; column < columns; ++column) {
+            content.append("! ").append(WORDS[this.random.nextInt(WORDS.length)]).append('\n');
+        }
+        for (int row = 0; row < rows; ++row) {
+            content.append("|-\n");
+            for (int column = 0; column < columns; ++column) {
+                content.append("| ").append(generateText(20)).append('\n');
+            }
+        }
+        content.append("|}");
+    }
+
+    private String generateText(double size)
+    {
+        StringBuilder text = new StringBuilder((int) size + 32);
+
+        // The probability for a word to be a link
+        double linkProbability = this.linkDensity.next(this.random) * 6 / 1000;
+
+        while (text.length() < size) {
+            if (text.length() > 0) {
+                text.append(this.random.nextInt(20) == 0 ? ".\n\n" : " ");
+            }
+
+            if (this.pages > 0 && this.random.nextDouble() < linkProbability) {
+                text.append(LINK_OPEN).append(PAGE).append(this.random.nextInt(this.pages));
+                if (this.random.nextInt(4) == 0) {
+                    text.append('|').append(WORDS[this.random.nextInt(WORDS.length)]);
+                }
+                text.append(LINK_CLOSE);
+            } else {
+                text.append(WORDS[this.random.nextInt(WORDS.length)]);
+            }
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * Write the images referenced in the dump as small PNG files with random dimensions.
+     *
+     * @param folder the media files folder
+     * @throws IOException when failing to write the images
+     */
+    public void generateFiles(File folder) throws IOException
+    {
+        // Use a dedicated random generator so that the dump does not depend on the generation of the files
+        Random filesRandom = new Random(~this.seed);
+
+        for (int i = 0; i < this.images; ++i) {
+            String fileName = IMAGE.replace(' ', '_') + i + IMAGE_EXTENSION;
+            String md5Hex = DigestUtils.md5Hex(fileName);
+
+            File file = new File(folder, md5Hex.substring(0, 1) + File.separator + md5Hex.substring(0, 2)
+                + File.separator + fileName);
+            Files.createDirectories(file.getParentFile().toPath());
+
+            int width = Math.max(1, this.imageSize.nextInt(filesRandom));
+            int height = Math.max(1, this.imageSize.nextInt(filesRandom));
+            Files.write(file.toPath(), createPNG(width, height));
+        }
+    }
+
+    private static byte[] createPNG(int width, int height) throws IOException
+    {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        png.write(PNG_SIGNATURE);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream headerData = new DataOutputStream(header);
+        headerData.writeInt(width);
+        headerData.writeInt(height);
+        // 8 bits grayscale, default compression, filter and no interlace
+        headerData.write(new byte[] {8, 0, 0, 0, 0});
+        writeChunk(png, "IHDR", header.toByteArray());
+
+        // Black rows, each starting with the filter type
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(data)) {
+            byte[] row = new byte[width + 1];
+            for (int i = 0; i < height; ++i) {
+                deflater.write(row);
+            }
+        }
+        writeChunk(png, "IDAT", data.toByteArray());
+
+        writeChunk(png, "IEND", new byte[0]);
+
+        return png.toByteArray();
+    }
+
+    private static void writeChunk(ByteArrayOutputStream png, String type, byte[] data) throws IOException
+    {
+        DataOutputStream output = new DataOutputStream(png);
+
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+
+        output.writeInt(data.length);
+        output.write(typeBytes);
+        output.write(data);
+        output.writeInt((int) crc.getValue());
+    }
+}
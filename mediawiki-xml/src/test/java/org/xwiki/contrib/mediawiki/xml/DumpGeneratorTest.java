@@ -0,0 +1,219 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xwiki.contrib.mediawiki.xml.input.MediaWikiInputProperties;
+import org.xwiki.filter.FilterEventParameters;
+import org.xwiki.filter.event.model.WikiDocumentFilter;
+import org.xwiki.filter.input.BeanInputFilterStream;
+import org.xwiki.filter.input.BeanInputFilterStreamFactory;
+import org.xwiki.filter.input.DefaultFileInputSource;
+import org.xwiki.filter.input.InputFilterStreamFactory;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link DumpGenerator}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+@AllComponents
+class DumpGeneratorTest
+{
+    /**
+     * The number of pages of the generated dumps: 30 content pages, 5 images, 3 templates and 4 categories.
+     */
+    private static final int PAGES = 42;
+
+    private static final Pattern SHA1 = Pattern.compile("<sha1>([^<]*)</sha1>");
+
+    private static final Pattern TEXT = Pattern.compile("<text[^>]*>([^<]*)</text>");
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    @TempDir
+    File tmpDir;
+
+    /**
+     * Remember the names of the sent documents.
+     */
+    private static class DocumentCollector implements WikiDocumentFilter
+    {
+        private final List<String> documents = new ArrayList<>();
+
+        @Override
+        public void beginWikiDocument(String name, FilterEventParameters parameters)
+        {
+            this.documents.add(name);
+        }
+
+        @Override
+        public void endWikiDocument(String name, FilterEventParameters parameters)
+        {
+            // Not needed
+        }
+
+        @Override
+        public void beginWikiDocumentLocale(Locale locale, FilterEventParameters parameters)
+        {
+            // Not needed
+        }
+
+        @Override
+        public void endWikiDocumentLocale(Locale locale, FilterEventParameters parameters)
+        {
+            // Not needed
+        }
+
+        @Override
+        public void beginWikiDocumentRevision(String revision, FilterEventParameters parameters)
+        {
+            // Not needed
+        }
+
+        @Override
+        public void endWikiDocumentRevision(String revision, FilterEventParameters parameters)
+        {
+            // Not needed
+        }
+    }
+
+    private Map<String, String> createConfiguration(String seed)
+    {
+        Map<String, String> configuration = new HashMap<>();
+        configuration.put("seed", seed);
+        configuration.put("pages", "30");
+        configuration.put("images", "5");
+        configuration.put("templates", "3");
+        configuration.put("categories", "4");
+
+        return configuration;
+    }
+
+    private byte[] generate(String seed) throws Exception
+    {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new DumpGenerator(createConfiguration(seed)).generate(stream);
+
+        return stream.toByteArray();
+    }
+
+    private List<String> read(File dump, File manifest, File previousManifest) throws Exception
+    {
+        MediaWikiInputProperties properties = new MediaWikiInputProperties();
+        properties.setSource(new DefaultFileInputSource(dump));
+        properties.setManifest(manifest);
+        properties.setPreviousManifest(previousManifest);
+
+        BeanInputFilterStreamFactory<MediaWikiInputProperties> factory = this.componentManager
+            .getInstance(InputFilterStreamFactory.class, MediaWikiInputProperties.FILTER_STREAM_TYPE_STRING);
+
+        DocumentCollector collector = new DocumentCollector();
+        try (BeanInputFilterStream<MediaWikiInputProperties> stream = factory.createInputFilterStream(properties)) {
+            stream.read(collector);
+        }
+
+        return collector.documents;
+    }
+
+    @Test
+    void sha1()
+    {
+        // The SHA-1 of an empty revision in a MediaWiki dump
+        assertEquals("phoiac9h4m842xq45sp7s6u21eteeq1", DumpGenerator.sha1(""));
+
+        for (String text : new String[] {"a", "some content", "\u00C9t\u00E9 \u65E5\u672C\u8A9E"}) {
+            String sha1 = DumpGenerator.sha1(text);
+
+            assertEquals(31, sha1.length(), text);
+            assertTrue(StringUtils.containsOnly(sha1, "0123456789abcdefghijklmnopqrstuvwxyz"), sha1);
+        }
+    }
+
+    @Test
+    void generateWithSameSeed() throws Exception
+    {
+        byte[] dump = generate("42");
+
+        assertArrayEquals(dump, generate("42"));
+        assertFalse(Arrays.equals(dump, generate("43")));
+
+        // Each revision has the base 36 SHA-1 of its content
+        String xml = new String(dump, StandardCharsets.UTF_8);
+        Matcher sha1Matcher = SHA1.matcher(xml);
+        Matcher textMatcher = TEXT.matcher(xml);
+        int revisions = 0;
+        while (sha1Matcher.find()) {
+            assertTrue(textMatcher.find());
+
+            String text = textMatcher.group(1).replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                .replace("&amp;", "&");
+            assertEquals(DumpGenerator.sha1(text), sha1Matcher.group(1));
+
+            ++revisions;
+        }
+        assertFalse(textMatcher.find());
+        assertTrue(revisions >= PAGES, "Only [" + revisions + "] revisions");
+    }
+
+    @Test
+    void importGeneratedDump() throws Exception
+    {
+        File dump = new File(this.tmpDir, "dump.xml");
+        try (OutputStream stream = new FileOutputStream(dump)) {
+            new DumpGenerator(createConfiguration("42")).generate(stream);
+        }
+
+        File manifest = new File(this.tmpDir, "dump.manifest");
+
+        // All the pages (content pages, templates, categories and images) are imported
+        List<String> documents = read(dump, manifest, null);
+        assertEquals(PAGES, documents.size());
+
+        // The SHA-1 of all the pages is known on the next import, so nothing changed
+        assertEquals(0, read(dump, new File(this.tmpDir, "next.manifest"), manifest).size());
+    }
+}
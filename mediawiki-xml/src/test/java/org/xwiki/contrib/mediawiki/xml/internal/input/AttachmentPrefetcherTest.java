@@ -0,0 +1,219 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.contrib.mediawiki.xml.internal.input.AttachmentPrefetcher.Attachment;
+import org.xwiki.filter.FilterException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Validate {@link AttachmentPrefetcher}.
+ *
+ * @version $Id$
+ */
+class AttachmentPrefetcherTest
+{
+    private final AtomicInteger resolved = new AtomicInteger();
+
+    private final AtomicInteger opened = new AtomicInteger();
+
+    private final CountDownLatch slow = new CountDownLatch(1);
+
+    private AttachmentPrefetcher prefetcher;
+
+    @AfterEach
+    void afterEach()
+    {
+        if (this.prefetcher != null) {
+            this.prefetcher.close();
+        }
+    }
+
+    /**
+     * The size of the attachment is the number after the last dash in the file name.
+     */
+    private Attachment resolve(String fileName) throws FilterException
+    {
+        this.resolved.incrementAndGet();
+
+        if (fileName.startsWith("missing")) {
+            return null;
+        } else if (fileName.startsWith("error")) {
+            throw new FilterException("Failed to resolve [" + fileName + "]");
+        } else if (fileName.startsWith("slow")) {
+            try {
+                this.slow.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        byte[] content = new byte[Integer.parseInt(fileName.substring(fileName.lastIndexOf('-') + 1))];
+        Arrays.fill(content, (byte) fileName.charAt(0));
+
+        return new Attachment(content.length, () -> {
+            this.opened.incrementAndGet();
+
+            return new ByteArrayInputStream(content);
+        });
+    }
+
+    private Attachment prefetch(String fileName) throws FilterException
+    {
+        this.prefetcher.prefetch(fileName);
+
+        return this.prefetcher.take(fileName);
+    }
+
+    private static byte[] read(Attachment attachment) throws IOException
+    {
+        try (InputStream stream = attachment.openStream()) {
+            return IOUtils.toByteArray(stream);
+        }
+    }
+
+    @Test
+    void budget() throws FilterException, IOException
+    {
+        this.prefetcher = new AttachmentPrefetcher(this::resolve, 2, 10, 10);
+
+        // Read ahead
+        Attachment a = prefetch("a-6");
+        assertEquals(1, this.opened.get());
+
+        // Not enough budget left: only the metadata is prefetched
+        Attachment b = prefetch("b-6");
+        assertEquals(1, this.opened.get());
+        assertEquals(6, b.getSize());
+
+        // The content read ahead is still available until released
+        byte[] expected = new byte[6];
+        Arrays.fill(expected, (byte) 'a');
+        assertArrayEquals(expected, read(a));
+        assertEquals(1, this.opened.get());
+        this.prefetcher.release(a);
+        // Releasing twice or releasing an attachment which was not read ahead does not give back more budget
+        this.prefetcher.release(a);
+        this.prefetcher.release(b);
+
+        // The released budget allows reading ahead again
+        Attachment c = prefetch("c-6");
+        assertEquals(2, this.opened.get());
+
+        // Released or not read ahead: the content is read when sent
+        assertEquals(6, read(a).length);
+        assertEquals(6, read(b).length);
+        assertEquals(4, this.opened.get());
+
+        // Still exhausted by c
+        prefetch("d-6");
+        assertEquals(4, this.opened.get());
+
+        this.prefetcher.release(c);
+        prefetch("e-4");
+        prefetch("f-6");
+        assertEquals(6, this.opened.get());
+    }
+
+    @Test
+    void readAheadSize() throws FilterException, IOException
+    {
+        this.prefetcher = new AttachmentPrefetcher(this::resolve, 1, 100, 10);
+
+        Attachment attachment = prefetch("a-11");
+        assertEquals(0, this.opened.get());
+        assertEquals(11, read(attachment).length);
+        assertEquals(1, this.opened.get());
+    }
+
+    @Test
+    void take() throws FilterException
+    {
+        this.prefetcher = new AttachmentPrefetcher(this::resolve, 1, 100, 10);
+
+        // Prefetched only once
+        this.prefetcher.prefetch("a-1");
+        this.prefetcher.prefetch("a-1");
+        Attachment attachment = this.prefetcher.take("a-1");
+        assertEquals(1, this.resolved.get());
+
+        // Not prefetched
+        assertEquals(1, this.prefetcher.take("b-1").getSize());
+        assertEquals(2, this.resolved.get());
+
+        assertNull(prefetch("missing-1"));
+
+        assertEquals("Failed to resolve [error-1]",
+            assertThrows(FilterException.class, () -> prefetch("error-1")).getMessage());
+
+        this.prefetcher.close();
+
+        // Resolved when taken once closed
+        assertEquals(1, prefetch("c-1").getSize());
+        assertEquals(1, attachment.getSize());
+    }
+
+    @Test
+    void discard() throws Exception
+    {
+        // A single thread so that the tasks are executed in order
+        this.prefetcher = new AttachmentPrefetcher(this::resolve, 1, 10, 10);
+
+        // Discarded after being read ahead
+        this.prefetcher.prefetch("a-6");
+        while (this.opened.get() == 0) {
+            Thread.sleep(1);
+        }
+        this.prefetcher.discard("a-6");
+
+        // The budget was given back
+        prefetch("b-6");
+        assertEquals(2, this.opened.get());
+
+        // Discarded before being resolved
+        this.prefetcher.prefetch("slow-0");
+        this.prefetcher.prefetch("c-10");
+        this.prefetcher.discard("c-10");
+        this.slow.countDown();
+        assertEquals(0, this.prefetcher.take("slow-0").getSize());
+        assertEquals(3, this.resolved.get());
+
+        // Not prefetched anymore
+        this.prefetcher.take("c-10");
+        assertEquals(4, this.resolved.get());
+
+        // Discarding an unknown attachment does nothing
+        this.prefetcher.discard("d-1");
+    }
+}
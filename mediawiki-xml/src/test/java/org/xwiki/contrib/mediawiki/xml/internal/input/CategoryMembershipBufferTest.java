@@ -0,0 +1,155 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.contrib.mediawiki.xml.internal.input.CategoryMembershipBuffer.Cursor;
+import org.xwiki.contrib.mediawiki.xml.internal.input.CategoryMembershipBuffer.Record;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link CategoryMembershipBuffer}.
+ *
+ * @version $Id$
+ */
+class CategoryMembershipBufferTest
+{
+    private static int countRunFiles()
+    {
+        String[] files = new File(System.getProperty("java.io.tmpdir"))
+            .list((dir, name) -> name.startsWith("mediawiki-categories") && name.endsWith(".run"));
+
+        return files != null ? files.length : 0;
+    }
+
+    private static String toString(Record record)
+    {
+        return record.getCategory() + '|' + record.getType() + '|' + record.getValue();
+    }
+
+    private static List<String> read(CategoryMembershipBuffer buffer) throws IOException
+    {
+        List<String> records = new ArrayList<>();
+        try (Cursor cursor = buffer.merge()) {
+            for (Record record = cursor.next(); record != null; record = cursor.next()) {
+                records.add(toString(record));
+            }
+
+            assertNull(cursor.next());
+        }
+
+        return records;
+    }
+
+    /**
+     * Add random records, with duplicates both in the same run and in different runs.
+     */
+    private static List<String> add(CategoryMembershipBuffer buffer, int count) throws IOException
+    {
+        Random random = new Random(42);
+        TreeSet<String> expected = new TreeSet<>();
+        for (int i = 0; i < count; ++i) {
+            String category = "Category" + random.nextInt(10);
+            byte type = (byte) random.nextInt(CategoryMembershipBuffer.TYPE_MEMBER + 1);
+            // Non ASCII, and big enough to need several reads from the run files
+            String value = "Page\u00e9\uD83D\uDE00" + random.nextInt(count / 3);
+            if (i % 50 == 0) {
+                value += new String(new char[70000]);
+            }
+
+            buffer.add(category, type, value);
+            if (i % 7 == 0) {
+                buffer.add(category, type, value);
+            }
+            expected.add(category + '|' + type + '|' + value);
+        }
+
+        // Same order as the buffer: the categories have the same length and the types a single digit
+        return new ArrayList<>(expected);
+    }
+
+    @Test
+    void inMemory() throws IOException
+    {
+        try (CategoryMembershipBuffer buffer = new CategoryMembershipBuffer(Long.MAX_VALUE)) {
+            buffer.add("B", CategoryMembershipBuffer.TYPE_MEMBER, "Page2");
+            buffer.add("B", CategoryMembershipBuffer.TYPE_MEMBER, "Page1");
+            buffer.add("A", CategoryMembershipBuffer.TYPE_MEMBER, "Page1");
+            buffer.add("B", CategoryMembershipBuffer.TYPE_LINKED_TITLE, "Category:B");
+            buffer.add("B", CategoryMembershipBuffer.TYPE_MEMBER, "Page2");
+
+            assertEquals(5, buffer.size());
+            assertEquals(0, buffer.getRuns());
+            assertEquals(Arrays.asList("A|1|Page1", "B|0|Category:B", "B|1|Page1", "B|1|Page2"), read(buffer));
+        }
+    }
+
+    @Test
+    void spill() throws IOException
+    {
+        int runFiles = countRunFiles();
+
+        try (CategoryMembershipBuffer buffer = new CategoryMembershipBuffer(2000)) {
+            List<String> expected = add(buffer, 1000);
+
+            assertEquals(1143, buffer.size());
+            assertTrue(buffer.getRuns() > 1 && buffer.getRuns() < 128, "Unexpected runs: " + buffer.getRuns());
+            assertEquals(runFiles + buffer.getRuns(), countRunFiles());
+
+            // Some records are still in memory
+            assertEquals(expected, read(buffer));
+        }
+
+        assertEquals(runFiles, countRunFiles());
+    }
+
+    @Test
+    void reduceRuns() throws IOException
+    {
+        int runFiles = countRunFiles();
+
+        // A run file for each record
+        try (CategoryMembershipBuffer buffer = new CategoryMembershipBuffer(1)) {
+            List<String> expected = add(buffer, 300);
+
+            assertEquals(343, buffer.size());
+            assertEquals(343, buffer.getRuns());
+
+            assertEquals(expected, read(buffer));
+
+            // The 128 oldest runs merged twice
+            assertEquals(343 - 2 * 127, buffer.getRuns());
+            assertEquals(runFiles + buffer.getRuns(), countRunFiles());
+        }
+
+        assertEquals(runFiles, countRunFiles());
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.EntityReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Validate {@link EntityReferenceCache}.
+ *
+ * @version $Id$
+ */
+class EntityReferenceCacheTest
+{
+    private final List<String> resolved = new ArrayList<>();
+
+    private final Function<String, EntityReference> resolver = reference -> {
+        this.resolved.add(reference);
+
+        return reference.startsWith("Special:") ? null : new EntityReference(reference, EntityType.DOCUMENT);
+    };
+
+    private final Function<String, EntityReference> linkResolver = reference -> {
+        this.resolved.add("link " + reference);
+
+        return new EntityReference(reference, EntityType.ATTACHMENT);
+    };
+
+    @Test
+    void get()
+    {
+        EntityReferenceCache cache = new EntityReferenceCache(10);
+
+        EntityReference page = cache.get("Page", false, this.resolver);
+        assertEquals(new EntityReference("Page", EntityType.DOCUMENT), page);
+        assertSame(page, cache.get("Page", false, this.resolver));
+        assertEquals(1, this.resolved.size());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // A link to the same target is resolved separately
+        EntityReference link = cache.get("Page", true, this.linkResolver);
+        assertEquals(EntityType.ATTACHMENT, link.getType());
+        assertSame(link, cache.get("Page", true, this.linkResolver));
+        assertSame(page, cache.get("Page", false, this.resolver));
+        assertEquals(2, this.resolved.size());
+        assertEquals(3, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        // The references resolved to null are also cached
+        assertNull(cache.get("Special:Page", false, this.resolver));
+        assertNull(cache.get("Special:Page", false, this.resolver));
+        assertEquals(3, this.resolved.size());
+        assertEquals(4, cache.getHits());
+        assertEquals(3, cache.getMisses());
+
+        cache.clear();
+        assertEquals(page, cache.get("Page", false, this.resolver));
+        assertEquals(4, this.resolved.size());
+    }
+
+    @Test
+    void evictLeastRecentlyUsed()
+    {
+        EntityReferenceCache cache = new EntityReferenceCache(2);
+
+        cache.get("A", false, this.resolver);
+        cache.get("B", false, this.resolver);
+        // A is now the most recently used
+        cache.get("A", false, this.resolver);
+        cache.get("C", false, this.resolver);
+        assertEquals(3, this.resolved.size());
+
+        // B was evicted
+        cache.get("A", false, this.resolver);
+        cache.get("C", false, this.resolver);
+        assertEquals(3, this.resolved.size());
+        cache.get("B", false, this.resolver);
+        assertEquals(4, this.resolved.size());
+        assertEquals("B", this.resolved.get(3));
+
+        // A was evicted
+        cache.get("A", false, this.resolver);
+        assertEquals(5, this.resolved.size());
+        assertEquals(3, cache.getHits());
+        assertEquals(5, cache.getMisses());
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * Validate {@link FileAttachmentInputStream}.
+ *
+ * @version $Id$
+ */
+class FileAttachmentInputStreamTest
+{
+    private static final int SIZE = 100000;
+
+    @TempDir
+    File tmpDir;
+
+    private File file;
+
+    private byte[] content;
+
+    /**
+     * A channel which does not accept any byte the first times it's written to.
+     */
+    private static class FullChannel implements WritableByteChannel
+    {
+        private final WritableByteChannel channel;
+
+        private int refusedWrites;
+
+        FullChannel(OutputStream stream, int refusedWrites)
+        {
+            this.channel = Channels.newChannel(stream);
+            this.refusedWrites = refusedWrites;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException
+        {
+            if (this.refusedWrites > 0) {
+                --this.refusedWrites;
+
+                return 0;
+            }
+
+            return this.channel.write(src);
+        }
+
+        @Override
+        public boolean isOpen()
+        {
+            return this.channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            this.channel.close();
+        }
+    }
+
+    @BeforeEach
+    void beforeEach() throws IOException
+    {
+        this.content = new byte[SIZE];
+        new Random(42).nextBytes(this.content);
+
+        this.file = new File(this.tmpDir, "attachment.bin");
+        FileUtils.writeByteArrayToFile(this.file, this.content);
+    }
+
+    private byte[] remaining(int offset)
+    {
+        byte[] remaining = new byte[SIZE - offset];
+        System.arraycopy(this.content, offset, remaining, 0, remaining.length);
+
+        return remaining;
+    }
+
+    @Test
+    void transferToChannel() throws IOException
+    {
+        try (FileAttachmentInputStream stream = new FileAttachmentInputStream(this.file)) {
+            assertEquals(SIZE, stream.getSize());
+
+            // Partial read
+            byte[] start = new byte[100];
+            assertEquals(100, IOUtils.read(stream, start));
+            assertEquals(100, stream.getChannel().position());
+            assertEquals(SIZE, stream.getSize());
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(SIZE - 100, stream.transferTo(Channels.newChannel(out)));
+            assertArrayEquals(remaining(100), out.toByteArray());
+
+            // Everything was consumed
+            assertEquals(SIZE, stream.getChannel().position());
+            assertEquals(-1, stream.read());
+            assertEquals(0, stream.transferTo(Channels.newChannel(out)));
+        }
+    }
+
+    @Test
+    void transferToFile() throws IOException
+    {
+        File target = new File(this.tmpDir, "target.bin");
+
+        try (FileAttachmentInputStream stream = new FileAttachmentInputStream(this.file);
+            FileOutputStream out = new FileOutputStream(target)) {
+            assertEquals(10, stream.skip(10));
+
+            assertEquals(SIZE - 10, stream.transferTo(out));
+        }
+
+        assertArrayEquals(remaining(10), FileUtils.readFileToByteArray(target));
+    }
+
+    @Test
+    void transferToFullChannel() throws IOException
+    {
+        try (FileAttachmentInputStream stream = new FileAttachmentInputStream(this.file)) {
+            assertEquals(1, stream.skip(1));
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(SIZE - 1, stream.transferTo(new FullChannel(out, 1)));
+            assertArrayEquals(remaining(1), out.toByteArray());
+            assertEquals(-1, stream.read());
+        }
+    }
+
+    @Test
+    void transferToAlwaysFullChannel() throws IOException
+    {
+        try (FileAttachmentInputStream stream = new FileAttachmentInputStream(this.file)) {
+            FullChannel channel = new FullChannel(new ByteArrayOutputStream(), Integer.MAX_VALUE);
+
+            // Fails instead of trying forever
+            assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> assertThrows(RuntimeException.class, () -> stream.transferTo(channel)));
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Validate {@link ImageHeaderReader}.
+ *
+ * @version $Id$
+ */
+class ImageHeaderReaderTest
+{
+    @TempDir
+    File tmpDir;
+
+    private static Dimension read(byte[] content, String fileName) throws IOException
+    {
+        return ImageHeaderReader.read(new ByteArrayInputStream(content), fileName);
+    }
+
+    private static byte[] write(String format, int width, int height) throws IOException
+    {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), format, stream);
+
+        return stream.toByteArray();
+    }
+
+    private static byte[] webp(char type, byte[] data)
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(20 + data.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("RIFF".getBytes(StandardCharsets.US_ASCII));
+        buffer.putInt(12 + data.length);
+        buffer.put(("WEBPVP8" + type).getBytes(StandardCharsets.US_ASCII));
+        buffer.putInt(data.length);
+        buffer.put(data);
+
+        return buffer.array();
+    }
+
+    private static byte[] svg(String root)
+    {
+        return ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<!-- comment -->\n" + root + "<rect/></svg>")
+            .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void png() throws IOException
+    {
+        assertEquals(new Dimension(300, 200), read(write("png", 300, 200), "image.png"));
+        // The name does not matter
+        assertEquals(new Dimension(1, 70000), read(write("png", 1, 70000), "image"));
+    }
+
+    @Test
+    void gif() throws IOException
+    {
+        assertEquals(new Dimension(300, 200), read(write("gif", 300, 200), "image.gif"));
+    }
+
+    @Test
+    void jpeg() throws IOException
+    {
+        assertEquals(new Dimension(300, 200), read(write("jpg", 300, 200), "image.jpg"));
+    }
+
+    @Test
+    void jpegWithEXIF() throws IOException
+    {
+        byte[] jpeg = write("jpg", 300, 200);
+
+        // An APP1 segment bigger than the read header, followed by fill bytes
+        byte[] exif = new byte[2000];
+        exif[0] = (byte) 0xFF;
+        exif[1] = (byte) 0xE1;
+        exif[2] = (byte) ((exif.length - 2) >> 8);
+        exif[3] = (byte) (exif.length - 2);
+        System.arraycopy("Exif\0\0".getBytes(StandardCharsets.US_ASCII), 0, exif, 4, 6);
+        // Looks like a frame header, but it's the content of the segment
+        exif[100] = (byte) 0xFF;
+        exif[101] = (byte) 0xC0;
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(jpeg, 0, 2);
+        stream.write(exif);
+        stream.write(0xFF);
+        stream.write(jpeg, 2, jpeg.length - 2);
+        byte[] content = stream.toByteArray();
+
+        assertEquals(new Dimension(300, 200), read(content, "image.jpg"));
+
+        File file = new File(this.tmpDir, "image.jpg");
+        FileUtils.writeByteArrayToFile(file, content);
+        assertEquals(new Dimension(300, 200), ImageHeaderReader.read(file));
+
+        // Truncated before the frame header
+        assertNull(read(Arrays.copyOf(content, 1000), "image.jpg"));
+        assertNull(read(Arrays.copyOf(content, 2 + exif.length + 10), "image.jpg"));
+    }
+
+    @Test
+    void jpegWithoutFrameHeader() throws IOException
+    {
+        assertNull(read(new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xDA, 0, 2}, "image.jpg"));
+        assertNull(read(new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xD9}, "image.jpg"));
+    }
+
+    @Test
+    void webpLossy() throws IOException
+    {
+        byte[] data = new byte[10];
+        // Frame tag, start code, then the dimensions with the scale in the 2 upper bits
+        data[3] = (byte) 0x9d;
+        data[4] = 0x01;
+        data[5] = 0x2a;
+        ByteBuffer.wrap(data, 6, 4).order(ByteOrder.LITTLE_ENDIAN).putShort((short) (300 | 0x4000))
+            .putShort((short) (200 | 0xC000));
+
+        assertEquals(new Dimension(300, 200), read(webp(' ', data), "image.webp"));
+
+        data[3] = 0;
+        assertNull(read(webp(' ', data), "image.webp"));
+    }
+
+    @Test
+    void webpLossless() throws IOException
+    {
+        int width = 16383;
+        int height = 1000;
+
+        byte[] data = new byte[10];
+        data[0] = 0x2f;
+        // 14 bits width and height minus one
+        int bits = (width - 1) | (height - 1) << 14;
+        ByteBuffer.wrap(data, 1, 4).order(ByteOrder.LITTLE_ENDIAN).putInt(bits);
+
+        assertEquals(new Dimension(width, height), read(webp('L', data), "image.webp"));
+
+        data[0] = 0;
+        assertNull(read(webp('L', data), "image.webp"));
+    }
+
+    @Test
+    void webpExtended() throws IOException
+    {
+        byte[] data = new byte[10];
+        // Flags, then the 24 bits canvas width and height minus one
+        data[4] = (byte) 0xFF;
+        data[5] = (byte) 0xFF;
+        data[6] = 0x01;
+        data[7] = (byte) 199;
+
+        assertEquals(new Dimension(0x20000, 200), read(webp('X', data), "image.webp"));
+
+        assertNull(read(webp('?', data), "image.webp"));
+    }
+
+    @Test
+    void svg() throws IOException
+    {
+        assertEquals(new Dimension(300, 200),
+            read(svg("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"300\" height='200px'>"), "image.svg"));
+        assertEquals(new Dimension(301, 200),
+            read(svg("<svg width=\"300.6\" height=\"200.2\" viewBox=\"0 0 10 10\">"), "image.SVG"));
+
+        // Relative or missing dimensions
+        assertEquals(new Dimension(640, 480),
+            read(svg("<svg width=\"100%\" height=\"100%\" viewBox=\"-10 -10.5 640 480\">"), "image.svg"));
+        assertEquals(new Dimension(640, 480), read(svg("<SVG viewBox='0,0,640,480'>"), "image.svg"));
+        assertNull(read(svg("<svg width=\"100%\" height=\"100%\">"), "image.svg"));
+
+        // After a big prolog
+        char[] comment = new char[2000];
+        Arrays.fill(comment, 'x');
+        assertEquals(new Dimension(640, 480),
+            read(svg("<!--" + new String(comment) + "-->\n<svg viewBox=\"0 0 640 480\">"), "image.svg"));
+
+        // Not a SVG file
+        assertNull(read(svg("<svg viewBox=\"0 0 640 480\">"), "image.xml"));
+    }
+
+    @Test
+    void unsupported() throws IOException
+    {
+        assertNull(read(new byte[0], "image.png"));
+        assertNull(read("BM".getBytes(StandardCharsets.US_ASCII), "image.bmp"));
+        assertNull(read(Arrays.copyOf(write("png", 300, 200), 20), "image.png"));
+    }
+}
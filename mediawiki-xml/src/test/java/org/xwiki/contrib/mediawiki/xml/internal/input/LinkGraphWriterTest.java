@@ -0,0 +1,160 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xwiki.contrib.mediawiki.xml.internal.input.LinkGraphWriter.Edge;
+import org.xwiki.contrib.mediawiki.xml.internal.input.LinkGraphWriter.Kind;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link LinkGraphWriter}.
+ *
+ * @version $Id$
+ */
+class LinkGraphWriterTest
+{
+    @TempDir
+    File tmpDir;
+
+    private static List<String> readLines(File file) throws IOException
+    {
+        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void write() throws IOException
+    {
+        File file = new File(this.tmpDir, "links.ndjson");
+
+        try (LinkGraphWriter writer = new LinkGraphWriter(file)) {
+            writer.write("Main.WebHome", "1", Arrays.asList(new Edge(Kind.LINK, "Page.WebHome"),
+                new Edge(Kind.ATTACHMENT, "Main.WebHome@File.txt"), new Edge(Kind.IMAGE, "Page.WebHome@Image.png")));
+            // Nothing to write
+            writer.write("Empty.WebHome", "1", Collections.emptyList());
+            writer.write("Page.WebHome", "2", Arrays.asList(new Edge(Kind.LINK, "Main.WebHome")));
+
+            assertEquals(4, writer.getEdges());
+        }
+
+        assertEquals(Arrays.asList(
+            "{\"source\":\"Main.WebHome\",\"revision\":\"1\",\"kind\":\"link\",\"target\":\"Page.WebHome\"}",
+            "{\"source\":\"Main.WebHome\",\"revision\":\"1\",\"kind\":\"attachment\","
+                + "\"target\":\"Main.WebHome@File.txt\"}",
+            "{\"source\":\"Main.WebHome\",\"revision\":\"1\",\"kind\":\"image\",\"target\":\"Page.WebHome@Image.png\"}",
+            "{\"source\":\"Page.WebHome\",\"revision\":\"2\",\"kind\":\"link\",\"target\":\"Main.WebHome\"}"),
+            readLines(file));
+    }
+
+    @Test
+    void escape() throws IOException
+    {
+        File file = new File(this.tmpDir, "links.ndjson");
+
+        try (LinkGraphWriter writer = new LinkGraphWriter(file)) {
+            writer.write("Page \"quoted\".WebHome", null,
+                Arrays.asList(new Edge(Kind.LINK, "Back\\slash\\.WebHome"),
+                    new Edge(Kind.LINK, "Control\n\t\r\u0000\u001f .WebHome"),
+                    new Edge(Kind.LINK, "Unicode \u00e4\u2019\ud83d\ude00.WebHome")));
+        }
+
+        assertEquals(Arrays.asList(
+            "{\"source\":\"Page \\\"quoted\\\".WebHome\",\"revision\":null,\"kind\":\"link\","
+                + "\"target\":\"Back\\\\slash\\\\.WebHome\"}",
+            "{\"source\":\"Page \\\"quoted\\\".WebHome\",\"revision\":null,\"kind\":\"link\","
+                + "\"target\":\"Control\\u000a\\u0009\\u000d\\u0000\\u001f .WebHome\"}",
+            "{\"source\":\"Page \\\"quoted\\\".WebHome\",\"revision\":null,\"kind\":\"link\","
+                + "\"target\":\"Unicode \u00e4\u2019\ud83d\ude00.WebHome\"}"),
+            readLines(file));
+    }
+
+    @Test
+    void gzip() throws IOException
+    {
+        File file = new File(this.tmpDir, "links.ndjson.gz");
+
+        try (LinkGraphWriter writer = new LinkGraphWriter(file)) {
+            writer.write("Main.WebHome", "1", Arrays.asList(new Edge(Kind.LINK, "Page.WebHome")));
+        }
+
+        try (GZIPInputStream stream = new GZIPInputStream(Files.newInputStream(file.toPath()))) {
+            assertEquals(
+                "{\"source\":\"Main.WebHome\",\"revision\":\"1\",\"kind\":\"link\",\"target\":\"Page.WebHome\"}\n",
+                IOUtils.toString(stream, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void concurrentWrites() throws Exception
+    {
+        File file = new File(this.tmpDir, "links.ndjson");
+
+        int threads = 4;
+        int revisions = 1000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (LinkGraphWriter writer = new LinkGraphWriter(file)) {
+            Future<?>[] futures = new Future<?>[threads];
+            for (int i = 0; i < threads; ++i) {
+                String source = "Page" + i + ".WebHome";
+                futures[i] = executor.submit(() -> {
+                    for (int j = 0; j < revisions; ++j) {
+                        writer.write(source, String.valueOf(j),
+                            Arrays.asList(new Edge(Kind.LINK, "A.WebHome"), new Edge(Kind.LINK, "B.WebHome")));
+                    }
+
+                    return null;
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            assertEquals(threads * revisions * 2L, writer.getEdges());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<String> lines = readLines(file);
+        assertEquals(threads * revisions * 2, lines.size());
+
+        // The edges of a revision are written together
+        for (int i = 0; i < lines.size(); i += 2) {
+            assertTrue(lines.get(i).endsWith("\"target\":\"A.WebHome\"}"), lines.get(i));
+            assertEquals(lines.get(i).replace("\"A.WebHome\"", "\"B.WebHome\""), lines.get(i + 1));
+        }
+    }
+}
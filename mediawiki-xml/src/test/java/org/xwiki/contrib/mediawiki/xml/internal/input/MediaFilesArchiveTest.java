@@ -0,0 +1,214 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link MediaFilesArchive}.
+ *
+ * @version $Id$
+ */
+class MediaFilesArchiveTest
+{
+    @TempDir
+    File tmpDir;
+
+    private static String getHashedPath(String fileName)
+    {
+        String md5 = DigestUtils.md5Hex(fileName);
+
+        return md5.charAt(0) + "/" + md5.substring(0, 2) + '/' + fileName;
+    }
+
+    /**
+     * @return the content of the archive, by path
+     */
+    private static Map<String, String> createFiles(String root)
+    {
+        Map<String, String> files = new LinkedHashMap<>();
+        files.put(root + getHashedPath("Image.png"), "image");
+        files.put(root + getHashedPath("Other image.png"), "other image");
+        files.put(root + "Flat.png", "flat");
+        // Also stored in the hashed folder, which has priority
+        files.put(root + "Image.png", "flat image");
+
+        return files;
+    }
+
+    private File createZip(String name, Map<String, String> files) throws IOException
+    {
+        File archive = new File(this.tmpDir, name);
+
+        try (ZipArchiveOutputStream stream = new ZipArchiveOutputStream(archive)) {
+            for (Map.Entry<String, String> file : files.entrySet()) {
+                // Some archivers add the folders as entries
+                int index = file.getKey().lastIndexOf('/');
+                if (index > 0) {
+                    stream.putArchiveEntry(new ZipArchiveEntry(file.getKey().substring(0, index + 1)));
+                    stream.closeArchiveEntry();
+                }
+
+                write(stream, new ZipArchiveEntry(file.getKey()), file.getValue());
+            }
+        }
+
+        return archive;
+    }
+
+    private File createTar(String name, Map<String, String> files, boolean compressed) throws IOException
+    {
+        File archive = new File(this.tmpDir, name);
+
+        try (OutputStream output = compressed ? new GzipCompressorOutputStream(new FileOutputStream(archive))
+            : new FileOutputStream(archive); TarArchiveOutputStream stream = new TarArchiveOutputStream(output)) {
+            stream.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+
+            for (Map.Entry<String, String> file : files.entrySet()) {
+                TarArchiveEntry entry = new TarArchiveEntry(file.getKey());
+                entry.setSize(file.getValue().getBytes(StandardCharsets.UTF_8).length);
+
+                write(stream, entry, file.getValue());
+            }
+        }
+
+        return archive;
+    }
+
+    private static void write(ArchiveOutputStream stream, ArchiveEntry entry, String content) throws IOException
+    {
+        stream.putArchiveEntry(entry);
+        stream.write(content.getBytes(StandardCharsets.UTF_8));
+        stream.closeArchiveEntry();
+    }
+
+    private static String read(MediaFilesArchive archive, String fileName) throws IOException
+    {
+        MediaFilesArchive.ArchivedFile file = archive.get(fileName);
+
+        assertNotNull(file, fileName);
+
+        try (InputStream stream = archive.openStream(file)) {
+            String content = IOUtils.toString(stream, StandardCharsets.UTF_8);
+
+            assertEquals(file.getSize(), content.length());
+
+            return content;
+        }
+    }
+
+    private static void assertArchive(File file, String root) throws IOException
+    {
+        assertTrue(MediaFilesArchive.isArchive(file));
+
+        try (MediaFilesArchive archive = MediaFilesArchive.open(file)) {
+            assertEquals(file, archive.getArchive());
+            assertEquals(4, archive.size());
+
+            assertEquals("image", read(archive, "Image.png"));
+            assertEquals(root + getHashedPath("Image.png"), archive.get("Image.png").getPath());
+            assertEquals("other image", read(archive, "Other image.png"));
+            assertEquals("flat", read(archive, "Flat.png"));
+
+            assertNull(archive.get("Missing.png"));
+            if (!root.isEmpty()) {
+                assertNull(archive.get(root + "Flat.png"));
+            }
+        }
+    }
+
+    @Test
+    void zip() throws IOException
+    {
+        assertArchive(createZip("files.zip", createFiles("")), "");
+    }
+
+    @Test
+    void zipWithRoot() throws IOException
+    {
+        assertArchive(createZip("files.zip", createFiles("images/")), "images/");
+    }
+
+    @Test
+    void tar() throws IOException
+    {
+        assertArchive(createTar("files.tar", createFiles(""), false), "");
+    }
+
+    @Test
+    void tarWithRoot() throws IOException
+    {
+        assertArchive(createTar("files.TAR", createFiles("images/"), false), "images/");
+    }
+
+    @Test
+    void compressedTarWithRoot() throws IOException
+    {
+        assertArchive(createTar("files.tar.gz", createFiles("images/"), true), "images/");
+        assertArchive(createTar("files.tgz", createFiles("images/"), true), "images/");
+    }
+
+    @Test
+    void singleHashedFolder() throws IOException
+    {
+        // All the files in the same hashed folder, which must not be mistaken for a root folder
+        Map<String, String> files = new LinkedHashMap<>();
+        files.put(getHashedPath("Image.png"), "image");
+
+        try (MediaFilesArchive archive = MediaFilesArchive.open(createZip("hashed.zip", files))) {
+            assertEquals("image", read(archive, "Image.png"));
+        }
+    }
+
+    @Test
+    void isArchive()
+    {
+        assertTrue(MediaFilesArchive.isArchive(new File("files.ZIP")));
+        assertTrue(MediaFilesArchive.isArchive(new File("files.tar.bz2")));
+        assertTrue(MediaFilesArchive.isArchive(new File("files.tbz2")));
+        assertFalse(MediaFilesArchive.isArchive(new File("files")));
+        assertFalse(MediaFilesArchive.isArchive(new File("files.gz")));
+    }
+}
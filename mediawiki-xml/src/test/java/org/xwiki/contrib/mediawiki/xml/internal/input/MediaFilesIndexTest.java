@@ -0,0 +1,203 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.text.Normalizer;
+import java.util.stream.Stream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link MediaFilesIndex}.
+ *
+ * @version $Id$
+ */
+class MediaFilesIndexTest
+{
+    /**
+     * An old date for the folders so that any change is visible even on file systems with a coarse granularity.
+     */
+    private static final FileTime OLD_DATE = FileTime.fromMillis(1500000000000L);
+
+    @TempDir
+    File tmpDir;
+
+    private File folder;
+
+    private File snapshot;
+
+    @BeforeEach
+    void beforeEach() throws IOException
+    {
+        this.folder = new File(this.tmpDir, "images");
+        this.snapshot = new File(this.tmpDir, "index.snapshot");
+
+        addHashedFile("Image.png", "image");
+        addHashedFile("File_with_ä.png", "a umlaut");
+        addFile("Flat.png", "flat");
+        // Also stored in the hashed folder, which has priority
+        addFile("Image.png", "flat image");
+        // Not the hashed folder of this name
+        addFile(getHashedPath("Image.png") + "Other.png", "other");
+
+        resetDates();
+    }
+
+    private static String getHashedPath(String fileName)
+    {
+        String md5 = DigestUtils.md5Hex(fileName);
+
+        return md5.charAt(0) + "/" + md5.substring(0, 2) + '/';
+    }
+
+    private File addHashedFile(String fileName, String content) throws IOException
+    {
+        return addFile(getHashedPath(fileName) + fileName, content);
+    }
+
+    private File addFile(String path, String content) throws IOException
+    {
+        File file = new File(this.folder, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+
+        return file;
+    }
+
+    private void resetDates() throws IOException
+    {
+        try (Stream<Path> paths = Files.walk(this.folder.toPath())) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (Files.isDirectory(path)) {
+                    Files.setLastModifiedTime(path, OLD_DATE);
+                }
+            }
+        }
+    }
+
+    @Test
+    void get() throws IOException
+    {
+        MediaFilesIndex index = MediaFilesIndex.build(this.folder);
+
+        assertEquals(3, index.size());
+
+        File image = index.get("Image.png");
+        assertEquals(new File(this.folder, getHashedPath("Image.png") + "Image.png"), image);
+        assertTrue(image.exists());
+        assertTrue(image.isFile());
+        assertEquals(5, image.length());
+
+        assertEquals(new File(this.folder, "Flat.png"), index.get("Flat.png"));
+
+        // Decomposed form of the name
+        assertEquals(new File(this.folder, getHashedPath("File_with_ä.png") + "File_with_ä.png"),
+            index.get(Normalizer.normalize("File_with_ä.png", Normalizer.Form.NFD)));
+
+        assertNull(index.get("Other.png"));
+        assertNull(index.get("Missing.png"));
+    }
+
+    @Test
+    void loadSnapshot() throws IOException
+    {
+        MediaFilesIndex.build(this.folder).save(this.snapshot);
+
+        MediaFilesIndex index = MediaFilesIndex.load(this.snapshot, this.folder);
+
+        assertNotNull(index);
+        assertEquals(3, index.size());
+        assertEquals(new File(this.folder, getHashedPath("Image.png") + "Image.png"), index.get("Image.png"));
+        assertEquals(5, index.get("Image.png").length());
+        assertNull(index.get("Missing.png"));
+
+        assertFalse(new File(this.tmpDir, "index.snapshot.tmp").exists());
+    }
+
+    @Test
+    void loadSnapshotOfAnotherFolder() throws IOException
+    {
+        MediaFilesIndex.build(this.folder).save(this.snapshot);
+
+        assertNull(MediaFilesIndex.load(this.snapshot, this.tmpDir));
+    }
+
+    @Test
+    void loadSnapshotAfterAddingFile() throws IOException
+    {
+        MediaFilesIndex.build(this.folder).save(this.snapshot);
+
+        // In the existing hashed folder of Image.png
+        String newFileName = "New0.png";
+        for (int i = 1; !getHashedPath(newFileName).equals(getHashedPath("Image.png")); ++i) {
+            newFileName = "New" + i + ".png";
+        }
+        addHashedFile(newFileName, "new");
+
+        assertNull(MediaFilesIndex.load(this.snapshot, this.folder));
+
+        MediaFilesIndex index = MediaFilesIndex.build(this.folder);
+        assertNotNull(index.get(newFileName));
+
+        resetDates();
+        MediaFilesIndex.build(this.folder).save(this.snapshot);
+        assertNotNull(MediaFilesIndex.load(this.snapshot, this.folder));
+
+        // In a new hashed folder
+        addHashedFile("Missing.png", "missing");
+
+        assertNull(MediaFilesIndex.load(this.snapshot, this.folder));
+
+        resetDates();
+        MediaFilesIndex.build(this.folder).save(this.snapshot);
+        assertNotNull(MediaFilesIndex.load(this.snapshot, this.folder));
+
+        // At the root of the media files folder
+        addFile("Other flat.png", "flat");
+
+        assertNull(MediaFilesIndex.load(this.snapshot, this.folder));
+    }
+
+    @Test
+    void loadSnapshotAfterRemovingFile() throws IOException
+    {
+        MediaFilesIndex.build(this.folder).save(this.snapshot);
+
+        Files.delete(new File(this.folder, getHashedPath("Image.png") + "Image.png").toPath());
+
+        assertNull(MediaFilesIndex.load(this.snapshot, this.folder));
+        assertEquals(new File(this.folder, "Image.png"), MediaFilesIndex.build(this.folder).get("Image.png"));
+    }
+}
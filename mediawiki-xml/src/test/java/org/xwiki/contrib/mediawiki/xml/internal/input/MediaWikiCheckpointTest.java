@@ -0,0 +1,211 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.EntityReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link MediaWikiCheckpoint}.
+ *
+ * @version $Id$
+ */
+class MediaWikiCheckpointTest
+{
+    private static final String HEADER = "<mediawiki>\n  <siteinfo><sitename>Test</sitename></siteinfo>\n  ";
+
+    private static final String FOOTER = "\n</mediawiki>";
+
+    private static final EntityReference PARENT = new EntityReference("Space2", EntityType.SPACE,
+        new EntityReference("Space1", EntityType.SPACE, new EntityReference("wiki", EntityType.WIKI)));
+
+    @TempDir
+    File tmpDir;
+
+    private static String page(int id)
+    {
+        return "<page><title>Page " + id + "</title><id>" + id + "</id></page>";
+    }
+
+    private static InputStream dump(int pages)
+    {
+        StringBuilder dump = new StringBuilder(HEADER);
+        for (int i = 1; i <= pages; ++i) {
+            dump.append(page(i));
+        }
+        dump.append(FOOTER);
+
+        return new ByteArrayInputStream(dump.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MediaWikiPage sendPage(MediaWikiCheckpoint checkpoint, int id) throws IOException
+    {
+        MediaWikiPage page =
+            new MediaWikiPage("Page " + id, new EntityReference("WebHome", EntityType.DOCUMENT, PARENT));
+        page.setId(String.valueOf(id));
+        page.setEndOffset(checkpoint.pollPageEnd());
+
+        checkpoint.onPageSent(page);
+
+        return page;
+    }
+
+    private static MediaWikiCheckpoint load(File file) throws IOException
+    {
+        MediaWikiCheckpoint checkpoint = new MediaWikiCheckpoint(file, 2);
+        checkpoint.load();
+
+        return checkpoint;
+    }
+
+    @Test
+    void notResuming() throws IOException
+    {
+        MediaWikiCheckpoint checkpoint = load(new File(this.tmpDir, "checkpoint.properties"));
+
+        assertFalse(checkpoint.isResuming());
+        assertEquals(-1, checkpoint.getResumeOffset());
+        assertNull(checkpoint.getResumePageTitle());
+        assertNull(checkpoint.getResumeParentReference());
+        assertEquals(-1, checkpoint.pollPageEnd());
+
+        try (InputStream stream = checkpoint.open(dump(2))) {
+            assertEquals(IOUtils.toString(dump(2), StandardCharsets.UTF_8),
+                IOUtils.toString(stream, StandardCharsets.UTF_8));
+        }
+
+        assertEquals(HEADER.length() + page(1).length(), checkpoint.pollPageEnd());
+        assertEquals(HEADER.length() + page(1).length() * 2, checkpoint.pollPageEnd());
+        assertEquals(-1, checkpoint.pollPageEnd());
+    }
+
+    @Test
+    void resume() throws IOException
+    {
+        File file = new File(this.tmpDir, "checkpoint.properties");
+
+        // Import the first 3 pages of the dump
+        MediaWikiCheckpoint checkpoint = load(file);
+        try (InputStream stream = checkpoint.open(dump(5))) {
+            IOUtils.toByteArray(stream);
+        }
+        sendPage(checkpoint, 1);
+        assertFalse(file.exists());
+        MediaWikiPage page2 = sendPage(checkpoint, 2);
+        assertTrue(file.exists());
+        // Not written before the next interval
+        sendPage(checkpoint, 3);
+
+        // Resume after the second page
+        checkpoint = load(file);
+        assertTrue(checkpoint.isResuming());
+        assertEquals(page2.getEndOffset(), checkpoint.getResumeOffset());
+        assertEquals("Page 2", checkpoint.getResumePageTitle());
+        assertEquals(PARENT, checkpoint.getResumeParentReference());
+
+        // The header is kept and the sent pages are skipped
+        try (InputStream stream = checkpoint.open(dump(5))) {
+            assertEquals(HEADER + page(3) + page(4) + page(5) + FOOTER,
+                IOUtils.toString(stream, StandardCharsets.UTF_8));
+        }
+
+        // The offsets are still the ones of the full dump
+        assertEquals(page2.getEndOffset() + page(3).length(), sendPage(checkpoint, 3).getEndOffset());
+        sendPage(checkpoint, 4);
+        MediaWikiPage page5 = sendPage(checkpoint, 5);
+        assertEquals(page2.getEndOffset() + page(3).length() * 3, page5.getEndOffset());
+
+        assertEquals(page5.getEndOffset() - page(5).length(), load(file).getResumeOffset());
+
+        checkpoint.complete();
+        assertFalse(file.exists());
+        assertFalse(load(file).isResuming());
+
+        // Nothing to delete
+        checkpoint.complete();
+    }
+
+    @Test
+    void heldPage() throws IOException
+    {
+        File file = new File(this.tmpDir, "checkpoint.properties");
+
+        MediaWikiCheckpoint checkpoint = load(file);
+        try (InputStream stream = checkpoint.open(dump(5))) {
+            IOUtils.toByteArray(stream);
+        }
+        sendPage(checkpoint, 1);
+        MediaWikiPage page2 = sendPage(checkpoint, 2);
+
+        // The third page is sent at the end of the import
+        checkpoint.pollPageEnd();
+        checkpoint.onPageHeld();
+        sendPage(checkpoint, 4);
+        sendPage(checkpoint, 5);
+
+        assertEquals(page2.getEndOffset(), load(file).getResumeOffset());
+    }
+
+    @Test
+    void unknownOffset() throws IOException
+    {
+        File file = new File(this.tmpDir, "checkpoint.properties");
+
+        MediaWikiCheckpoint checkpoint = load(file);
+        // Pages without known end offset cannot be resumed from
+        sendPage(checkpoint, 1);
+        sendPage(checkpoint, 2);
+
+        assertFalse(file.exists());
+    }
+
+    @Test
+    void invalidCheckpoint() throws IOException
+    {
+        File file = new File(this.tmpDir, "checkpoint.properties");
+
+        Files.write(file.toPath(), "offset=invalid".getBytes(StandardCharsets.ISO_8859_1));
+        assertThrows(IOException.class, () -> load(file));
+
+        // In the middle of the header
+        Files.write(file.toPath(), "offset=10".getBytes(StandardCharsets.ISO_8859_1));
+        MediaWikiCheckpoint checkpoint = load(file);
+        assertThrows(IOException.class, () -> checkpoint.open(dump(1)));
+
+        // No page in the dump
+        assertThrows(IOException.class, () -> checkpoint.open(dump(0)));
+    }
+}
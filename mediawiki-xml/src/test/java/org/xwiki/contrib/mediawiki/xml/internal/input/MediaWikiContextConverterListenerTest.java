@@ -0,0 +1,124 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xwiki.contrib.mediawiki.xml.input.MediaWikiInputProperties;
+import org.xwiki.filter.input.BeanInputFilterStreamFactory;
+import org.xwiki.filter.input.DefaultFileInputSource;
+import org.xwiki.filter.input.InputFilterStreamFactory;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link MediaWikiContextConverterListener}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+@AllComponents
+class MediaWikiContextConverterListenerTest
+{
+    private static final String DUMP = "/mediawikixml/1.26.3.xml";
+
+    private static final String FILES = "/mediawikixml/1.26.3-files";
+
+    private static final String PAGE = "  <page>\n    <title>Links_&quot;quoted&quot;</title>\n    <id>100</id>\n"
+        + "    <revision>\n      <id>7</id>\n      <timestamp>2016-06-24T09:37:15Z</timestamp>\n"
+        + "      <contributor>\n        <ip>127.0.0.1</ip>\n      </contributor>\n"
+        + "      <model>wikitext</model>\n      <format>text/x-wiki</format>\n"
+        + "      <text>[[Main Page]]\n[[File:File.txt]]\n[[File:Pixel white.png]]</text>\n"
+        + "    </revision>\n  </page>\n";
+
+    private static final String SOURCE = "{\"source\":\"Links_\\\"quoted\\\".WebHome\",\"revision\":\"7\",";
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    @TempDir
+    File tmpDir;
+
+    private static void assertContains(List<String> lines, String line)
+    {
+        assertTrue(lines.contains(line), () -> line + " not found in " + lines);
+    }
+
+    private List<String> readLinkGraph(boolean fileAttached) throws Exception
+    {
+        // Add a page referencing a page, an attachment and an image to the test dump
+        File dump = new File(this.tmpDir, "dump.xml");
+        String content = IOUtils.toString(getClass().getResource(DUMP), StandardCharsets.UTF_8);
+        content = content.replace("</mediawiki>", PAGE + "</mediawiki>");
+        Files.write(dump.toPath(), content.getBytes(StandardCharsets.UTF_8));
+
+        File linkGraph = new File(this.tmpDir, "links.ndjson");
+
+        MediaWikiInputProperties properties = new MediaWikiInputProperties();
+        properties.setSource(new DefaultFileInputSource(dump));
+        properties.setFiles(new DefaultFileInputSource(new File(getClass().getResource(FILES).toURI())));
+        properties.setFileAttached(fileAttached);
+        properties.setLinkGraph(linkGraph);
+
+        BeanInputFilterStreamFactory<MediaWikiInputProperties> factory = this.componentManager
+            .getInstance(InputFilterStreamFactory.class, MediaWikiInputProperties.FILTER_STREAM_TYPE_STRING);
+
+        try (MediaWikiInputFilterStream stream =
+            (MediaWikiInputFilterStream) factory.createInputFilterStream(properties)) {
+            stream.read(new Object());
+        }
+
+        return Files.readAllLines(linkGraph.toPath(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void linkGraphWithAttachedFiles() throws Exception
+    {
+        List<String> lines = readLinkGraph(true);
+
+        assertContains(lines,
+            "{\"source\":\"Main.WebHome\",\"revision\":\"1\",\"kind\":\"link\",\"target\":\"Page.WebHome\"}");
+        assertContains(lines, SOURCE + "\"kind\":\"link\",\"target\":\"Main.WebHome\"}");
+        // The file links target the attachments of the page
+        assertContains(lines,
+            SOURCE + "\"kind\":\"attachment\",\"target\":\"Links_\\\"quoted\\\".WebHome@File.txt\"}");
+    }
+
+    @Test
+    void linkGraphWithFilePages() throws Exception
+    {
+        List<String> lines = readLinkGraph(false);
+
+        assertContains(lines, SOURCE + "\"kind\":\"link\",\"target\":\"Main.WebHome\"}");
+        // The images target the attachments of the file pages
+        assertTrue(lines.stream().anyMatch(line -> line.startsWith(SOURCE + "\"kind\":\"image\",\"target\":\"File.")
+            && line.endsWith(".png\"}")), () -> "No image found in " + lines);
+    }
+}
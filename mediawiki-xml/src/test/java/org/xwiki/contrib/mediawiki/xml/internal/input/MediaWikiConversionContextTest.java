@@ -0,0 +1,146 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.contrib.mediawiki.xml.input.MediaWikiInputProperties;
+import org.xwiki.filter.input.BeanInputFilterStreamFactory;
+import org.xwiki.filter.input.DefaultFileInputSource;
+import org.xwiki.filter.input.InputFilterStreamFactory;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Validate {@link MediaWikiConversionContext}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+@AllComponents
+class MediaWikiConversionContextTest
+{
+    private static final String DUMP = "/mediawikixml/1.26.3.xml";
+
+    /**
+     * Contents leaving the renderer in various states (open lists, tables, pending new lines, etc.).
+     */
+    private static final List<String> CONTENTS = Arrays.asList("* item\n** nested item\n*** deeper item",
+        "first paragraph\n\n\n\nsecond paragraph", "# one\n# two\n#* mixed", "{|\n| cell || cell\n|-\n| cell\n|}",
+        "; term\n: definition", "'''bold ''bold italic", "== Header ==\ntext\n----\n", "<pre>\n  verbatim\n</pre>",
+        "[[Main Page|main]] [[Category:Test]] [[File:Image.png]]", "plain text");
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    private MediaWikiInputFilterStream stream;
+
+    private PrintRendererFactory rendererFactory;
+
+    private MediaWikiPageRevision revision;
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        MediaWikiInputProperties properties = new MediaWikiInputProperties();
+        properties.setSource(new DefaultFileInputSource(new File(getClass().getResource(DUMP).toURI())));
+
+        BeanInputFilterStreamFactory<MediaWikiInputProperties> factory = this.componentManager
+            .getInstance(InputFilterStreamFactory.class, MediaWikiInputProperties.FILTER_STREAM_TYPE_STRING);
+
+        // Read the dump to initialize the namespaces and the pages of the stream
+        this.stream = (MediaWikiInputFilterStream) factory.createInputFilterStream(properties);
+        this.stream.read(new Object());
+
+        this.rendererFactory = this.componentManager.getInstance(PrintRendererFactory.class, "xwiki/2.1");
+
+        this.revision = new MediaWikiPageRevision(new MediaWikiPage("Test",
+            new EntityReference("WebHome", EntityType.DOCUMENT, new EntityReference("Test", EntityType.SPACE))));
+    }
+
+    @AfterEach
+    void afterEach() throws Exception
+    {
+        this.stream.close();
+    }
+
+    private List<String> readContents() throws Exception
+    {
+        List<String> contents = new ArrayList<>(CONTENTS);
+
+        try (InputStream input = getClass().getResourceAsStream(DUMP)) {
+            XMLStreamReader xmlReader = XMLInputFactory.newInstance().createXMLStreamReader(input);
+
+            while (xmlReader.hasNext()) {
+                if (xmlReader.next() == XMLStreamReader.START_ELEMENT && xmlReader.getLocalName().equals("text")) {
+                    contents.add(xmlReader.getElementText());
+                }
+            }
+
+            xmlReader.close();
+        }
+
+        // Convert again the first contents after all the others
+        contents.addAll(CONTENTS);
+
+        return contents;
+    }
+
+    private String convert(MediaWikiConversionContext context, String content) throws Exception
+    {
+        context.parse(this.revision, this.stream.createMediaWikiSyntaxInputProperties(content),
+            context.createRenderer(this.rendererFactory, content.length()), this.rendererFactory.getSyntax());
+
+        String result = context.getRenderedContent();
+
+        context.reset();
+
+        return result;
+    }
+
+    @Test
+    void reusedContextProducesTheSameContent() throws Exception
+    {
+        MediaWikiConversionContext reusedContext = this.stream.createConversionContext();
+
+        for (String content : readContents()) {
+            String expected = convert(this.stream.createConversionContext(), content);
+
+            assertEquals(expected, convert(reusedContext, content), content);
+        }
+    }
+}
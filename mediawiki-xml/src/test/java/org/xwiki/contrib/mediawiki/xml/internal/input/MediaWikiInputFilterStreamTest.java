@@ -0,0 +1,376 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xwiki.contrib.mediawiki.xml.DumpGenerator;
+import org.xwiki.contrib.mediawiki.xml.input.MediaWikiInputProperties;
+import org.xwiki.contrib.mediawiki.xml.metrics.MediaWikiImportMetrics;
+import org.xwiki.contrib.mediawiki.xml.metrics.MediaWikiImportMetricsRegistry;
+import org.xwiki.filter.FilterEventParameters;
+import org.xwiki.filter.FilterException;
+import org.xwiki.filter.event.model.WikiDocumentFilter;
+import org.xwiki.filter.event.model.WikiSpaceFilter;
+import org.xwiki.filter.input.BeanInputFilterStreamFactory;
+import org.xwiki.filter.input.DefaultFileInputSource;
+import org.xwiki.filter.input.InputFilterStreamFactory;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link MediaWikiInputFilterStream}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+@AllComponents
+class MediaWikiInputFilterStreamTest
+{
+    private static final String DUMP = "/mediawikixml/1.26.3.xml";
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    @TempDir
+    File tmpDir;
+
+    /**
+     * Remember the sent documents and the spaces opened before each of them.
+     */
+    private static class PageCollector implements WikiSpaceFilter, WikiDocumentFilter
+    {
+        private final int maxDocuments;
+
+        private final Deque<String> spaces = new ArrayDeque<>();
+
+        private final List<String> documents = new ArrayList<>();
+
+        private final List<List<String>> documentSpaces = new ArrayList<>();
+
+        private final List<String> events = new ArrayList<>();
+
+        private final List<Map<String, Object>> revisionSnapshots = new ArrayList<>();
+
+        private final List<FilterEventParameters> revisionParameters = new ArrayList<>();
+
+        PageCollector(int maxDocuments)
+        {
+            this.maxDocuments = maxDocuments;
+        }
+
+        @Override
+        public void beginWikiSpace(String name, FilterEventParameters parameters)
+        {
+            this.spaces.push(name);
+            this.events.add("begin " + name);
+        }
+
+        @Override
+        public void endWikiSpace(String name, FilterEventParameters parameters)
+        {
+            assertEquals(name, this.spaces.pop());
+            this.events.add("end " + name);
+        }
+
+        @Override
+        public void beginWikiDocument(String name, FilterEventParameters parameters) throws FilterException
+        {
+            if (this.documents.size() == this.maxDocuments) {
+                throw new FilterException("Import interrupted");
+            }
+
+            List<String> path = new ArrayList<>();
+            for (Iterator<String> it = this.spaces.descendingIterator(); it.hasNext();) {
+                path.add(it.next());
+            }
+            this.documentSpaces.add(new ArrayList<>(path));
+            path.add(name);
+            this.documents.add(String.join("/", path));
+            this.events.add("document " + name);
+        }
+
+        @Override
+        public void endWikiDocument(String name, FilterEventParameters parameters)
+        {
+            // Not needed
+        }
+
+        @Override
+        public void beginWikiDocumentLocale(Locale locale, FilterEventParameters parameters)
+        {
+            // Not needed
+        }
+
+        @Override
+        public void endWikiDocumentLocale(Locale locale, FilterEventParameters parameters)
+        {
+            // Not needed
+        }
+
+        @Override
+        public void beginWikiDocumentRevision(String revision, FilterEventParameters parameters)
+        {
+            // Keep the parameters like an output filter collecting the revisions would do
+            this.revisionSnapshots.add(new HashMap<>(parameters));
+            this.revisionParameters.add(parameters);
+        }
+
+        @Override
+        public void endWikiDocumentRevision(String revision, FilterEventParameters parameters)
+        {
+            // Not needed
+        }
+    }
+
+    private void read(File checkpoint, PageCollector collector) throws Exception
+    {
+        MediaWikiInputProperties properties = new MediaWikiInputProperties();
+        properties.setSource(new DefaultFileInputSource(new File(getClass().getResource(DUMP).toURI())));
+        properties.setSpaceSeparator("/");
+        properties.setCheckpoint(checkpoint);
+        properties.setCheckpointInterval(1);
+
+        BeanInputFilterStreamFactory<MediaWikiInputProperties> factory = this.componentManager
+            .getInstance(InputFilterStreamFactory.class, MediaWikiInputProperties.FILTER_STREAM_TYPE_STRING);
+
+        try (MediaWikiInputFilterStream stream =
+            (MediaWikiInputFilterStream) factory.createInputFilterStream(properties)) {
+            stream.read(collector);
+        }
+    }
+
+    private MediaWikiInputFilterStream readWithFilesIndex(File folder, boolean fallback) throws Exception
+    {
+        MediaWikiInputProperties properties = new MediaWikiInputProperties();
+        properties.setSource(new DefaultFileInputSource(new File(getClass().getResource(DUMP).toURI())));
+        properties.setFiles(new DefaultFileInputSource(folder));
+        properties.setFilesIndex(true);
+        properties.setFilesIndexFallback(fallback);
+
+        BeanInputFilterStreamFactory<MediaWikiInputProperties> factory = this.componentManager
+            .getInstance(InputFilterStreamFactory.class, MediaWikiInputProperties.FILTER_STREAM_TYPE_STRING);
+
+        MediaWikiInputFilterStream stream = (MediaWikiInputFilterStream) factory.createInputFilterStream(properties);
+        stream.read(new PageCollector(Integer.MAX_VALUE));
+
+        return stream;
+    }
+
+    @Test
+    void filesIndex() throws Exception
+    {
+        File folder = new File(this.tmpDir, "files");
+        File indexed = new File(folder, "Indexed.png");
+        FileUtils.write(indexed, "indexed", StandardCharsets.UTF_8);
+
+        try (MediaWikiInputFilterStream stream = readWithFilesIndex(folder, false)) {
+            FileUtils.write(new File(folder, "Added.png"), "added", StandardCharsets.UTF_8);
+
+            assertEquals(indexed, stream.getFile("Indexed.png"));
+            // The index is authoritative
+            assertNull(stream.getFile("Added.png"));
+            assertNull(stream.getFile("Missing.png"));
+        }
+
+        try (MediaWikiInputFilterStream stream = readWithFilesIndex(folder, true)) {
+            File added = new File(folder, "Later.png");
+            FileUtils.write(added, "added", StandardCharsets.UTF_8);
+
+            assertEquals(added, stream.getFile("Later.png"));
+            assertNull(stream.getFile("Missing.png"));
+
+            // A missing file is only looked for once
+            FileUtils.write(new File(folder, "Missing.png"), "missing", StandardCharsets.UTF_8);
+            assertNull(stream.getFile("Missing.png"));
+        }
+    }
+
+    @Test
+    void shardMetrics() throws Exception
+    {
+        List<MediaWikiImportMetrics> registeredMetrics = new ArrayList<>();
+        this.componentManager.registerComponent(MediaWikiImportMetricsRegistry.class,
+            new MediaWikiImportMetricsRegistry()
+            {
+                @Override
+                public void register(String name, MediaWikiImportMetrics metrics)
+                {
+                    registeredMetrics.add(metrics);
+                }
+
+                @Override
+                public void unregister(String name)
+                {
+                    // Keep the metrics to check them
+                }
+            });
+
+        File dump = new File(getClass().getResource("/mediawikixml/1.26.3-multistream.xml.bz2").toURI());
+        File index = new File(getClass().getResource("/mediawikixml/1.26.3-multistream-index.txt").toURI());
+
+        // The streams start at 491, 1111 and 1378
+        long[] sizes = new long[] {1111, dump.length() - 1111 + 491};
+        for (int shard = 0; shard < sizes.length; ++shard) {
+            MediaWikiInputProperties properties = new MediaWikiInputProperties();
+            properties.setSource(new DefaultFileInputSource(dump));
+            properties.setMultistreamIndex(new DefaultFileInputSource(index));
+            properties.setShard(shard);
+            properties.setShardCount(2);
+            properties.setMetrics(true);
+
+            BeanInputFilterStreamFactory<MediaWikiInputProperties> factory = this.componentManager
+                .getInstance(InputFilterStreamFactory.class, MediaWikiInputProperties.FILTER_STREAM_TYPE_STRING);
+
+            try (MediaWikiInputFilterStream stream =
+                (MediaWikiInputFilterStream) factory.createInputFilterStream(properties)) {
+                stream.read(new PageCollector(Integer.MAX_VALUE));
+            }
+
+            MediaWikiImportMetrics metrics = registeredMetrics.get(shard);
+            assertEquals(sizes[shard], metrics.getInputSize());
+            assertTrue(metrics.getInputOffset() > 491 && metrics.getInputOffset() <= sizes[shard],
+                "Unexpected offset " + metrics.getInputOffset());
+            assertTrue(metrics.getInputBytesPerSecond() > 0);
+        }
+    }
+
+    @Test
+    void resumeFromCheckpoint() throws Exception
+    {
+        File checkpoint = new File(this.tmpDir, "checkpoint.properties");
+
+        // The whole dump in one go
+        PageCollector full = new PageCollector(Integer.MAX_VALUE);
+        read(checkpoint, full);
+        assertTrue(full.spaces.isEmpty());
+        // Deleted once the import is finished
+        assertFalse(checkpoint.exists());
+
+        for (int stop = 1; stop < full.documents.size(); ++stop) {
+            PageCollector interrupted = new PageCollector(stop);
+            assertThrows(FilterException.class, () -> read(checkpoint, interrupted));
+            assertTrue(checkpoint.exists());
+
+            PageCollector resumed = new PageCollector(Integer.MAX_VALUE);
+            read(checkpoint, resumed);
+            assertFalse(checkpoint.exists());
+
+            // No missing or duplicated page
+            List<String> documents = new ArrayList<>(interrupted.documents);
+            documents.addAll(resumed.documents);
+            assertEquals(full.documents, documents, "Interrupted after " + stop + " pages");
+
+            // The spaces of the last page sent before the interruption are opened again first
+            List<String> lastSpaces = full.documentSpaces.get(stop - 1);
+            for (int i = 0; i < lastSpaces.size(); ++i) {
+                assertEquals("begin " + lastSpaces.get(i), resumed.events.get(i));
+            }
+            // And all closed at the end
+            assertTrue(resumed.spaces.isEmpty());
+        }
+    }
+
+    @Test
+    void keepRevisionParameters() throws Exception
+    {
+        PageCollector collector = new PageCollector(Integer.MAX_VALUE);
+        read(null, collector);
+
+        assertTrue(collector.revisionParameters.size() > 1);
+        for (int i = 0; i < collector.revisionParameters.size(); ++i) {
+            FilterEventParameters parameters = collector.revisionParameters.get(i);
+
+            // Not modified by the following revisions
+            assertEquals(collector.revisionSnapshots.get(i), parameters, "Revision " + i);
+
+            if (i > 0) {
+                assertNotSame(collector.revisionParameters.get(i - 1), parameters);
+            }
+        }
+    }
+
+    private PageCollector readWithWorkers(File dump, int workers) throws Exception
+    {
+        MediaWikiInputProperties properties = new MediaWikiInputProperties();
+        properties.setSource(new DefaultFileInputSource(dump));
+        properties.setSpaceSeparator("/");
+        properties.setWorkers(workers);
+
+        BeanInputFilterStreamFactory<MediaWikiInputProperties> factory = this.componentManager
+            .getInstance(InputFilterStreamFactory.class, MediaWikiInputProperties.FILTER_STREAM_TYPE_STRING);
+
+        PageCollector collector = new PageCollector(Integer.MAX_VALUE);
+        try (MediaWikiInputFilterStream stream =
+            (MediaWikiInputFilterStream) factory.createInputFilterStream(properties)) {
+            stream.read(collector);
+        }
+
+        return collector;
+    }
+
+    @Test
+    void workersWithManyRevisions() throws Exception
+    {
+        // More revisions per page than the revisions the workers are allowed to keep
+        Map<String, String> configuration = new HashMap<>();
+        configuration.put("pages", "10");
+        configuration.put("images", "0");
+        configuration.put("templates", "0");
+        configuration.put("categories", "0");
+        configuration.put("pageRevisions", "uniform:40:80");
+        configuration.put("pageSize", "constant:500");
+
+        File dump = new File(this.tmpDir, "revisions.xml");
+        try (OutputStream stream = new FileOutputStream(dump)) {
+            new DumpGenerator(configuration).generate(stream);
+        }
+
+        PageCollector expected = readWithWorkers(dump, 0);
+        PageCollector collector = readWithWorkers(dump, 3);
+
+        assertTrue(expected.revisionSnapshots.size() >= 400);
+        assertEquals(expected.events, collector.events);
+        assertEquals(expected.revisionSnapshots, collector.revisionSnapshots);
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link MediaWikiManifest}.
+ *
+ * @version $Id$
+ */
+class MediaWikiManifestTest
+{
+    private static final String SHA1 = "0aptv29ff00l71xaf8eat3jgtx2v72r";
+
+    /**
+     * The same kind of SHA-1 in hexadecimal.
+     */
+    private static final String SHA1_HEX = "da39a3ee5e6b4b0d3255bfef95601890afd80709";
+
+    @TempDir
+    File tmpDir;
+
+    private MediaWikiManifest write() throws IOException
+    {
+        File file = new File(this.tmpDir, "test.manifest");
+
+        try (MediaWikiManifest.Writer writer = new MediaWikiManifest.Writer(file)) {
+            // Not sorted by id
+            writer.add("30", "300", SHA1, "Category:Fruits", Arrays.asList("Food"));
+            writer.add("10", "100", SHA1, "Apple", Arrays.asList("Fruits", "Red things"));
+            writer.add("20", "200", SHA1, "Banana", Collections.emptyList());
+            writer.add("40", "400", SHA1_HEX, "Cherry", Collections.emptyList());
+            // Cannot be skipped
+            writer.add("50", "500", null, "Without SHA-1", Collections.emptyList());
+            writer.add("60", "Revision", SHA1, "Not a revision number", Collections.emptyList());
+            // Cannot be found
+            writer.add("Page", "400", SHA1, "Not a number", Collections.emptyList());
+
+            assertEquals(7, writer.size());
+
+            writer.commit();
+        }
+
+        assertFalse(new File(this.tmpDir, "test.manifest.tmp").exists());
+
+        return MediaWikiManifest.load(file);
+    }
+
+    @Test
+    void isUnchanged() throws IOException
+    {
+        MediaWikiManifest manifest = write();
+
+        assertEquals(6, manifest.size());
+
+        assertTrue(manifest.isUnchanged("10", "100", SHA1));
+        assertTrue(manifest.isUnchanged("30", "300", SHA1));
+        assertFalse(manifest.isUnchanged("20", "201", SHA1));
+        assertFalse(manifest.isUnchanged("20", "200", "0aptv29ff00l71xaf8eat3jgtx2v73r"));
+        assertFalse(manifest.isUnchanged("20", "200", SHA1.substring(1)));
+        assertFalse(manifest.isUnchanged("20", "200", null));
+        assertFalse(manifest.isUnchanged("20", "200", ""));
+        assertFalse(manifest.isUnchanged("70", "700", SHA1));
+        assertFalse(manifest.isUnchanged("Page", "400", SHA1));
+
+        // The SHA-1 are not limited to the base 36 encoding of the MediaWiki dumps
+        assertTrue(manifest.isUnchanged("40", "400", SHA1_HEX));
+        assertFalse(manifest.isUnchanged("40", "400", SHA1));
+        assertFalse(manifest.isUnchanged("40", "400", SHA1_HEX + '0'));
+
+        assertFalse(manifest.isUnchanged("50", "500", null));
+        assertFalse(manifest.isUnchanged("50", "500", ""));
+        assertFalse(manifest.isUnchanged("60", "Revision", SHA1));
+    }
+
+    @Test
+    void getRevisionId() throws IOException
+    {
+        MediaWikiManifest manifest = write();
+
+        assertEquals(100, manifest.getRevisionId("10"));
+        assertEquals(400, manifest.getRevisionId("40"));
+        assertEquals(-1, manifest.getRevisionId("60"));
+        assertEquals(-1, manifest.getRevisionId("70"));
+        assertEquals(-1, manifest.getRevisionId("Page"));
+
+        // The pages are still part of the wiki
+        List<String> deleted = new ArrayList<>();
+        manifest.forEachDeletedPage((pageId, title) -> deleted.add(pageId));
+
+        assertEquals(Arrays.asList("30", "20", "50"), deleted);
+    }
+
+    @Test
+    void forEachSkippedPage() throws IOException
+    {
+        MediaWikiManifest manifest = write();
+
+        assertTrue(manifest.isUnchanged("10", "100", SHA1));
+        assertTrue(manifest.isUnchanged("20", "200", SHA1));
+        manifest.skip("10");
+        manifest.skip("20");
+
+        List<String> skipped = new ArrayList<>();
+        manifest.forEachSkippedPage((pageId, revisionId, sha1, title, categories) -> skipped
+            .add(pageId + ' ' + revisionId + ' ' + sha1 + ' ' + title + ' ' + categories));
+
+        assertEquals(Arrays.asList("10 100 " + SHA1 + " Apple [Fruits, Red things]", "20 200 " + SHA1 + " Banana []"),
+            skipped);
+    }
+
+    @Test
+    void forEachDeletedPage() throws IOException
+    {
+        MediaWikiManifest manifest = write();
+
+        manifest.isUnchanged("10", "101", SHA1);
+        manifest.isUnchanged("30", "300", SHA1);
+
+        List<String> deleted = new ArrayList<>();
+        manifest.forEachDeletedPage((pageId, title) -> deleted.add(pageId + ' ' + title));
+
+        assertEquals(Arrays.asList("20 Banana", "40 Cherry", "50 Without SHA-1", "60 Not a revision number"),
+            deleted);
+    }
+
+    @Test
+    void load() throws Exception
+    {
+        MediaWikiManifest manifest = MediaWikiManifest
+            .load(new File(getClass().getResource("/mediawikixml/incremental/previous.manifest").toURI()));
+
+        assertEquals(3, manifest.size());
+
+        assertTrue(manifest.isUnchanged("2000", "10", "0aptv29ff00l71xaf8eat3jgtx2v71r"));
+        manifest.skip("2000");
+
+        List<String> skipped = new ArrayList<>();
+        manifest.forEachSkippedPage(
+            (pageId, revisionId, sha1, title, categories) -> skipped.add(pageId + ' ' + title + ' ' + categories));
+
+        assertEquals(Arrays.asList("2000 Page A []"), skipped);
+
+        List<String> deleted = new ArrayList<>();
+        manifest.forEachDeletedPage((pageId, title) -> deleted.add(title));
+
+        assertEquals(Arrays.asList("Old page", "Page B"), deleted);
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link MediaWikiPageIndex}.
+ *
+ * @version $Id$
+ */
+class MediaWikiPageIndexTest
+{
+    private static final String HEADER = "<mediawiki xmlns=\"http://www.mediawiki.org/xml/export-0.10/\">\n"
+        + "  <siteinfo>\n    <sitename>&lt;page&gt; wiki</sitename>\n    <pages count=\"3\"/>\n"
+        + "    <namespaces>\n      <namespace key=\"0\" case=\"first-letter\" />\n    </namespaces>\n"
+        + "  </siteinfo>\n  ";
+
+    private static final List<String> PAGES = Arrays.asList(
+        // The ids of the revisions and contributors must not be mistaken for the id of the page
+        "<page>\n    <title>Main Page</title>\n    <ns>0</ns>\n    <id>12</id>\n    <revision>\n"
+            + "      <id>100</id>\n      <contributor>\n        <username>User</username>\n        <id>7</id>\n"
+            + "      </contributor>\n      <text xml:space=\"preserve\">&lt;/page&gt; &lt;id&gt;5&lt;/id&gt;</text>\n"
+            + "    </revision>\n    <revision>\n      <id>101</id>\n      <text />\n    </revision>\n  </page>",
+        // Escaped and non ASCII title, empty namespace and no id
+        "<page>\n    <title>Talk:A &amp; B &lt;c&gt; &quot;d&quot; \u00e9t\u00e9 \ud83d\ude00</title>\n    <ns />\n"
+            + "    <redirect title=\"Main Page\" />\n    <revision>\n      <id>102</id>\n    </revision>\n  </page>",
+        // Invalid values
+        "<page>\n    <title>Invalid</title>\n    <ns>main</ns>\n    <id>twelve</id>\n  </page>");
+
+    @TempDir
+    File tmpDir;
+
+    private static String dump()
+    {
+        return HEADER + String.join("\n  ", PAGES) + "\n</mediawiki>\n";
+    }
+
+    /**
+     * @return a stream returning at most a few bytes on each read
+     */
+    private static InputStream trickle(byte[] bytes, int size)
+    {
+        List<InputStream> streams = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += size) {
+            streams.add(new ByteArrayInputStream(bytes, i, Math.min(size, bytes.length - i)));
+        }
+
+        return new SequenceInputStream(Collections.enumeration(streams));
+    }
+
+    private MediaWikiPageIndex index(InputStream dump) throws IOException
+    {
+        File file = new File(this.tmpDir, "index");
+
+        MediaWikiPageIndex.write(dump, file);
+
+        assertFalse(new File(this.tmpDir, "index.tmp").exists());
+
+        return MediaWikiPageIndex.open(file);
+    }
+
+    private static int byteOffset(String dump, String page)
+    {
+        return dump.substring(0, dump.indexOf(page)).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void assertPage(MediaWikiPageIndex index, String dump, String page, int namespace, long id,
+        String title) throws IOException
+    {
+        assertTrue(index.next());
+
+        int start = byteOffset(dump, page);
+        assertEquals(start, index.getStart());
+        assertEquals(start + page.getBytes(StandardCharsets.UTF_8).length, index.getEnd());
+        assertEquals(namespace, index.getNamespace());
+        assertEquals(id, index.getId());
+        assertEquals(title, index.getTitle());
+    }
+
+    private static void assertIndex(MediaWikiPageIndex index) throws IOException
+    {
+        String dump = dump();
+
+        try {
+            // The header is cut just before the first page
+            assertArrayEquals(HEADER.getBytes(StandardCharsets.UTF_8), index.getHeader());
+
+            assertPage(index, dump, PAGES.get(0), 0, 12, "Main Page");
+            assertPage(index, dump, PAGES.get(1), MediaWikiPageIndex.UNKNOWN_NAMESPACE, -1,
+                "Talk:A & B <c> \"d\" \u00e9t\u00e9 \ud83d\ude00");
+            assertPage(index, dump, PAGES.get(2), MediaWikiPageIndex.UNKNOWN_NAMESPACE, -1, "Invalid");
+
+            assertFalse(index.next());
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    void scan() throws IOException
+    {
+        assertIndex(index(new ByteArrayInputStream(dump().getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void scanSmallReads() throws IOException
+    {
+        byte[] bytes = dump().getBytes(StandardCharsets.UTF_8);
+
+        for (int size = 1; size <= 7; ++size) {
+            assertIndex(index(trickle(bytes, size)));
+        }
+    }
+
+    @Test
+    void noPage() throws IOException
+    {
+        try (MediaWikiPageIndex index = index(new ByteArrayInputStream(
+            (HEADER + "</mediawiki>").getBytes(StandardCharsets.UTF_8)))) {
+            assertNull(index.getHeader());
+            assertFalse(index.next());
+        }
+    }
+
+    @Test
+    void invalidIndex() throws IOException
+    {
+        File file = new File(this.tmpDir, "index");
+        Files.write(file.toPath(), "not an index".getBytes(StandardCharsets.US_ASCII));
+
+        assertThrows(IOException.class, () -> MediaWikiPageIndex.open(file));
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+import org.xwiki.contrib.mediawiki.xml.input.MediaWikiInputProperties;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link PageNameNormalizer} against the regular expression based implementation it replaced.
+ *
+ * @version $Id$
+ */
+class PageNameNormalizerTest
+{
+    private static final String MAIN_PAGE = "Main_Page";
+
+    private static final String DEFAULT_PAGE = "WebHome";
+
+    private static final List<String> PAGE_NAMES = Arrays.asList("", " ", "__", "a", "A", "page", "Main Page",
+        "main page", "main  page", "Main__Page", "Main_Page_", "Main_Page ", " Main Page", "Ma:in Page",
+        " a  b   c ", "a_ _b", "Already_Normalized", "a/b:c", "\u00e9lan", "\u00c9lan", "\u01c6emal",
+        "\u00df", "\ud801\udc28x", "\ud801\udc00x", "x\ud83d\ude00 y", "\ud83d\ude00", "\ud83d");
+
+    private static final List<String> FORBIDDEN_CHARACTERS =
+        Arrays.asList(null, "", ":", ":/_", "a", "\u00e9\ud83d\ude00", "M");
+
+    private static final List<String> SEPARATORS =
+        Arrays.asList("/", ":", ".", "|", "\\.", "::", "[/.]", "/+", "\ud83d\ude00");
+
+    private static final List<String> SPLIT_NAMES = Arrays.asList("", "a", "a/b", "a/b/c", "/a", "a/", "a//b",
+        "a//", "//", "/", "a.b/c", "a::b:c", "a|b", "a\ud83d\ude00b", "\ud83d\ude00/\ud83d\ude00", ":a:");
+
+    private static MediaWikiInputProperties properties(String forbiddenCharacters, String spaceSeparator)
+    {
+        MediaWikiInputProperties properties = new MediaWikiInputProperties();
+        properties.setForbiddenCharacters(forbiddenCharacters);
+        properties.setSpaceSeparator(spaceSeparator);
+
+        return properties;
+    }
+
+    /**
+     * The normalization as it was done before {@link PageNameNormalizer}.
+     */
+    private static String expectedNormalize(String pageName, boolean capitalize, boolean clean,
+        String forbiddenCharacters, String mainPageName)
+    {
+        String normalized = pageName.replace(' ', '_').replaceAll("_{2,}", "_");
+        if (capitalize) {
+            normalized = StringUtils.capitalize(normalized);
+        }
+
+        if (normalized.equals(mainPageName)) {
+            return DEFAULT_PAGE;
+        }
+
+        if (clean && StringUtils.isNotEmpty(forbiddenCharacters)) {
+            for (int i = 0; i < forbiddenCharacters.length(); ++i) {
+                normalized = StringUtils.remove(normalized, forbiddenCharacters.charAt(i));
+            }
+        }
+
+        return normalized;
+    }
+
+    @Test
+    void normalize()
+    {
+        for (String forbiddenCharacters : FORBIDDEN_CHARACTERS) {
+            for (String mainPageName : Arrays.asList(MAIN_PAGE, null)) {
+                PageNameNormalizer normalizer =
+                    new PageNameNormalizer(properties(forbiddenCharacters, null), mainPageName, DEFAULT_PAGE);
+
+                for (String pageName : PAGE_NAMES) {
+                    for (boolean capitalize : new boolean[] {true, false}) {
+                        for (boolean clean : new boolean[] {true, false}) {
+                            String expected =
+                                expectedNormalize(pageName, capitalize, clean, forbiddenCharacters, mainPageName);
+                            String actual = normalizer.normalize(pageName, capitalize, clean);
+
+                            assertEquals(expected, actual,
+                                () -> String.format("[%s] normalized with capitalize=%s, clean=%s, forbidden=[%s]",
+                                    pageName, capitalize, clean, forbiddenCharacters));
+
+                            if (expected.equals(pageName)) {
+                                assertSame(pageName, actual);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void forbiddenCharacters()
+    {
+        PageNameNormalizer normalizer =
+            new PageNameNormalizer(properties(":\u00e9", null), MAIN_PAGE, DEFAULT_PAGE);
+
+        assertTrue(normalizer.hasForbiddenCharacters());
+        assertTrue(normalizer.isForbidden(':'));
+        assertTrue(normalizer.isForbidden('\u00e9'));
+        assertFalse(normalizer.isForbidden('/'));
+        assertFalse(normalizer.isForbidden('\u00e8'));
+
+        // The main page name is compared before removing the forbidden characters
+        assertEquals("Main_Page", normalizer.normalize("Ma:in Page", true, true));
+        // Attachments are not cleaned
+        assertEquals("File:\u00e9.png", normalizer.normalize("file:\u00e9.png", true, false));
+
+        assertFalse(new PageNameNormalizer(properties("", null), MAIN_PAGE, DEFAULT_PAGE).hasForbiddenCharacters());
+        assertFalse(new PageNameNormalizer(properties(null, null), MAIN_PAGE, DEFAULT_PAGE).hasForbiddenCharacters());
+    }
+
+    @Test
+    void split()
+    {
+        for (String separator : SEPARATORS) {
+            PageNameNormalizer normalizer = new PageNameNormalizer(properties(null, separator), null, DEFAULT_PAGE);
+
+            for (String pageName : SPLIT_NAMES) {
+                String[] elements = pageName.split(separator);
+
+                assertArrayEquals(elements.length > 1 ? elements : null, normalizer.split(pageName),
+                    () -> String.format("[%s] split with [%s]", pageName, separator));
+            }
+        }
+    }
+
+    @Test
+    void splitWithoutSeparator()
+    {
+        assertNull(new PageNameNormalizer(properties(null, null), null, DEFAULT_PAGE).split("a/b"));
+        assertNull(new PageNameNormalizer(properties(null, ""), null, DEFAULT_PAGE).split("a/b"));
+    }
+}
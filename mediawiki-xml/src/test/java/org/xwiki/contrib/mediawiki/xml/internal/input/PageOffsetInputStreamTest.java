@@ -0,0 +1,145 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Validate {@link PageOffsetInputStream}.
+ *
+ * @version $Id$
+ */
+class PageOffsetInputStreamTest
+{
+    private static final String PAGE = "<page><title>a &lt;/page&gt;</title></page>";
+
+    private static PageOffsetInputStream open(String content, long offset)
+    {
+        return new PageOffsetInputStream(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), offset);
+    }
+
+    private static void assertPageEnds(PageOffsetInputStream stream, long... pageEnds)
+    {
+        for (long pageEnd : pageEnds) {
+            assertEquals(pageEnd, stream.pollPageEnd());
+        }
+        assertEquals(-1, stream.pollPageEnd());
+    }
+
+    @Test
+    void readBuffer() throws IOException
+    {
+        String content = "<mediawiki>" + PAGE + PAGE + "</mediawiki>";
+
+        try (PageOffsetInputStream stream = open(content, 0)) {
+            assertEquals(-1, stream.pollPageEnd());
+
+            assertEquals(content, IOUtils.toString(stream, StandardCharsets.UTF_8));
+
+            assertPageEnds(stream, 11 + PAGE.length(), 11 + PAGE.length() * 2);
+        }
+    }
+
+    @Test
+    void readByte() throws IOException
+    {
+        // Partial matches followed by a real end of page
+        String content = "<</</p</page</pag></page>";
+
+        try (PageOffsetInputStream stream = open(content, 100)) {
+            for (int i = 0; i < content.length(); ++i) {
+                assertEquals(content.charAt(i), stream.read());
+            }
+            assertEquals(-1, stream.read());
+
+            assertPageEnds(stream, 100 + content.length());
+        }
+    }
+
+    @Test
+    void readAcrossBuffers() throws IOException
+    {
+        String content = PAGE + PAGE;
+
+        try (PageOffsetInputStream stream = open(content, 0)) {
+            // Cut the end tags in the middle
+            byte[] buffer = new byte[5];
+            for (int read = stream.read(buffer, 1, 3); read >= 0; read = stream.read(buffer, 1, 3)) {
+                assertFalse(read == 0);
+            }
+
+            assertPageEnds(stream, PAGE.length(), PAGE.length() * 2);
+        }
+    }
+
+    @Test
+    void skip() throws IOException
+    {
+        String content = PAGE + PAGE + PAGE;
+
+        try (PageOffsetInputStream stream = open(content, 10)) {
+            assertEquals(0, stream.skip(0));
+            assertEquals(PAGE.length() + 3, stream.skip(PAGE.length() + 3));
+            assertEquals(10 + PAGE.length(), stream.pollPageEnd());
+
+            assertEquals(PAGE.length() * 2 - 3, stream.skip(Long.MAX_VALUE));
+            assertPageEnds(stream, 10 + PAGE.length() * 2, 10 + PAGE.length() * 3);
+        }
+    }
+
+    @Test
+    void growRing() throws IOException
+    {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1000; ++i) {
+            content.append(PAGE);
+        }
+
+        try (PageOffsetInputStream stream = open(content.toString(), 0)) {
+            // Move the start of the ring before it's full so that it wraps when growing
+            byte[] buffer = new byte[PAGE.length() * 50];
+            IOUtils.readFully(stream, buffer);
+            for (int i = 1; i <= 30; ++i) {
+                assertEquals(PAGE.length() * i, stream.pollPageEnd());
+            }
+
+            // Accumulate much more page ends than the initial capacity
+            buffer = new byte[PAGE.length() * 900];
+            IOUtils.readFully(stream, buffer);
+            for (int i = 31; i <= 950; ++i) {
+                assertEquals(PAGE.length() * i, stream.pollPageEnd());
+            }
+
+            IOUtils.toByteArray(stream);
+            for (int i = 951; i <= 1000; ++i) {
+                assertEquals(PAGE.length() * i, stream.pollPageEnd());
+            }
+            assertEquals(-1, stream.pollPageEnd());
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link ParallelBZip2InputStream} and {@link MediaWikiUtils#decompress(InputStream, int)}.
+ *
+ * @version $Id$
+ */
+class ParallelBZip2InputStreamTest
+{
+    private static final int STREAMS = 12;
+
+    private final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+
+    private final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+    private void addStream(byte[] content) throws IOException
+    {
+        this.expected.write(content);
+
+        try (OutputStream stream = new BZip2CompressorOutputStream(new NotClosingOutputStream(this.compressed))) {
+            stream.write(content);
+        }
+    }
+
+    private void addPages(int streams) throws IOException
+    {
+        for (int i = 0; i < streams; ++i) {
+            StringBuilder content = new StringBuilder();
+            for (int j = 0; j < 10; ++j) {
+                content.append("<page><title>Page ").append(i).append('.').append(j).append("</title></page>\n");
+            }
+
+            addStream(content.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private byte[] read(ParallelBZip2InputStream stream) throws IOException
+    {
+        try (InputStream input = stream) {
+            return IOUtils.toByteArray(input);
+        }
+    }
+
+    @Test
+    void cutAtStreamBoundaries() throws IOException
+    {
+        addPages(STREAMS);
+
+        ParallelBZip2InputStream stream = new ParallelBZip2InputStream(
+            new ByteArrayInputStream(this.compressed.toByteArray()), 2, 1, Integer.MAX_VALUE, Long.MAX_VALUE);
+
+        assertArrayEquals(this.expected.toByteArray(), read(stream));
+        // Each bzip2 stream was decompressed by a worker
+        assertEquals(STREAMS, stream.getChunkCount());
+        assertFalse(stream.isSequential());
+    }
+
+    @Test
+    void signatureStraddlingReads() throws IOException
+    {
+        addPages(STREAMS);
+
+        // Return the compressed data a few bytes at a time so that the stream signatures are split between two reads
+        ParallelBZip2InputStream stream = new ParallelBZip2InputStream(
+            new TricklingInputStream(new ByteArrayInputStream(this.compressed.toByteArray()), 7), 2, 1,
+            Integer.MAX_VALUE, Long.MAX_VALUE);
+
+        assertArrayEquals(this.expected.toByteArray(), read(stream));
+        assertEquals(STREAMS, stream.getChunkCount());
+    }
+
+    @Test
+    void sequentialFallback() throws IOException
+    {
+        addPages(3);
+
+        // A big stream which cannot be compressed much and without any stream boundary in the first 4KB
+        byte[] random = new byte[64 * 1024];
+        new Random(0).nextBytes(random);
+        addStream(random);
+
+        addPages(2);
+
+        ParallelBZip2InputStream stream = new ParallelBZip2InputStream(
+            new ByteArrayInputStream(this.compressed.toByteArray()), 2, 1, 4096, Long.MAX_VALUE);
+
+        assertArrayEquals(this.expected.toByteArray(), read(stream));
+        // The small streams before the big one were decompressed in parallel and the rest sequentially
+        assertEquals(3, stream.getChunkCount());
+        assertTrue(stream.isSequential());
+    }
+
+    @Test
+    void pendingSizeBound() throws IOException
+    {
+        addPages(STREAMS);
+
+        ParallelBZip2InputStream unbounded = new ParallelBZip2InputStream(
+            new ByteArrayInputStream(this.compressed.toByteArray()), 4, 1, Integer.MAX_VALUE, Long.MAX_VALUE);
+        ParallelBZip2InputStream bounded = new ParallelBZip2InputStream(
+            new ByteArrayInputStream(this.compressed.toByteArray()), 4, 1, Integer.MAX_VALUE, 1);
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write(bounded.read());
+        unbounded.read();
+
+        // Twice the number of workers
+        assertEquals(8, unbounded.getChunkCount());
+        // Only the chunk being consumed
+        assertEquals(1, bounded.getChunkCount());
+
+        content.write(read(bounded));
+        assertArrayEquals(this.expected.toByteArray(), content.toByteArray());
+        assertEquals(STREAMS, bounded.getChunkCount());
+
+        unbounded.close();
+    }
+
+    @Test
+    void decompress() throws IOException
+    {
+        addPages(2);
+
+        try (InputStream stream =
+            MediaWikiUtils.decompress(new ByteArrayInputStream(this.compressed.toByteArray()), 1)) {
+            assertTrue(stream instanceof BZip2CompressorInputStream);
+            assertArrayEquals(this.expected.toByteArray(), IOUtils.toByteArray(stream));
+        }
+
+        try (InputStream stream =
+            MediaWikiUtils.decompress(new ByteArrayInputStream(this.compressed.toByteArray()), 2)) {
+            assertTrue(stream instanceof ParallelBZip2InputStream);
+            assertArrayEquals(this.expected.toByteArray(), IOUtils.toByteArray(stream));
+        }
+
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try (OutputStream stream = new GzipCompressorOutputStream(gzip)) {
+            stream.write(this.expected.toByteArray());
+        }
+        try (InputStream stream = MediaWikiUtils.decompress(new ByteArrayInputStream(gzip.toByteArray()), 2)) {
+            assertTrue(stream instanceof GzipCompressorInputStream);
+            assertArrayEquals(this.expected.toByteArray(), IOUtils.toByteArray(stream));
+        }
+
+        try (InputStream stream = MediaWikiUtils.decompress(new ByteArrayInputStream(this.expected.toByteArray()), 2)) {
+            assertArrayEquals(this.expected.toByteArray(), IOUtils.toByteArray(stream));
+        }
+    }
+
+    private static final class NotClosingOutputStream extends OutputStream
+    {
+        private final OutputStream stream;
+
+        NotClosingOutputStream(OutputStream stream)
+        {
+            this.stream = stream;
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            this.stream.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            this.stream.write(b, off, len);
+        }
+    }
+
+    private static final class TricklingInputStream extends FilterInputStream
+    {
+        private final int maxRead;
+
+        TricklingInputStream(InputStream stream, int maxRead)
+        {
+            super(stream);
+
+            this.maxRead = maxRead;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            return super.read(b, off, Math.min(len, this.maxRead));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.internal.input;
+
+import java.io.StringReader;
+import java.time.Instant;
+import java.util.Date;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.xwiki.contrib.mediawiki.xml.internal.input.RevisionMetadataDecoder.INVALID_TIMESTAMP;
+
+/**
+ * Validate {@link RevisionMetadataDecoder}.
+ *
+ * @version $Id$
+ */
+class RevisionMetadataDecoderTest
+{
+    private static long parse(String timestamp)
+    {
+        char[] chars = ("##" + timestamp + "##").toCharArray();
+
+        return RevisionMetadataDecoder.parseTimestamp(chars, 2, timestamp.length());
+    }
+
+    private static void assertTimestamp(String timestamp)
+    {
+        assertEquals(Instant.parse(timestamp).toEpochMilli(), parse(timestamp), timestamp);
+    }
+
+    private static XMLStreamReader createReader(String xml) throws Exception
+    {
+        XMLStreamReader xmlReader = XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(xml));
+        xmlReader.nextTag();
+
+        return xmlReader;
+    }
+
+    @Test
+    void parseTimestamp()
+    {
+        assertTimestamp("2016-06-24T09:37:15Z");
+        assertTimestamp("1970-01-01T00:00:00Z");
+        assertTimestamp("1969-12-31T23:59:59Z");
+        assertTimestamp("0001-01-01T00:00:00Z");
+        assertTimestamp("2001-12-31T23:59:59Z");
+        assertTimestamp("2100-03-01T12:00:00Z");
+
+        // White spaces around the timestamp
+        assertEquals(Instant.parse("2016-06-24T09:37:15Z").toEpochMilli(), parse(" \n2016-06-24T09:37:15Z\t"));
+    }
+
+    @Test
+    void parseTimestampMonthLength()
+    {
+        assertTimestamp("2016-02-29T00:00:00Z");
+        assertTimestamp("2000-02-29T00:00:00Z");
+        assertTimestamp("2015-01-31T00:00:00Z");
+        assertTimestamp("2015-04-30T00:00:00Z");
+        assertTimestamp("2015-12-31T00:00:00Z");
+
+        assertEquals(INVALID_TIMESTAMP, parse("2015-02-29T00:00:00Z"));
+        assertEquals(INVALID_TIMESTAMP, parse("1900-02-29T00:00:00Z"));
+        assertEquals(INVALID_TIMESTAMP, parse("2016-02-30T00:00:00Z"));
+        assertEquals(INVALID_TIMESTAMP, parse("2015-02-31T00:00:00Z"));
+        assertEquals(INVALID_TIMESTAMP, parse("2015-04-31T00:00:00Z"));
+        assertEquals(INVALID_TIMESTAMP, parse("2015-06-31T00:00:00Z"));
+        assertEquals(INVALID_TIMESTAMP, parse("2015-09-31T00:00:00Z"));
+        assertEquals(INVALID_TIMESTAMP, parse("2015-11-31T00:00:00Z"));
+        assertEquals(INVALID_TIMESTAMP, parse("2015-12-32T00:00:00Z"));
+        assertEquals(INVALID_TIMESTAMP, parse("2015-12-00T00:00:00Z"));
+    }
+
+    @Test
+    void parseInvalidTimestamp()
+    {
+        assertEquals(INVALID_TIMESTAMP, parse(""));
+        assertEquals(INVALID_TIMESTAMP, parse("2016-06-24"));
+        assertEquals(INVALID_TIMESTAMP, parse("2016-06-24T09:37:15"));
+        assertEquals(INVALID_TIMESTAMP, parse("2016-06-24T09:37:15+02:00"));
+        assertEquals(INVALID_TIMESTAMP, parse("2016-06-24 09:37:15Z"));
+        assertEquals(INVALID_TIMESTAMP, parse("2016/06/24T09:37:15Z"));
+        assertEquals(INVALID_TIMESTAMP, parse("2016-6-24T09:37:15ZZ"));
+        assertEquals(INVALID_TIMESTAMP, parse("2016-13-24T09:37:15Z"));
+        assertEquals(INVALID_TIMESTAMP, parse("2016-00-24T09:37:15Z"));
+        assertEquals(INVALID_TIMESTAMP, parse("2016-06-24T24:37:15Z"));
+        assertEquals(INVALID_TIMESTAMP, parse("2016-06-24T09:60:15Z"));
+        assertEquals(INVALID_TIMESTAMP, parse("2016-06-24T09:37:60Z"));
+        assertEquals(INVALID_TIMESTAMP, parse("2O16-06-24T09:37:15Z"));
+        assertEquals(INVALID_TIMESTAMP, parse("2016-06-24T09:3a:15Z"));
+    }
+
+    @Test
+    void readTimestamp() throws Exception
+    {
+        RevisionMetadataDecoder decoder = new RevisionMetadataDecoder();
+
+        assertEquals(new Date(Instant.parse("2016-06-24T09:37:15Z").toEpochMilli()),
+            decoder.readTimestamp(createReader("<timestamp>2016-06-24T09:37:15Z</timestamp>")));
+
+        // Not the usual MediaWiki format
+        assertEquals(new Date(Instant.parse("2016-06-24T07:37:15Z").toEpochMilli()),
+            decoder.readTimestamp(createReader("<timestamp>2016-06-24T09:37:15+02:00</timestamp>")));
+    }
+
+    @Test
+    void intern()
+    {
+        RevisionMetadataDecoder decoder = new RevisionMetadataDecoder();
+
+        char[] chars = "xxContributorxxContributor".toCharArray();
+
+        String value = decoder.intern(chars, 2, 11);
+        assertEquals("Contributor", value);
+        assertSame(value, decoder.intern(chars, 15, 11));
+
+        char[] longChars = new char[100];
+        assertNotSame(decoder.intern(longChars, 0, 100), decoder.intern(longChars, 0, 100));
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.mediawiki.xml.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link MediaWikiImportMetrics}, {@link LatencyHistogram} and {@link LatencySnapshot}.
+ *
+ * @version $Id$
+ */
+class MediaWikiImportMetricsTest
+{
+    private static final double DELTA = 0.000000001;
+
+    private static void assertSnapshot(LatencySnapshot snapshot, long count, double mean, double p50, double p90,
+        double p99, double max)
+    {
+        assertEquals(count, snapshot.getCount());
+        assertEquals(mean, snapshot.getMean(), DELTA);
+        assertEquals(p50, snapshot.getP50(), DELTA);
+        assertEquals(p90, snapshot.getP90(), DELTA);
+        assertEquals(p99, snapshot.getP99(), DELTA);
+        assertEquals(max, snapshot.getMax(), DELTA);
+    }
+
+    private static void record(LatencyHistogram histogram, int count, long duration, TimeUnit unit)
+    {
+        for (int i = 0; i < count; ++i) {
+            histogram.record(unit.toNanos(duration));
+        }
+    }
+
+    @Test
+    void emptyHistogram()
+    {
+        assertSnapshot(new LatencyHistogram().getSnapshot(), 0, 0, 0, 0, 0, 0);
+    }
+
+    @Test
+    void histogram()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        // [64us, 128us[ bucket
+        record(histogram, 50, 100, TimeUnit.MICROSECONDS);
+        // [512us, 1024us[ bucket
+        record(histogram, 40, 1, TimeUnit.MILLISECONDS);
+        // [8192us, 16384us[ bucket, whose upper bound is greater than the max
+        record(histogram, 10, 10, TimeUnit.MILLISECONDS);
+
+        LatencySnapshot snapshot = histogram.getSnapshot();
+        assertSnapshot(snapshot, 100, 1.45, 0.128, 1.024, 10, 10);
+        assertEquals("count=100, mean=1.450ms, p50=0.128ms, p90=1.024ms, p99=10.000ms, max=10.000ms",
+            snapshot.toString());
+    }
+
+    @Test
+    void histogramBounds()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        // Shorter than the first bucket
+        histogram.record(0);
+        histogram.record(10);
+        assertSnapshot(histogram.getSnapshot(), 2, 0.000005, 0.00001, 0.00001, 0.00001, 0.00001);
+
+        // Longer than the last bucket
+        histogram.record(TimeUnit.DAYS.toNanos(365));
+        LatencySnapshot snapshot = histogram.getSnapshot();
+        assertEquals(3, snapshot.getCount());
+        assertEquals(TimeUnit.DAYS.toMillis(365), snapshot.getMax(), DELTA);
+        assertEquals((1L << 40) / 1000.0, snapshot.getP99(), DELTA);
+    }
+
+    @Test
+    void counters()
+    {
+        MediaWikiImportMetrics metrics = new MediaWikiImportMetrics();
+        metrics.start();
+
+        metrics.onPage();
+        metrics.onPage();
+        metrics.onRevision();
+        metrics.onRevision();
+        metrics.onRevision();
+        metrics.onAttachment(10);
+        metrics.onAttachment(32);
+        metrics.onParse(TimeUnit.MILLISECONDS.toNanos(1));
+        metrics.onAttachmentLookup(TimeUnit.MILLISECONDS.toNanos(2));
+        metrics.onImageDimension(TimeUnit.MILLISECONDS.toNanos(3));
+        metrics.onConversionFailure(new UncheckedIOException(new IOException()));
+        metrics.onConversionFailure(new IllegalStateException());
+        metrics.onConversionFailure(new IllegalStateException());
+
+        assertEquals(2, metrics.getPages());
+        assertEquals(3, metrics.getRevisions());
+        assertEquals(2, metrics.getAttachments());
+        assertEquals(42, metrics.getAttachmentBytes());
+        assertTrue(metrics.getElapsedSeconds() >= 0);
+        assertTrue(metrics.getPagesPerSecond() >= 0);
+        assertTrue(metrics.getRevisionsPerSecond() >= metrics.getPagesPerSecond());
+
+        assertSnapshot(metrics.getParseLatency(), 1, 1, 1, 1, 1, 1);
+        assertSnapshot(metrics.getAttachmentLookupLatency(), 1, 2, 2, 2, 2, 2);
+        assertSnapshot(metrics.getImageDimensionLatency(), 1, 3, 3, 3, 3, 3);
+
+        Map<String, Long> failures = new LinkedHashMap<>();
+        failures.put(UncheckedIOException.class.getName(), 1L);
+        failures.put(IllegalStateException.class.getName(), 2L);
+        assertEquals(failures, metrics.getConversionFailures());
+        // Sorted by exception type
+        assertEquals(Arrays.asList(failures.keySet().toArray()),
+            Arrays.asList(metrics.getConversionFailures().keySet().toArray()));
+
+        assertTrue(metrics.toString().startsWith("[2] pages ("), metrics.toString());
+        assertTrue(metrics.toString().contains("[2] attachments ([42] bytes)"), metrics.toString());
+    }
+
+    @Test
+    void referenceCache()
+    {
+        MediaWikiImportMetrics metrics = new MediaWikiImportMetrics();
+
+        // Disabled
+        assertEquals(-1, metrics.getReferenceCacheHits());
+        assertEquals(-1, metrics.getReferenceCacheMisses());
+
+        long[] counters = new long[] {3, 1};
+        metrics.setReferenceCache(() -> counters[0], () -> counters[1]);
+        assertEquals(3, metrics.getReferenceCacheHits());
+        assertEquals(1, metrics.getReferenceCacheMisses());
+
+        counters[0] = 10;
+        assertEquals(10, metrics.getReferenceCacheHits());
+        assertTrue(metrics.toString().endsWith("reference cache: [10] hits and [1] misses"), metrics.toString());
+    }
+
+    @Test
+    void input() throws InterruptedException
+    {
+        MediaWikiImportMetrics metrics = new MediaWikiImportMetrics();
+
+        // Unknown input
+        assertEquals(-1, metrics.getInputOffset());
+        assertEquals(-1, metrics.getInputSize());
+        assertEquals(-1, metrics.getEstimatedSecondsRemaining());
+
+        long[] offset = new long[1];
+        metrics.setInput(() -> offset[0], 1000);
+        assertEquals(0, metrics.getInputOffset());
+        assertEquals(1000, metrics.getInputSize());
+        // Nothing read yet
+        assertEquals(-1, metrics.getEstimatedSecondsRemaining());
+
+        // Make sure some time elapsed
+        Thread.sleep(10);
+        offset[0] = 1000;
+        assertEquals(1000, metrics.getInputOffset());
+        assertTrue(metrics.getInputBytesPerSecond() > 0);
+        assertEquals(0, metrics.getEstimatedSecondsRemaining());
+
+        // Unknown size
+        metrics.setInput(() -> offset[0], -1);
+        assertEquals(-1, metrics.getEstimatedSecondsRemaining());
+    }
+}